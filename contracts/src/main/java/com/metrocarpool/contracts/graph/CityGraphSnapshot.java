@@ -0,0 +1,264 @@
+package com.metrocarpool.contracts.graph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only view over a binary city-graph snapshot written by {@link CityGraphSnapshotCompiler}.
+ * <p>
+ * Layout (big-endian, sections 8-byte aligned):
+ * <pre>
+ *   header   magic "MCGS", format version, nodeCount, edgeCount, stationCount, flags,
+ *            graphVersion (CRC32 of the body), offsets of the four sections below
+ *   nodes    string table: int[nodeCount + 1] byte offsets, then the UTF-8 names (sorted)
+ *   csr      int[nodeCount + 1] row offsets, int[edgeCount] neighbours (sorted per row), double[edgeCount] weights
+ *   dense    optional double[nodeCount * nodeCount] edge distances, +Infinity where there is no edge
+ *   stations string table of station names, then int[nodeCount] station per node (-1 if none)
+ * </pre>
+ * Only the two string tables are decoded on open; adjacency and distances are read in place, so a
+ * memory-mapped snapshot costs no parsing and is shared through the page cache by every process mapping it.
+ * Absolute reads only, so one instance is safe to share between threads.
+ */
+public final class CityGraphSnapshot {
+
+    static final int MAGIC = 0x4D434753; // "MCGS"
+    static final int FORMAT_VERSION = 1;
+    static final int FLAG_DENSE = 1;
+    static final int HEADER_BYTES = 64;
+
+    private final ByteBuffer buffer;
+    private final int nodeCount;
+    private final int edgeCount;
+    private final long graphVersion;
+    private final int csrOffsets;
+    private final int csrNeighbors;
+    private final int csrWeights;
+    private final int dense;
+    private final int stationOfNode;
+    private final String[] nodeNames;
+    private final Map<String, Integer> index;
+    private final String[] stationNames;
+
+    private CityGraphSnapshot(ByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a city-graph snapshot");
+        }
+        if (buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported city-graph snapshot version " + buffer.getInt(4));
+        }
+        this.nodeCount = buffer.getInt(8);
+        this.edgeCount = buffer.getInt(12);
+        int flags = buffer.getInt(20);
+        this.graphVersion = buffer.getLong(24);
+        int nodesSection = (int) buffer.getLong(32);
+        int csrSection = (int) buffer.getLong(40);
+        int denseSection = (int) buffer.getLong(48);
+        int stationsSection = (int) buffer.getLong(56);
+
+        this.nodeNames = readStrings(buffer, nodesSection, nodeCount);
+        this.index = new HashMap<>(nodeCount * 2);
+        for (int i = 0; i < nodeCount; i++) {
+            index.put(nodeNames[i], i);
+        }
+        this.csrOffsets = csrSection;
+        this.csrNeighbors = csrOffsets + (nodeCount + 1) * Integer.BYTES;
+        this.csrWeights = align(csrNeighbors + edgeCount * Integer.BYTES);
+        this.dense = (flags & FLAG_DENSE) != 0 ? denseSection : -1;
+
+        int stationCount = buffer.getInt(16);
+        this.stationNames = readStrings(buffer, stationsSection, stationCount);
+        this.stationOfNode = align(stringTableEnd(buffer, stationsSection, stationCount));
+    }
+
+    /**
+     * Map a snapshot file read-only. The mapping outlives the channel and stays valid if the file is
+     * later replaced by an atomic rename.
+     */
+    public static CityGraphSnapshot map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new CityGraphSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public static CityGraphSnapshot wrap(ByteBuffer buffer) {
+        return new CityGraphSnapshot(buffer);
+    }
+
+    /**
+     * CRC32 of everything after the header; equal inputs give equal versions.
+     */
+    public long graphVersion() {
+        return graphVersion;
+    }
+
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    public boolean hasDenseDistances() {
+        return dense >= 0;
+    }
+
+    public int sizeBytes() {
+        return buffer.capacity();
+    }
+
+    public List<String> nodeNames() {
+        return Collections.unmodifiableList(Arrays.asList(nodeNames));
+    }
+
+    /**
+     * Index of a place, or -1 if it is not on the graph.
+     */
+    public int indexOf(String place) {
+        Integer i = place == null ? null : index.get(place);
+        return i == null ? -1 : i;
+    }
+
+    public String nodeName(int node) {
+        return nodeNames[node];
+    }
+
+    /**
+     * Edge distance between two places in either direction, 0 for the same place, +Infinity if unknown.
+     */
+    public double distance(String a, String b) {
+        if (a == null || b == null) return Double.POSITIVE_INFINITY;
+        if (a.equals(b)) return 0.0;
+        int i = indexOf(a);
+        int j = indexOf(b);
+        if (i < 0 || j < 0) return Double.POSITIVE_INFINITY;
+        return distance(i, j);
+    }
+
+    public double distance(int i, int j) {
+        if (i == j) return 0.0;
+        if (dense >= 0) {
+            // the compiler only writes the dense block while it fits an int-addressed buffer
+            return buffer.getDouble(dense + (i * nodeCount + j) * Double.BYTES);
+        }
+        double d = edge(i, j);
+        return Double.isInfinite(d) ? edge(j, i) : d;
+    }
+
+    public int degree(int node) {
+        return rowEnd(node) - rowStart(node);
+    }
+
+    public int neighbor(int node, int k) {
+        return buffer.getInt(csrNeighbors + (rowStart(node) + k) * Integer.BYTES);
+    }
+
+    public double weight(int node, int k) {
+        return buffer.getDouble(csrWeights + (rowStart(node) + k) * Double.BYTES);
+    }
+
+    /**
+     * Nearby metro station of a place, or null if it has none.
+     */
+    public String stationOf(String place) {
+        int i = indexOf(place);
+        return i < 0 ? null : stationOf(i);
+    }
+
+    public String stationOf(int node) {
+        int s = buffer.getInt(stationOfNode + node * Integer.BYTES);
+        return s < 0 ? null : stationNames[s];
+    }
+
+    /**
+     * Number of places that have a nearby station.
+     */
+    public int stationedNodeCount() {
+        int count = 0;
+        for (int i = 0; i < nodeCount; i++) {
+            if (buffer.getInt(stationOfNode + i * Integer.BYTES) >= 0) count++;
+        }
+        return count;
+    }
+
+    /**
+     * The adjacency as the boxed map shape used by the JSON cache ("location-location-map").
+     */
+    public Map<String, Map<String, Double>> toEdgeMap() {
+        Map<String, Map<String, Double>> out = new HashMap<>(nodeCount * 2);
+        for (int i = 0; i < nodeCount; i++) {
+            int degree = degree(i);
+            if (degree == 0) continue;
+            Map<String, Double> inner = new HashMap<>(degree * 2);
+            for (int k = 0; k < degree; k++) {
+                inner.put(nodeNames[neighbor(i, k)], weight(i, k));
+            }
+            out.put(nodeNames[i], inner);
+        }
+        return out;
+    }
+
+    /**
+     * The place -> station map ("nearby-stations").
+     */
+    public Map<String, String> toNearbyMap() {
+        Map<String, String> out = new HashMap<>();
+        for (int i = 0; i < nodeCount; i++) {
+            String station = stationOf(i);
+            if (station != null) out.put(nodeNames[i], station);
+        }
+        return out;
+    }
+
+    private int rowStart(int node) {
+        return buffer.getInt(csrOffsets + node * Integer.BYTES);
+    }
+
+    private int rowEnd(int node) {
+        return buffer.getInt(csrOffsets + (node + 1) * Integer.BYTES);
+    }
+
+    private double edge(int from, int to) {
+        int lo = rowStart(from);
+        int hi = rowEnd(from) - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int v = buffer.getInt(csrNeighbors + mid * Integer.BYTES);
+            if (v < to) lo = mid + 1;
+            else if (v > to) hi = mid - 1;
+            else return buffer.getDouble(csrWeights + mid * Double.BYTES);
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    private static String[] readStrings(ByteBuffer buffer, int section, int count) {
+        String[] out = new String[count];
+        int blob = section + (count + 1) * Integer.BYTES;
+        for (int i = 0; i < count; i++) {
+            int from = buffer.getInt(section + i * Integer.BYTES);
+            int to = buffer.getInt(section + (i + 1) * Integer.BYTES);
+            byte[] bytes = new byte[to - from];
+            buffer.get(blob + from, bytes);
+            out[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return out;
+    }
+
+    static int stringTableEnd(ByteBuffer buffer, int section, int count) {
+        return section + (count + 1) * Integer.BYTES + buffer.getInt(section + count * Integer.BYTES);
+    }
+
+    static int align(int offset) {
+        return (offset + 7) & ~7;
+    }
+}
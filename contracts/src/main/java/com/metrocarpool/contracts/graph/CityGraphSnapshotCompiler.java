@@ -0,0 +1,242 @@
+package com.metrocarpool.contracts.graph;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Builds the binary snapshot read by {@link CityGraphSnapshot}, either from the maps the services already hold
+ * or, as a command-line tool, from the CSVs the Redis loader uses:
+ * <pre>
+ *   java -cp contracts/target/classes com.metrocarpool.contracts.graph.CityGraphSnapshotCompiler \
+ *       infra/csv_generation/complete_undirected_distances.csv.gz infra/csv_generation/location_nearby.csv \
+ *       city-graph.bin [--no-dense]
+ * </pre>
+ */
+public final class CityGraphSnapshotCompiler {
+
+    // 8192^2 doubles = 512 MiB, the most an int-addressed buffer can hold as a dense block
+    static final int MAX_DENSE_NODES = 8192;
+
+    private CityGraphSnapshotCompiler() {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("usage: CityGraphSnapshotCompiler <distances.csv[.gz]> <nearby.csv> <out.bin> [--no-dense]");
+            System.exit(2);
+        }
+        boolean dense = !(args.length > 3 && "--no-dense".equals(args[3]));
+        long start = System.nanoTime();
+        Map<String, Map<String, Double>> edges = readDistances(Path.of(args[0]));
+        Map<String, String> nearby = readNearby(Path.of(args[1]));
+        ByteBuffer snapshot = compile(edges, nearby, dense);
+        write(snapshot, Path.of(args[2]));
+        System.out.printf("Wrote %s: %d nodes, %d bytes, %d ms%n", args[2], edges.size(), snapshot.capacity(),
+                (System.nanoTime() - start) / 1_000_000L);
+    }
+
+    /**
+     * Compile the adjacency map and the place -> station map into a snapshot buffer.
+     * The dense block is written when requested and the graph has at most {@value #MAX_DENSE_NODES} nodes.
+     */
+    public static ByteBuffer compile(Map<String, Map<String, Double>> edges, Map<String, String> nearby, boolean dense) {
+        TreeSet<String> names = new TreeSet<>(edges.keySet());
+        for (Map<String, Double> inner : edges.values()) {
+            names.addAll(inner.keySet());
+        }
+        names.addAll(nearby.keySet());
+        String[] nodes = names.toArray(new String[0]);
+        int n = nodes.length;
+        Map<String, Integer> index = new HashMap<>(n * 2);
+        for (int i = 0; i < n; i++) {
+            index.put(nodes[i], i);
+        }
+        String[] stations = new TreeSet<>(nearby.values().stream().filter(s -> s != null && !s.isEmpty()).toList())
+                .toArray(new String[0]);
+        Map<String, Integer> stationIndex = new HashMap<>(stations.length * 2);
+        for (int i = 0; i < stations.length; i++) {
+            stationIndex.put(stations[i], i);
+        }
+
+        int[] rowOffsets = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            Map<String, Double> inner = edges.get(nodes[i]);
+            rowOffsets[i + 1] = rowOffsets[i] + (inner == null ? 0 : inner.size());
+        }
+        int m = rowOffsets[n];
+        boolean writeDense = dense && n <= MAX_DENSE_NODES;
+
+        byte[][] nodeBytes = utf8(nodes);
+        byte[][] stationBytes = utf8(stations);
+        int nodesSection = CityGraphSnapshot.HEADER_BYTES;
+        int csrSection = CityGraphSnapshot.align(nodesSection + stringTableBytes(nodeBytes));
+        int csrWeights = CityGraphSnapshot.align(csrSection + (n + 1 + m) * Integer.BYTES);
+        int denseSection = CityGraphSnapshot.align(csrWeights + m * Double.BYTES);
+        int stationsSection = writeDense ? denseSection + n * n * Double.BYTES : denseSection;
+        int stationOfNode = CityGraphSnapshot.align(stationsSection + stringTableBytes(stationBytes));
+        int total = CityGraphSnapshot.align(stationOfNode + n * Integer.BYTES);
+
+        ByteBuffer buf = ByteBuffer.allocate(total);
+        putStrings(buf, nodesSection, nodeBytes);
+
+        for (int i = 0; i <= n; i++) {
+            buf.putInt(csrSection + i * Integer.BYTES, rowOffsets[i]);
+        }
+        int neighbors = csrSection + (n + 1) * Integer.BYTES;
+        for (int i = 0; i < n; i++) {
+            Map<String, Double> inner = edges.get(nodes[i]);
+            if (inner == null) continue;
+            int[] sorted = inner.keySet().stream().mapToInt(index::get).sorted().toArray();
+            for (int k = 0; k < sorted.length; k++) {
+                int slot = rowOffsets[i] + k;
+                buf.putInt(neighbors + slot * Integer.BYTES, sorted[k]);
+                buf.putDouble(csrWeights + slot * Double.BYTES, inner.get(nodes[sorted[k]]));
+            }
+        }
+
+        if (writeDense) {
+            double[] row = new double[n];
+            for (int i = 0; i < n; i++) {
+                Arrays.fill(row, Double.POSITIVE_INFINITY);
+                row[i] = 0.0;
+                Map<String, Double> inner = edges.get(nodes[i]);
+                if (inner != null) {
+                    for (Map.Entry<String, Double> e : inner.entrySet()) row[index.get(e.getKey())] = e.getValue();
+                }
+                // lookups are symmetric: fill from the reverse edge where only that one exists
+                for (int j = 0; j < n; j++) {
+                    if (!Double.isInfinite(row[j])) continue;
+                    Map<String, Double> reverse = edges.get(nodes[j]);
+                    Double d = reverse == null ? null : reverse.get(nodes[i]);
+                    if (d != null) row[j] = d;
+                }
+                for (int j = 0; j < n; j++) {
+                    buf.putDouble(denseSection + (i * n + j) * Double.BYTES, row[j]);
+                }
+            }
+        }
+
+        putStrings(buf, stationsSection, stationBytes);
+        for (int i = 0; i < n; i++) {
+            String station = nearby.get(nodes[i]);
+            Integer s = station == null ? null : stationIndex.get(station);
+            buf.putInt(stationOfNode + i * Integer.BYTES, s == null ? -1 : s);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buf.array(), CityGraphSnapshot.HEADER_BYTES, total - CityGraphSnapshot.HEADER_BYTES);
+        buf.putInt(0, CityGraphSnapshot.MAGIC);
+        buf.putInt(4, CityGraphSnapshot.FORMAT_VERSION);
+        buf.putInt(8, n);
+        buf.putInt(12, m);
+        buf.putInt(16, stations.length);
+        buf.putInt(20, writeDense ? CityGraphSnapshot.FLAG_DENSE : 0);
+        buf.putLong(24, crc.getValue());
+        buf.putLong(32, nodesSection);
+        buf.putLong(40, csrSection);
+        buf.putLong(48, writeDense ? denseSection : 0);
+        buf.putLong(56, stationsSection);
+        return buf;
+    }
+
+    /**
+     * Write to a temporary file and rename it over the target, so processes that mapped the old file keep a
+     * valid mapping and new readers see either the old or the new snapshot, never a partial one.
+     */
+    public static void write(ByteBuffer snapshot, Path target) throws IOException {
+        Path dir = target.toAbsolutePath().getParent();
+        Path tmp = Files.createTempFile(dir, target.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer src = snapshot.duplicate().rewind();
+            while (src.hasRemaining()) channel.write(src);
+            channel.force(true);
+        }
+        try {
+            // temp files are owner-only; every service on the host maps the snapshot
+            Files.setPosixFilePermissions(tmp, PosixFilePermissions.fromString("rw-r--r--"));
+        } catch (UnsupportedOperationException ignored) {
+            // non-POSIX file system
+        }
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * node1,node2,distance rows; the graph is undirected, so each row is stored in both directions.
+     */
+    static Map<String, Map<String, Double>> readDistances(Path path) throws IOException {
+        Map<String, Map<String, Double>> edges = new HashMap<>();
+        try (BufferedReader reader = open(path)) {
+            reader.readLine(); // header
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] cols = line.split(",", -1);
+                if (cols.length < 3 || cols[0].isEmpty()) continue;
+                double d = Double.parseDouble(cols[2].trim());
+                edges.computeIfAbsent(cols[0], k -> new HashMap<>()).put(cols[1], d);
+                edges.computeIfAbsent(cols[1], k -> new HashMap<>()).put(cols[0], d);
+            }
+        }
+        return edges;
+    }
+
+    /**
+     * city_point,near_metro_dropoff rows; places without a station are skipped.
+     */
+    static Map<String, String> readNearby(Path path) throws IOException {
+        Map<String, String> nearby = new HashMap<>();
+        try (BufferedReader reader = open(path)) {
+            reader.readLine(); // header
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] cols = line.split(",", -1);
+                if (cols.length < 2 || cols[1].isBlank()) continue;
+                nearby.put(cols[0], cols[1].trim());
+            }
+        }
+        return nearby;
+    }
+
+    private static BufferedReader open(Path path) throws IOException {
+        InputStream in = Files.newInputStream(path);
+        if (path.toString().endsWith(".gz")) in = new GZIPInputStream(in);
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    private static byte[][] utf8(String[] values) {
+        byte[][] out = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) out[i] = values[i].getBytes(StandardCharsets.UTF_8);
+        return out;
+    }
+
+    private static int stringTableBytes(byte[][] values) {
+        int bytes = (values.length + 1) * Integer.BYTES;
+        for (byte[] v : values) bytes += v.length;
+        return bytes;
+    }
+
+    private static void putStrings(ByteBuffer buf, int section, byte[][] values) {
+        int blob = section + (values.length + 1) * Integer.BYTES;
+        int offset = 0;
+        for (int i = 0; i < values.length; i++) {
+            buf.putInt(section + i * Integer.BYTES, offset);
+            buf.put(blob + offset, values[i]);
+            offset += values[i].length;
+        }
+        buf.putInt(section + values.length * Integer.BYTES, offset);
+    }
+}
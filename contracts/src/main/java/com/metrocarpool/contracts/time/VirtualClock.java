@@ -0,0 +1,66 @@
+package com.metrocarpool.contracts.time;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link Clock} that only moves when told to, for running the simulation in virtual time: a runner
+ * advances it step by step and invokes the scheduled work itself, as fast as the CPU allows. Two runs from the
+ * same start see the same timestamps. Thread-safe; time never goes backwards.
+ */
+public final class VirtualClock extends Clock {
+
+    private final AtomicLong millis;
+    private final ZoneId zone;
+
+    public VirtualClock(Instant start) {
+        this(new AtomicLong(start.toEpochMilli()), ZoneOffset.UTC);
+    }
+
+    private VirtualClock(AtomicLong millis, ZoneId zone) {
+        this.millis = millis;
+        this.zone = zone;
+    }
+
+    /**
+     * Move the clock forward by step and return the new time in epoch millis.
+     */
+    public long advance(Duration step) {
+        if (step.isNegative()) throw new IllegalArgumentException("Virtual time cannot go backwards: " + step);
+        return millis.addAndGet(step.toMillis());
+    }
+
+    /**
+     * Move the clock to epochMillis if that is ahead of it; returns the resulting time.
+     */
+    public long advanceTo(long epochMillis) {
+        return millis.accumulateAndGet(epochMillis, Math::max);
+    }
+
+    @Override
+    public long millis() {
+        return millis.get();
+    }
+
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochMilli(millis.get());
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    /**
+     * A view in another zone sharing this clock's time.
+     */
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return zone.equals(this.zone) ? this : new VirtualClock(millis, zone);
+    }
+}
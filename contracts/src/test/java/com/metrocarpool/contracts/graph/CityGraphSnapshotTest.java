@@ -0,0 +1,90 @@
+package com.metrocarpool.contracts.graph;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("CityGraphSnapshot Unit Tests")
+class CityGraphSnapshotTest {
+
+    private static Map<String, Map<String, Double>> buildEdges() {
+        Map<String, Map<String, Double>> edges = new HashMap<>();
+        edges.put("a1", new HashMap<>(Map.of("a2", 4.0, "a3", 7.5)));
+        edges.put("a2", new HashMap<>(Map.of("a3", 2.0)));
+        return edges;
+    }
+
+    @Test
+    @DisplayName("compile/wrap - Should answer symmetric distances from the dense block and from CSR alike")
+    void compile_DenseAndSparseAgree() {
+        Map<String, String> nearby = Map.of("a1", "ME1", "a3", "ME1");
+        CityGraphSnapshot dense = CityGraphSnapshot.wrap(CityGraphSnapshotCompiler.compile(buildEdges(), nearby, true));
+        CityGraphSnapshot sparse = CityGraphSnapshot.wrap(CityGraphSnapshotCompiler.compile(buildEdges(), nearby, false));
+
+        assertThat(dense.hasDenseDistances()).isTrue();
+        assertThat(sparse.hasDenseDistances()).isFalse();
+        for (CityGraphSnapshot snapshot : new CityGraphSnapshot[]{dense, sparse}) {
+            assertThat(snapshot.nodeNames()).containsExactly("a1", "a2", "a3");
+            assertThat(snapshot.edgeCount()).isEqualTo(3);
+            assertThat(snapshot.distance("a1", "a3")).isEqualTo(7.5);
+            assertThat(snapshot.distance("a3", "a2")).isEqualTo(2.0);
+            assertThat(snapshot.distance("a2", "a2")).isEqualTo(0.0);
+            assertThat(snapshot.distance("a1", "zz")).isInfinite();
+            assertThat(snapshot.stationOf("a3")).isEqualTo("ME1");
+            assertThat(snapshot.stationOf("a2")).isNull();
+            assertThat(snapshot.stationedNodeCount()).isEqualTo(2);
+            assertThat(snapshot.toEdgeMap()).isEqualTo(buildEdges());
+        }
+    }
+
+    @Test
+    @DisplayName("graphVersion - Should be stable for equal inputs and change with the graph")
+    void graphVersion_ContentHash() {
+        long v1 = CityGraphSnapshot.wrap(CityGraphSnapshotCompiler.compile(buildEdges(), Map.of(), true)).graphVersion();
+        long v2 = CityGraphSnapshot.wrap(CityGraphSnapshotCompiler.compile(buildEdges(), Map.of(), true)).graphVersion();
+        Map<String, Map<String, Double>> changed = buildEdges();
+        changed.get("a2").put("a3", 3.0);
+        long v3 = CityGraphSnapshot.wrap(CityGraphSnapshotCompiler.compile(changed, Map.of(), true)).graphVersion();
+
+        assertThat(v1).isEqualTo(v2);
+        assertThat(v3).isNotEqualTo(v1);
+    }
+
+    @Test
+    @DisplayName("main/map - Should compile the loader CSVs into a file that maps back read-only")
+    void main_CompilesCsvAndMaps(@TempDir Path dir) throws Exception {
+        Path distances = dir.resolve("distances.csv.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(distances))) {
+            out.write("node1,node2,distance\na1,a1,0\na1,a2,4\na2,a3,2.5\n".getBytes(StandardCharsets.UTF_8));
+        }
+        Path nearby = dir.resolve("nearby.csv");
+        Files.writeString(nearby, "city_point,near_metro_dropoff\na1,\na2,ME7\n");
+        Path out = dir.resolve("city-graph.bin");
+
+        CityGraphSnapshotCompiler.main(new String[]{distances.toString(), nearby.toString(), out.toString()});
+        CityGraphSnapshot snapshot = CityGraphSnapshot.map(out);
+
+        assertThat(snapshot.nodeCount()).isEqualTo(3);
+        assertThat(snapshot.distance("a3", "a2")).isEqualTo(2.5);
+        assertThat(snapshot.stationOf("a2")).isEqualTo("ME7");
+        assertThat(snapshot.stationOf("a1")).isNull();
+        assertThat(snapshot.sizeBytes()).isEqualTo((int) Files.size(out));
+    }
+
+    @Test
+    @DisplayName("wrap - Should reject buffers that are not snapshots")
+    void wrap_RejectsForeignData() {
+        assertThatThrownBy(() -> CityGraphSnapshot.wrap(java.nio.ByteBuffer.allocate(128)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
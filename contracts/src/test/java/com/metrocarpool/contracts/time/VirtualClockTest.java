@@ -0,0 +1,41 @@
+package com.metrocarpool.contracts.time;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("VirtualClock Unit Tests")
+class VirtualClockTest {
+
+    private static final Instant START = Instant.parse("2024-01-01T00:00:00Z");
+
+    @Test
+    @DisplayName("advance - Should move only when told to and never backwards")
+    void advance_MovesForwardOnly() {
+        VirtualClock clock = new VirtualClock(START);
+
+        assertThat(clock.instant()).isEqualTo(START);
+        assertThat(clock.advance(Duration.ofMinutes(2))).isEqualTo(START.toEpochMilli() + 120_000L);
+        assertThat(clock.advanceTo(START.toEpochMilli())).isEqualTo(START.toEpochMilli() + 120_000L);
+        assertThat(clock.advanceTo(START.toEpochMilli() + 180_000L)).isEqualTo(clock.millis());
+        assertThatThrownBy(() -> clock.advance(Duration.ofSeconds(-1))).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("withZone - Should share the time with the original clock")
+    void withZone_SharesTime() {
+        VirtualClock clock = new VirtualClock(START);
+        Clock kolkata = clock.withZone(ZoneId.of("Asia/Kolkata"));
+
+        clock.advance(Duration.ofHours(1));
+
+        assertThat(kolkata.instant()).isEqualTo(clock.instant());
+        assertThat(kolkata.getZone()).isEqualTo(ZoneId.of("Asia/Kolkata"));
+    }
+}
@@ -0,0 +1,101 @@
+package com.metrocarpool.driver.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToDoubleBiFunction;
+
+/**
+ * A driver's route compiled once at first use, so the tick never scans the route or looks distances up again.
+ * cumulativeDistance[i] is the distance from route[0] to route[i] (infinite from the first unknown segment on);
+ * stationIndices / stationIds list the route places that have a nearby metro station, in route order;
+ * graphVersion is the city graph they were read from, so a new graph version recompiles the route.
+ * Instances are never modified after compile, so shallow copies of a DriverCache can share them.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompiledRoute {
+    private double[] cumulativeDistance;
+    private int[] stationIndices;
+    private String[] stationIds;
+    private long graphVersion;
+
+    public static CompiledRoute compile(List<String> route,
+                                        ToDoubleBiFunction<String, String> distance,
+                                        Function<String, String> stationOf,
+                                        long graphVersion) {
+        int n = route.size();
+        double[] cumulative = new double[n];
+        for (int i = 1; i < n; i++) {
+            cumulative[i] = cumulative[i - 1] + distance.applyAsDouble(route.get(i - 1), route.get(i));
+        }
+
+        int[] indices = new int[n];
+        String[] ids = new String[n];
+        int stations = 0;
+        for (int i = 0; i < n; i++) {
+            String station = stationOf.apply(route.get(i));
+            if (station != null && !station.isEmpty()) {
+                indices[stations] = i;
+                ids[stations] = station;
+                stations++;
+            }
+        }
+        return new CompiledRoute(cumulative, Arrays.copyOf(indices, stations), Arrays.copyOf(ids, stations),
+                graphVersion);
+    }
+
+    public int size() {
+        return cumulativeDistance.length;
+    }
+
+    /**
+     * Length of the segment route[toIndex - 1] -> route[toIndex]; infinite if unknown.
+     */
+    public double segmentDistance(int toIndex) {
+        if (toIndex <= 0 || toIndex >= cumulativeDistance.length) return Double.POSITIVE_INFINITY;
+        double to = cumulativeDistance[toIndex];
+        double from = cumulativeDistance[toIndex - 1];
+        return Double.isInfinite(to) ? Double.POSITIVE_INFINITY : to - from;
+    }
+
+    /**
+     * Slot in stationIndices of the first station at or after route index fromIndex, or -1.
+     */
+    public int nextStationSlot(int fromIndex) {
+        int slot = lowerBound(fromIndex);
+        return slot < stationIndices.length ? slot : -1;
+    }
+
+    /**
+     * Slot in stationIndices of the last station strictly before route index beforeIndex, or -1.
+     */
+    public int previousStationSlot(int beforeIndex) {
+        return lowerBound(beforeIndex) - 1;
+    }
+
+    public int stationIndex(int slot) {
+        return stationIndices[slot];
+    }
+
+    public String stationId(int slot) {
+        return stationIds[slot];
+    }
+
+    // First slot whose route index is >= routeIndex
+    private int lowerBound(int routeIndex) {
+        int lo = 0;
+        int hi = stationIndices.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (stationIndices[mid] < routeIndex) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+}
@@ -11,7 +11,7 @@ import java.util.List;
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 public class DriverCache {
     private Integer availableSeats;
     private List<String> routePlaces;
@@ -21,4 +21,12 @@ public class DriverCache {
     private String finalDestination;
     // NEW: store last seen metro station id (empty string if none)
     private String lastSeenMetroStation;
+    // Epoch millis at which the driver entered the segment ending at nextPlace (feeds travel-time learning)
+    private Long segmentEnteredAt;
+    // Index of nextPlace in routePlaces
+    private Integer routeCursor;
+    // Prefix distances and upcoming stations of routePlaces, compiled on the first tick
+    private CompiledRoute compiledRoute;
+    // Simulation time at which a reported position last moved the driver; while recent, the simulation leaves it alone
+    private Long lastTelemetryAt;
 }
@@ -0,0 +1,322 @@
+package com.metrocarpool.driver.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Per-driver state in the Redis hash "driver-state" (field = driverId, value = DriverCache JSON).
+ * Registration and seat changes touch a single field; the simulation tick writes only the drivers it changed,
+ * in one pipelined round trip.
+ * <p>
+ * Seat counts live apart in "driver-seats" (field = driverId, value = seats) so a match can take a seat with
+ * one atomic script and no lock, while the tick keeps rewriting the state. Reads overlay the seat count on
+ * the state; the copy inside the JSON is only a fallback for drivers stored before the seat hash existed.
+ * <p>
+ * With driver.fleet.off-heap the tick works on a local {@link OffHeapFleetStore} mirror. Every write made outside
+ * the tick then also adds the driver to the set "driver-state:changed", and each tick bumps
+ * "driver-state:tick", so the mirror reloads only those drivers, or everything after another instance ticked.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class DriverStateStore {
+
+    public static final String DRIVER_STATE_KEY = "driver-state";
+    public static final String DRIVER_SEATS_KEY = "driver-seats";
+    public static final String DRIVER_CHANGED_KEY = "driver-state:changed";
+    public static final String TICK_GENERATION_KEY = "driver-state:tick";
+    // takeSeat results other than the remaining seat count
+    public static final long NO_SEAT_LEFT = -1L;
+    public static final long UNKNOWN_DRIVER = -2L;
+
+    // Take one seat unless none are left; seeds the seat field from the state JSON for older drivers
+    private static final RedisScript<Long> TAKE_SEAT_SCRIPT = new DefaultRedisScript<>("""
+            local seats = redis.call('HGET', KEYS[1], ARGV[1])
+            if not seats then
+              local state = redis.call('HGET', KEYS[2], ARGV[1])
+              if not state then return -2 end
+              seats = cjson.decode(state)['availableSeats']
+              if type(seats) ~= 'number' then seats = 0 end
+              redis.call('HSET', KEYS[1], ARGV[1], seats)
+            end
+            if tonumber(seats) <= 0 then return -1 end
+            if ARGV[2] == '1' then redis.call('SADD', KEYS[3], ARGV[1]) end
+            return redis.call('HINCRBY', KEYS[1], ARGV[1], -1)
+            """, Long.class);
+    // Single-blob layout used before per-driver fields
+    static final String LEGACY_DRIVER_CACHE_KEY = "drivers";
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final RedisTemplate<String, String> redisStringTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${driver.fleet.off-heap:false}")
+    private boolean trackChanges;
+
+    public DriverCache get(Long driverId) {
+        String field = String.valueOf(driverId);
+        Object json = redisStringTemplate.opsForHash().get(DRIVER_STATE_KEY, field);
+        if (json == null) return null;
+        DriverCache cache = decode(driverId, json.toString());
+        if (cache != null) overlaySeats(cache, redisStringTemplate.opsForHash().get(DRIVER_SEATS_KEY, field));
+        return cache;
+    }
+
+    /**
+     * Store a newly registered driver, its seat count included.
+     */
+    public void put(Long driverId, DriverCache driverCache) {
+        String field = String.valueOf(driverId);
+        redisStringTemplate.opsForHash().put(DRIVER_STATE_KEY, field, encode(driverCache));
+        if (driverCache.getAvailableSeats() != null) {
+            redisStringTemplate.opsForHash().put(DRIVER_SEATS_KEY, field, String.valueOf(driverCache.getAvailableSeats()));
+        }
+        if (trackChanges) redisStringTemplate.opsForSet().add(DRIVER_CHANGED_KEY, field);
+    }
+
+    /**
+     * Store newly registered drivers, seat counts included, in one pipelined round trip.
+     */
+    public void putAll(Map<Long, DriverCache> drivers) {
+        if (drivers.isEmpty()) return;
+        Map<String, String> encoded = new HashMap<>(drivers.size() * 2);
+        Map<String, String> seats = new HashMap<>(drivers.size() * 2);
+        for (Map.Entry<Long, DriverCache> entry : drivers.entrySet()) {
+            String field = String.valueOf(entry.getKey());
+            encoded.put(field, encode(entry.getValue()));
+            if (entry.getValue().getAvailableSeats() != null) {
+                seats.put(field, String.valueOf(entry.getValue().getAvailableSeats()));
+            }
+        }
+        redisStringTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                ops.opsForHash().putAll(DRIVER_STATE_KEY, encoded);
+                if (!seats.isEmpty()) ops.opsForHash().putAll(DRIVER_SEATS_KEY, seats);
+                if (trackChanges) ops.opsForSet().add(DRIVER_CHANGED_KEY, encoded.keySet().toArray(String[]::new));
+                return null;
+            }
+        });
+    }
+
+    public void remove(Long driverId) {
+        redisStringTemplate.opsForHash().delete(DRIVER_STATE_KEY, String.valueOf(driverId));
+        redisStringTemplate.opsForHash().delete(DRIVER_SEATS_KEY, String.valueOf(driverId));
+        if (trackChanges) redisStringTemplate.opsForSet().add(DRIVER_CHANGED_KEY, String.valueOf(driverId));
+    }
+
+    /**
+     * Atomically take one seat from the driver. Returns the seats left, {@link #NO_SEAT_LEFT} if the car was
+     * already full, or {@link #UNKNOWN_DRIVER}.
+     */
+    public long takeSeat(Long driverId) {
+        Long result = redisStringTemplate.execute(TAKE_SEAT_SCRIPT,
+                List.of(DRIVER_SEATS_KEY, DRIVER_STATE_KEY, DRIVER_CHANGED_KEY),
+                String.valueOf(driverId), trackChanges ? "1" : "0");
+        return result == null ? UNKNOWN_DRIVER : result;
+    }
+
+    /**
+     * Every driver currently stored; entries that cannot be decoded are skipped.
+     */
+    public Map<Long, DriverCache> loadAll() {
+        Map<Object, Object> raw = redisStringTemplate.opsForHash().entries(DRIVER_STATE_KEY);
+        Map<Object, Object> seats = redisStringTemplate.opsForHash().entries(DRIVER_SEATS_KEY);
+        Map<Long, DriverCache> out = new HashMap<>(raw.size() * 2);
+        for (Map.Entry<Object, Object> entry : raw.entrySet()) {
+            Long id = parseLongKey(entry.getKey());
+            if (id == null || entry.getValue() == null) continue;
+            DriverCache cache = decode(id, entry.getValue().toString());
+            if (cache == null) continue;
+            overlaySeats(cache, seats == null ? null : seats.get(entry.getKey()));
+            out.put(id, cache);
+        }
+        return out;
+    }
+
+    /**
+     * The given drivers in one HMGET; drivers that are missing or unreadable are left out.
+     */
+    public Map<Long, DriverCache> getAll(Collection<Long> driverIds) {
+        if (driverIds.isEmpty()) return new HashMap<>();
+        List<Object> fields = driverIds.stream().map(id -> (Object) String.valueOf(id)).toList();
+        List<Object> values = redisStringTemplate.opsForHash().multiGet(DRIVER_STATE_KEY, fields);
+        List<Object> seats = redisStringTemplate.opsForHash().multiGet(DRIVER_SEATS_KEY, fields);
+        Map<Long, DriverCache> out = new HashMap<>(driverIds.size() * 2);
+        Iterator<Long> ids = driverIds.iterator();
+        for (int i = 0; i < values.size(); i++) {
+            Long id = ids.next();
+            Object value = values.get(i);
+            if (value == null) continue;
+            DriverCache cache = decode(id, value.toString());
+            if (cache == null) continue;
+            overlaySeats(cache, seats != null && i < seats.size() ? seats.get(i) : null);
+            out.put(id, cache);
+        }
+        return out;
+    }
+
+    /**
+     * Write the changed drivers and delete the removed ones in a single pipelined round trip.
+     * Seat counts are not written: after registration they only change through {@link #takeSeat}.
+     */
+    public void writeBatch(Map<Long, DriverCache> changed, Collection<Long> removed) {
+        writeBatch(changed, removed, trackChanges);
+    }
+
+    /**
+     * {@link #writeBatch(Map, Collection)}, recording the drivers in "driver-state:changed" only if markChanged;
+     * the off-heap tick writes its own changes without marking them.
+     */
+    public void writeBatch(Map<Long, DriverCache> changed, Collection<Long> removed, boolean markChanged) {
+        if (changed.isEmpty() && removed.isEmpty()) return;
+        Map<String, String> encoded = new HashMap<>(changed.size() * 2);
+        for (Map.Entry<Long, DriverCache> entry : changed.entrySet()) {
+            encoded.put(String.valueOf(entry.getKey()), encode(entry.getValue()));
+        }
+        Object[] removedFields = removed.stream().map(String::valueOf).toArray();
+
+        redisStringTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                if (!encoded.isEmpty()) ops.opsForHash().putAll(DRIVER_STATE_KEY, encoded);
+                if (removedFields.length > 0) {
+                    ops.opsForHash().delete(DRIVER_STATE_KEY, removedFields);
+                    ops.opsForHash().delete(DRIVER_SEATS_KEY, removedFields);
+                }
+                if (markChanged) {
+                    String[] touched = new String[encoded.size() + removedFields.length];
+                    int i = 0;
+                    for (String field : encoded.keySet()) touched[i++] = field;
+                    for (Object field : removedFields) touched[i++] = (String) field;
+                    ops.opsForSet().add(DRIVER_CHANGED_KEY, touched);
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Pop every driver recorded in "driver-state:changed".
+     */
+    public Set<Long> drainChanged() {
+        Set<Long> out = new HashSet<>();
+        List<String> popped;
+        do {
+            popped = redisStringTemplate.opsForSet().pop(DRIVER_CHANGED_KEY, 10_000);
+            if (popped == null) break;
+            for (String field : popped) {
+                Long id = parseLongKey(field);
+                if (id != null) out.add(id);
+            }
+        } while (popped.size() == 10_000);
+        return out;
+    }
+
+    public long tickGeneration() {
+        String value = redisStringTemplate.opsForValue().get(TICK_GENERATION_KEY);
+        try {
+            return value == null ? 0L : Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+
+    /**
+     * Count a finished tick and return the new generation.
+     */
+    public long advanceTickGeneration() {
+        Long value = redisStringTemplate.opsForValue().increment(TICK_GENERATION_KEY);
+        return value == null ? 0L : value;
+    }
+
+    /**
+     * Move drivers from the legacy "drivers" blob into per-driver fields, then drop the blob.
+     * Drivers already present in the hash win over the blob.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateLegacyBlob() {
+        try {
+            Object raw = redisTemplate.opsForValue().get(LEGACY_DRIVER_CACHE_KEY);
+            if (!(raw instanceof Map<?, ?> rawMap)) return;
+
+            Map<String, String> encoded = new HashMap<>();
+            for (Map.Entry<?, ?> entry : rawMap.entrySet()) {
+                Long id = parseLongKey(entry.getKey());
+                if (id == null) continue;
+                Object val = entry.getValue();
+                DriverCache cache = null;
+                if (val instanceof DriverCache dc) {
+                    cache = dc;
+                } else if (val instanceof Map) {
+                    try {
+                        cache = objectMapper.convertValue(val, DriverCache.class);
+                    } catch (IllegalArgumentException ex) {
+                        log.warn("Failed to convert legacy driver cache for id {}: {}", id, ex.getMessage());
+                    }
+                }
+                if (cache != null) encoded.put(String.valueOf(id), encode(cache));
+            }
+            for (Map.Entry<String, String> entry : encoded.entrySet()) {
+                redisStringTemplate.opsForHash().putIfAbsent(DRIVER_STATE_KEY, entry.getKey(), entry.getValue());
+            }
+            redisTemplate.delete(LEGACY_DRIVER_CACHE_KEY);
+            log.info("DriverStateStore: migrated {} drivers from '{}' to '{}'.",
+                    encoded.size(), LEGACY_DRIVER_CACHE_KEY, DRIVER_STATE_KEY);
+        } catch (Exception e) {
+            log.error("DriverStateStore: legacy migration failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private static void overlaySeats(DriverCache cache, Object seats) {
+        if (seats == null) return;
+        try {
+            cache.setAvailableSeats(Integer.parseInt(seats.toString()));
+        } catch (NumberFormatException ignored) {
+            // keep the count from the state JSON
+        }
+    }
+
+    private String encode(DriverCache driverCache) {
+        try {
+            return objectMapper.writeValueAsString(driverCache);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to serialize driver state", e);
+        }
+    }
+
+    private DriverCache decode(Long driverId, String json) {
+        try {
+            return objectMapper.readValue(json, DriverCache.class);
+        } catch (Exception e) {
+            log.warn("Failed to read driver state for id {}: {}", driverId, e.getMessage());
+            return null;
+        }
+    }
+
+    private static Long parseLongKey(Object key) {
+        if (key instanceof Long l) return l;
+        if (key instanceof Integer i) return i.longValue();
+        if (key instanceof String s) {
+            try { return Long.parseLong(s); } catch (NumberFormatException ignored) {}
+        }
+        return null;
+    }
+}
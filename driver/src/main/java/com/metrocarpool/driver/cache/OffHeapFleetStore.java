@@ -0,0 +1,441 @@
+package com.metrocarpool.driver.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The simulated fleet's dynamic state in one direct buffer of fixed-size slots, for fleets too large to keep
+ * as {@link DriverCache} objects between ticks (driver.fleet.off-heap). Place and station names are interned
+ * into a name table and routes into a route table shared by every driver on the same route, together with
+ * the route's {@link CompiledRoute}; a slot holds only numbers:
+ * <pre>
+ *   0 driverId  8 segmentEnteredAt  16 distanceToNextPlace  24 timeToNextPlace (ms)
+ *  32 route  36 routeCursor  40 availableSeats  44 nextPlace  48 finalDestination  52 lastSeenMetroStation
+ *  56 lastTelemetryAt
+ * </pre>
+ * The driverId -> slot index is two primitive arrays, so the heap held for the fleet grows with the number of
+ * distinct routes, not drivers. {@link #checkpoint} writes the live slots and both tables to a memory-mapped
+ * file that {@link #restore} maps back on start.
+ * <p>
+ * Concurrent {@link #get} calls are safe while no write runs; writes must come from one thread at a time.
+ */
+@Component
+@Slf4j
+public class OffHeapFleetStore {
+
+    static final int MAGIC = 0x4D434653; // "MCFS"
+    static final int FORMAT_VERSION = 2;
+    static final int HEADER_BYTES = 32;
+    static final int SLOT_BYTES = 64;
+
+    private static final int DRIVER_ID = 0;
+    private static final int SEGMENT_ENTERED_AT = 8;
+    private static final int DISTANCE_TO_NEXT = 16;
+    private static final int TIME_TO_NEXT_MS = 24;
+    private static final int ROUTE = 32;
+    private static final int CURSOR = 36;
+    private static final int SEATS = 40;
+    private static final int NEXT_PLACE = 44;
+    private static final int FINAL_DESTINATION = 48;
+    private static final int LAST_STATION = 52;
+    private static final int LAST_TELEMETRY_AT = 56;
+    // null markers for the boxed DriverCache fields
+    private static final int NONE = -1;
+    private static final int NULL_INT = Integer.MIN_VALUE;
+    private static final long NULL_LONG = Long.MIN_VALUE;
+
+    private final boolean enabled;
+    private final int initialCapacity;
+    private final Path checkpointPath;
+
+    private ByteBuffer slots;
+    private int capacity;
+    private int highWater;
+    private int[] freeSlots = new int[0];
+    private int freeCount;
+    private int size;
+    // open addressing, linear probing; indexSlots holds slot + 1, 0 = empty
+    private long[] indexKeys = new long[0];
+    private int[] indexSlots = new int[0];
+
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, Integer> nameIds = new HashMap<>();
+    private final List<List<String>> routes = new ArrayList<>();
+    private final List<CompiledRoute> compiledRoutes = new ArrayList<>();
+    private final Map<RouteKey, Integer> routeIds = new HashMap<>();
+
+    private long syncedGeneration = NONE;
+    // city graph version the shared compiled routes must come from
+    private long graphVersion;
+
+    private record RouteKey(int[] places) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof RouteKey other && Arrays.equals(places, other.places);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(places);
+        }
+    }
+
+    public OffHeapFleetStore(@Value("${driver.fleet.off-heap:false}") boolean enabled,
+                             @Value("${driver.fleet.initial-capacity:65536}") int initialCapacity,
+                             @Value("${driver.fleet.checkpoint-path:}") String checkpointPath,
+                             MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.initialCapacity = Math.max(16, initialCapacity);
+        this.checkpointPath = checkpointPath == null || checkpointPath.isBlank() ? null : Path.of(checkpointPath);
+        meterRegistry.gauge("driver.fleet.off-heap.drivers", this, OffHeapFleetStore::size);
+        meterRegistry.gauge("driver.fleet.off-heap.routes", this, OffHeapFleetStore::routeCount);
+        meterRegistry.gauge("driver.fleet.off-heap.bytes", this, s -> (double) s.capacity * SLOT_BYTES);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int routeCount() {
+        return routes.size();
+    }
+
+    /**
+     * Tick generation of driver-state this store last mirrored, or -1 if it never did.
+     */
+    public long syncedGeneration() {
+        return syncedGeneration;
+    }
+
+    public void markSynced(long generation) {
+        this.syncedGeneration = generation;
+    }
+
+    public DriverCache get(long driverId) {
+        int slot = slotOf(driverId);
+        return slot == NONE ? null : decode(slot * SLOT_BYTES);
+    }
+
+    public void put(long driverId, DriverCache cache) {
+        int slot = slotOf(driverId);
+        if (slot == NONE) {
+            slot = allocateSlot();
+            indexPut(driverId, slot);
+            size++;
+        }
+        encode(slot * SLOT_BYTES, driverId, cache);
+    }
+
+    public void remove(long driverId) {
+        if (indexKeys.length == 0) return;
+        int pos = probe(driverId);
+        if (pos < 0) return;
+        int slot = indexSlots[pos] - 1;
+        indexDelete(pos);
+        if (freeCount == freeSlots.length) freeSlots = Arrays.copyOf(freeSlots, Math.max(16, freeCount * 2));
+        freeSlots[freeCount++] = slot;
+        size--;
+    }
+
+    /**
+     * Switch to another city graph version: the shared compiled routes were read from the old graph, so they
+     * are dropped and the next drivers compiled against the new one replace them.
+     */
+    public void useGraphVersion(long version) {
+        if (version == graphVersion) return;
+        Collections.fill(compiledRoutes, null);
+        graphVersion = version;
+    }
+
+    /**
+     * Drop every driver, route and name; the buffer is kept for reuse.
+     */
+    public void clear() {
+        highWater = 0;
+        freeCount = 0;
+        size = 0;
+        Arrays.fill(indexSlots, 0);
+        names.clear();
+        nameIds.clear();
+        routes.clear();
+        compiledRoutes.clear();
+        routeIds.clear();
+        syncedGeneration = NONE;
+    }
+
+    /**
+     * The ids of all stored drivers, ascending.
+     */
+    public long[] driverIds() {
+        long[] ids = new long[size];
+        int n = 0;
+        for (int pos = 0; pos < indexSlots.length && n < size; pos++) {
+            if (indexSlots[pos] != 0) ids[n++] = indexKeys[pos];
+        }
+        Arrays.sort(ids, 0, n);
+        return ids;
+    }
+
+    /**
+     * Write the live drivers, names and routes to driver.fleet.checkpoint-path through a mapping of a temporary
+     * file that then replaces the checkpoint atomically. Does nothing if no path is configured.
+     */
+    public void checkpoint() throws IOException {
+        if (checkpointPath == null) return;
+        byte[][] encodedNames = new byte[names.size()][];
+        long bytes = HEADER_BYTES;
+        for (int i = 0; i < encodedNames.length; i++) {
+            encodedNames[i] = names.get(i).getBytes(StandardCharsets.UTF_8);
+            bytes += Integer.BYTES + encodedNames[i].length;
+        }
+        List<int[]> routePlaces = new ArrayList<>(routes.size());
+        for (List<String> route : routes) {
+            int[] ids = route.stream().mapToInt(nameIds::get).toArray();
+            routePlaces.add(ids);
+            bytes += (long) Integer.BYTES * (1 + ids.length);
+        }
+        bytes += (long) size * SLOT_BYTES;
+
+        Path tmp = checkpointPath.resolveSibling(checkpointPath.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            out.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(size).putInt(encodedNames.length)
+                    .putInt(routePlaces.size()).putInt(0).putLong(syncedGeneration);
+            for (byte[] name : encodedNames) {
+                out.putInt(name.length).put(name);
+            }
+            for (int[] route : routePlaces) {
+                out.putInt(route.length);
+                for (int place : route) out.putInt(place);
+            }
+            for (int pos = 0; pos < indexSlots.length; pos++) {
+                if (indexSlots[pos] == 0) continue;
+                out.put(slots.slice((indexSlots[pos] - 1) * SLOT_BYTES, SLOT_BYTES));
+            }
+            out.force();
+        }
+        Files.move(tmp, checkpointPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Replace the contents with the checkpoint at driver.fleet.checkpoint-path. Returns false if there is none
+     * or it cannot be read; the store is then left empty.
+     */
+    public boolean restore() {
+        if (checkpointPath == null || !Files.isRegularFile(checkpointPath)) return false;
+        clear();
+        try (FileChannel channel = FileChannel.open(checkpointPath, StandardOpenOption.READ)) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.capacity() < HEADER_BYTES || in.getInt() != MAGIC || in.getInt() != FORMAT_VERSION) {
+                log.warn("OffHeapFleetStore: {} is not a fleet checkpoint; ignoring it.", checkpointPath);
+                return false;
+            }
+            int drivers = in.getInt();
+            int nameCount = in.getInt();
+            int routeCount = in.getInt();
+            in.getInt();
+            long generation = in.getLong();
+            for (int i = 0; i < nameCount; i++) {
+                byte[] name = new byte[in.getInt()];
+                in.get(name);
+                internName(new String(name, StandardCharsets.UTF_8));
+            }
+            for (int r = 0; r < routeCount; r++) {
+                String[] route = new String[in.getInt()];
+                for (int i = 0; i < route.length; i++) route[i] = names.get(in.getInt());
+                internRoute(Arrays.asList(route));
+            }
+            for (int d = 0; d < drivers; d++) {
+                int slot = allocateSlot();
+                slots.put(slot * SLOT_BYTES, in, in.position(), SLOT_BYTES);
+                in.position(in.position() + SLOT_BYTES);
+                indexPut(slots.getLong(slot * SLOT_BYTES + DRIVER_ID), slot);
+                size++;
+            }
+            syncedGeneration = generation;
+            log.info("OffHeapFleetStore: restored {} drivers on {} routes from {}.", size, routes.size(), checkpointPath);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.warn("OffHeapFleetStore: failed to restore {}: {}", checkpointPath, e.getMessage());
+            clear();
+            return false;
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void restoreOnStart() {
+        if (enabled) restore();
+    }
+
+    private DriverCache decode(int base) {
+        int route = slots.getInt(base + ROUTE);
+        long enteredAt = slots.getLong(base + SEGMENT_ENTERED_AT);
+        long telemetryAt = slots.getLong(base + LAST_TELEMETRY_AT);
+        double distance = slots.getDouble(base + DISTANCE_TO_NEXT);
+        long timeToNext = slots.getLong(base + TIME_TO_NEXT_MS);
+        int cursor = slots.getInt(base + CURSOR);
+        int seats = slots.getInt(base + SEATS);
+        return DriverCache.builder()
+                .availableSeats(seats == NULL_INT ? null : seats)
+                .routePlaces(route == NONE ? null : routes.get(route))
+                .nextPlace(name(slots.getInt(base + NEXT_PLACE)))
+                .timeToNextPlace(timeToNext == NULL_LONG ? null : Duration.ofMillis(timeToNext))
+                .distanceToNextPlace(Double.isNaN(distance) ? null : distance)
+                .finalDestination(name(slots.getInt(base + FINAL_DESTINATION)))
+                .lastSeenMetroStation(name(slots.getInt(base + LAST_STATION)))
+                .segmentEnteredAt(enteredAt == NULL_LONG ? null : enteredAt)
+                .routeCursor(cursor == NULL_INT ? null : cursor)
+                .compiledRoute(route == NONE ? null : compiledRoutes.get(route))
+                .lastTelemetryAt(telemetryAt == NULL_LONG ? null : telemetryAt)
+                .build();
+    }
+
+    private void encode(int base, long driverId, DriverCache cache) {
+        int route = cache.getRoutePlaces() == null ? NONE : internRoute(cache.getRoutePlaces());
+        // drivers on one route share its compiled form; the first one compiled from the current graph wins
+        if (route != NONE) {
+            CompiledRoute shared = compiledRoutes.get(route);
+            CompiledRoute compiled = cache.getCompiledRoute();
+            if (shared == null || (shared.getGraphVersion() != graphVersion
+                    && compiled != null && compiled.getGraphVersion() == graphVersion)) {
+                compiledRoutes.set(route, compiled);
+            }
+        }
+        slots.putLong(base + DRIVER_ID, driverId);
+        slots.putLong(base + SEGMENT_ENTERED_AT, cache.getSegmentEnteredAt() == null ? NULL_LONG : cache.getSegmentEnteredAt());
+        slots.putDouble(base + DISTANCE_TO_NEXT, cache.getDistanceToNextPlace() == null ? Double.NaN : cache.getDistanceToNextPlace());
+        slots.putLong(base + TIME_TO_NEXT_MS, cache.getTimeToNextPlace() == null ? NULL_LONG : cache.getTimeToNextPlace().toMillis());
+        slots.putInt(base + ROUTE, route);
+        slots.putInt(base + CURSOR, cache.getRouteCursor() == null ? NULL_INT : cache.getRouteCursor());
+        slots.putInt(base + SEATS, cache.getAvailableSeats() == null ? NULL_INT : cache.getAvailableSeats());
+        slots.putInt(base + NEXT_PLACE, internName(cache.getNextPlace()));
+        slots.putInt(base + FINAL_DESTINATION, internName(cache.getFinalDestination()));
+        slots.putInt(base + LAST_STATION, internName(cache.getLastSeenMetroStation()));
+        slots.putLong(base + LAST_TELEMETRY_AT, cache.getLastTelemetryAt() == null ? NULL_LONG : cache.getLastTelemetryAt());
+    }
+
+    private String name(int id) {
+        return id == NONE ? null : names.get(id);
+    }
+
+    private int internName(String name) {
+        if (name == null) return NONE;
+        Integer id = nameIds.get(name);
+        if (id != null) return id;
+        names.add(name);
+        nameIds.put(name, names.size() - 1);
+        return names.size() - 1;
+    }
+
+    private int internRoute(List<String> route) {
+        int[] places = new int[route.size()];
+        for (int i = 0; i < places.length; i++) places[i] = internName(route.get(i));
+        RouteKey key = new RouteKey(places);
+        Integer id = routeIds.get(key);
+        if (id != null) return id;
+        String[] canonical = new String[places.length];
+        for (int i = 0; i < places.length; i++) canonical[i] = names.get(places[i]);
+        routes.add(List.of(canonical));
+        compiledRoutes.add(null);
+        routeIds.put(key, routes.size() - 1);
+        return routes.size() - 1;
+    }
+
+    private int allocateSlot() {
+        if (freeCount > 0) return freeSlots[--freeCount];
+        if (highWater == capacity) grow();
+        return highWater++;
+    }
+
+    private void grow() {
+        int newCapacity = capacity == 0 ? initialCapacity : Math.multiplyExact(capacity, 2);
+        ByteBuffer bigger = ByteBuffer.allocateDirect(Math.multiplyExact(newCapacity, SLOT_BYTES));
+        if (slots != null) bigger.put(0, slots, 0, highWater * SLOT_BYTES);
+        slots = bigger;
+        capacity = newCapacity;
+        // keep the index at most half full
+        long[] oldKeys = indexKeys;
+        int[] oldSlots = indexSlots;
+        indexKeys = new long[Integer.highestOneBit(newCapacity) * 4];
+        indexSlots = new int[indexKeys.length];
+        for (int pos = 0; pos < oldSlots.length; pos++) {
+            if (oldSlots[pos] != 0) indexPut(oldKeys[pos], oldSlots[pos] - 1);
+        }
+    }
+
+    private int slotOf(long driverId) {
+        if (indexKeys.length == 0) return NONE;
+        int pos = probe(driverId);
+        return pos < 0 ? NONE : indexSlots[pos] - 1;
+    }
+
+    /**
+     * Index position holding driverId, or -(free position) - 1.
+     */
+    private int probe(long driverId) {
+        int mask = indexKeys.length - 1;
+        int pos = hash(driverId) & mask;
+        while (indexSlots[pos] != 0) {
+            if (indexKeys[pos] == driverId) return pos;
+            pos = (pos + 1) & mask;
+        }
+        return -pos - 1;
+    }
+
+    private void indexPut(long driverId, int slot) {
+        int pos = probe(driverId);
+        if (pos < 0) pos = -pos - 1;
+        indexKeys[pos] = driverId;
+        indexSlots[pos] = slot + 1;
+    }
+
+    // Backward-shift deletion keeps every probe chain unbroken without tombstones
+    private void indexDelete(int pos) {
+        int mask = indexKeys.length - 1;
+        int hole = pos;
+        indexSlots[hole] = 0;
+        int next = hole;
+        while (true) {
+            next = (next + 1) & mask;
+            if (indexSlots[next] == 0) return;
+            int home = hash(indexKeys[next]) & mask;
+            boolean reachable = hole <= next ? hole < home && home <= next : hole < home || home <= next;
+            if (reachable) continue;
+            indexKeys[hole] = indexKeys[next];
+            indexSlots[hole] = indexSlots[next];
+            indexSlots[next] = 0;
+            hole = next;
+        }
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
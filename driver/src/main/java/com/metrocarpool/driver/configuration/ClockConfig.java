@@ -0,0 +1,26 @@
+package com.metrocarpool.driver.configuration;
+
+import com.metrocarpool.contracts.time.VirtualClock;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+import java.time.Instant;
+
+@Configuration
+public class ClockConfig {
+
+    /**
+     * Simulation time: the system clock, or with driver.simulation.clock=virtual a clock that stands still at
+     * driver.simulation.virtual.start until VirtualTimeRunner moves it.
+     */
+    @Bean
+    public Clock simulationClock(@Value("${driver.simulation.clock:system}") String mode,
+                                 @Value("${driver.simulation.virtual.start:2024-01-01T00:00:00Z}") String start) {
+        if ("virtual".equalsIgnoreCase(mode)) {
+            return new VirtualClock(Instant.parse(start));
+        }
+        return Clock.systemUTC();
+    }
+}
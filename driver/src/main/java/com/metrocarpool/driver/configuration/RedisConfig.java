@@ -42,6 +42,8 @@ public class RedisConfig {
         template.setConnectionFactory(connectionFactory);
         template.setKeySerializer(str);
         template.setValueSerializer(str);
+        template.setHashKeySerializer(str);
+        template.setHashValueSerializer(str);
         template.afterPropertiesSet();
         return template;
     }
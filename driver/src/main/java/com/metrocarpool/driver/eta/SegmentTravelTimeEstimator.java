@@ -0,0 +1,184 @@
+package com.metrocarpool.driver.eta;
+
+import com.metrocarpool.contracts.proto.SegmentTravelTimeSnapshot;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Online travel-time estimate per directed graph edge.
+ * Each completed segment updates an EWMA of its travel time; edges that were never observed fall back to the
+ * fixed simulation pace. Estimates live in a flat float[] indexed by from * n + to, and are shared with
+ * matching as a versioned snapshot in Redis ("segment-travel-times" + "segment-travel-times:version").
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class SegmentTravelTimeEstimator {
+
+    public static final String SNAPSHOT_KEY = "segment-travel-times";
+    public static final String SNAPSHOT_VERSION_KEY = "segment-travel-times:version";
+
+    private final RedisTemplate<String, String> redisStringTemplate;
+
+    @Value("${driver.eta.ewma-alpha:0.2}")
+    private double alpha = 0.2;
+    @Value("${driver.eta.default-seconds-per-unit:12.0}")
+    private double defaultSecondsPerUnit = 12.0;
+
+    private String[] nodes = new String[0];
+    private Map<String, Integer> index = new HashMap<>();
+    // NaN = edge not observed yet
+    private float[] ewmaSeconds = new float[0];
+    private int observedEdges = 0;
+    private boolean dirty = false;
+
+    /**
+     * Make sure every place of the graph has an index. Observations of places that remain are kept.
+     */
+    public synchronized void ensureGraph(Collection<String> places) {
+        if (places.size() == nodes.length && index.keySet().containsAll(places)) return;
+
+        String[] newNodes = new TreeSet<>(places).toArray(new String[0]);
+        int n = newNodes.length;
+        Map<String, Integer> newIndex = new HashMap<>(n * 2);
+        for (int i = 0; i < n; i++) newIndex.put(newNodes[i], i);
+        float[] newEwma = new float[n * n];
+        Arrays.fill(newEwma, Float.NaN);
+
+        int kept = 0;
+        int oldN = nodes.length;
+        for (int i = 0; i < oldN; i++) {
+            Integer ni = newIndex.get(nodes[i]);
+            if (ni == null) continue;
+            for (int j = 0; j < oldN; j++) {
+                float v = ewmaSeconds[i * oldN + j];
+                Integer nj = newIndex.get(nodes[j]);
+                if (Float.isNaN(v) || nj == null) continue;
+                newEwma[ni * n + nj] = v;
+                kept++;
+            }
+        }
+        this.nodes = newNodes;
+        this.index = newIndex;
+        this.ewmaSeconds = newEwma;
+        this.observedEdges = kept;
+        log.info("SegmentTravelTimeEstimator: graph indexed, nodes = {}, observedEdges kept = {}", n, kept);
+    }
+
+    /**
+     * Feed one observed traversal of the edge from -> to.
+     */
+    public synchronized void observe(String from, String to, double seconds) {
+        if (!(seconds > 0) || Double.isInfinite(seconds)) return;
+        Integer a = index.get(from);
+        Integer b = index.get(to);
+        if (a == null || b == null) return;
+        int slot = a * nodes.length + b;
+        float current = ewmaSeconds[slot];
+        if (Float.isNaN(current)) {
+            ewmaSeconds[slot] = (float) seconds;
+            observedEdges++;
+        } else {
+            ewmaSeconds[slot] = (float) (alpha * seconds + (1.0 - alpha) * current);
+        }
+        dirty = true;
+    }
+
+    /**
+     * Expected seconds to traverse the whole edge from -> to of the given length.
+     */
+    public synchronized double travelSeconds(String from, String to, double distance) {
+        Integer a = from == null ? null : index.get(from);
+        Integer b = to == null ? null : index.get(to);
+        if (a != null && b != null) {
+            float learned = ewmaSeconds[a * nodes.length + b];
+            if (!Float.isNaN(learned)) return learned;
+        }
+        if (Double.isInfinite(distance) || distance <= 0) return 0.0;
+        return distance * defaultSecondsPerUnit;
+    }
+
+    public double getDefaultSecondsPerUnit() {
+        return defaultSecondsPerUnit;
+    }
+
+    /**
+     * Publish the observed edges if anything changed since the last publish.
+     * The version is bumped first and written into the payload, so a reader that races the write simply
+     * sees an older payload version and picks the new one up on its next poll.
+     */
+    @Scheduled(fixedDelayString = "${driver.eta.publish-interval-ms:60000}")
+    public void publishSnapshot() {
+        SegmentTravelTimeSnapshot.Builder builder;
+        synchronized (this) {
+            if (!dirty) return;
+            builder = toSnapshot();
+            dirty = false;
+        }
+        try {
+            Long version = redisStringTemplate.opsForValue().increment(SNAPSHOT_VERSION_KEY);
+            SegmentTravelTimeSnapshot snapshot = builder.setVersion(version == null ? 0L : version).build();
+            redisStringTemplate.opsForValue().set(SNAPSHOT_KEY,
+                    Base64.getEncoder().encodeToString(snapshot.toByteArray()));
+            log.info("SegmentTravelTimeEstimator: published snapshot version = {}, edges = {}",
+                    snapshot.getVersion(), snapshot.getSecondsCount());
+        } catch (Exception e) {
+            synchronized (this) {
+                dirty = true;
+            }
+            log.error("SegmentTravelTimeEstimator: publish failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Warm the estimator from the last published snapshot so a restart does not forget learned times.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadSnapshot() {
+        try {
+            String encoded = redisStringTemplate.opsForValue().get(SNAPSHOT_KEY);
+            if (encoded == null || encoded.isEmpty()) return;
+            SegmentTravelTimeSnapshot snapshot = SegmentTravelTimeSnapshot.parseFrom(Base64.getDecoder().decode(encoded));
+            synchronized (this) {
+                ensureGraph(snapshot.getNodesList());
+                for (int k = 0; k < snapshot.getSecondsCount(); k++) {
+                    int slot = index.get(snapshot.getNodes(snapshot.getFrom(k))) * nodes.length
+                            + index.get(snapshot.getNodes(snapshot.getTo(k)));
+                    if (Float.isNaN(ewmaSeconds[slot])) observedEdges++;
+                    ewmaSeconds[slot] = snapshot.getSeconds(k);
+                }
+            }
+            log.info("SegmentTravelTimeEstimator: loaded snapshot version = {}, edges = {}",
+                    snapshot.getVersion(), snapshot.getSecondsCount());
+        } catch (Exception e) {
+            log.warn("SegmentTravelTimeEstimator: could not load snapshot: {}", e.getMessage());
+        }
+    }
+
+    synchronized SegmentTravelTimeSnapshot.Builder toSnapshot() {
+        SegmentTravelTimeSnapshot.Builder builder = SegmentTravelTimeSnapshot.newBuilder()
+                .addAllNodes(Arrays.asList(nodes))
+                .setDefaultSecondsPerUnit(defaultSecondsPerUnit);
+        int n = nodes.length;
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                float v = ewmaSeconds[i * n + j];
+                if (Float.isNaN(v)) continue;
+                builder.addFrom(i).addTo(j).addSeconds(v);
+            }
+        }
+        return builder;
+    }
+
+    synchronized int getObservedEdges() {
+        return observedEdges;
+    }
+}
@@ -0,0 +1,105 @@
+package com.metrocarpool.driver.graph;
+
+import com.metrocarpool.contracts.graph.CityGraphSnapshot;
+import com.metrocarpool.contracts.graph.CityGraphSnapshotCompiler;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable city graph ("location-location-map") and nearby-station map, backed by a binary
+ * {@link CityGraphSnapshot}: either a memory-mapped snapshot file or one compiled in memory from the Redis JSON.
+ * Distance lookups are array reads on the snapshot buffer.
+ */
+public final class CityGraph {
+
+    public static final CityGraph EMPTY = new CityGraph(-1L, null);
+
+    private final long version;
+    private final CityGraphSnapshot snapshot;
+    private final int stationCount;
+
+    private CityGraph(long version, CityGraphSnapshot snapshot) {
+        this.version = version;
+        this.snapshot = snapshot;
+        this.stationCount = snapshot == null ? 0 : snapshot.stationedNodeCount();
+    }
+
+    /**
+     * Build from the adjacency map and the place -> station map. Lookups try both edge directions.
+     */
+    public static CityGraph of(long version, Map<String, Map<String, Double>> edges, Map<String, String> nearby) {
+        return new CityGraph(version, CityGraphSnapshot.wrap(CityGraphSnapshotCompiler.compile(edges, nearby, true)));
+    }
+
+    public static CityGraph of(long version, CityGraphSnapshot snapshot) {
+        return new CityGraph(version, snapshot);
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public boolean isEmpty() {
+        return snapshot == null || snapshot.edgeCount() == 0;
+    }
+
+    public int size() {
+        return snapshot == null ? 0 : snapshot.nodeCount();
+    }
+
+    public int edgeCount() {
+        return snapshot == null ? 0 : snapshot.edgeCount();
+    }
+
+    public List<String> places() {
+        return snapshot == null ? List.of() : snapshot.nodeNames();
+    }
+
+    /**
+     * Distance of the edge a - b in either direction, 0 for a == b, +Infinity if unknown.
+     */
+    public double distance(String a, String b) {
+        return snapshot == null ? Double.POSITIVE_INFINITY : snapshot.distance(a, b);
+    }
+
+    /**
+     * Nearby metro station of a place, or null if it has none.
+     */
+    public String stationOf(String place) {
+        return snapshot == null ? null : snapshot.stationOf(place);
+    }
+
+    public int stationCount() {
+        return stationCount;
+    }
+
+    // ---------- Index-based access for graph algorithms ----------
+
+    /**
+     * Node index of a place, or -1 if it is not on the graph.
+     */
+    public int indexOf(String place) {
+        return snapshot == null ? -1 : snapshot.indexOf(place);
+    }
+
+    public String place(int node) {
+        return snapshot.nodeName(node);
+    }
+
+    public double distance(int from, int to) {
+        return snapshot.distance(from, to);
+    }
+
+    public int degree(int node) {
+        return snapshot.degree(node);
+    }
+
+    public int neighbor(int node, int k) {
+        return snapshot.neighbor(node, k);
+    }
+
+    public double weight(int node, int k) {
+        return snapshot.weight(node, k);
+    }
+}
@@ -0,0 +1,193 @@
+package com.metrocarpool.driver.graph;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import com.metrocarpool.contracts.graph.CityGraphSnapshot;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process copy of the city graph. The loader bumps "city-graph:version" after writing
+ * "location-location-map" / "nearby-stations"; this cache polls only that key and re-parses the JSON
+ * when it changed, then swaps in a new immutable {@link CityGraph}. Readers never block or take a lock.
+ * When driver.graph.snapshot-path is set, the binary snapshot at that path is memory-mapped instead and
+ * re-mapped when the file is replaced.
+ */
+@Component
+@Slf4j
+public class CityGraphCache {
+
+    public static final String LOCATION_LOCATION_MAP_CACHE_KEY = "location-location-map";
+    public static final String NEARBY_STATIONS_CACHE_KEY = "nearby-stations";
+    public static final String CITY_GRAPH_VERSION_KEY = "city-graph:version";
+
+    // Do not hammer Redis when the graph has not been loaded yet
+    private static final long RETRY_INTERVAL_MS = 30_000L;
+
+    private final RedisTemplate<String, String> redisStringTemplate;
+    private final ObjectMapper objectMapper;
+    private final Timer loadTimer;
+    private final Counter reloadCounter;
+
+    // Binary snapshot to map instead of the Redis JSON; empty = use Redis
+    @Value("${driver.graph.snapshot-path:}")
+    private String snapshotPath = "";
+
+    private volatile CityGraph graph = CityGraph.EMPTY;
+    private volatile long lastAttemptMillis = 0L;
+    private FileTime snapshotModified;
+
+    public CityGraphCache(RedisTemplate<String, String> redisStringTemplate,
+                          ObjectMapper objectMapper,
+                          MeterRegistry meterRegistry) {
+        this.redisStringTemplate = redisStringTemplate;
+        this.objectMapper = objectMapper;
+        this.loadTimer = Timer.builder("driver.graph.load")
+                .description("Time to fetch and compile the city graph")
+                .register(meterRegistry);
+        this.reloadCounter = Counter.builder("driver.graph.reloads")
+                .description("City graph versions swapped in")
+                .register(meterRegistry);
+        meterRegistry.gauge("driver.graph.nodes", this, c -> c.graph.size());
+    }
+
+    /**
+     * The current graph; loads it on first use (throttled while Redis has none).
+     */
+    public CityGraph current() {
+        CityGraph current = graph;
+        if (current.isEmpty() && System.currentTimeMillis() - lastAttemptMillis >= RETRY_INTERVAL_MS) {
+            refresh();
+            current = graph;
+        }
+        return current;
+    }
+
+    /**
+     * Reload if the version key moved. Without a version key (older loader) the graph is loaded once.
+     */
+    @Scheduled(fixedDelayString = "${driver.graph.poll-interval-ms:30000}")
+    public synchronized void refresh() {
+        lastAttemptMillis = System.currentTimeMillis();
+        if (snapshotPath != null && !snapshotPath.isBlank()) {
+            refreshFromSnapshot(Path.of(snapshotPath));
+            return;
+        }
+        try {
+            String versionValue = redisStringTemplate.opsForValue().get(CITY_GRAPH_VERSION_KEY);
+            long version = parseVersion(versionValue);
+            if (!graph.isEmpty() && version == graph.version()) return;
+
+            long start = System.nanoTime();
+            CityGraph loaded = load(version);
+            if (loaded == null) return;
+            loadTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+            this.graph = loaded;
+            reloadCounter.increment();
+            log.info("CityGraphCache: loaded version = {}, nodes = {}, edges = {}, stations = {}",
+                    loaded.version(), loaded.size(), loaded.edgeCount(), loaded.stationCount());
+        } catch (Exception e) {
+            log.error("CityGraphCache: refresh failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Re-map the snapshot file when it was replaced. The graph version is the snapshot's content hash.
+     */
+    private void refreshFromSnapshot(Path path) {
+        try {
+            if (!Files.exists(path)) {
+                log.warn("CityGraphCache: snapshot '{}' not found.", path);
+                return;
+            }
+            FileTime modified = Files.getLastModifiedTime(path);
+            if (!graph.isEmpty() && modified.equals(snapshotModified)) return;
+
+            long start = System.nanoTime();
+            CityGraphSnapshot snapshot = CityGraphSnapshot.map(path);
+            snapshotModified = modified;
+            if (snapshot.graphVersion() == graph.version()) return;
+            loadTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+            CityGraph loaded = CityGraph.of(snapshot.graphVersion(), snapshot);
+            this.graph = loaded;
+            reloadCounter.increment();
+            log.info("CityGraphCache: mapped snapshot '{}' version = {}, nodes = {}, edges = {}, bytes = {}",
+                    path, loaded.version(), loaded.size(), loaded.edgeCount(), snapshot.sizeBytes());
+        } catch (Exception e) {
+            log.error("CityGraphCache: mapping snapshot '{}' failed: {}", path, e.getMessage(), e);
+        }
+    }
+
+    private CityGraph load(long version) throws Exception {
+        String locationJson = redisStringTemplate.opsForValue().get(LOCATION_LOCATION_MAP_CACHE_KEY);
+        if (locationJson == null || locationJson.isEmpty()) {
+            log.warn("CityGraphCache: '{}' missing in Redis.", LOCATION_LOCATION_MAP_CACHE_KEY);
+            return null;
+        }
+        String nearbyJson = redisStringTemplate.opsForValue().get(NEARBY_STATIONS_CACHE_KEY);
+
+        // Parse as generic maps to tolerate typed JSON (with "@class")
+        Map<String, Object> rawLocations = objectMapper.readValue(locationJson, new TypeReference<Map<String, Object>>() {});
+        Map<String, Object> rawNearby = (nearbyJson == null || nearbyJson.isEmpty())
+                ? Map.of()
+                : objectMapper.readValue(nearbyJson, new TypeReference<Map<String, Object>>() {});
+        CityGraph loaded = CityGraph.of(version, toEdgeMap(rawLocations), toNearbyMap(rawNearby));
+        return loaded.isEmpty() ? null : loaded;
+    }
+
+    private static long parseVersion(String value) {
+        if (value == null) return 0L;
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return value.hashCode();
+        }
+    }
+
+    static Map<String, Map<String, Double>> toEdgeMap(Map<String, Object> raw) {
+        Map<String, Map<String, Double>> result = new HashMap<>();
+        for (Map.Entry<String, Object> e : raw.entrySet()) {
+            if ("@class".equals(e.getKey())) continue;
+            if (!(e.getValue() instanceof Map<?, ?> innerMap)) continue;
+            Map<String, Double> typedInner = new HashMap<>();
+            for (Map.Entry<?, ?> ie : innerMap.entrySet()) {
+                Object val = ie.getValue();
+                if (val instanceof Number number) {
+                    typedInner.put(String.valueOf(ie.getKey()), number.doubleValue());
+                } else {
+                    try {
+                        typedInner.put(String.valueOf(ie.getKey()), Double.parseDouble(String.valueOf(val)));
+                    } catch (NumberFormatException nfe) {
+                        // skip non-numeric
+                    }
+                }
+            }
+            result.put(e.getKey(), typedInner);
+        }
+        return result;
+    }
+
+    static Map<String, String> toNearbyMap(Map<String, Object> raw) {
+        Map<String, String> result = new HashMap<>();
+        for (Map.Entry<String, Object> e : raw.entrySet()) {
+            if ("@class".equals(e.getKey())) continue;
+            if (e.getValue() != null) result.put(e.getKey(), String.valueOf(e.getValue()));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,188 @@
+package com.metrocarpool.driver.graph;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Shortest driving routes over the city graph, so drivers can register with just an origin.
+ * Graphs of at most driver.routing.next-hop-max-nodes places get an all-pairs next-hop table (Floyd–Warshall
+ * over the snapshot's distances) and every route is a walk along it. Larger graphs run Dijkstra over the
+ * snapshot's adjacency per request, with the last driver.routing.cache-size routes kept in an LRU cache.
+ * Both are rebuilt when the graph version changes. Thread-safe.
+ */
+@Component
+@Slf4j
+public class RoutePlanner {
+
+    private final CityGraphCache cityGraphCache;
+    private final int nextHopMaxNodes;
+    private final int cacheSize;
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+
+    private volatile Tables tables;
+
+    /**
+     * Per graph version: the next-hop table (null for large graphs) and the route cache.
+     */
+    private record Tables(CityGraph graph, int[] nextHop, Map<String, List<String>> cache) {}
+
+    public RoutePlanner(CityGraphCache cityGraphCache,
+                        @Value("${driver.routing.next-hop-max-nodes:1024}") int nextHopMaxNodes,
+                        @Value("${driver.routing.cache-size:10000}") int cacheSize,
+                        MeterRegistry meterRegistry) {
+        this.cityGraphCache = cityGraphCache;
+        this.nextHopMaxNodes = nextHopMaxNodes;
+        this.cacheSize = cacheSize;
+        this.cacheHits = Counter.builder("driver.routing.cache").tag("result", "hit").register(meterRegistry);
+        this.cacheMisses = Counter.builder("driver.routing.cache").tag("result", "miss").register(meterRegistry);
+    }
+
+    /**
+     * Places from origin to destination, both included, or an empty list if either is unknown or unreachable.
+     */
+    public List<String> plan(String origin, String destination) {
+        Tables current = tablesFor(cityGraphCache.current());
+        if (current == null) return List.of();
+        CityGraph graph = current.graph;
+        int from = graph.indexOf(origin);
+        int to = graph.indexOf(destination);
+        if (from < 0 || to < 0) return List.of();
+        if (from == to) return List.of(origin);
+
+        if (current.nextHop != null) {
+            return walk(graph, current.nextHop, from, to);
+        }
+        String key = origin + '\u0000' + destination;
+        synchronized (current.cache) {
+            List<String> cached = current.cache.get(key);
+            if (cached != null) {
+                cacheHits.increment();
+                return cached;
+            }
+        }
+        cacheMisses.increment();
+        List<String> route = dijkstra(graph, from, to);
+        synchronized (current.cache) {
+            current.cache.put(key, route);
+        }
+        return route;
+    }
+
+    private Tables tablesFor(CityGraph graph) {
+        if (graph.isEmpty()) return null;
+        Tables current = tables;
+        if (current != null && current.graph == graph) return current;
+        synchronized (this) {
+            current = tables;
+            if (current != null && current.graph == graph) return current;
+            int[] nextHop = graph.size() <= nextHopMaxNodes ? buildNextHop(graph) : null;
+            current = new Tables(graph, nextHop, lruCache(cacheSize));
+            tables = current;
+            log.info("RoutePlanner: graph version = {}, nodes = {}, next-hop table = {}",
+                    graph.version(), graph.size(), nextHop != null);
+            return current;
+        }
+    }
+
+    /**
+     * Floyd–Warshall over a flat matrix; nextHop[i * n + j] is the place after i on a shortest i -> j path,
+     * -1 if j is unreachable.
+     */
+    static int[] buildNextHop(CityGraph graph) {
+        int n = graph.size();
+        double[] dist = new double[n * n];
+        int[] next = new int[n * n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                double d = graph.distance(i, j);
+                dist[i * n + j] = d;
+                next[i * n + j] = Double.isInfinite(d) ? -1 : j;
+            }
+        }
+        for (int k = 0; k < n; k++) {
+            int rowK = k * n;
+            for (int i = 0; i < n; i++) {
+                int rowI = i * n;
+                double dik = dist[rowI + k];
+                if (Double.isInfinite(dik)) continue;
+                for (int j = 0; j < n; j++) {
+                    double through = dik + dist[rowK + j];
+                    if (through < dist[rowI + j]) {
+                        dist[rowI + j] = through;
+                        next[rowI + j] = next[rowI + k];
+                    }
+                }
+            }
+        }
+        return next;
+    }
+
+    private static List<String> walk(CityGraph graph, int[] nextHop, int from, int to) {
+        int n = graph.size();
+        if (nextHop[from * n + to] < 0) return List.of();
+        List<String> route = new ArrayList<>();
+        route.add(graph.place(from));
+        for (int at = from; at != to; ) {
+            at = nextHop[at * n + to];
+            route.add(graph.place(at));
+        }
+        return Collections.unmodifiableList(route);
+    }
+
+    /**
+     * Dijkstra over the adjacency as stored (the loaders write both directions of every edge).
+     */
+    static List<String> dijkstra(CityGraph graph, int from, int to) {
+        int n = graph.size();
+        double[] dist = new double[n];
+        int[] previous = new int[n];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        Arrays.fill(previous, -1);
+        dist[from] = 0.0;
+        PriorityQueue<double[]> queue = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+        queue.add(new double[]{0.0, from});
+        while (!queue.isEmpty()) {
+            double[] head = queue.poll();
+            int u = (int) head[1];
+            if (head[0] > dist[u]) continue;
+            if (u == to) break;
+            for (int k = 0, degree = graph.degree(u); k < degree; k++) {
+                int v = graph.neighbor(u, k);
+                double candidate = dist[u] + graph.weight(u, k);
+                if (candidate < dist[v]) {
+                    dist[v] = candidate;
+                    previous[v] = u;
+                    queue.add(new double[]{candidate, v});
+                }
+            }
+        }
+        if (Double.isInfinite(dist[to])) return List.of();
+        List<String> route = new ArrayList<>();
+        for (int at = to; at != -1; at = previous[at]) {
+            route.add(graph.place(at));
+        }
+        Collections.reverse(route);
+        return Collections.unmodifiableList(route);
+    }
+
+    private static Map<String, List<String>> lruCache(int maxEntries) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<String>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+}
@@ -1,20 +1,45 @@
 package com.metrocarpool.driver.grpc;
 
+import com.metrocarpool.driver.proto.DriverBatchStatusResponse;
+import com.metrocarpool.driver.proto.DriverRegistrationResult;
 import com.metrocarpool.driver.proto.DriverServiceGrpc;
 import com.metrocarpool.driver.proto.DriverStatusResponse;
+import com.metrocarpool.driver.proto.PositionSample;
 import com.metrocarpool.driver.proto.PostDriver;
+import com.metrocarpool.driver.proto.TelemetryAck;
+import com.metrocarpool.driver.proto.TelemetryBatch;
 import com.metrocarpool.driver.service.DriverService;
+import com.metrocarpool.driver.telemetry.DriverTelemetryBuffer;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.grpc.server.service.GrpcService;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @GrpcService
 @RequiredArgsConstructor
 @Slf4j
 public class DriverGrpcServer extends DriverServiceGrpc.DriverServiceImplBase {
 
     private final DriverService driverService;
+    private final DriverTelemetryBuffer telemetryBuffer;
+
+    // PostDriverInfoBatch: drivers stored per lock acquisition once the stream completes
+    @Value("${driver.registration.batch-chunk-size:1000}")
+    private int batchChunkSize = 1000;
+
+    // PostDriverInfoBatch: largest batch buffered; a longer stream is rejected before anything is stored
+    @Value("${driver.registration.max-batch-size:100000}")
+    private int maxBatchSize = 100_000;
+
+    // StreamTelemetry: batches a client may have outstanding before it waits for credits
+    @Value("${driver.telemetry.window:16}")
+    private int telemetryWindow = 16;
 
     @Override
     public void postDriverInfo(PostDriver request, StreamObserver<DriverStatusResponse> responseObserver) {
@@ -45,4 +70,140 @@ public class DriverGrpcServer extends DriverServiceGrpc.DriverServiceImplBase {
             responseObserver.onError(e);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Buffers the whole stream and stores it only once the client completes it, driver.registration.batch-chunk-size
+     * drivers per lock acquisition, so a stream that fails or is cancelled registers nobody. Streams longer than
+     * driver.registration.max-batch-size are rejected with RESOURCE_EXHAUSTED.
+     */
+    @Override
+    public StreamObserver<PostDriver> postDriverInfoBatch(StreamObserver<DriverBatchStatusResponse> responseObserver) {
+        return new StreamObserver<>() {
+            private final List<DriverService.DriverRegistration> pending = new ArrayList<>();
+            private final DriverBatchStatusResponse.Builder response = DriverBatchStatusResponse.newBuilder();
+            private boolean failed;
+
+            @Override
+            public void onNext(PostDriver request) {
+                if (failed) return;
+                if (pending.size() >= maxBatchSize) {
+                    failed = true;
+                    pending.clear();
+                    log.warn("DriverGrpcServer.postDriverInfoBatch: rejected a batch of more than {} drivers", maxBatchSize);
+                    responseObserver.onError(Status.RESOURCE_EXHAUSTED
+                            .withDescription("batch exceeds " + maxBatchSize + " drivers; nothing was registered")
+                            .asRuntimeException());
+                    return;
+                }
+                pending.add(new DriverService.DriverRegistration(
+                        request.getDriverId(),
+                        request.getRouteStationsList(),
+                        request.getFinalDestination(),
+                        request.getAvailableSeats()));
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                failed = true;
+                log.error("DriverGrpcServer.postDriverInfoBatch: client stream failed; dropped {} drivers unregistered: {}",
+                        pending.size(), t.getMessage());
+                pending.clear();
+            }
+
+            @Override
+            public void onCompleted() {
+                if (failed) return;
+                try {
+                    for (int from = 0; from < pending.size(); from += batchChunkSize) {
+                        store(pending.subList(from, Math.min(pending.size(), from + batchChunkSize)));
+                    }
+                    pending.clear();
+                    log.info("DriverGrpcServer.postDriverInfoBatch: registered {} of {} drivers",
+                            response.getRegistered(), response.getResultsCount());
+                    responseObserver.onNext(response.build());
+                    responseObserver.onCompleted();
+                } catch (Exception e) {
+                    log.error("Error in DriverGrpcServer.postDriverInfoBatch = ", e);
+                    responseObserver.onError(e);
+                }
+            }
+
+            private void store(List<DriverService.DriverRegistration> chunk) {
+                for (DriverService.RegistrationResult result : driverService.processDriverInfoBatch(chunk)) {
+                    response.addResults(DriverRegistrationResult.newBuilder()
+                            .setDriverId(result.driverId() == null ? 0L : result.driverId())
+                            .setStatus(result.status())
+                            .setError(result.error()));
+                    if (result.status()) response.setRegistered(response.getRegistered() + 1);
+                }
+            }
+        };
+    }
+
+    /**
+     * Buffers each batch's samples and acknowledges it with one credit. While the buffer is backlogged the
+     * credit is held back (and no further batch is requested) until the next flush drains it.
+     */
+    @Override
+    public StreamObserver<TelemetryBatch> streamTelemetry(StreamObserver<TelemetryAck> responseObserver) {
+        ServerCallStreamObserver<TelemetryAck> call = (ServerCallStreamObserver<TelemetryAck>) responseObserver;
+        call.disableAutoRequest();
+        call.request(telemetryWindow);
+        return new StreamObserver<>() {
+            private boolean closed;
+
+            @Override
+            public void onNext(TelemetryBatch batch) {
+                int accepted = 0;
+                for (PositionSample sample : batch.getSamplesList()) {
+                    if (telemetryBuffer.offer(new DriverTelemetryBuffer.Sample(sample.getDriverId(), sample.getSegment(),
+                            sample.getOffset(), sample.getTimestampMillis()))) {
+                        accepted++;
+                    }
+                }
+                TelemetryAck.Builder ack = TelemetryAck.newBuilder()
+                        .setSequence(batch.getSequence())
+                        .setAccepted(accepted)
+                        .setRejected(batch.getSamplesCount() - accepted);
+                if (telemetryBuffer.isBacklogged()) {
+                    send(ack.setCredits(0).build());
+                    telemetryBuffer.whenDrained(() -> grant(batch.getSequence()));
+                } else {
+                    send(ack.setCredits(1).build());
+                    call.request(1);
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                synchronized (call) {
+                    closed = true;
+                }
+                log.warn("DriverGrpcServer.streamTelemetry: client stream failed: {}", t.getMessage());
+            }
+
+            @Override
+            public void onCompleted() {
+                synchronized (call) {
+                    if (closed || call.isCancelled()) return;
+                    closed = true;
+                    call.onCompleted();
+                }
+            }
+
+            private void grant(long sequence) {
+                send(TelemetryAck.newBuilder().setSequence(sequence).setCredits(1).build());
+                synchronized (call) {
+                    if (!closed && !call.isCancelled()) call.request(1);
+                }
+            }
+
+            // acks come from the gRPC thread and from the telemetry flush
+            private void send(TelemetryAck ack) {
+                synchronized (call) {
+                    if (!closed && !call.isCancelled()) call.onNext(ack);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,247 @@
+package com.metrocarpool.driver.publisher;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.record.CompressionType;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.common.utils.Utils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Publishes the events of one simulation step as a single batch on a producer of its own.
+ * Records are grouped by partition so each partition's records go out back to back and fill whole producer
+ * batches; the producer lingers and compresses per driver.publisher.compression. Uncompressed bytes not yet
+ * acknowledged are bounded by driver.publisher.max-in-flight-bytes, so a slow broker back-pressures the
+ * caller instead of growing the heap. {@link #publish} returns once every record of that call is acknowledged
+ * or failed; it never flushes the shared producer, so a caller does not wait behind another thread's batch.
+ */
+@Component
+@Slf4j
+public class DriverEventPublisher {
+
+    private final Supplier<Producer<String, byte[]>> producerFactory;
+    private final Semaphore inFlightBytes;
+    private final int maxInFlightBytes;
+    private final long sendTimeoutMs;
+    private final Timer publishTimer;
+    private final DistributionSummary batchBytes;
+    private final Counter recordCounter;
+    private final Counter failureCounter;
+    private final Map<String, Integer> partitionCounts = new HashMap<>();
+    private volatile Producer<String, byte[]> producer;
+
+    @Autowired
+    public DriverEventPublisher(KafkaProperties kafkaProperties,
+                                @Value("${driver.publisher.compression:lz4}") String compression,
+                                @Value("${driver.publisher.linger-ms:20}") int lingerMs,
+                                @Value("${driver.publisher.batch-size-bytes:262144}") int batchSizeBytes,
+                                @Value("${driver.publisher.max-in-flight-bytes:33554432}") int maxInFlightBytes,
+                                @Value("${driver.publisher.send-timeout-ms:30000}") long sendTimeoutMs,
+                                MeterRegistry meterRegistry) {
+        this(() -> new KafkaProducer<>(producerConfig(kafkaProperties, compression, lingerMs, batchSizeBytes,
+                        maxInFlightBytes), new StringSerializer(), new ByteArraySerializer()),
+                maxInFlightBytes, sendTimeoutMs, meterRegistry);
+    }
+
+    DriverEventPublisher(Supplier<Producer<String, byte[]>> producerFactory, int maxInFlightBytes,
+                         long sendTimeoutMs, MeterRegistry meterRegistry) {
+        this.producerFactory = producerFactory;
+        this.maxInFlightBytes = maxInFlightBytes;
+        this.inFlightBytes = new Semaphore(maxInFlightBytes);
+        this.sendTimeoutMs = sendTimeoutMs;
+        this.publishTimer = Timer.builder("driver.publish.latency")
+                .description("Time from the first send of a batch until every record is acknowledged")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.batchBytes = DistributionSummary.builder("driver.publish.bytes")
+                .description("Uncompressed key and value bytes per published batch")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.recordCounter = Counter.builder("driver.publish.records")
+                .description("Driver events handed to Kafka")
+                .register(meterRegistry);
+        this.failureCounter = Counter.builder("driver.publish.failures")
+                .description("Driver events that were not acknowledged")
+                .register(meterRegistry);
+        meterRegistry.gauge("driver.publish.in-flight-bytes", inFlightBytes,
+                s -> maxInFlightBytes - s.availablePermits());
+    }
+
+    /**
+     * Idempotent producer that may keep five requests in flight (ordering per partition is still kept),
+     * lingering and compressing so a tick of 100k drivers goes out in a few hundred requests.
+     */
+    static Map<String, Object> producerConfig(KafkaProperties kafkaProperties, String compression, int lingerMs,
+                                              int batchSizeBytes, int maxInFlightBytes) {
+        Map<String, Object> config = new HashMap<>(kafkaProperties.buildProducerProperties(null));
+        config.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, CompressionType.forName(compression).name);
+        config.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        config.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSizeBytes);
+        config.put(ProducerConfig.BUFFER_MEMORY_CONFIG, Math.max((long) maxInFlightBytes, 33_554_432L));
+        config.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        config.put(ProducerConfig.ACKS_CONFIG, "all");
+        config.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5);
+        config.put(ProducerConfig.CLIENT_ID_CONFIG, "driver-event-publisher");
+        config.remove(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG);
+        config.remove(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG);
+        return config;
+    }
+
+    /**
+     * Send the records, grouped by partition and in their original order within each partition, and wait for
+     * their acknowledgements. Only this call's records are waited on; the producer's delivery.timeout.ms
+     * bounds the wait, since every send is completed by then.
+     */
+    public PublishReport publish(List<ProducerRecord<String, byte[]>> records) {
+        if (records.isEmpty()) return new PublishReport(0, 0L, 0, 0L);
+        long start = System.nanoTime();
+        Producer<String, byte[]> producer = producer();
+        AtomicInteger failures = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(records.size());
+        long bytes = 0L;
+        int sent = 0;
+        try {
+            for (List<ProducerRecord<String, byte[]>> group : groupByPartition(producer, records).values()) {
+                for (ProducerRecord<String, byte[]> record : group) {
+                    int size = Math.min(sizeOf(record), maxInFlightBytes);
+                    if (!inFlightBytes.tryAcquire(size, sendTimeoutMs, TimeUnit.MILLISECONDS)) {
+                        failures.incrementAndGet();
+                        done.countDown();
+                        log.error("DriverEventPublisher: no room for event with key {} after {} ms", record.key(), sendTimeoutMs);
+                        continue;
+                    }
+                    try {
+                        producer.send(record, (metadata, ex) -> {
+                            inFlightBytes.release(size);
+                            if (ex != null) {
+                                failures.incrementAndGet();
+                                log.error("Event failed. key = {}, error message = {}", record.key(), ex.getMessage());
+                            }
+                            done.countDown();
+                        });
+                    } catch (RuntimeException ex) {
+                        inFlightBytes.release(size);
+                        failures.incrementAndGet();
+                        done.countDown();
+                        log.error("Event failed. key = {}, error message = {}", record.key(), ex.getMessage());
+                        continue;
+                    }
+                    bytes += size;
+                    sent++;
+                }
+            }
+            // lingering batches go out after linger.ms; wait for this call's callbacks only
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("DriverEventPublisher: interrupted after {} of {} events", sent, records.size());
+        }
+
+        long elapsed = System.nanoTime() - start;
+        publishTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        batchBytes.record(bytes);
+        recordCounter.increment(sent);
+        failureCounter.increment(failures.get());
+        PublishReport report = new PublishReport(sent, bytes, failures.get(), elapsed);
+        log.debug("DriverEventPublisher: {}", report);
+        return report;
+    }
+
+    /**
+     * Records keyed by the partition the default partitioner would pick (murmur2 of the key), with the
+     * partition set explicitly. Topics whose metadata is unavailable keep their records unpartitioned.
+     */
+    private Map<TopicPartition, List<ProducerRecord<String, byte[]>>> groupByPartition(
+            Producer<String, byte[]> producer, List<ProducerRecord<String, byte[]>> records) {
+        Map<TopicPartition, List<ProducerRecord<String, byte[]>>> groups = new LinkedHashMap<>();
+        for (ProducerRecord<String, byte[]> record : records) {
+            int partitions = partitionCount(producer, record.topic());
+            ProducerRecord<String, byte[]> routed = record;
+            int partition = -1;
+            if (record.partition() != null) {
+                partition = record.partition();
+            } else if (partitions > 0 && record.key() != null) {
+                partition = Utils.toPositive(Utils.murmur2(record.key().getBytes(StandardCharsets.UTF_8))) % partitions;
+                routed = new ProducerRecord<>(record.topic(), partition, record.timestamp(), record.key(),
+                        record.value(), record.headers());
+            }
+            groups.computeIfAbsent(new TopicPartition(record.topic(), partition), tp -> new ArrayList<>()).add(routed);
+        }
+        return groups;
+    }
+
+    private int partitionCount(Producer<String, byte[]> producer, String topic) {
+        synchronized (partitionCounts) {
+            Integer cached = partitionCounts.get(topic);
+            if (cached != null) return cached;
+            try {
+                List<PartitionInfo> infos = producer.partitionsFor(topic);
+                int count = infos == null ? 0 : infos.size();
+                // partitions are only ever added; re-read the count only when metadata was missing
+                if (count > 0) partitionCounts.put(topic, count);
+                return count;
+            } catch (RuntimeException e) {
+                log.warn("DriverEventPublisher: no metadata for topic {}: {}", topic, e.getMessage());
+                return 0;
+            }
+        }
+    }
+
+    private static int sizeOf(ProducerRecord<String, byte[]> record) {
+        int key = record.key() == null ? 0 : record.key().length();
+        int value = record.value() == null ? 0 : record.value().length;
+        return Math.max(1, key + value);
+    }
+
+    private Producer<String, byte[]> producer() {
+        Producer<String, byte[]> current = producer;
+        if (current == null) {
+            synchronized (this) {
+                current = producer;
+                if (current == null) {
+                    current = producerFactory.get();
+                    producer = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    @PreDestroy
+    public void close() {
+        Producer<String, byte[]> current = producer;
+        if (current != null) current.close(Duration.ofSeconds(10));
+    }
+
+    /**
+     * One batch: records handed to the producer, their uncompressed bytes, records that failed, wall time.
+     */
+    public record PublishReport(int records, long bytes, int failures, long elapsedNanos) {}
+}
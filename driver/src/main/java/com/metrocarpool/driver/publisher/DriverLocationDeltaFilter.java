@@ -0,0 +1,95 @@
+package com.metrocarpool.driver.publisher;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides whether a driver location event carries news for the consumers of driver-updates.
+ * An event is emitted when the stations or the seats changed, when its ETA differs from the ETA last emitted
+ * by more than driver.publisher.eta-tolerance-sec, or when the driver has been quiet for
+ * driver.publisher.keyframe-interval-ms. The ETA is compared as sent, not counted down: consumers store and
+ * relay it as a relative time, so a suppressed event must carry the ETA they already hold. Emitted state is
+ * kept in memory only; after a restart every driver re-sends once. Thread-safe.
+ */
+@Component
+public class DriverLocationDeltaFilter {
+
+    private final boolean enabled;
+    private final long etaToleranceSec;
+    private final long keyframeIntervalMs;
+    private final Map<Long, Emitted> lastEmitted = new ConcurrentHashMap<>();
+    private final Counter emittedCounter;
+    private final Counter suppressedCounter;
+
+    private record Emitted(String oldStation, String nextStation, int seats, int timeToNextStationSec, long atMillis) {}
+
+    public DriverLocationDeltaFilter(@Value("${driver.publisher.delta-suppression:true}") boolean enabled,
+                                     @Value("${driver.publisher.eta-tolerance-sec:60}") long etaToleranceSec,
+                                     @Value("${driver.publisher.keyframe-interval-ms:600000}") long keyframeIntervalMs,
+                                     MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.etaToleranceSec = etaToleranceSec;
+        this.keyframeIntervalMs = keyframeIntervalMs;
+        this.emittedCounter = Counter.builder("driver.location.events")
+                .tag("outcome", "emitted")
+                .description("Driver location events published")
+                .register(meterRegistry);
+        this.suppressedCounter = Counter.builder("driver.location.events")
+                .tag("outcome", "suppressed")
+                .description("Driver location events dropped as unchanged")
+                .register(meterRegistry);
+        meterRegistry.gauge("driver.location.suppression.ratio", this, DriverLocationDeltaFilter::suppressionRatio);
+    }
+
+    /**
+     * True if the event should be published; the event then becomes the driver's reference state.
+     */
+    public boolean shouldEmit(long driverId, String oldStation, String nextStation, int seats,
+                              int timeToNextStationSec, long atMillis) {
+        Emitted current = new Emitted(oldStation, nextStation, seats, timeToNextStationSec, atMillis);
+        if (!enabled) {
+            emittedCounter.increment();
+            return true;
+        }
+        boolean[] emit = {false};
+        lastEmitted.compute(driverId, (id, previous) -> {
+            if (previous == null || changed(previous, current)) {
+                emit[0] = true;
+                return current;
+            }
+            return previous;
+        });
+        (emit[0] ? emittedCounter : suppressedCounter).increment();
+        return emit[0];
+    }
+
+    /**
+     * Drop the driver's reference state so its next event is emitted (route finished or replaced).
+     */
+    public void forget(long driverId) {
+        lastEmitted.remove(driverId);
+    }
+
+    public double suppressionRatio() {
+        double emitted = emittedCounter.count();
+        double suppressed = suppressedCounter.count();
+        double total = emitted + suppressed;
+        return total == 0 ? 0.0 : suppressed / total;
+    }
+
+    private boolean changed(Emitted previous, Emitted current) {
+        if (!Objects.equals(previous.oldStation, current.oldStation)
+                || !Objects.equals(previous.nextStation, current.nextStation)
+                || previous.seats != current.seats) {
+            return true;
+        }
+        if (current.atMillis - previous.atMillis >= keyframeIntervalMs) return true;
+        return Math.abs(current.timeToNextStationSec - previous.timeToNextStationSec) > etaToleranceSec;
+    }
+}
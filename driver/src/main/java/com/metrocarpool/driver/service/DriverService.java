@@ -3,41 +3,65 @@ package com.metrocarpool.driver.service;
 import com.metrocarpool.contracts.proto.DriverLocationEvent;
 import com.metrocarpool.contracts.proto.DriverRideCompletionEvent;
 import com.metrocarpool.contracts.proto.DriverRiderMatchEvent;
+import com.metrocarpool.contracts.time.VirtualClock;
 import com.google.protobuf.InvalidProtocolBufferException;
+import com.metrocarpool.driver.cache.CompiledRoute;
 import com.metrocarpool.driver.cache.DriverCache;
+import com.metrocarpool.driver.cache.DriverStateStore;
+import com.metrocarpool.driver.cache.OffHeapFleetStore;
+import com.metrocarpool.driver.eta.SegmentTravelTimeEstimator;
+import com.metrocarpool.driver.graph.CityGraph;
+import com.metrocarpool.driver.graph.CityGraphCache;
+import com.metrocarpool.driver.graph.RoutePlanner;
+import com.metrocarpool.driver.publisher.DriverEventPublisher;
+import com.metrocarpool.driver.publisher.DriverLocationDeltaFilter;
 import com.metrocarpool.driver.redislock.RedisDistributedLock;
+import com.metrocarpool.driver.simulation.DriverArrivalScheduler;
+import com.metrocarpool.driver.simulation.FleetTickKernel;
+import com.metrocarpool.driver.telemetry.DriverTelemetryBuffer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.kafka.annotation.KafkaListener;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.kafka.support.SendResult;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.kafka.support.Acknowledgment;
 
+import java.time.Clock;
 import java.time.Duration;
+import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.Objects;
 import java.util.Map;
-import java.util.UUID;
-import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.TimeUnit;
-
-// Jackson for safe JSON parsing of plain Redis values (Option B)
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.core.type.TypeReference;
+import java.util.stream.IntStream;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class DriverService {
-    // ✅ Inject KafkaTemplate to publish events (assuming Spring Boot Kafka configured)
-    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    // Publishes each tick's events as one compressed, partition-grouped batch
+    private final DriverEventPublisher driverEventPublisher;
+    // Drops location events that tell matching nothing new
+    private final DriverLocationDeltaFilter locationDeltaFilter;
+    // Reported positions waiting to be folded into the driver state
+    private final DriverTelemetryBuffer telemetryBuffer;
 
     @Value("${kafka.topics.driver-location-topic}")
     private String DRIVER_TOPIC;
@@ -45,28 +69,58 @@ public class DriverService {
     @Value("${kafka.topics.ride-completion-topic}")
     private String RIDE_COMPLETION_TOPIC;
 
-    // Redis Cache top level key
-    private final RedisTemplate<String, Object> redisTemplate;
-    private static final String DRIVER_CACHE_KEY = "drivers";
+    // Per-driver state (Redis hash "driver-state")
+    private final DriverStateStore driverStateStore;
+    // Tick-mode mirror of driver-state outside the heap (driver.fleet.off-heap)
+    private final OffHeapFleetStore fleetStore;
     @SuppressWarnings("unused")
     private final RedisTemplate<String, Object> redisTemplateNearby;
-    private static final String NEARBY_STATIONS_CACHE_KEY = "nearby-stations";
     @SuppressWarnings("unused")
     private final RedisTemplate<String, Object> redisTemplateLocationMap;
-    private static final String LOCATION_LOCATION_MAP_CACHE_KEY = "location-location-map";
 
     // Redis Distributed Lock
     private final RedisDistributedLock redisDistributedLock;
     private static final String redisDriverLockKey = "lock:drivers";
-    private static final String redisNearbyLocationsLockKey = "lock:nearby-locations";
-    private static final String redisLocationLocationMapLockKey = "lock:location-location";
 
     // Redis usage to ensure Kafka consumer idempotency
     private static final String MATCH_FOUND_KAFKA_DEDUP_KEY_PREFIX = "match_found_processed_kafka_msg:";
 
-    // String template + mapper for tolerant reads of plain JSON (no @class)
+    // String template for Kafka consumer dedup keys
     private final RedisTemplate<String, String> redisStringTemplate;
-    private final ObjectMapper objectMapper;
+
+    // City graph and nearby stations, cached in-process and swapped when their version changes
+    private final CityGraphCache cityGraphCache;
+    // Plans routes for drivers that register with just an origin
+    private final RoutePlanner routePlanner;
+
+    // Learned per-segment travel times used for ETAs
+    private final SegmentTravelTimeEstimator segmentTravelTimeEstimator;
+
+    // Tick instrumentation
+    private final MeterRegistry meterRegistry;
+
+    // Drivers are independent, so a tick fans them out over a work-stealing pool
+    @Value("${driver.simulation.parallelism:0}")
+    private int tickParallelism;
+    private ForkJoinPool tickPool;
+    private Timer tickTimer;
+    private final AtomicInteger fleetSize = new AtomicInteger();
+
+    // "tick" moves every driver on the 2-minute cron; "event" moves each driver when it reaches its next node
+    @Value("${driver.simulation.mode:tick}")
+    private String simulationMode = "tick";
+    private final DriverArrivalScheduler arrivalScheduler;
+    // Simulation time: the wall clock, or a VirtualClock stepped by VirtualTimeRunner (driver.simulation.clock)
+    private final Clock clock;
+
+    // Tick movement: object = one driver at a time; soa = the whole fleet in FleetTickKernel's primitive arrays
+    @Value("${driver.simulation.kernel:object}")
+    private String tickKernel = "object";
+    private static final int KERNEL_CHUNK = 65_536;
+
+    // A driver whose reported position moved it this recently is left to its telemetry by the simulation
+    @Value("${driver.telemetry.stale-after-ms:120000}")
+    private long telemetryStaleMillis = 120_000L;
 
     // Simulation constants
     private static final double DISTANCE_PER_TICK = 10.0;     // units per cron tick (2 minutes)
@@ -87,8 +141,10 @@ public class DriverService {
 
         try {
             // Validate basic inputs early
-            if (driverId == null || routePlaces == null || routePlaces.size() < 2 ||
+            // A single place is an origin to plan from
+            if (driverId == null || routePlaces == null || routePlaces.isEmpty() ||
                 finalDestination == null || finalDestination.isEmpty() ||
+                (routePlaces.size() == 1 && routePlaces.get(0).equals(finalDestination)) ||
                 availableSeats == null || availableSeats <= 0) {
                 log.warn("Invalid driver info: id={}, routeSize={}, dest={}, seats={}. Returning false.",
                         driverId, routePlaces == null ? null : routePlaces.size(), finalDestination, availableSeats);
@@ -98,34 +154,43 @@ public class DriverService {
             log.info("Reached DriverService.processDriverInfo with driverId = {}, routePlaces = {}, finalDestination = {}, availableSeats = {}",
                     driverId, routePlaces, finalDestination, availableSeats);
 
-            // Safe reads (tolerant to plain JSON; avoids @class requirement)
             // Nearby map is not required for initial driver registration; read later during cron
-            Object raw = redisTemplate.opsForValue().get(DRIVER_CACHE_KEY);
-            Map<Long, DriverCache> allDriverCacheData = normalizeDriverCache(raw);
-            if (allDriverCacheData.isEmpty()) {
-                log.warn("Driver cache not found or empty; initializing new cache.");
-                allDriverCacheData = new HashMap<>();
-            }
-            Map<String, Map<String, Double>> locationLocationMap = safeReadLocationMap();
-            if (locationLocationMap.isEmpty()) {
+            CityGraph graph = cityGraphCache.current();
+            if (graph.isEmpty()) {
                 log.warn("Location-Location map missing/empty; cannot compute distances. Returning false.");
                 return false;
             }
+            routePlaces = resolveRoute(routePlaces, finalDestination);
+            String invalid = validateRegistration(
+                    new DriverRegistration(driverId, routePlaces, finalDestination, availableSeats), graph);
+            if (invalid != null) {
+                log.warn("Invalid route for driver {}: {}. Returning false.", driverId, invalid);
+                return false;
+            }
+            segmentTravelTimeEstimator.ensureGraph(graph.places());
+            double firstSegmentDistance = graph.distance(routePlaces.get(0), routePlaces.get(1));
+
             // Initialize DriverCache
             DriverCache driverCache = DriverCache.builder()
                     .availableSeats(availableSeats)
                     .routePlaces(routePlaces)
                     .nextPlace(routePlaces.get(1))
-                    .timeToNextPlace(computeDurationFromDistance(
-                            getDistanceBetween(routePlaces.get(0), routePlaces.get(1), locationLocationMap)))
-                    .distanceToNextPlace(getDistanceBetween(routePlaces.get(0), routePlaces.get(1), locationLocationMap))
+                    .timeToNextPlace(durationToNextPlace(routePlaces.get(0), routePlaces.get(1),
+                            firstSegmentDistance, firstSegmentDistance))
+                    .distanceToNextPlace(firstSegmentDistance)
+                    .routeCursor(1)
                     .finalDestination(finalDestination)
                     .lastSeenMetroStation("") // initially empty
+                    .segmentEnteredAt(clock.millis())
                     .build();
 
 
-            allDriverCacheData.put(driverId, driverCache);
-            redisTemplate.opsForValue().set(DRIVER_CACHE_KEY, allDriverCacheData);
+            driverStateStore.put(driverId, driverCache);
+            locationDeltaFilter.forget(driverId);
+            telemetryBuffer.forget(driverId);
+            if (isEventTimeSimulation()) {
+                arrivalScheduler.schedule(driverId, clock.millis() + simulatedMillis(firstSegmentDistance));
+            }
             return true;
         } catch (Exception e) {
             log.error("Failed to process driver info for ID {}: {}. Returning false.", driverId, e.getMessage());
@@ -135,21 +200,124 @@ public class DriverService {
         }
     }
 
-    @KafkaListener(topics = "${kafka.topics.rider-driver-match}", groupId = "${spring.kafka.consumer.group-id}")
-    public void matchFoundUpdateCache(byte[] message,
-                                      Acknowledgment acknowledgment) {
-        // Try to acquire lock
+    /**
+     * One driver of a bulk registration.
+     */
+    public record DriverRegistration(Long driverId, List<String> routePlaces, String finalDestination,
+                                     Integer availableSeats) {}
+
+    /**
+     * Outcome for one driver of a bulk registration; error is empty when it was stored.
+     */
+    public record RegistrationResult(Long driverId, boolean status, String error) {}
+
+    /**
+     * Register many drivers under one lock acquisition and one pipelined write (state and seats). Each route is checked against
+     * the cached graph first (every place known, every leg of finite length); drivers that fail are reported
+     * and skipped, the rest are stored together. Results are in request order.
+     */
+    public List<RegistrationResult> processDriverInfoBatch(List<DriverRegistration> registrations) {
+        List<RegistrationResult> results = new ArrayList<>(registrations.size());
+        if (registrations.isEmpty()) return results;
+
+        CityGraph graph = cityGraphCache.current();
+        long now = clock.millis();
+        Map<Long, DriverCache> accepted = new LinkedHashMap<>();
+        Map<Long, Long> firstArrivals = new HashMap<>();
+        for (DriverRegistration requested : registrations) {
+            DriverRegistration registration = new DriverRegistration(requested.driverId(),
+                    resolveRoute(requested.routePlaces(), requested.finalDestination()),
+                    requested.finalDestination(), requested.availableSeats());
+            String error = validateRegistration(registration, graph);
+            if (error == null && accepted.containsKey(registration.driverId())) {
+                error = "duplicate driverId in batch";
+            }
+            if (error != null) {
+                results.add(new RegistrationResult(registration.driverId(), false, error));
+                continue;
+            }
+            List<String> route = registration.routePlaces();
+            double firstSegmentDistance = graph.distance(route.get(0), route.get(1));
+            accepted.put(registration.driverId(), DriverCache.builder()
+                    .availableSeats(registration.availableSeats())
+                    .routePlaces(route)
+                    .nextPlace(route.get(1))
+                    .timeToNextPlace(durationToNextPlace(route.get(0), route.get(1),
+                            firstSegmentDistance, firstSegmentDistance))
+                    .distanceToNextPlace(firstSegmentDistance)
+                    .routeCursor(1)
+                    .finalDestination(registration.finalDestination())
+                    .lastSeenMetroStation("")
+                    .segmentEnteredAt(now)
+                    .build());
+            firstArrivals.put(registration.driverId(), now + simulatedMillis(firstSegmentDistance));
+            results.add(new RegistrationResult(registration.driverId(), true, ""));
+        }
+        if (accepted.isEmpty()) return results;
+
         String lockValue = tryAcquireLockWithRetry(redisDriverLockKey);
         if (lockValue == null) {
-            log.error("Unable to acquire lock with retry policy: {} lock key {} timeout milliseconds {} maximum retries {} back off milliseconds. " +
-                    "Returning false", redisDriverLockKey, 5000, 10, 200);
-            acknowledgment.acknowledge();
-            return;
-        } else {
-            log.info("Acquired lock with retry policy: {} lock key {} timeout milliseconds {} maximum retries {} back off milliseconds. " +
-                    "Returning false", redisDriverLockKey, 5000, 10, 200);
+            log.error("processDriverInfoBatch: unable to acquire lock {}; rejecting {} drivers.",
+                    redisDriverLockKey, accepted.size());
+            return results.stream()
+                    .map(r -> r.status() ? new RegistrationResult(r.driverId(), false, "driver store busy") : r)
+                    .toList();
+        }
+        try {
+            segmentTravelTimeEstimator.ensureGraph(graph.places());
+            driverStateStore.putAll(accepted);
+            accepted.keySet().forEach(locationDeltaFilter::forget);
+            accepted.keySet().forEach(telemetryBuffer::forget);
+            if (isEventTimeSimulation()) {
+                firstArrivals.forEach(arrivalScheduler::schedule);
+            }
+            log.info("processDriverInfoBatch: registered {} of {} drivers.", accepted.size(), registrations.size());
+            return results;
+        } catch (Exception e) {
+            log.error("processDriverInfoBatch: storing {} drivers failed: {}", accepted.size(), e.getMessage(), e);
+            return results.stream()
+                    .map(r -> r.status() ? new RegistrationResult(r.driverId(), false, "store failed") : r)
+                    .toList();
+        } finally {
+            redisDistributedLock.releaseLock(redisDriverLockKey, lockValue);
         }
+    }
+
+    /**
+     * The route to register: a route given as just its origin is planned to finalDestination (an empty
+     * route if no path exists); a full route is kept as sent.
+     */
+    private List<String> resolveRoute(List<String> routePlaces, String finalDestination) {
+        if (routePlaces == null || routePlaces.size() != 1 || finalDestination == null) return routePlaces;
+        List<String> planned = routePlanner.plan(routePlaces.get(0), finalDestination);
+        log.debug("Planned route {} -> {}: {} places", routePlaces.get(0), finalDestination, planned.size());
+        return planned;
+    }
 
+    /**
+     * Why a registration cannot be stored, or null if it can.
+     */
+    private static String validateRegistration(DriverRegistration registration, CityGraph graph) {
+        List<String> route = registration.routePlaces();
+        if (registration.driverId() == null) return "missing driverId";
+        if (route == null || route.size() < 2) return "route needs at least two places";
+        if (registration.finalDestination() == null || registration.finalDestination().isEmpty()) {
+            return "missing finalDestination";
+        }
+        if (registration.availableSeats() == null || registration.availableSeats() <= 0) return "no available seats";
+        if (graph.isEmpty()) return "city graph not loaded";
+        for (int i = 1; i < route.size(); i++) {
+            if (Double.isInfinite(graph.distance(route.get(i - 1), route.get(i)))) {
+                return "no road between " + route.get(i - 1) + " and " + route.get(i);
+            }
+        }
+        return null;
+    }
+
+    @KafkaListener(topics = "${kafka.topics.rider-driver-match}", groupId = "${spring.kafka.consumer.group-id}")
+    public void matchFoundUpdateCache(byte[] message,
+                                      Acknowledgment acknowledgment) {
+        // Seats are taken with one atomic script on the driver's seat field; no lock:drivers needed
         try {
             DriverRiderMatchEvent event = DriverRiderMatchEvent.parseFrom(message);
             String messageId = event.getMessageId();
@@ -160,46 +328,70 @@ public class DriverService {
                 return;
             }
             Long driverId = event.getDriverId();
-            Long riderId = event.getRiderId();
-            String pickUpStation = event.getPickUpStation();
             // Acknowledge that you have got the message
             markProcessed(MATCH_FOUND_KAFKA_DEDUP_KEY_PREFIX, messageId);
             acknowledgment.acknowledge();
 
             log.debug("Reached DriverService.matchFoundUpdateCache.");
-            // Decrement the availableSeats by 1 for this driverId
-            Object raw = redisTemplate.opsForValue().get(DRIVER_CACHE_KEY);
-            Map<Long, DriverCache> allDriverCacheData = normalizeDriverCache(raw);
-            DriverCache driverCache = allDriverCacheData.get(driverId);
-            if (driverCache == null) {
+            long seatsLeft = driverStateStore.takeSeat(driverId);
+            if (seatsLeft == DriverStateStore.UNKNOWN_DRIVER) {
                 log.warn("Driver with ID = {} not found in cache during match update. Returning void.", driverId);
                 return;
             }
-            int currentAvailableSeats = Optional.ofNullable(driverCache.getAvailableSeats()).orElse(0);
-            currentAvailableSeats = Math.max(0, currentAvailableSeats - 1);
-            driverCache.setAvailableSeats(currentAvailableSeats);
-
-            // If availableSeats == 0 => evict from cache, else write back
-            if (currentAvailableSeats == 0) {
-                log.info("Driver = {}, has 0 available seats.", driverCache);
-//                allDriverCacheData.remove(driverId);
-                allDriverCacheData.put(driverId, driverCache);
-            } else {
-                allDriverCacheData.put(driverId, driverCache);
+            if (seatsLeft == DriverStateStore.NO_SEAT_LEFT) {
+                log.warn("Driver {} matched with rider {} but had no seat left.", driverId, event.getRiderId());
+                return;
+            }
+            log.info("Driver {} took rider {}: {} seats left.", driverId, event.getRiderId(), seatsLeft);
+            // If availableSeats == 0 => keep the driver (it still drives its route) and tell matching now
+            if (seatsLeft == 0) {
+                announceFull(driverId, messageId);
             }
-            redisTemplate.opsForValue().set(DRIVER_CACHE_KEY, allDriverCacheData);
         } catch (InvalidProtocolBufferException e){
             log.error("Failed to parse RiderDriverMatchEvent protobuf message", e);
-        } finally {
-            redisDistributedLock.releaseLock(redisDriverLockKey, lockValue);
         }
     }
 
-   /**
-     * Cron job every 2 minutes -> moves drivers along their route, updates cache & emits events.
+    /**
+     * Publish a location event with no seats left at once, so matching drops the car before the next tick.
      */
+    private void announceFull(Long driverId, String matchMessageId) {
+        DriverCache cache = driverStateStore.get(driverId);
+        if (cache == null || cache.getRoutePlaces() == null || cache.getRoutePlaces().isEmpty()) return;
+        String nextStation = "";
+        CityGraph graph = cityGraphCache.current();
+        if (!graph.isEmpty()) {
+            CompiledRoute compiled = compiledRoute(cache, graph);
+            nextStation = findNextMetroStationInRoute(compiled, compiled.nextStationSlot(Math.max(routeCursor(cache), 0)));
+        }
+        DriverLocationEvent event = DriverLocationEvent.newBuilder()
+                .setMessageId(matchMessageId + ":full")
+                .setDriverId(driverId)
+                .setOldStation(Optional.ofNullable(cache.getLastSeenMetroStation()).orElse(""))
+                .setNextStation(nextStation)
+                .setTimeToNextStation(0)
+                .setAvailableSeats(0)
+                .setFinalDestination(Optional.ofNullable(cache.getFinalDestination()).orElse(""))
+                .build();
+        List<ProducerRecord<String, byte[]>> outbox = new ArrayList<>(1);
+        if (queueLocationEvent(event, clock.millis(), outbox)) {
+            publishBatch(outbox);
+        }
+    }
+
     @Scheduled(cron = "0 */2 * * * *")
     public void cronJobDriverLocationSimulation() {
+        // in virtual time the runner steps the clock and calls simulateTick itself
+        if (isVirtualTime()) return;
+        simulateTick();
+    }
+
+    /**
+     * One tick (cron every 2 minutes) -> moves drivers along their route, updates cache & emits events.
+     */
+    public void simulateTick() {
+        if (isEventTimeSimulation()) return;
+        long tickStartNanos = System.nanoTime();
         // Try to acquire lock
         String lockValue = tryAcquireLockWithRetry(redisDriverLockKey);
         if (lockValue == null) {
@@ -214,51 +406,482 @@ public class DriverService {
         try {
             log.debug("cron tick - driver simulation starting");
             log.info("CRON job ka tick-tick chal raha hai...");
-            // Read caches from Redis and normalize key/value types
-            Object rawDrivers = redisTemplate.opsForValue().get(DRIVER_CACHE_KEY);
-            Map<Long, DriverCache> allDriverCacheData = normalizeDriverCache(rawDrivers);
-            if (allDriverCacheData.isEmpty()) {
-                log.warn("Driver cache empty or unreadable. Key: {}", DRIVER_CACHE_KEY);
+            // Read caches from Redis (or bring the off-heap mirror of them up to date) and normalize key/value types
+            boolean offHeap = fleetStore.isEnabled();
+            Map<Long, DriverCache> allDriverCacheData = offHeap ? null : driverStateStore.loadAll();
+            int driverCount = offHeap ? syncFleetStore() : allDriverCacheData.size();
+            if (driverCount == 0) {
+                log.warn("Driver cache empty or unreadable. Key: {}", DriverStateStore.DRIVER_STATE_KEY);
                 return;
             }
 
             // Tolerant reads (no @class requirement)
-            Map<String, Map<String, Double>> locationLocationMap = safeReadLocationMap();
-            if (locationLocationMap.isEmpty()) {
-                log.warn("Location map missing or empty. Key: {}", LOCATION_LOCATION_MAP_CACHE_KEY);
+            CityGraph graph = cityGraphCache.current();
+            if (graph.isEmpty()) {
+                log.warn("Location map missing or empty. Key: {}", CityGraphCache.LOCATION_LOCATION_MAP_CACHE_KEY);
                 return;
             }
-            Map<String, String> nearbyStationMap = safeReadNearby();
+            segmentTravelTimeEstimator.ensureGraph(graph.places());
+            if (offHeap) fleetStore.useGraphVersion(graph.version());
+
+            // Process drivers in parallel; each result carries its own state and outgoing events
+            fleetSize.set(driverCount);
+            List<TickResult> results;
+            if (offHeap) {
+                // decode one driver at a time and keep only the results that change something
+                long[] fleet = fleetStore.driverIds();
+                results = isSoaKernel()
+                        ? tickOffHeapWithKernel(fleet, graph)
+                        : tickPool().submit(() -> Arrays.stream(fleet).parallel()
+                                .mapToObj(id -> tickDriver(id, fleetStore.get(id), graph))
+                                .filter(r -> r.evict() || r.changed() || !r.events().isEmpty())
+                                .toList()).get();
+            } else {
+                List<Map.Entry<Long, DriverCache>> fleet = new ArrayList<>(allDriverCacheData.entrySet());
+                results = isSoaKernel()
+                        ? tickWithKernel(fleet, graph)
+                        : tickPool().submit(() -> fleet.parallelStream()
+                                .map(e -> tickDriver(e.getKey(), e.getValue(), graph))
+                                .toList()).get();
+            }
 
-            // Iterate drivers and update
+            // Merge into one batched store write and one batched publish
             List<Long> driversToEvict = new ArrayList<>();
-            for (Map.Entry<Long, DriverCache> e : allDriverCacheData.entrySet()) {
-                Long driverId = e.getKey();
-                DriverCache cache = e.getValue();
-                try {
-                    boolean evict = processSingleDriverTick(driverId, cache, locationLocationMap, nearbyStationMap);
-                    if (evict) {
-                        driversToEvict.add(driverId);
-                    } else {
-                        // update the map value (already mutated)
-                        allDriverCacheData.put(driverId, cache);
-                    }
-                } catch (Exception ex) {
-                    log.error("Error processing driver {}: {}", driverId, ex.getMessage(), ex);
+            Map<Long, DriverCache> changedDrivers = new HashMap<>();
+            List<ProducerRecord<String, byte[]>> outbox = new ArrayList<>();
+            for (TickResult result : results) {
+                outbox.addAll(result.events());
+                if (result.evict()) {
+                    driversToEvict.add(result.driverId());
+                    locationDeltaFilter.forget(result.driverId());
+                    telemetryBuffer.forget(result.driverId());
+                    if (offHeap) fleetStore.remove(result.driverId());
+                    log.info("Driver {} evicted from cache - reached final destination", result.driverId());
+                } else if (result.changed()) {
+                    changedDrivers.put(result.driverId(), result.cache());
+                    if (offHeap) fleetStore.put(result.driverId(), result.cache());
+                }
+            }
+
+            // Persist changed drivers and evictions in one pipelined batch
+            if (offHeap) {
+                driverStateStore.writeBatch(changedDrivers, driversToEvict, false);
+                fleetStore.markSynced(driverStateStore.advanceTickGeneration());
+                fleetStore.checkpoint();
+            } else {
+                driverStateStore.writeBatch(changedDrivers, driversToEvict);
+            }
+            publishBatch(outbox);
+
+            log.debug("cron tick - driver simulation finished. drivers: {}, changed: {}, evicted: {}, events: {}",
+                    driverCount, changedDrivers.size(), driversToEvict.size(), outbox.size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Driver tick interrupted.");
+        } catch (Exception e) {
+            log.error("Error = {}", e.getMessage(), e);
+        } finally {
+            redisDistributedLock.releaseLock(redisDriverLockKey, lockValue);
+            long elapsedNanos = System.nanoTime() - tickStartNanos;
+            tickTimer().record(elapsedNanos, TimeUnit.NANOSECONDS);
+            if (elapsedNanos > TimeUnit.SECONDS.toNanos(SECONDS_PER_TICK)) {
+                log.warn("Driver tick overran its {} s period: took {} ms for {} drivers.",
+                        SECONDS_PER_TICK, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), fleetSize.get());
+            }
+        }
+    }
+
+    /**
+     * Bring the off-heap fleet up to date with driver-state: everything again when the store has not mirrored the
+     * latest tick (first tick, or another instance ticked), otherwise only the drivers written outside the tick
+     * since. Returns the fleet size.
+     */
+    private int syncFleetStore() {
+        long generation = driverStateStore.tickGeneration();
+        if (fleetStore.syncedGeneration() != generation) {
+            driverStateStore.drainChanged();
+            fleetStore.clear();
+            driverStateStore.loadAll().forEach(fleetStore::put);
+            log.info("Off-heap fleet reloaded: {} drivers on {} routes.", fleetStore.size(), fleetStore.routeCount());
+        } else {
+            Set<Long> changed = driverStateStore.drainChanged();
+            Map<Long, DriverCache> fresh = driverStateStore.getAll(changed);
+            for (Long driverId : changed) {
+                DriverCache cache = fresh.get(driverId);
+                if (cache == null) fleetStore.remove(driverId);
+                else fleetStore.put(driverId, cache);
+            }
+        }
+        return fleetStore.size();
+    }
+
+    /**
+     * Outcome of one driver's tick: its new state, whether it changed or is evicted, and the events it produced.
+     */
+    private record TickResult(Long driverId, DriverCache cache, boolean evict, boolean changed,
+                              List<ProducerRecord<String, byte[]>> events) {}
+
+    private TickResult tickDriver(Long driverId, DriverCache cache, CityGraph graph) {
+        List<ProducerRecord<String, byte[]>> events = new ArrayList<>(1);
+        if (isTelemetryDriven(cache, clock.millis())) {
+            return new TickResult(driverId, cache, false, false, List.of());
+        }
+        try {
+            DriverCache before = cache == null ? null : cache.toBuilder().build();
+            boolean evict = processSingleDriverTick(driverId, cache, graph, events);
+            return new TickResult(driverId, cache, evict, !evict && !Objects.equals(before, cache), events);
+        } catch (Exception ex) {
+            log.error("Error processing driver {}: {}", driverId, ex.getMessage(), ex);
+            return new TickResult(driverId, cache, false, false, List.of());
+        }
+    }
+
+    private boolean isSoaKernel() {
+        return "soa".equalsIgnoreCase(tickKernel);
+    }
+
+    /**
+     * Tick the off-heap fleet through the kernel KERNEL_CHUNK drivers at a time, keeping only results that
+     * change something.
+     */
+    private List<TickResult> tickOffHeapWithKernel(long[] fleet, CityGraph graph)
+            throws InterruptedException, ExecutionException {
+        List<TickResult> results = new ArrayList<>();
+        for (int from = 0; from < fleet.length; from += KERNEL_CHUNK) {
+            int to = Math.min(fleet.length, from + KERNEL_CHUNK);
+            List<Map.Entry<Long, DriverCache>> chunk = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                chunk.add(new AbstractMap.SimpleImmutableEntry<>(fleet[i], fleetStore.get(fleet[i])));
+            }
+            for (TickResult result : tickWithKernel(chunk, graph)) {
+                if (result.evict() || result.changed() || !result.events().isEmpty()) results.add(result);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Tick a batch through {@link FleetTickKernel}: all positions advance in one pass over primitive arrays,
+     * then each driver's crossings, state and event are applied in parallel. Drivers the kernel cannot move
+     * (no route or next place, or an unknown distance) take the per-driver path.
+     */
+    private List<TickResult> tickWithKernel(List<Map.Entry<Long, DriverCache>> drivers, CityGraph graph)
+            throws InterruptedException, ExecutionException {
+        long tickEndMillis = clock.millis();
+        int n = drivers.size();
+        FleetTickKernel kernel = new FleetTickKernel(n);
+        DriverCache[] before = new DriverCache[n];
+        CompiledRoute[] compiled = new CompiledRoute[n];
+        int[] slot = new int[n];
+        for (int i = 0; i < n; i++) {
+            slot[i] = -1;
+            DriverCache cache = drivers.get(i).getValue();
+            if (cache == null || cache.getRoutePlaces() == null || cache.getRoutePlaces().isEmpty()
+                    || cache.getNextPlace() == null || isTelemetryDriven(cache, tickEndMillis)) continue;
+            before[i] = cache.toBuilder().build();
+            int cursor = routeCursor(cache);
+            if (cursor == -1) continue;
+            compiled[i] = compiledRoute(cache, graph);
+            double distanceToNext = Optional.ofNullable(cache.getDistanceToNextPlace()).orElse(0.0);
+            slot[i] = kernel.add(compiled[i].getCumulativeDistance(), cursor, distanceToNext,
+                    finishIndex(cache.getRoutePlaces(), cursor, cache.getFinalDestination()));
+        }
+        kernel.advance(DISTANCE_PER_TICK);
+        return tickPool().submit(() -> IntStream.range(0, n).parallel()
+                .mapToObj(i -> slot[i] == -1
+                        ? tickDriver(drivers.get(i).getKey(), drivers.get(i).getValue(), graph)
+                        : applyKernelMove(drivers.get(i).getKey(), drivers.get(i).getValue(), before[i], compiled[i],
+                                kernel, slot[i], tickEndMillis))
+                .toList()).get();
+    }
+
+    /**
+     * Write the kernel's move back to the driver: learn every segment it completed, then either finish the
+     * driver or set its next place and announce its location.
+     */
+    private TickResult applyKernelMove(Long driverId, DriverCache cache, DriverCache before, CompiledRoute compiled,
+                                       FleetTickKernel kernel, int k, long tickEndMillis) {
+        List<ProducerRecord<String, byte[]>> events = new ArrayList<>(1);
+        try {
+            List<String> route = cache.getRoutePlaces();
+            long tickStartMillis = tickEndMillis - SECONDS_PER_TICK * 1000L;
+            int to = kernel.cursor(k);
+            for (int place = kernel.startCursor(k); place < to; place++) {
+                long crossedAtMillis = tickStartMillis
+                        + (long) (kernel.reachedAfter(k, place) / DISTANCE_PER_TICK * SECONDS_PER_TICK * 1000L);
+                if (place > 0) {
+                    observeSegment(route.get(place - 1), route.get(place), cache.getSegmentEnteredAt(), crossedAtMillis);
+                }
+                cache.setSegmentEnteredAt(crossedAtMillis);
+            }
+            if ((kernel.flags(k) & FleetTickKernel.FINISHED) != 0) {
+                String reached = route.get(to - 1);
+                if (reached.equals(cache.getFinalDestination())) {
+                    queueRideCompletion(driverId, reached, tickEndMillis, events);
+                } else {
+                    log.info("Driver {} has no further nodes in route -> evicting", driverId);
+                }
+                return new TickResult(driverId, cache, true, false, events);
+            }
+            double distanceToNext = kernel.distanceToNext(k);
+            String nextPlace = route.get(to);
+            cache.setNextPlace(nextPlace);
+            cache.setRouteCursor(to);
+            cache.setDistanceToNextPlace(distanceToNext);
+            cache.setTimeToNextPlace(durationToNextPlace(to > 0 ? route.get(to - 1) : null, nextPlace,
+                    compiled.segmentDistance(to), distanceToNext));
+            announceLocation(driverId, cache, compiled, tickEndMillis, events);
+            return new TickResult(driverId, cache, false, !Objects.equals(before, cache), events);
+        } catch (Exception ex) {
+            log.error("Error processing driver {}: {}", driverId, ex.getMessage(), ex);
+            return new TickResult(driverId, cache, false, false, List.of());
+        }
+    }
+
+    /**
+     * Index of the place where the driver leaves the simulation: its final destination at or after cursor,
+     * otherwise the end of the route.
+     */
+    private static int finishIndex(List<String> route, int cursor, String finalDestination) {
+        for (int i = cursor; i < route.size(); i++) {
+            if (route.get(i).equals(finalDestination)) return i;
+        }
+        return route.size() - 1;
+    }
+
+    private void publishBatch(List<ProducerRecord<String, byte[]>> outbox) {
+        DriverEventPublisher.PublishReport report = driverEventPublisher.publish(outbox);
+        if (report.failures() > 0) {
+            log.warn("Driver events: {} of {} failed to publish.", report.failures(), outbox.size());
+        }
+    }
+
+    /**
+     * Queue a location event unless the delta filter finds it unchanged since the driver's last one.
+     */
+    private boolean queueLocationEvent(DriverLocationEvent event, long atMillis,
+                                       List<ProducerRecord<String, byte[]>> outbox) {
+        if (!locationDeltaFilter.shouldEmit(event.getDriverId(), event.getOldStation(), event.getNextStation(),
+                event.getAvailableSeats(), event.getTimeToNextStation(), atMillis)) {
+            return false;
+        }
+        outbox.add(new ProducerRecord<>(DRIVER_TOPIC, String.valueOf(event.getDriverId()), event.toByteArray()));
+        return true;
+    }
+
+    /**
+     * Queue the event announcing that the driver reached its final destination.
+     */
+    private void queueRideCompletion(Long driverId, String reached, long atMillis,
+                                     List<ProducerRecord<String, byte[]>> outbox) {
+        log.info("Driver location: Driver reached final destination: driverId={}, finalDest={}", driverId, reached);
+        DriverRideCompletionEvent event = DriverRideCompletionEvent.newBuilder()
+                .setMessageId(eventId(driverId, atMillis))
+                .setDriverId(driverId)
+                .build();
+        outbox.add(new ProducerRecord<>(RIDE_COMPLETION_TOPIC, String.valueOf(driverId), event.toByteArray()));
+    }
+
+    /**
+     * Message id for a driver's event at a simulated instant; a driver emits at most one event per instant,
+     * and a re-published event keeps its id so the consumers' dedup still applies.
+     */
+    private static String eventId(Long driverId, long atMillis) {
+        return driverId + "-" + atMillis;
+    }
+
+    // ---------- Reported positions ----------
+
+    /**
+     * Whether a reported position moved the driver within driver.telemetry.stale-after-ms; the simulation does
+     * not move such drivers, so it cannot run ahead of the pings that follow.
+     */
+    private boolean isTelemetryDriven(DriverCache cache, long nowMillis) {
+        return cache != null && cache.getLastTelemetryAt() != null
+                && nowMillis - cache.getLastTelemetryAt() < telemetryStaleMillis;
+    }
+
+    /**
+     * Fold the buffered position samples into the driver state: one lock, one HMGET, one pipelined write and
+     * one publish pass per flush however many pings arrived. Moved drivers announce their location through
+     * the delta filter like simulated ones.
+     */
+    @Scheduled(fixedDelayString = "${driver.telemetry.flush-interval-ms:1000}")
+    public void flushTelemetry() {
+        if (telemetryBuffer.pendingDrivers() == 0) return;
+        CityGraph graph = cityGraphCache.current();
+        if (graph.isEmpty()) return;
+        String lockValue = tryAcquireLockWithRetry(redisDriverLockKey);
+        // samples stay buffered (newer ones replacing them) until the lock is free
+        if (lockValue == null) return;
+        try {
+            Map<Long, DriverTelemetryBuffer.Sample> samples = telemetryBuffer.drain();
+            Map<Long, DriverCache> drivers = driverStateStore.getAll(samples.keySet());
+            Map<Long, DriverCache> changedDrivers = new HashMap<>();
+            List<ProducerRecord<String, byte[]>> outbox = new ArrayList<>();
+            long now = clock.millis();
+            for (DriverTelemetryBuffer.Sample sample : samples.values()) {
+                DriverCache cache = drivers.get(sample.driverId());
+                if (cache != null && applyPosition(sample.driverId(), cache, graph, sample, now)) {
+                    changedDrivers.put(sample.driverId(), cache);
+                    announceLocation(sample.driverId(), cache, compiledRoute(cache, graph), now, outbox);
                 }
             }
+            driverStateStore.writeBatch(changedDrivers, List.of());
+            publishBatch(outbox);
+            log.debug("Telemetry flush: {} samples, {} drivers updated, {} events", samples.size(),
+                    changedDrivers.size(), outbox.size());
+        } catch (Exception e) {
+            log.error("Error = {}", e.getMessage(), e);
+        } finally {
+            redisDistributedLock.releaseLock(redisDriverLockKey, lockValue);
+        }
+    }
 
-            // Evict drivers that reached final destination
-            for (Long id : driversToEvict) {
-                allDriverCacheData.remove(id);
-                log.info("Driver {} evicted from cache - reached final destination", id);
+    /**
+     * Move the driver to a reported (segment, offset) along its route. Moving into a later leg closes the leg
+     * it left and feeds its travel time to the segment estimator. Returns false for positions off the route
+     * or behind the driver's state.
+     */
+    private boolean applyPosition(Long driverId, DriverCache cache, CityGraph graph, DriverTelemetryBuffer.Sample sample,
+                                  long nowMillis) {
+        List<String> route = cache.getRoutePlaces();
+        int toIndex = sample.segment() + 1;
+        if (route == null || toIndex >= route.size()) return false;
+        int cursor = routeCursor(cache);
+        if (cursor != -1 && toIndex < cursor) return false;
+
+        CompiledRoute compiled = compiledRoute(cache, graph);
+        String from = route.get(sample.segment());
+        String to = route.get(toIndex);
+        double segmentDistance = compiled.segmentDistance(toIndex);
+        if (Double.isInfinite(segmentDistance)) return false;
+        double offset = Math.min(sample.offset(), segmentDistance);
+        if (toIndex != cursor) {
+            // entered the new leg about as long ago as covering offset takes
+            long enteredAt = sample.timestampMillis()
+                    - (long) (segmentTravelTimeEstimator.travelSeconds(from, to, offset) * 1000L);
+            if (cursor > 0 && toIndex == cursor + 1) {
+                observeSegment(route.get(cursor - 1), route.get(cursor), cache.getSegmentEnteredAt(), enteredAt);
             }
+            cache.setSegmentEnteredAt(enteredAt);
+            cache.setRouteCursor(toIndex);
+            cache.setNextPlace(to);
+            String passedStation = detectPassedMetroStationDuringTick(compiled, toIndex);
+            if (!passedStation.isEmpty()) cache.setLastSeenMetroStation(passedStation);
+        }
+        double remaining = segmentDistance - offset;
+        cache.setDistanceToNextPlace(remaining);
+        cache.setTimeToNextPlace(durationToNextPlace(from, to, segmentDistance, remaining));
+        cache.setLastTelemetryAt(nowMillis);
+        if (isEventTimeSimulation()) {
+            // arrival if the pings stop now and the simulation takes the driver over once they are stale
+            arrivalScheduler.schedule(driverId, nowMillis + telemetryStaleMillis + simulatedMillis(remaining));
+        }
+        return true;
+    }
+
+    // ---------- Event-time simulation ----------
+
+    public boolean isEventTimeSimulation() {
+        return "event".equalsIgnoreCase(simulationMode);
+    }
+
+    private boolean isVirtualTime() {
+        return clock instanceof VirtualClock;
+    }
+
+    /**
+     * Simulated time to drive the given distance at the tick pace (DISTANCE_PER_TICK per SECONDS_PER_TICK).
+     */
+    private static long simulatedMillis(double distance) {
+        if (Double.isInfinite(distance) || distance <= 0) return 0L;
+        return (long) Math.ceil(distance / DISTANCE_PER_TICK * SECONDS_PER_TICK * 1000L);
+    }
 
-            // Persist updated driver cache back to Redis
-            redisTemplate.opsForValue().set(DRIVER_CACHE_KEY, allDriverCacheData);
+    /**
+     * Put every stored driver on the arrival wheel, due when its remaining distance to nextPlace is covered.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void scheduleFleetArrivals() {
+        if (!isEventTimeSimulation()) return;
+        try {
+            long now = clock.millis();
+            Map<Long, DriverCache> fleet = driverStateStore.loadAll();
+            for (Map.Entry<Long, DriverCache> e : fleet.entrySet()) {
+                double remaining = Optional.ofNullable(e.getValue().getDistanceToNextPlace()).orElse(0.0);
+                if (Double.isInfinite(remaining)) continue;
+                arrivalScheduler.schedule(e.getKey(), now + simulatedMillis(remaining));
+            }
+            fleetSize.set(fleet.size());
+            log.info("Event-time simulation: scheduled {} drivers.", fleet.size());
+        } catch (Exception e) {
+            log.error("Event-time simulation: could not schedule the fleet: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Move the drivers whose next-node arrival is due. All arrivals of one wheel step share a lock, one HMGET,
+     * one pipelined write and one publish pass, so load follows actual arrivals instead of a 2-minute herd.
+     */
+    @Scheduled(fixedDelayString = "${driver.simulation.wheel-tick-ms:100}")
+    public void advanceEventTimeSimulation() {
+        if (isVirtualTime()) return;
+        advanceEventTime();
+    }
+
+    /**
+     * One wheel step of the event-time simulation at the clock's current time.
+     */
+    public void advanceEventTime() {
+        if (!isEventTimeSimulation()) return;
+        List<DriverArrivalScheduler.Arrival> due = arrivalScheduler.due(clock.millis());
+        if (due.isEmpty()) return;
+
+        String lockValue = tryAcquireLockWithRetry(redisDriverLockKey);
+        if (lockValue == null) {
+            // try again on the next step
+            due.forEach(a -> arrivalScheduler.schedule(a.driverId(), a.arrivalMillis()));
+            return;
+        }
+        try {
+            CityGraph graph = cityGraphCache.current();
+            if (graph.isEmpty()) {
+                due.forEach(a -> arrivalScheduler.schedule(a.driverId(), a.arrivalMillis()));
+                return;
+            }
+            Map<Long, DriverCache> drivers = driverStateStore.getAll(due.stream().map(DriverArrivalScheduler.Arrival::driverId).toList());
 
-            log.debug("cron tick - driver simulation finished. updated drivers: {}, evicted: {}",
-                    allDriverCacheData.size(), driversToEvict.size());
+            Map<Long, DriverCache> changedDrivers = new HashMap<>();
+            List<Long> driversToEvict = new ArrayList<>();
+            List<ProducerRecord<String, byte[]>> outbox = new ArrayList<>();
+            for (DriverArrivalScheduler.Arrival arrival : due) {
+                DriverCache cache = drivers.get(arrival.driverId());
+                if (cache == null) continue; // removed since it was scheduled
+                if (isTelemetryDriven(cache, clock.millis())) {
+                    // a ping moved the driver since this arrival was scheduled; look again once its pings are stale
+                    double remaining = Optional.ofNullable(cache.getDistanceToNextPlace()).orElse(0.0);
+                    arrivalScheduler.schedule(arrival.driverId(),
+                            cache.getLastTelemetryAt() + telemetryStaleMillis + simulatedMillis(remaining));
+                    continue;
+                }
+                try {
+                    long nextArrival = arriveAtNextPlace(arrival.driverId(), cache, graph, arrival.arrivalMillis(), outbox);
+                    if (nextArrival < 0) {
+                        driversToEvict.add(arrival.driverId());
+                        locationDeltaFilter.forget(arrival.driverId());
+                        telemetryBuffer.forget(arrival.driverId());
+                        continue;
+                    }
+                    changedDrivers.put(arrival.driverId(), cache);
+                    if (nextArrival > 0) arrivalScheduler.schedule(arrival.driverId(), nextArrival);
+                } catch (Exception ex) {
+                    log.error("Error moving driver {}: {}", arrival.driverId(), ex.getMessage(), ex);
+                }
+            }
+            driverStateStore.writeBatch(changedDrivers, driversToEvict);
+            publishBatch(outbox);
+            fleetSize.set(arrivalScheduler.scheduled());
         } catch (Exception e) {
             log.error("Error = {}", e.getMessage(), e);
         } finally {
@@ -266,6 +889,101 @@ public class DriverService {
         }
     }
 
+    /**
+     * The driver has just reached its nextPlace at arrivalMillis: learn the segment time, move the cursor on,
+     * and queue a location event if the place has a nearby station (or it is the first place after the start).
+     *
+     * @return the arrival time at the new nextPlace, 0 if the next segment is unknown (driver stalls),
+     * or -1 if the driver finished its route and should be evicted
+     */
+    private long arriveAtNextPlace(Long driverId, DriverCache cache, CityGraph graph, long arrivalMillis,
+                                   List<ProducerRecord<String, byte[]>> outbox) {
+        List<String> route = cache.getRoutePlaces();
+        if (route == null || route.isEmpty()) return -1L;
+        int reachedIdx = routeCursor(cache);
+        if (reachedIdx == -1) return -1L;
+        CompiledRoute compiled = compiledRoute(cache, graph);
+        String reached = route.get(reachedIdx);
+
+        if (reachedIdx > 0) {
+            observeSegment(route.get(reachedIdx - 1), reached, cache.getSegmentEnteredAt(), arrivalMillis);
+        }
+        cache.setSegmentEnteredAt(arrivalMillis);
+
+        int nextIdx = reachedIdx + 1;
+        if (reached.equals(cache.getFinalDestination()) || nextIdx >= route.size()) {
+            queueRideCompletion(driverId, reached, arrivalMillis, outbox);
+            return -1L;
+        }
+
+        String nextPlace = route.get(nextIdx);
+        double segmentDistance = compiled.segmentDistance(nextIdx);
+        cache.setNextPlace(nextPlace);
+        cache.setRouteCursor(nextIdx);
+        cache.setDistanceToNextPlace(segmentDistance);
+        cache.setTimeToNextPlace(durationToNextPlace(reached, nextPlace, segmentDistance, segmentDistance));
+
+        String passedStation = detectPassedMetroStationDuringTick(compiled, nextIdx);
+        boolean stationRelevant = graph.stationOf(reached) != null || reachedIdx == 1;
+        if (!passedStation.isEmpty()) cache.setLastSeenMetroStation(passedStation);
+
+        int nextStationSlot = compiled.nextStationSlot(nextIdx);
+        String nextStation = findNextMetroStationInRoute(compiled, nextStationSlot);
+        int availableSeats = Optional.ofNullable(cache.getAvailableSeats()).orElse(0);
+        if (stationRelevant && !nextStation.isEmpty() && availableSeats > 0) {
+            String oldStation = Optional.ofNullable(cache.getLastSeenMetroStation()).orElse("");
+            int timeToNextStationSec = nextStation.equals(oldStation)
+                    ? 0 : computeTimeToNextStationSec(cache, compiled, nextIdx, nextStationSlot);
+            DriverLocationEvent event = DriverLocationEvent.newBuilder()
+                    .setMessageId(eventId(driverId, arrivalMillis))
+                    .setDriverId(driverId)
+                    .setOldStation(oldStation)
+                    .setNextStation(nextStation)
+                    .setTimeToNextStation(timeToNextStationSec)
+                    .setAvailableSeats(availableSeats)
+                    .setFinalDestination(Optional.ofNullable(cache.getFinalDestination()).orElse(""))
+                    .build();
+            if (queueLocationEvent(event, arrivalMillis, outbox)) {
+                log.debug("Queued driver location event for driver {} at {}: oldStation={}, nextStation={}, tts={}s",
+                        driverId, reached, oldStation, nextStation, timeToNextStationSec);
+            }
+        }
+
+        if (Double.isInfinite(segmentDistance)) {
+            log.warn("Distance between {} and {} unknown. Stopping advancement for driver {}", reached, nextPlace, driverId);
+            return 0L;
+        }
+        return arrivalMillis + simulatedMillis(segmentDistance);
+    }
+
+    private synchronized ForkJoinPool tickPool() {
+        if (tickPool == null) {
+            int parallelism = tickParallelism > 0 ? tickParallelism : Runtime.getRuntime().availableProcessors();
+            tickPool = new ForkJoinPool(parallelism);
+            meterRegistry.gauge("driver.fleet.size", fleetSize);
+        }
+        return tickPool;
+    }
+
+    private Timer tickTimer() {
+        if (tickTimer == null) {
+            tickTimer = Timer.builder("driver.tick.duration")
+                    .description("Wall time of one driver simulation tick")
+                    .publishPercentileHistogram()
+                    .serviceLevelObjectives(Duration.ofSeconds(SECONDS_PER_TICK))
+                    .maximumExpectedValue(Duration.ofSeconds(SECONDS_PER_TICK * 2))
+                    .register(meterRegistry);
+        }
+        return tickTimer;
+    }
+
+    @PreDestroy
+    public synchronized void shutdownTickPool() {
+        if (tickPool != null) {
+            tickPool.shutdown();
+        }
+    }
+
     private String tryAcquireLockWithRetry(String lockKey) {
         for (int attempt = 1; attempt <= 10; attempt++) {
             String lockValue = redisDistributedLock.acquireLock(lockKey, 5000);
@@ -305,15 +1023,15 @@ public class DriverService {
 
     /**
      * Process one driver's tick: decrement distance, advance route nodes if needed, update times,
-     * compute next metro station and emit Kafka event.
+     * compute next metro station and queue its Kafka events on the outbox.
 //     * @param driverId
      * @return true if driver should be evicted (reached final destination)
      */
     private boolean processSingleDriverTick(
             Long driverId,
             DriverCache cache,
-            Map<String, Map<String, Double>> locationLocationMap,
-            Map<String, String> nearbyStationMap) {
+            CityGraph graph,
+            List<ProducerRecord<String, byte[]>> outbox) {
 
         if (cache == null) return true;
 
@@ -325,39 +1043,52 @@ public class DriverService {
             log.warn("Driver {} has empty route; evicting", driverId);
             return true;
         }
+        CompiledRoute compiled = compiledRoute(cache, graph);
         String currentNextPlace = cache.getNextPlace();
         if (currentNextPlace == null) {
             // If nextPlace missing, set to first route node after assumed current
             currentNextPlace = route.get(0);
             cache.setNextPlace(currentNextPlace);
+            cache.setRouteCursor(0);
         }
 
         double distanceToNext = Optional.ofNullable(cache.getDistanceToNextPlace()).orElse(0.0);
         double newDistanceToNext = distanceToNext - DISTANCE_PER_TICK;
 
-        // If not crossing a node, update distance/time and emit event
-        String oldMetroStation = Optional.ofNullable(cache.getLastSeenMetroStation()).orElse("");
-        String newNextMetroStation = "";
-
         // Remaining distance to process when crossing nodes
         double remainder = 0.0;
 
-        // find index of currentNextPlace in route (we assume route list is ordered in traversal direction)
-        int currentIndex = indexOf(route, currentNextPlace);
+        // position of currentNextPlace in route (we assume route list is ordered in traversal direction)
+        int currentIndex = routeCursor(cache);
         if (currentIndex == -1) {
             // defensive fallback: set to 0
             currentIndex = 0;
             cache.setNextPlace(route.get(0));
+            cache.setRouteCursor(0);
         }
 
+        // This tick covers DISTANCE_PER_TICK over the last SECONDS_PER_TICK; node crossings are timed within it
+        long tickEndMillis = clock.millis();
+        long tickStartMillis = tickEndMillis - SECONDS_PER_TICK * 1000L;
+
         if (newDistanceToNext > 0) {
             // simple case, didn't yet reach the next place
+            String segmentStart = currentIndex > 0 ? route.get(currentIndex - 1) : null;
             cache.setDistanceToNextPlace(newDistanceToNext);
-            cache.setTimeToNextPlace(computeDurationFromDistance(newDistanceToNext));
+            cache.setTimeToNextPlace(durationToNextPlace(segmentStart, currentNextPlace,
+                    compiled.segmentDistance(currentIndex), newDistanceToNext));
         } else {
             // crossed into next node or multiple nodes; compute remainder and advance route
             remainder = Math.abs(newDistanceToNext);
 
+            // the segment ending at currentNextPlace is complete: learn its travel time
+            double consumed = distanceToNext;
+            long crossedAtMillis = tickStartMillis + (long) (consumed / DISTANCE_PER_TICK * SECONDS_PER_TICK * 1000L);
+            if (currentIndex > 0) {
+                observeSegment(route.get(currentIndex - 1), currentNextPlace, cache.getSegmentEnteredAt(), crossedAtMillis);
+            }
+            cache.setSegmentEnteredAt(crossedAtMillis);
+
             // advance until remainder consumed or route ends
             boolean reachedFinalDest = false;
             int idx = currentIndex;
@@ -366,21 +1097,7 @@ public class DriverService {
                 // if prevPlace equals finalDestination -> evict
                 if (prevPlace != null && prevPlace.equals(cache.getFinalDestination())) {
                     // We reached final destination during this tick
-                    log.info("Driver location: Driver reached final destination: driverId={}, finalDest={}", driverId, prevPlace);
-                    DriverRideCompletionEvent event = DriverRideCompletionEvent.newBuilder()
-                            .setMessageId(UUID.randomUUID().toString())
-                            .setDriverId(driverId)
-                            .build();
-
-                    CompletableFuture<SendResult<String, byte[]>> future = kafkaTemplate.send(RIDE_COMPLETION_TOPIC,
-                            String.valueOf(driverId), event.toByteArray());
-                    future.thenAccept(result -> {
-                        log.debug("Event = {} delivered to {}", event, result.getRecordMetadata().topic());
-                    }).exceptionally(ex -> {
-                        log.error("Event failed. Error message = {}", ex.getMessage());
-                        // Optional: retry, put into Redis dead-letter queue
-                        return null;
-                    });
+                    queueRideCompletion(driverId, prevPlace, tickEndMillis, outbox);
                     return true; // evict driver
                 }
 
@@ -393,15 +1110,16 @@ public class DriverService {
                 }
 
                 String nextPlace = route.get(nextIdx);
-                double segmentDistance = getDistanceBetween(prevPlace, nextPlace, locationLocationMap);
+                double segmentDistance = compiled.segmentDistance(nextIdx);
 
                 if (Double.isInfinite(segmentDistance)) {
                     // if distance unknown, assume large; stop to avoid infinite loop
                     log.warn("Distance between {} and {} unknown. Stopping advancement for driver {}", prevPlace, nextPlace, driverId);
                     // set next place and use remainder as is (no progress)
                     cache.setNextPlace(nextPlace);
+                    cache.setRouteCursor(nextIdx);
                     cache.setDistanceToNextPlace(segmentDistance);
-                    cache.setTimeToNextPlace(computeDurationFromDistance(segmentDistance));
+                    cache.setTimeToNextPlace(durationToNextPlace(prevPlace, nextPlace, segmentDistance, segmentDistance));
                     break;
                 }
 
@@ -409,20 +1127,25 @@ public class DriverService {
                     // we land somewhere between prevPlace and nextPlace
                     double newDistToNext = segmentDistance - remainder;
                     cache.setNextPlace(nextPlace);
+                    cache.setRouteCursor(nextIdx);
                     cache.setDistanceToNextPlace(newDistToNext);
-                    cache.setTimeToNextPlace(computeDurationFromDistance(newDistToNext));
+                    cache.setTimeToNextPlace(durationToNextPlace(prevPlace, nextPlace, segmentDistance, newDistToNext));
                     // set prevPlace as current physical place for next iteration's station search
                     prevPlace = prevPlace; // current location is between prevPlace and nextPlace
                     break;
                 } else {
                     // we fully cross this segment; subtract and continue
                     remainder = remainder - segmentDistance;
+                    consumed += segmentDistance;
+                    crossedAtMillis = tickStartMillis + (long) (consumed / DISTANCE_PER_TICK * SECONDS_PER_TICK * 1000L);
+                    observeSegment(prevPlace, nextPlace, cache.getSegmentEnteredAt(), crossedAtMillis);
+                    cache.setSegmentEnteredAt(crossedAtMillis);
                     // shift prevPlace / idx forward
                     prevPlace = nextPlace;
                     idx = nextIdx;
                     // if we've exactly landed on nextPlace and it's final destination -> evict
                     if (prevPlace.equals(cache.getFinalDestination())) {
-                        log.info("Driver {} reached final destination during multi-hop progression", driverId);
+                        queueRideCompletion(driverId, prevPlace, tickEndMillis, outbox);
                         return true;
                     }
                     // if remainder == 0 -> we are exactly at prevPlace; set nextPlace to the following node
@@ -433,10 +1156,11 @@ public class DriverService {
                             return true;
                         }
                         String followingPlace = route.get(followingIdx);
-                        double nextSegDistance = getDistanceBetween(prevPlace, followingPlace, locationLocationMap);
+                        double nextSegDistance = compiled.segmentDistance(followingIdx);
                         cache.setNextPlace(followingPlace);
+                        cache.setRouteCursor(followingIdx);
                         cache.setDistanceToNextPlace(nextSegDistance);
-                        cache.setTimeToNextPlace(computeDurationFromDistance(nextSegDistance));
+                        cache.setTimeToNextPlace(durationToNextPlace(prevPlace, followingPlace, nextSegDistance, nextSegDistance));
                         break;
                     }
                     // else continue loop to consume remainder across next segment
@@ -444,18 +1168,28 @@ public class DriverService {
             } // end while
         } // end crossing logic
 
-        // Update last seen / next metro station using nearbyStationMap scanning remaining route from current position
-        String lastSeen = Optional.ofNullable(cache.getLastSeenMetroStation()).orElse("");
-        newNextMetroStation = findNextMetroStationInRoute(cache.getNextPlace(), cache.getRoutePlaces(), nearbyStationMap);
+        announceLocation(driverId, cache, compiled, tickEndMillis, outbox);
+        return false; // not evicted
+    }
+
+    /**
+     * Update the driver's last seen station from its new position and queue its location event if a metro
+     * station lies ahead.
+     */
+    private void announceLocation(Long driverId, DriverCache cache, CompiledRoute compiled, long tickEndMillis,
+                                  List<ProducerRecord<String, byte[]>> outbox) {
+        // Update last seen / next metro station from the compiled route stations ahead of / behind the cursor
+        int cursor = routeCursor(cache);
+        int nextStationSlot = compiled.nextStationSlot(Math.max(cursor, 0));
+        String newNextMetroStation = findNextMetroStationInRoute(compiled, nextStationSlot);
 
         // Update lastSeen logic: if the driver passed a metro station in this tick, update lastSeen
-        // We'll detect if any station id equals nearbyStationMap mapping for nodes we traversed.
+        // We'll detect if any station id equals the nearby-station mapping for nodes we traversed.
         // Simple heuristic: if oldMetroStation is empty and the nearest station for current nextPlace equals something, set lastSeen accordingly.
         // For simulation robustness we'll update lastSeen only if we detect that we passed a node with a station.
-        String passedStation = detectPassedMetroStationDuringTick(cache, locationLocationMap, nearbyStationMap, DISTANCE_PER_TICK);
+        String passedStation = detectPassedMetroStationDuringTick(compiled, cursor);
         if (!passedStation.isEmpty()) {
             cache.setLastSeenMetroStation(passedStation);
-            oldMetroStation = passedStation;
         }
 
         // Log time to next route point for debugging
@@ -477,7 +1211,7 @@ public class DriverService {
         // }
 
         // compute timeToNextStation using distance from current location to next station
-        int timeToNextStationSec = computeTimeToNextStationSec(cache, newNextMetroStation, locationLocationMap, nearbyStationMap);
+        int timeToNextStationSec = computeTimeToNextStationSec(cache, compiled, Math.max(cursor, 0), nextStationSlot);
 
         // If next station is same as old station (consecutive nodes nearby same station), time is 0
         if (nextStationForEvent != null && !nextStationForEvent.isEmpty() && nextStationForEvent.equals(oldStationForEvent)) {
@@ -490,7 +1224,7 @@ public class DriverService {
                 System.out.println("Available seats > 0.");
                 // emit Kafka event
                 DriverLocationEvent event = DriverLocationEvent.newBuilder()
-                        .setMessageId(UUID.randomUUID().toString())
+                        .setMessageId(eventId(driverId, tickEndMillis))
                         .setDriverId(driverId)
                         .setOldStation(oldStationForEvent)
                         .setNextStation(nextStationForEvent)
@@ -501,23 +1235,16 @@ public class DriverService {
 
                 log.info("Driver location: {}", event);
 
-                // send with key driverId
-                CompletableFuture<SendResult<String, byte[]>> future = kafkaTemplate.send(DRIVER_TOPIC,
-                        String.valueOf(driverId), event.toByteArray());
-                future.thenAccept(result -> {
-                    log.debug("Event = {} delivered to {}", event, result.getRecordMetadata().topic());
-                }).exceptionally(ex -> {
-                    log.error("Event failed. Error message = {}", ex.getMessage());
-                    // Optional: retry, put into Redis dead-letter queue
-                    return null;
-                });
-                log.debug("Published driver location event for driver {}: oldStation={}, nextStation={}, tts={}s",
-                        driverId, oldStationForEvent, nextStationForEvent, timeToNextStationSec);
+                // send with key driverId (published with the rest of the tick's batch) unless nothing changed
+                if (queueLocationEvent(event, tickEndMillis, outbox)) {
+                    log.debug("Queued driver location event for driver {}: oldStation={}, nextStation={}, tts={}s",
+                            driverId, oldStationForEvent, nextStationForEvent, timeToNextStationSec);
+                }
 
             } else {
                 System.out.println("Available seats == 0.");
                 DriverLocationEvent event = DriverLocationEvent.newBuilder()
-                        .setMessageId(UUID.randomUUID().toString())
+                        .setMessageId(eventId(driverId, tickEndMillis))
                         .setDriverId(driverId)
                         .setOldStation(oldStationForEvent)
                         .setNextStation(nextStationForEvent)
@@ -530,94 +1257,10 @@ public class DriverService {
         } else {
             log.debug("Skipping Kafka event for driver {}: no next metro station found in remaining route.", driverId);
         }
-
-        return false; // not evicted
     }
 
     // ---------- Helper functions ----------
 
-    // Safe readers that accept plain JSON strings and serializer JSON alike
-    private Map<String, String> safeReadNearby() {
-        // Try to acquire lock
-        String lockValue = tryAcquireLockWithRetry(redisNearbyLocationsLockKey);
-        if (lockValue == null) {
-            log.error("Unable to acquire lock with retry policy: {} lock key {} timeout milliseconds {} maximum retries {} back off milliseconds. " +
-                    "Returning false", redisNearbyLocationsLockKey, 5000, 10, 200);
-            return null;
-        } else {
-            log.info("Acquired lock with retry policy: {} lock key {} timeout milliseconds {} maximum retries {} back off milliseconds. " +
-                    "Returning false", redisDriverLockKey, 5000, 10, 200);
-        }
-
-        try {
-            log.debug("Reached DriverService.safeReadNearby.");
-            String json = redisStringTemplate.opsForValue().get(NEARBY_STATIONS_CACHE_KEY);
-            if (json == null || json.isEmpty()) return new HashMap<>();
-            // First parse as generic map to tolerate typed JSON (with "@class")
-            Map<String, Object> raw = objectMapper.readValue(json, new TypeReference<Map<String, Object>>() {});
-            Map<String, String> result = new HashMap<>();
-            for (Map.Entry<String, Object> e : raw.entrySet()) {
-                if ("@class".equals(e.getKey())) continue;
-                Object v = e.getValue();
-                if (v != null) result.put(e.getKey(), String.valueOf(v));
-            }
-            return result;
-        } catch (Exception e) {
-            log.error("nearby-stations parse failed: {}", e.getMessage());
-            return new HashMap<>();
-        } finally {
-            redisDistributedLock.releaseLock(redisNearbyLocationsLockKey, lockValue);
-        }
-    }
-
-    private Map<String, Map<String, Double>> safeReadLocationMap() {
-        // Try to acquire lock
-        String lockValue = tryAcquireLockWithRetry(redisLocationLocationMapLockKey);
-        if (lockValue == null) {
-            log.error("Unable to acquire lock with retry policy: {} lock key {} timeout milliseconds {} maximum retries {} back off milliseconds. " +
-                    "Returning false", redisLocationLocationMapLockKey, 5000, 10, 200);
-        } else {
-            log.info("Acquired lock with retry policy: {} lock key {} timeout milliseconds {} maximum retries {} back off milliseconds. " +
-                    "Returning false", redisDriverLockKey, 5000, 10, 200);
-        }
-
-        try {
-            log.debug("Reached DriverService.safeReadLocationMap.");
-            String json = redisStringTemplate.opsForValue().get(LOCATION_LOCATION_MAP_CACHE_KEY);
-            if (json == null || json.isEmpty()) return new HashMap<>();
-            Map<String, Object> raw = objectMapper.readValue(json, new TypeReference<Map<String, Object>>() {});
-            Map<String, Map<String, Double>> result = new HashMap<>();
-            for (Map.Entry<String, Object> e : raw.entrySet()) {
-                if ("@class".equals(e.getKey())) continue;
-                Object inner = e.getValue();
-                if (inner instanceof Map) {
-                    Map<?, ?> innerMap = (Map<?, ?>) inner;
-                    Map<String, Double> typedInner = new HashMap<>();
-                    for (Map.Entry<?, ?> ie : innerMap.entrySet()) {
-                        String k = String.valueOf(ie.getKey());
-                        Object val = ie.getValue();
-                        if (val instanceof Number) {
-                            typedInner.put(k, ((Number) val).doubleValue());
-                        } else {
-                            try {
-                                typedInner.put(k, Double.parseDouble(String.valueOf(val)));
-                            } catch (NumberFormatException nfe) {
-                                // skip non-numeric
-                            }
-                        }
-                    }
-                    result.put(e.getKey(), typedInner);
-                }
-            }
-            return result;
-        } catch (Exception e) {
-            log.error("location-location-map parse failed: {}", e.getMessage());
-            return new HashMap<>();
-        } finally {
-            redisDistributedLock.releaseLock(redisLocationLocationMapLockKey, lockValue);
-        }
-    }
-
     private int indexOf(List<String> route, String place) {
         log.debug("Reached DriverService.indexOf");
         if (route == null) return -1;
@@ -627,25 +1270,6 @@ public class DriverService {
         return -1;
     }
 
-    /**
-     * Get distance between two places using the locationLocationMap structure.
-     * Tries symmetric lookup: map[a].get(b) or map[b].get(a). Returns Double.POSITIVE_INFINITY if unknown.
-     */
-    private double getDistanceBetween(String a, String b, Map<String, Map<String, Double>> locationLocationMap) {
-        log.debug("Reached DriverService.getDistanceBetween.");
-        if (a == null || b == null) return Double.POSITIVE_INFINITY;
-        if (Objects.equals(a, b)) return 0.0;
-        Map<String, Double> inner = locationLocationMap.get(a);
-        if (inner != null && inner.containsKey(b)) {
-            return inner.get(b);
-        }
-        Map<String, Double> inner2 = locationLocationMap.get(b);
-        if (inner2 != null && inner2.containsKey(a)) {
-            return inner2.get(a);
-        }
-        return Double.POSITIVE_INFINITY;
-    }
-
     /**
      * Convert distance units to java.time.Duration (approx based on DISTANCE_PER_TICK).
      * Returns Duration in seconds computed as ceil(distance / DISTANCE_PER_TICK * SECONDS_PER_TICK).
@@ -661,153 +1285,100 @@ public class DriverService {
     }
 
     /**
-     * Find the first metro station mapped by nearbyStationMap in route starting from currentNextPlace index inclusive.
-     * nearbyStationMap maps placeId -> stationId (if place has a nearby metro station).
-     * Returns stationId or empty string if not found.
+     * Expected time to cover the remaining distance of the segment segmentStart -> nextPlace, using the learned
+     * travel time of that segment. Falls back to the fixed pace when the segment start is unknown.
      */
-    private String findNextMetroStationInRoute(String currentNextPlace, List<String> routePlaces, Map<String, String> nearbyStationMap) {
-        log.debug("Reached DriverService.findNextMetroStationInRoute.");
-        if (routePlaces == null || routePlaces.isEmpty()) return "";
-        int startIdx = indexOf(routePlaces, currentNextPlace);
-        if (startIdx == -1) startIdx = 0;
-        for (int i = startIdx; i < routePlaces.size(); i++) {
-            String place = routePlaces.get(i);
-            String station = nearbyStationMap.get(place);
-            if (station != null && !station.isEmpty()) {
-                return station;
-            }
+    private Duration durationToNextPlace(String segmentStart, String nextPlace, double segmentDistance,
+                                         double remainingDistance) {
+        if (Double.isInfinite(remainingDistance) || remainingDistance <= 0) {
+            return Duration.ZERO;
         }
-        return "";
+        if (segmentStart == null || Double.isInfinite(segmentDistance) || segmentDistance <= 0) {
+            return computeDurationFromDistance(remainingDistance);
+        }
+        double segmentSeconds = segmentTravelTimeEstimator.travelSeconds(segmentStart, nextPlace, segmentDistance);
+        double fraction = Math.min(1.0, remainingDistance / segmentDistance);
+        return Duration.ofSeconds((long) Math.ceil(segmentSeconds * fraction));
     }
 
     /**
-     * Detect if the driver passed a metro station during this tick.
-     * Simple heuristic: check nodes in route that are within DISTANCE_PER_TICK from current progress.
-     * For simulation we return the first matched station id, else empty.
+     * Report a completed traversal of from -> to to the travel-time estimator.
      */
-    private String detectPassedMetroStationDuringTick(DriverCache cache,
-                                                     Map<String, Map<String, Double>> locationLocationMap,
-                                                     Map<String, String> nearbyStationMap,
-                                                     double distanceCovered) {
-        log.debug("Reached DriverService.detectPassedMetroStationDuringTick.");
-        if (cache == null) return "";
-        List<String> route = cache.getRoutePlaces();
-        if (route == null || route.isEmpty()) return "";
-
-        // find position: we have current nextPlace and distanceToNextPlace; estimate previous pass node
-        String nextPlace = cache.getNextPlace();
-        int idx = indexOf(route, nextPlace);
-        if (idx <= 0) {
-            // we are near beginning; nothing passed yet
-            return "";
-        }
+    private void observeSegment(String from, String to, Long enteredAtMillis, long completedAtMillis) {
+        if (enteredAtMillis == null || completedAtMillis <= enteredAtMillis) return;
+        segmentTravelTimeEstimator.observe(from, to, (completedAtMillis - enteredAtMillis) / 1000.0);
+    }
 
-        // We might have passed nodes between idx-1 and idx depending on distance covered.
-        // Loop backward from previous nodes to see if any had a nearby station.
-        for (int i = idx - 1; i >= 0; i--) {
-            String place = route.get(i);
-            String station = nearbyStationMap.get(place);
-            if (station != null && !station.isEmpty()) {
-                // rough heuristic - assume we passed it
-                return station;
-            }
+    /**
+     * The driver's compiled route, compiling it on first use (drivers registered before routes were compiled
+     * have none yet) and again once a new city graph version is loaded.
+     */
+    private CompiledRoute compiledRoute(DriverCache cache, CityGraph graph) {
+        CompiledRoute compiled = cache.getCompiledRoute();
+        if (compiled == null || compiled.size() != cache.getRoutePlaces().size()
+                || compiled.getGraphVersion() != graph.version()) {
+            compiled = CompiledRoute.compile(cache.getRoutePlaces(), graph::distance, graph::stationOf,
+                    graph.version());
+            // Without the nearby map the stations are unknown; compile again on a later tick
+            if (graph.stationCount() > 0) cache.setCompiledRoute(compiled);
         }
-        return "";
+        return compiled;
     }
 
     /**
-     * Compute time to next metro station in seconds from current driver state using map distances.
-     * If nextStationId is empty string -> return 0 (or -1 optionally). We return 0 per instructions.
+     * Index of nextPlace in the route: the stored cursor when it still points at nextPlace, otherwise a
+     * one-off scan (state written before the cursor existed). -1 if nextPlace is not on the route.
      */
-    private int computeTimeToNextStationSec(DriverCache cache,
-                                            String nextStationId,
-                                            Map<String, Map<String, Double>> locationLocationMap,
-                                            Map<String, String> nearbyStationMap) {
-        log.debug("Reached DriverService.computeTimeToNextStationSec.");
-        if (cache == null || nextStationId == null || nextStationId.isEmpty()) return 0;
-
-        // We must find the first place on route that maps to nextStationId, then compute distance from
-        // current logical position to that place by summing segment distances.
+    private int routeCursor(DriverCache cache) {
         List<String> route = cache.getRoutePlaces();
-        if (route == null || route.isEmpty()) return 0;
-
-        // Estimate current position: between prevNode and nextPlace
-        String currentNextPlace = cache.getNextPlace();
-        int currentNextIdx = indexOf(route, currentNextPlace);
-        if (currentNextIdx == -1) currentNextIdx = 0;
-
-        // find index of route place whose nearbyStationMap maps to nextStationId
-        // Search starting from currentNextIdx to ensure we find the station AHEAD of us
-        int targetIdx = -1;
-        for (int i = currentNextIdx; i < route.size(); i++) {
-            String p = route.get(i);
-            String station = nearbyStationMap.get(p);
-            if (nextStationId.equals(station)) {
-                targetIdx = i;
-                break;
-            }
-        }
-        if (targetIdx == -1) return 0;
-
-        // Sum distances from current position to the target place
-        double totalDistance = 0.0;
-        // distance from "current position" to route[currentNextIdx] is the current distanceToNextPlace
-        double distToNextPlace = Optional.ofNullable(cache.getDistanceToNextPlace()).orElse(0.0);
-        totalDistance += distToNextPlace;
-
-        // then add segment distances from currentNextIdx -> targetIdx-1 segments
-        for (int idx = currentNextIdx; idx < targetIdx; idx++) {
-            String a = route.get(idx);
-            String b = route.get(idx + 1);
-            double seg = getDistanceBetween(a, b, locationLocationMap);
-            if (Double.isInfinite(seg)) {
-                // abort and return 0
-                return 0;
-            }
-            totalDistance += seg;
+        Integer cursor = cache.getRouteCursor();
+        if (cursor != null && cursor >= 0 && cursor < route.size()
+                && Objects.equals(route.get(cursor), cache.getNextPlace())) {
+            return cursor;
         }
-
-        // convert to seconds: time = ceil(totalDistance / DISTANCE_PER_TICK * SECONDS_PER_TICK)
-        long secs = (long) Math.ceil((totalDistance / DISTANCE_PER_TICK) * SECONDS_PER_TICK);
-        return (int) secs;
+        int idx = indexOf(route, cache.getNextPlace());
+        if (idx != -1) cache.setRouteCursor(idx);
+        return idx;
     }
 
-    // ---------- Normalization helpers ----------
+    /**
+     * First metro station at or after the current route position, or empty string if none is left.
+     */
+    private String findNextMetroStationInRoute(CompiledRoute compiled, int nextStationSlot) {
+        return nextStationSlot == -1 ? "" : compiled.stationId(nextStationSlot);
+    }
 
     /**
-     * Normalize the Redis 'drivers' value to a Map<Long, DriverCache> regardless of stored key/value shapes.
-     * Accepts keys as Long/Integer/String and values as DriverCache or Map (convertible to DriverCache).
+     * Detect if the driver passed a metro station: the nearest station strictly behind nextPlace, else empty.
      */
-    private Map<Long, DriverCache> normalizeDriverCache(Object raw) {
-        log.debug("Reached DriverService.normalizeDriverCache.");
-        Map<Long, DriverCache> out = new HashMap<>();
-        if (!(raw instanceof Map<?, ?> rawMap)) return out;
-        for (Map.Entry<?, ?> entry : rawMap.entrySet()) {
-            Long id = parseLongKey(entry.getKey());
-            if (id == null) continue;
-            Object val = entry.getValue();
-            DriverCache cache = null;
-            if (val instanceof DriverCache) {
-                cache = (DriverCache) val;
-            } else if (val instanceof Map) {
-                try {
-                    cache = objectMapper.convertValue(val, DriverCache.class);
-                } catch (IllegalArgumentException ex) {
-                    log.warn("Failed to convert driver cache for id {}: {}", id, ex.getMessage());
-                }
-            }
-            if (cache != null) out.put(id, cache);
+    private String detectPassedMetroStationDuringTick(CompiledRoute compiled, int cursor) {
+        if (cursor <= 0) {
+            // we are near beginning; nothing passed yet
+            return "";
         }
-        return out;
+        int slot = compiled.previousStationSlot(cursor);
+        return slot == -1 ? "" : compiled.stationId(slot);
     }
 
-    private Long parseLongKey(Object key) {
-        log.debug("Reached DriverService.parseLongKey.");
-        if (key instanceof Long l) return l;
-        if (key instanceof Integer i) return i.longValue();
-        if (key instanceof String s) {
-            try { return Long.parseLong(s); } catch (NumberFormatException ignored) {}
+    /**
+     * Seconds from the current position to the station at nextStationSlot: the time left to nextPlace plus the
+     * learned travel time of each whole segment in between. Returns 0 if there is no next station.
+     */
+    private int computeTimeToNextStationSec(DriverCache cache, CompiledRoute compiled, int cursor, int nextStationSlot) {
+        if (nextStationSlot == -1) return 0;
+        int targetIdx = compiled.stationIndex(nextStationSlot);
+        List<String> route = cache.getRoutePlaces();
+
+        // time from "current position" to route[cursor] is the current timeToNextPlace
+        double totalSeconds = cache.getTimeToNextPlace() != null ? cache.getTimeToNextPlace().getSeconds() : 0.0;
+        for (int idx = cursor; idx < targetIdx; idx++) {
+            double seg = compiled.segmentDistance(idx + 1);
+            if (Double.isInfinite(seg)) {
+                // abort and return 0
+                return 0;
+            }
+            totalSeconds += segmentTravelTimeEstimator.travelSeconds(route.get(idx), route.get(idx + 1), seg);
         }
-        return null;
+        return (int) Math.ceil(totalSeconds);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,63 @@
+package com.metrocarpool.driver.simulation;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Next-node arrival times of the simulated drivers, kept on a {@link HierarchicalTimingWheel}.
+ * Rescheduling a driver supersedes its previous timer; superseded and cancelled timers are dropped lazily
+ * when they expire. Thread-safe.
+ */
+@Component
+public class DriverArrivalScheduler {
+
+    private final HierarchicalTimingWheel wheel;
+    // driverId -> the one deadline that is still live for that driver
+    private final Map<Long, Long> live = new HashMap<>();
+
+    public DriverArrivalScheduler(@Value("${driver.simulation.wheel-tick-ms:100}") long tickMillis,
+                                  @Value("${driver.simulation.wheel-size:512}") int wheelSize,
+                                  @Value("${driver.simulation.wheel-levels:4}") int levels,
+                                  Clock clock,
+                                  MeterRegistry meterRegistry) {
+        this.wheel = new HierarchicalTimingWheel(tickMillis, wheelSize, levels, clock.millis());
+        meterRegistry.gauge("driver.simulation.scheduled", this, DriverArrivalScheduler::scheduled);
+    }
+
+    public synchronized void schedule(long driverId, long arrivalMillis) {
+        live.put(driverId, arrivalMillis);
+        wheel.schedule(driverId, arrivalMillis);
+    }
+
+    public synchronized void cancel(long driverId) {
+        live.remove(driverId);
+    }
+
+    /**
+     * Drivers whose arrival time has passed by nowMillis, in arrival order, each with its arrival time.
+     */
+    public synchronized List<Arrival> due(long nowMillis) {
+        List<Arrival> out = new ArrayList<>();
+        wheel.advance(nowMillis, (driverId, arrivalMillis) -> {
+            Long current = live.get(driverId);
+            if (current != null && current == arrivalMillis) {
+                live.remove(driverId);
+                out.add(new Arrival(driverId, arrivalMillis));
+            }
+        });
+        return out;
+    }
+
+    public synchronized int scheduled() {
+        return live.size();
+    }
+
+    public record Arrival(long driverId, long arrivalMillis) {}
+}
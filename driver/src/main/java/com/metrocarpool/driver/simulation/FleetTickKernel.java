@@ -0,0 +1,127 @@
+package com.metrocarpool.driver.simulation;
+
+import java.util.Arrays;
+
+/**
+ * Moves a batch of drivers along their compiled routes with the state in parallel primitive arrays.
+ * A driver is a position (distance from its route's first place), the cursor of its next place and the
+ * route's cumulative distances, shared by every driver on the same route. {@link #advance} runs in two passes:
+ * a branch-free loop adding the tick's distance to every position, which C2 compiles to SIMD, then a pass that
+ * moves each cursor past the places now behind its driver and flags crossings and finished routes.
+ * Not thread-safe.
+ */
+public final class FleetTickKernel {
+
+    // flags set by advance
+    public static final byte CROSSED = 1;
+    public static final byte FINISHED = 2;
+
+    private double[] startPosition;
+    private double[] position;
+    private int[] startCursor;
+    private int[] cursor;
+    private int[] finish;
+    private double[][] cumulative;
+    private byte[] flags;
+    private int size;
+
+    public FleetTickKernel(int capacity) {
+        int n = Math.max(1, capacity);
+        this.startPosition = new double[n];
+        this.position = new double[n];
+        this.startCursor = new int[n];
+        this.cursor = new int[n];
+        this.finish = new int[n];
+        this.cumulative = new double[n][];
+        this.flags = new byte[n];
+    }
+
+    /**
+     * Add a driver whose next place is route[cursor], distanceToNext short of it. The driver finishes on
+     * reaching route[finishIndex]. Returns the driver's index in the batch, or -1 if the position is not
+     * finite (an unknown segment), which the kernel cannot move.
+     */
+    public int add(double[] cumulativeDistance, int cursor, double distanceToNext, int finishIndex) {
+        double start = cumulativeDistance[cursor] - distanceToNext;
+        if (!Double.isFinite(start)) return -1;
+        if (size == this.cursor.length) grow();
+        int i = size++;
+        this.cumulative[i] = cumulativeDistance;
+        this.startPosition[i] = start;
+        this.startCursor[i] = cursor;
+        this.finish[i] = finishIndex;
+        return i;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(cumulative, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Move every driver distance further along its route.
+     */
+    public void advance(double distance) {
+        int n = size;
+        double[] from = startPosition;
+        double[] to = position;
+        // pass 1: no branches, no calls; vectorised by C2
+        for (int i = 0; i < n; i++) {
+            to[i] = from[i] + distance;
+        }
+        // pass 2: cursors and crossings; most drivers stay within their segment and leave after one compare
+        for (int i = 0; i < n; i++) {
+            double[] route = cumulative[i];
+            double p = to[i];
+            int c = startCursor[i];
+            int last = finish[i];
+            while (c <= last && route[c] <= p) c++;
+            cursor[i] = c;
+            flags[i] = (byte) ((c != startCursor[i] ? CROSSED : 0) | (c > last ? FINISHED : 0));
+        }
+    }
+
+    public byte flags(int i) {
+        return flags[i];
+    }
+
+    public int startCursor(int i) {
+        return startCursor[i];
+    }
+
+    /**
+     * Index of the driver's next place after the tick; past the finish index if it finished.
+     */
+    public int cursor(int i) {
+        return cursor[i];
+    }
+
+    /**
+     * Distance left to the next place after the tick; infinite when the next segment's length is unknown.
+     */
+    public double distanceToNext(int i) {
+        return cumulative[i][cursor[i]] - position[i];
+    }
+
+    /**
+     * How far into the tick's distance the driver reached route[place].
+     */
+    public double reachedAfter(int i, int place) {
+        return cumulative[i][place] - startPosition[i];
+    }
+
+    private void grow() {
+        int n = cursor.length * 2;
+        startPosition = Arrays.copyOf(startPosition, n);
+        position = Arrays.copyOf(position, n);
+        startCursor = Arrays.copyOf(startCursor, n);
+        cursor = Arrays.copyOf(cursor, n);
+        finish = Arrays.copyOf(finish, n);
+        cumulative = Arrays.copyOf(cumulative, n);
+        flags = Arrays.copyOf(flags, n);
+    }
+}
@@ -0,0 +1,137 @@
+package com.metrocarpool.driver.simulation;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel for (id, deadline) timers: O(1) schedule, O(1) amortised expiry.
+ * Level 0 has one slot per tick; each higher level has slots wheelSize times wider. A timer is placed on the
+ * lowest level whose span covers it and cascades one level down each time its slot comes round, so it is
+ * touched at most once per level. Timers past the top level wait in an overflow list that is re-placed every
+ * time the top level wraps. Not thread-safe.
+ */
+public final class HierarchicalTimingWheel {
+
+    private final long tickMillis;
+    private final int wheelSize;
+    private final int levels;
+    // ticks covered by one slot of each level: 1, W, W^2, ...
+    private final long[] slotTicks;
+    private final Bucket[][] slots;
+    private final List<Timer> overflow = new ArrayList<>();
+    private final ArrayDeque<Timer> ready = new ArrayDeque<>();
+    private long currentTick;
+    private int size;
+
+    private record Timer(long id, long deadlineMillis, long deadlineTick) {}
+
+    // non-generic slot type, so the slot table is a plain array
+    private static final class Bucket extends ArrayList<Timer> {
+        Bucket() {
+            super(4);
+        }
+    }
+
+    @FunctionalInterface
+    public interface Expiry {
+        void expired(long id, long deadlineMillis);
+    }
+
+    public HierarchicalTimingWheel(long tickMillis, int wheelSize, int levels, long startMillis) {
+        if (tickMillis <= 0 || wheelSize < 2 || levels < 1) {
+            throw new IllegalArgumentException("tickMillis > 0, wheelSize >= 2 and levels >= 1 required");
+        }
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.levels = levels;
+        this.slotTicks = new long[levels + 1];
+        slotTicks[0] = 1;
+        for (int l = 1; l <= levels; l++) {
+            slotTicks[l] = Math.multiplyExact(slotTicks[l - 1], wheelSize);
+        }
+        this.slots = new Bucket[levels][wheelSize];
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    /**
+     * Schedule id to fire once the wheel has advanced to deadlineMillis. Deadlines already passed fire on the
+     * next {@link #advance}.
+     */
+    public void schedule(long id, long deadlineMillis) {
+        place(new Timer(id, deadlineMillis, Math.floorDiv(deadlineMillis, tickMillis)));
+        size++;
+    }
+
+    /**
+     * Advance the wheel to nowMillis, handing every expired timer to fire in deadline-tick order.
+     */
+    public void advance(long nowMillis, Expiry fire) {
+        drainReady(fire);
+        long targetTick = Math.floorDiv(nowMillis, tickMillis);
+        while (currentTick < targetTick) {
+            currentTick++;
+            // Cascade from the top so timers can drop several levels in one step
+            if (currentTick % slotTicks[levels] == 0 && !overflow.isEmpty()) {
+                List<Timer> far = new ArrayList<>(overflow);
+                overflow.clear();
+                far.forEach(this::place);
+            }
+            for (int l = levels - 1; l >= 1; l--) {
+                if (currentTick % slotTicks[l] == 0) {
+                    cascade(l, (int) ((currentTick / slotTicks[l]) % wheelSize));
+                }
+            }
+            List<Timer> due = slots[0][(int) (currentTick % wheelSize)];
+            if (due != null && !due.isEmpty()) {
+                slots[0][(int) (currentTick % wheelSize)] = null;
+                ready.addAll(due);
+            }
+            drainReady(fire);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long currentTimeMillis() {
+        return currentTick * tickMillis;
+    }
+
+    private void cascade(int level, int slot) {
+        List<Timer> bucket = slots[level][slot];
+        if (bucket == null || bucket.isEmpty()) return;
+        slots[level][slot] = null;
+        bucket.forEach(this::place);
+    }
+
+    private void place(Timer timer) {
+        long delta = timer.deadlineTick - currentTick;
+        if (delta <= 0) {
+            ready.add(timer);
+            return;
+        }
+        for (int l = 0; l < levels; l++) {
+            if (delta < slotTicks[l + 1]) {
+                int slot = (int) ((timer.deadlineTick / slotTicks[l]) % wheelSize);
+                Bucket bucket = slots[l][slot];
+                if (bucket == null) {
+                    bucket = new Bucket();
+                    slots[l][slot] = bucket;
+                }
+                bucket.add(timer);
+                return;
+            }
+        }
+        overflow.add(timer);
+    }
+
+    private void drainReady(Expiry fire) {
+        Timer timer;
+        while ((timer = ready.poll()) != null) {
+            size--;
+            fire.expired(timer.id, timer.deadlineMillis);
+        }
+    }
+}
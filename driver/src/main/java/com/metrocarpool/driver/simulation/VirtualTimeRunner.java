@@ -0,0 +1,86 @@
+package com.metrocarpool.driver.simulation;
+
+import com.metrocarpool.contracts.time.VirtualClock;
+import com.metrocarpool.driver.service.DriverService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Drives the simulation in virtual time: steps the {@link VirtualClock} by one tick (2 minutes) or, in event
+ * mode, one wheel step, and runs that step's work right away instead of waiting for the wall clock. With
+ * driver.simulation.virtual.run-for set, a run starts once the application is ready; soak tests and
+ * benchmarks can also call {@link #run} directly.
+ */
+@Component
+@Slf4j
+public class VirtualTimeRunner {
+
+    static final Duration TICK = Duration.ofMinutes(2);
+
+    private final DriverService driverService;
+    private final Clock clock;
+    private final Duration wheelStep;
+    private final Duration runFor;
+
+    public VirtualTimeRunner(DriverService driverService,
+                             Clock clock,
+                             @Value("${driver.simulation.wheel-tick-ms:100}") long wheelTickMillis,
+                             @Value("${driver.simulation.virtual.run-for:PT0S}") Duration runFor) {
+        this.driverService = driverService;
+        this.clock = clock;
+        this.wheelStep = Duration.ofMillis(wheelTickMillis);
+        this.runFor = runFor;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void runOnStart() {
+        if (!(clock instanceof VirtualClock) || runFor.isZero() || runFor.isNegative()) return;
+        Thread.ofPlatform().name("virtual-time-runner").daemon().start(() -> {
+            try {
+                run(runFor);
+            } catch (RuntimeException e) {
+                log.error("Virtual-time run failed: {}", e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Simulate the given span of time as fast as the steps complete. Returns once the clock has advanced by
+     * every whole step that fits in it.
+     */
+    public RunReport run(Duration simulated) {
+        if (!(clock instanceof VirtualClock virtualClock)) {
+            throw new IllegalStateException("driver.simulation.clock is not virtual");
+        }
+        boolean eventMode = driverService.isEventTimeSimulation();
+        Duration step = eventMode ? wheelStep : TICK;
+        long from = virtualClock.millis();
+        long end = from + simulated.toMillis();
+        long steps = 0;
+        long wallStart = System.nanoTime();
+        while (virtualClock.millis() + step.toMillis() <= end) {
+            virtualClock.advance(step);
+            if (eventMode) {
+                driverService.advanceEventTime();
+            } else {
+                driverService.simulateTick();
+            }
+            steps++;
+        }
+        RunReport report = new RunReport(steps, virtualClock.millis() - from, System.nanoTime() - wallStart);
+        log.info("Virtual-time run: {} steps, {} ms simulated in {} ms.", report.steps(), report.simulatedMillis(),
+                report.wallNanos() / 1_000_000L);
+        return report;
+    }
+
+    /**
+     * Steps taken, virtual time covered and the wall time it took.
+     */
+    public record RunReport(long steps, long simulatedMillis, long wallNanos) {}
+}
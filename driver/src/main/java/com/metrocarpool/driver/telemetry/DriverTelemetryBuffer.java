@@ -0,0 +1,117 @@
+package com.metrocarpool.driver.telemetry;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Latest reported position per driver, waiting to be folded into the driver state. Samples are coalesced in
+ * memory: a driver pinging many times between two flushes costs one state write. Once more than
+ * driver.telemetry.max-pending-drivers are waiting, {@link #isBacklogged()} tells streams to stop granting
+ * credits until the next {@link #drain()}. Thread-safe.
+ */
+@Component
+public class DriverTelemetryBuffer {
+
+    /**
+     * Progress along the registered route: offset distance units into the leg route[segment] -> route[segment + 1].
+     */
+    public record Sample(long driverId, int segment, double offset, long timestampMillis) {}
+
+    private final int maxPendingDrivers;
+    private final Map<Long, Sample> pending = new ConcurrentHashMap<>();
+    // newest timestamp folded into the state per driver, so late samples cannot move a driver backwards
+    private final Map<Long, Long> applied = new ConcurrentHashMap<>();
+    private final List<Runnable> onDrained = new ArrayList<>();
+    private final Counter acceptedCounter;
+    private final Counter rejectedCounter;
+
+    public DriverTelemetryBuffer(@Value("${driver.telemetry.max-pending-drivers:100000}") int maxPendingDrivers,
+                                 MeterRegistry meterRegistry) {
+        this.maxPendingDrivers = maxPendingDrivers;
+        this.acceptedCounter = Counter.builder("driver.telemetry.samples")
+                .tag("outcome", "accepted")
+                .description("Position samples buffered")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("driver.telemetry.samples")
+                .tag("outcome", "rejected")
+                .description("Position samples that were malformed or older than the driver's last one")
+                .register(meterRegistry);
+        meterRegistry.gauge("driver.telemetry.pending", pending, Map::size);
+    }
+
+    /**
+     * Buffer a sample unless it is malformed or older than what is already known for the driver.
+     */
+    public boolean offer(Sample sample) {
+        if (sample.segment() < 0 || !(sample.offset() >= 0) || Double.isInfinite(sample.offset())) {
+            rejectedCounter.increment();
+            return false;
+        }
+        Long appliedAt = applied.get(sample.driverId());
+        if (appliedAt != null && sample.timestampMillis() <= appliedAt) {
+            rejectedCounter.increment();
+            return false;
+        }
+        boolean[] newer = {true};
+        pending.merge(sample.driverId(), sample, (current, offered) -> {
+            if (offered.timestampMillis() > current.timestampMillis()) return offered;
+            newer[0] = false;
+            return current;
+        });
+        (newer[0] ? acceptedCounter : rejectedCounter).increment();
+        return newer[0];
+    }
+
+    public boolean isBacklogged() {
+        return pending.size() >= maxPendingDrivers;
+    }
+
+    public int pendingDrivers() {
+        return pending.size();
+    }
+
+    /**
+     * Run the callback after the next drain (to resume a stream that was told to wait).
+     */
+    public void whenDrained(Runnable callback) {
+        synchronized (onDrained) {
+            onDrained.add(callback);
+        }
+    }
+
+    /**
+     * Take every pending sample, remembering their timestamps as applied, then resume waiting streams.
+     */
+    public Map<Long, Sample> drain() {
+        Map<Long, Sample> out = new HashMap<>(pending.size() * 2);
+        for (Long driverId : List.copyOf(pending.keySet())) {
+            Sample sample = pending.remove(driverId);
+            if (sample == null) continue;
+            out.put(driverId, sample);
+            applied.merge(driverId, sample.timestampMillis(), Math::max);
+        }
+        List<Runnable> callbacks;
+        synchronized (onDrained) {
+            callbacks = new ArrayList<>(onDrained);
+            onDrained.clear();
+        }
+        callbacks.forEach(Runnable::run);
+        return out;
+    }
+
+    /**
+     * Drop what is known about a driver that left (route finished or replaced).
+     */
+    public void forget(long driverId) {
+        pending.remove(driverId);
+        applied.remove(driverId);
+    }
+}
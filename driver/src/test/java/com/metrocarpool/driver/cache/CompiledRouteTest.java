@@ -0,0 +1,60 @@
+package com.metrocarpool.driver.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("CompiledRoute Unit Tests")
+class CompiledRouteTest {
+
+    private static final List<String> ROUTE = List.of("A", "B", "C", "D", "E");
+
+    private static double distance(String a, String b) {
+        return "D".equals(b) ? Double.POSITIVE_INFINITY : 10.0;
+    }
+
+    @Test
+    @DisplayName("compile - Should store prefix distances and go infinite after an unknown segment")
+    void compile_PrefixDistances() {
+        CompiledRoute compiled = CompiledRoute.compile(ROUTE, CompiledRouteTest::distance, place -> null, 1L);
+
+        assertThat(compiled.getCumulativeDistance()).startsWith(0.0, 10.0, 20.0);
+        assertThat(compiled.segmentDistance(2)).isEqualTo(10.0);
+        assertThat(compiled.segmentDistance(3)).isInfinite();
+        assertThat(compiled.segmentDistance(4)).isInfinite();
+        assertThat(compiled.segmentDistance(0)).isInfinite();
+    }
+
+    @Test
+    @DisplayName("nextStationSlot/previousStationSlot - Should find the stations around a route index")
+    void stationSlots_AroundCursor() {
+        CompiledRoute compiled = CompiledRoute.compile(ROUTE, (a, b) -> 10.0,
+                Map.of("B", "ME1", "D", "ME2")::get, 1L);
+
+        assertThat(compiled.stationId(compiled.nextStationSlot(0))).isEqualTo("ME1");
+        assertThat(compiled.stationId(compiled.nextStationSlot(2))).isEqualTo("ME2");
+        assertThat(compiled.stationIndex(compiled.nextStationSlot(2))).isEqualTo(3);
+        assertThat(compiled.nextStationSlot(4)).isEqualTo(-1);
+
+        assertThat(compiled.previousStationSlot(1)).isEqualTo(-1);
+        assertThat(compiled.stationId(compiled.previousStationSlot(2))).isEqualTo("ME1");
+        assertThat(compiled.stationId(compiled.previousStationSlot(4))).isEqualTo("ME2");
+    }
+
+    @Test
+    @DisplayName("JSON - Should round-trip through Jackson, including unknown segments")
+    void json_RoundTrip() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        CompiledRoute compiled = CompiledRoute.compile(ROUTE, CompiledRouteTest::distance, Map.of("B", "ME1")::get, 7L);
+
+        CompiledRoute read = objectMapper.readValue(objectMapper.writeValueAsString(compiled), CompiledRoute.class);
+
+        assertThat(read).isEqualTo(compiled);
+        assertThat(read.segmentDistance(3)).isInfinite();
+    }
+}
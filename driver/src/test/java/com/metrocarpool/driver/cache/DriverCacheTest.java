@@ -61,7 +61,7 @@ class DriverCacheTest {
 
         // When
         DriverCache cache = new DriverCache(
-                2, route, "B", duration, 25.0, "C", "Station1"
+                2, route, "B", duration, 25.0, "C", "Station1", 1_000L, 1, null, 2_000L
         );
 
         // Then
@@ -72,6 +72,9 @@ class DriverCacheTest {
         assertThat(cache.getDistanceToNextPlace()).isEqualTo(25.0);
         assertThat(cache.getFinalDestination()).isEqualTo("C");
         assertThat(cache.getLastSeenMetroStation()).isEqualTo("Station1");
+        assertThat(cache.getSegmentEnteredAt()).isEqualTo(1_000L);
+        assertThat(cache.getRouteCursor()).isEqualTo(1);
+        assertThat(cache.getLastTelemetryAt()).isEqualTo(2_000L);
     }
 
     @Test
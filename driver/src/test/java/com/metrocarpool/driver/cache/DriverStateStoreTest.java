@@ -0,0 +1,128 @@
+package com.metrocarpool.driver.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.metrocarpool.driver.util.TestDataBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("DriverStateStore Unit Tests")
+class DriverStateStoreTest {
+
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Mock
+    private RedisTemplate<String, String> redisStringTemplate;
+
+    @Mock
+    private HashOperations<String, Object, Object> hashOperations;
+
+    @Mock
+    private ValueOperations<String, Object> valueOperations;
+
+    private ObjectMapper objectMapper;
+    private DriverStateStore driverStateStore;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = new ObjectMapper();
+        objectMapper.findAndRegisterModules();
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        driverStateStore = new DriverStateStore(redisTemplate, redisStringTemplate, objectMapper);
+        lenient().when(redisStringTemplate.opsForHash()).thenReturn(hashOperations);
+    }
+
+    @Test
+    @DisplayName("put/get - Should round-trip a single driver through its own hash field")
+    void putAndGet_SingleField() {
+        DriverCache driverCache = TestDataBuilder.buildDriverCache(1L, 3);
+        ArgumentCaptor<Object> json = ArgumentCaptor.forClass(Object.class);
+
+        driverStateStore.put(1L, driverCache);
+        verify(hashOperations).put(eq(DriverStateStore.DRIVER_STATE_KEY), eq("1"), json.capture());
+
+        when(hashOperations.get(DriverStateStore.DRIVER_STATE_KEY, "1")).thenReturn(json.getValue());
+        assertThat(driverStateStore.get(1L)).isEqualTo(driverCache);
+    }
+
+    @Test
+    @DisplayName("get - Should take the seat count from the seat hash over the state JSON")
+    void get_OverlaysSeats() throws Exception {
+        DriverCache driverCache = TestDataBuilder.buildDriverCache(1L, 3);
+        when(hashOperations.get(DriverStateStore.DRIVER_STATE_KEY, "1"))
+                .thenReturn(objectMapper.writeValueAsString(driverCache));
+        when(hashOperations.get(DriverStateStore.DRIVER_SEATS_KEY, "1")).thenReturn("1");
+
+        assertThat(driverStateStore.get(1L).getAvailableSeats()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("takeSeat - Should run the seat script on the seat and state hashes")
+    @SuppressWarnings("unchecked")
+    void takeSeat_RunsScript() {
+        when(redisStringTemplate.execute(any(RedisScript.class), eq(List.of(DriverStateStore.DRIVER_SEATS_KEY,
+                DriverStateStore.DRIVER_STATE_KEY, DriverStateStore.DRIVER_CHANGED_KEY)), eq("1"), eq("0")))
+                .thenReturn(2L);
+
+        assertThat(driverStateStore.takeSeat(1L)).isEqualTo(2L);
+        assertThat(driverStateStore.takeSeat(9L)).isEqualTo(DriverStateStore.UNKNOWN_DRIVER);
+    }
+
+    @Test
+    @DisplayName("loadAll - Should decode every field and skip unreadable ones")
+    void loadAll_SkipsUnreadable() throws Exception {
+        DriverCache driverCache = TestDataBuilder.buildDriverCache(1L, 3);
+        Map<Object, Object> entries = new HashMap<>();
+        entries.put("1", objectMapper.writeValueAsString(driverCache));
+        entries.put("2", "not-json");
+        entries.put("x", "{}");
+        when(hashOperations.entries(DriverStateStore.DRIVER_STATE_KEY)).thenReturn(entries);
+
+        Map<Long, DriverCache> all = driverStateStore.loadAll();
+
+        assertThat(all).containsOnlyKeys(1L);
+        assertThat(all.get(1L)).isEqualTo(driverCache);
+    }
+
+    @Test
+    @DisplayName("writeBatch - Should issue one pipelined call and nothing when there are no changes")
+    void writeBatch_Pipelined() {
+        driverStateStore.writeBatch(Map.of(), List.of());
+        verify(redisStringTemplate, never()).executePipelined(any(SessionCallback.class));
+
+        driverStateStore.writeBatch(Map.of(1L, TestDataBuilder.buildDriverCache(1L, 3)), List.of(2L));
+        verify(redisStringTemplate, times(1)).executePipelined(any(SessionCallback.class));
+    }
+
+    @Test
+    @DisplayName("migrateLegacyBlob - Should move drivers from the old blob into hash fields and drop it")
+    void migrateLegacyBlob_MovesDrivers() {
+        Map<Long, DriverCache> legacy = TestDataBuilder.buildDriverCacheMap();
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get("drivers")).thenReturn(legacy);
+
+        driverStateStore.migrateLegacyBlob();
+
+        verify(hashOperations).putIfAbsent(eq(DriverStateStore.DRIVER_STATE_KEY), eq("1"), anyString());
+        verify(hashOperations).putIfAbsent(eq(DriverStateStore.DRIVER_STATE_KEY), eq("2"), anyString());
+        verify(redisTemplate).delete("drivers");
+    }
+}
@@ -0,0 +1,124 @@
+package com.metrocarpool.driver.cache;
+
+import com.metrocarpool.driver.util.TestDataBuilder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("OffHeapFleetStore Unit Tests")
+class OffHeapFleetStoreTest {
+
+    private static OffHeapFleetStore store(String checkpointPath) {
+        return new OffHeapFleetStore(true, 16, checkpointPath, new SimpleMeterRegistry());
+    }
+
+    @Test
+    @DisplayName("put/get - Should round-trip every field, nulls included")
+    void putAndGet_RoundTrip() {
+        OffHeapFleetStore store = store("");
+        DriverCache full = TestDataBuilder.buildDriverCache(1L, 3).toBuilder()
+                .segmentEnteredAt(1_700_000_000_000L)
+                .routeCursor(1)
+                .lastTelemetryAt(1_700_000_060_000L)
+                .build();
+        DriverCache sparse = DriverCache.builder().finalDestination("Location4").build();
+
+        store.put(1L, full);
+        store.put(2L, sparse);
+
+        assertThat(store.get(1L)).isEqualTo(full);
+        assertThat(store.get(2L)).isEqualTo(sparse);
+        assertThat(store.get(3L)).isNull();
+        assertThat(store.size()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("put - Should intern a route once and share its compiled form")
+    void put_InternsRoutes() {
+        OffHeapFleetStore store = store("");
+        CompiledRoute compiled = CompiledRoute.compile(List.of("Location1", "Location2", "Location3", "Location4"),
+                (a, b) -> 50.0, place -> null, 0L);
+        store.put(1L, TestDataBuilder.buildDriverCache(1L, 3).toBuilder().compiledRoute(compiled).build());
+        store.put(2L, TestDataBuilder.buildDriverCache(2L, 2));
+
+        assertThat(store.routeCount()).isEqualTo(1);
+        assertThat(store.get(2L).getRoutePlaces()).isSameAs(store.get(1L).getRoutePlaces());
+        assertThat(store.get(2L).getCompiledRoute()).isSameAs(compiled);
+    }
+
+    @Test
+    @DisplayName("useGraphVersion - Should drop compiled routes of the old graph and share the recompiled one")
+    void useGraphVersion_ReplacesStaleRoutes() {
+        OffHeapFleetStore store = store("");
+        List<String> route = List.of("Location1", "Location2", "Location3", "Location4");
+        CompiledRoute stale = CompiledRoute.compile(route, (a, b) -> 50.0, place -> null, 1L);
+        CompiledRoute fresh = CompiledRoute.compile(route, (a, b) -> 80.0, place -> null, 2L);
+        store.useGraphVersion(1L);
+        store.put(1L, TestDataBuilder.buildDriverCache(1L, 3).toBuilder().compiledRoute(stale).build());
+
+        store.useGraphVersion(2L);
+        assertThat(store.get(1L).getCompiledRoute()).isNull();
+        store.put(2L, TestDataBuilder.buildDriverCache(2L, 2).toBuilder().compiledRoute(stale).build());
+        store.put(1L, TestDataBuilder.buildDriverCache(1L, 3).toBuilder().compiledRoute(fresh).build());
+        store.put(2L, TestDataBuilder.buildDriverCache(2L, 2).toBuilder().compiledRoute(stale).build());
+
+        assertThat(store.get(2L).getCompiledRoute()).isSameAs(fresh);
+    }
+
+    @Test
+    @DisplayName("put/remove - Should grow past its initial capacity and reuse freed slots")
+    void putRemove_GrowsAndReuses() {
+        OffHeapFleetStore store = store("");
+        LongStream.range(0, 1_000).forEach(id -> store.put(id, TestDataBuilder.buildDriverCache(id, (int) (id % 4))));
+        LongStream.range(0, 1_000).filter(id -> id % 3 == 0).forEach(store::remove);
+        LongStream.range(1_000, 1_100).forEach(id -> store.put(id, TestDataBuilder.buildDriverCache(id, 1)));
+
+        assertThat(store.size()).isEqualTo(1_000 - 334 + 100);
+        assertThat(store.get(3L)).isNull();
+        assertThat(store.get(4L).getAvailableSeats()).isEqualTo(0);
+        assertThat(store.get(1_050L).getAvailableSeats()).isEqualTo(1);
+        assertThat(store.driverIds()).hasSize(store.size()).isSorted().doesNotContain(0L, 999L).contains(998L);
+    }
+
+    @Test
+    @DisplayName("checkpoint/restore - Should bring back drivers, routes and the synced generation")
+    void checkpoint_RestoresFleet(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("fleet.bin");
+        OffHeapFleetStore store = store(file.toString());
+        store.put(1L, TestDataBuilder.buildDriverCache(1L, 3));
+        store.put(2L, TestDataBuilder.buildDriverCacheWithRoute(List.of("Location2", "Location3"), "Location3"));
+        store.put(3L, TestDataBuilder.buildDriverCache(3L, 1));
+        store.remove(3L);
+        store.markSynced(42L);
+        store.checkpoint();
+
+        OffHeapFleetStore restored = store(file.toString());
+        assertThat(restored.restore()).isTrue();
+
+        assertThat(restored.size()).isEqualTo(2);
+        assertThat(restored.routeCount()).isEqualTo(2);
+        assertThat(restored.syncedGeneration()).isEqualTo(42L);
+        assertThat(restored.get(1L)).isEqualTo(store.get(1L));
+        assertThat(restored.get(2L)).isEqualTo(store.get(2L));
+        assertThat(restored.get(3L)).isNull();
+        assertThat(Files.exists(dir.resolve("fleet.bin.tmp"))).isFalse();
+    }
+
+    @Test
+    @DisplayName("restore - Should ignore a file that is not a fleet checkpoint")
+    void restore_RejectsForeignFile(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("fleet.bin");
+        Files.write(file, new byte[64]);
+
+        assertThat(store(file.toString()).restore()).isFalse();
+        assertThat(store("").restore()).isFalse();
+    }
+}
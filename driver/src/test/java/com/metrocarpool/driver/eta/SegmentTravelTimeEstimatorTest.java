@@ -0,0 +1,90 @@
+package com.metrocarpool.driver.eta;
+
+import com.metrocarpool.contracts.proto.SegmentTravelTimeSnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("SegmentTravelTimeEstimator Unit Tests")
+class SegmentTravelTimeEstimatorTest {
+
+    @Mock
+    private RedisTemplate<String, String> redisStringTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    private SegmentTravelTimeEstimator estimator;
+
+    @BeforeEach
+    void setUp() {
+        estimator = new SegmentTravelTimeEstimator(redisStringTemplate);
+        estimator.ensureGraph(List.of("A", "B", "C"));
+    }
+
+    @Test
+    @DisplayName("travelSeconds - Should fall back to the fixed pace for unobserved edges")
+    void travelSeconds_DefaultPace() {
+        assertThat(estimator.travelSeconds("A", "B", 10.0)).isEqualTo(120.0);
+        assertThat(estimator.travelSeconds("A", "Z", 10.0)).isEqualTo(120.0);
+    }
+
+    @Test
+    @DisplayName("observe - Should seed with the first observation and smooth later ones")
+    void observe_UpdatesEwma() {
+        estimator.observe("A", "B", 200.0);
+        assertThat(estimator.travelSeconds("A", "B", 10.0)).isEqualTo(200.0);
+
+        estimator.observe("A", "B", 100.0);
+        // 0.2 * 100 + 0.8 * 200
+        assertThat(estimator.travelSeconds("A", "B", 10.0)).isCloseTo(180.0, within(1e-3));
+        // directed: the reverse edge is still unobserved
+        assertThat(estimator.travelSeconds("B", "A", 10.0)).isEqualTo(120.0);
+    }
+
+    @Test
+    @DisplayName("ensureGraph - Should keep observations of places that remain in the graph")
+    void ensureGraph_KeepsObservations() {
+        estimator.observe("A", "B", 200.0);
+        estimator.observe("B", "C", 50.0);
+
+        estimator.ensureGraph(List.of("A", "B", "D"));
+
+        assertThat(estimator.travelSeconds("A", "B", 10.0)).isEqualTo(200.0);
+        assertThat(estimator.getObservedEdges()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("publishSnapshot - Should bump the version and store only observed edges")
+    void publishSnapshot_WritesVersionedSnapshot() throws Exception {
+        when(redisStringTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.increment(SegmentTravelTimeEstimator.SNAPSHOT_VERSION_KEY)).thenReturn(7L);
+        estimator.observe("B", "C", 50.0);
+
+        estimator.publishSnapshot();
+        estimator.publishSnapshot(); // nothing changed -> no second write
+
+        ArgumentCaptor<String> payload = ArgumentCaptor.forClass(String.class);
+        verify(valueOperations, times(1)).set(eq(SegmentTravelTimeEstimator.SNAPSHOT_KEY), payload.capture());
+        SegmentTravelTimeSnapshot snapshot = SegmentTravelTimeSnapshot.parseFrom(Base64.getDecoder().decode(payload.getValue()));
+        assertThat(snapshot.getVersion()).isEqualTo(7L);
+        assertThat(snapshot.getNodesList()).containsExactly("A", "B", "C");
+        assertThat(snapshot.getFromList()).containsExactly(1);
+        assertThat(snapshot.getToList()).containsExactly(2);
+        assertThat(snapshot.getSecondsList()).containsExactly(50.0f);
+    }
+}
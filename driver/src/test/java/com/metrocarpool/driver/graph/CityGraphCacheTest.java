@@ -0,0 +1,112 @@
+package com.metrocarpool.driver.graph;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.metrocarpool.contracts.graph.CityGraphSnapshotCompiler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("CityGraphCache Unit Tests")
+class CityGraphCacheTest {
+
+    private static final String LOCATIONS_JSON = """
+            {"A": {"B": 5.0, "C": 9.0}, "B": {"C": "2.5"}, "@class": "java.util.HashMap"}
+            """;
+    private static final String NEARBY_JSON = """
+            {"A": "ME1", "C": "ME2"}
+            """;
+
+    @Mock
+    private RedisTemplate<String, String> redisStringTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    private SimpleMeterRegistry meterRegistry;
+    private CityGraphCache cityGraphCache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cityGraphCache = new CityGraphCache(redisStringTemplate, new ObjectMapper(), meterRegistry);
+        lenient().when(redisStringTemplate.opsForValue()).thenReturn(valueOperations);
+    }
+
+    @Test
+    @DisplayName("current - Should load the graph once and answer symmetric distance and station lookups")
+    void current_LoadsCompactGraph() {
+        when(valueOperations.get(CityGraphCache.CITY_GRAPH_VERSION_KEY)).thenReturn("1");
+        when(valueOperations.get(CityGraphCache.LOCATION_LOCATION_MAP_CACHE_KEY)).thenReturn(LOCATIONS_JSON);
+        when(valueOperations.get(CityGraphCache.NEARBY_STATIONS_CACHE_KEY)).thenReturn(NEARBY_JSON);
+
+        CityGraph graph = cityGraphCache.current();
+
+        assertThat(graph.version()).isEqualTo(1L);
+        assertThat(graph.places()).containsExactlyInAnyOrder("A", "B", "C");
+        assertThat(graph.distance("A", "B")).isEqualTo(5.0);
+        assertThat(graph.distance("C", "B")).isEqualTo(2.5);
+        assertThat(graph.distance("A", "A")).isEqualTo(0.0);
+        assertThat(graph.distance("A", "Z")).isInfinite();
+        assertThat(graph.stationOf("C")).isEqualTo("ME2");
+        assertThat(graph.stationOf("B")).isNull();
+        assertThat(cityGraphCache.current()).isSameAs(graph);
+    }
+
+    @Test
+    @DisplayName("refresh - Should only re-read the graph when the version key moves")
+    void refresh_ReloadsOnVersionChange() {
+        when(valueOperations.get(CityGraphCache.CITY_GRAPH_VERSION_KEY)).thenReturn("1", "1", "2");
+        when(valueOperations.get(CityGraphCache.LOCATION_LOCATION_MAP_CACHE_KEY)).thenReturn(LOCATIONS_JSON);
+        when(valueOperations.get(CityGraphCache.NEARBY_STATIONS_CACHE_KEY)).thenReturn(NEARBY_JSON);
+
+        cityGraphCache.refresh();
+        cityGraphCache.refresh();
+        verify(valueOperations, times(1)).get(CityGraphCache.LOCATION_LOCATION_MAP_CACHE_KEY);
+
+        cityGraphCache.refresh();
+        verify(valueOperations, times(2)).get(CityGraphCache.LOCATION_LOCATION_MAP_CACHE_KEY);
+        assertThat(cityGraphCache.current().version()).isEqualTo(2L);
+        assertThat(meterRegistry.counter("driver.graph.reloads").count()).isEqualTo(2.0);
+    }
+
+    @Test
+    @DisplayName("current - Should stay empty while the graph is missing in Redis")
+    void current_EmptyWhenMissing() {
+        when(valueOperations.get(CityGraphCache.CITY_GRAPH_VERSION_KEY)).thenReturn(null);
+        when(valueOperations.get(CityGraphCache.LOCATION_LOCATION_MAP_CACHE_KEY)).thenReturn(null);
+
+        assertThat(cityGraphCache.current().isEmpty()).isTrue();
+    }
+
+    @Test
+    @DisplayName("refresh - Should map the binary snapshot instead of Redis when a path is configured")
+    void refresh_MapsSnapshotFile(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("city-graph.bin");
+        CityGraphSnapshotCompiler.write(CityGraphSnapshotCompiler.compile(
+                Map.of("A", Map.of("B", 5.0)), Map.of("B", "ME1"), true), file);
+        ReflectionTestUtils.setField(cityGraphCache, "snapshotPath", file.toString());
+
+        CityGraph graph = cityGraphCache.current();
+
+        assertThat(graph.distance("B", "A")).isEqualTo(5.0);
+        assertThat(graph.stationOf("B")).isEqualTo("ME1");
+        cityGraphCache.refresh();
+        assertThat(cityGraphCache.current()).isSameAs(graph);
+        verifyNoInteractions(redisStringTemplate);
+    }
+}
@@ -0,0 +1,83 @@
+package com.metrocarpool.driver.graph;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("RoutePlanner Unit Tests")
+class RoutePlannerTest {
+
+    @Mock
+    private CityGraphCache cityGraphCache;
+
+    private CityGraph graph;
+
+    @BeforeEach
+    void setUp() {
+        // A - B - C - D is shorter than the direct A - D; E is disconnected
+        Map<String, Map<String, Double>> edges = new HashMap<>();
+        edge(edges, "A", "B", 10.0);
+        edge(edges, "B", "C", 10.0);
+        edge(edges, "C", "D", 10.0);
+        edge(edges, "A", "D", 50.0);
+        edges.put("E", new HashMap<>());
+        graph = CityGraph.of(1L, edges, Map.of());
+        when(cityGraphCache.current()).thenReturn(graph);
+    }
+
+    private static void edge(Map<String, Map<String, Double>> edges, String a, String b, double d) {
+        edges.computeIfAbsent(a, k -> new HashMap<>()).put(b, d);
+        edges.computeIfAbsent(b, k -> new HashMap<>()).put(a, d);
+    }
+
+    @Test
+    @DisplayName("plan - Should follow the next-hop table on small graphs")
+    void plan_NextHopTable() {
+        RoutePlanner planner = new RoutePlanner(cityGraphCache, 1024, 10, new SimpleMeterRegistry());
+
+        assertThat(planner.plan("A", "D")).containsExactly("A", "B", "C", "D");
+        assertThat(planner.plan("D", "B")).containsExactly("D", "C", "B");
+        assertThat(planner.plan("A", "E")).isEmpty();
+        assertThat(planner.plan("A", "Nowhere")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("plan - Should run Dijkstra and cache the route on large graphs")
+    void plan_DijkstraWithCache() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        RoutePlanner planner = new RoutePlanner(cityGraphCache, 2, 10, registry);
+
+        List<String> first = planner.plan("A", "D");
+        List<String> second = planner.plan("A", "D");
+
+        assertThat(first).containsExactly("A", "B", "C", "D");
+        assertThat(second).isSameAs(first);
+        assertThat(registry.get("driver.routing.cache").tag("result", "hit").counter().count()).isEqualTo(1.0);
+        assertThat(planner.plan("A", "E")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("plan - Should agree between the next-hop table and Dijkstra")
+    void plan_TableMatchesDijkstra() {
+        RoutePlanner table = new RoutePlanner(cityGraphCache, 1024, 10, new SimpleMeterRegistry());
+        RoutePlanner dijkstra = new RoutePlanner(cityGraphCache, 0, 10, new SimpleMeterRegistry());
+
+        for (String from : List.of("A", "B", "C", "D")) {
+            for (String to : List.of("A", "B", "C", "D")) {
+                assertThat(table.plan(from, to)).as(from + " -> " + to).isEqualTo(dijkstra.plan(from, to));
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.metrocarpool.driver.grpc;
+
+import com.metrocarpool.driver.proto.DriverBatchStatusResponse;
+import com.metrocarpool.driver.proto.PostDriver;
+import com.metrocarpool.driver.service.DriverService;
+import com.metrocarpool.driver.telemetry.DriverTelemetryBuffer;
+import com.metrocarpool.driver.util.TestDataBuilder;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("DriverGrpcServer Unit Tests")
+class DriverGrpcServerUnitTest {
+
+    @Mock
+    private DriverService driverService;
+
+    @Mock
+    private DriverTelemetryBuffer telemetryBuffer;
+
+    @Mock
+    private StreamObserver<DriverBatchStatusResponse> responseObserver;
+
+    private DriverGrpcServer driverGrpcServer;
+
+    @BeforeEach
+    void setUp() {
+        driverGrpcServer = new DriverGrpcServer(driverService, telemetryBuffer);
+        ReflectionTestUtils.setField(driverGrpcServer, "batchChunkSize", 2);
+        ReflectionTestUtils.setField(driverGrpcServer, "maxBatchSize", 4);
+    }
+
+    @Test
+    @DisplayName("postDriverInfoBatch - Should store the batch in chunks only once the stream completes")
+    void postDriverInfoBatch_StoresOnCompletion() {
+        // Given
+        when(driverService.processDriverInfoBatch(anyList())).thenAnswer(invocation ->
+                invocation.<List<DriverService.DriverRegistration>>getArgument(0).stream()
+                        .map(r -> new DriverService.RegistrationResult(r.driverId(), true, ""))
+                        .toList());
+        StreamObserver<PostDriver> requests = driverGrpcServer.postDriverInfoBatch(responseObserver);
+
+        // When
+        for (long id = 1; id <= 3; id++) requests.onNext(driver(id));
+        verifyNoInteractions(driverService);
+        requests.onCompleted();
+
+        // Then
+        verify(driverService, times(2)).processDriverInfoBatch(anyList());
+        ArgumentCaptor<DriverBatchStatusResponse> response = ArgumentCaptor.forClass(DriverBatchStatusResponse.class);
+        verify(responseObserver).onNext(response.capture());
+        assertThat(response.getValue().getRegistered()).isEqualTo(3);
+        verify(responseObserver).onCompleted();
+    }
+
+    @Test
+    @DisplayName("postDriverInfoBatch - Should register nobody when the client cancels the stream")
+    void postDriverInfoBatch_CancelledStoresNothing() {
+        // Given
+        StreamObserver<PostDriver> requests = driverGrpcServer.postDriverInfoBatch(responseObserver);
+
+        // When
+        for (long id = 1; id <= 3; id++) requests.onNext(driver(id));
+        requests.onError(Status.CANCELLED.asRuntimeException());
+
+        // Then
+        verifyNoInteractions(driverService);
+        verifyNoInteractions(responseObserver);
+    }
+
+    @Test
+    @DisplayName("postDriverInfoBatch - Should reject a batch over the size limit before storing anything")
+    void postDriverInfoBatch_RejectsOversizedBatch() {
+        // Given
+        StreamObserver<PostDriver> requests = driverGrpcServer.postDriverInfoBatch(responseObserver);
+
+        // When
+        for (long id = 1; id <= 6; id++) requests.onNext(driver(id));
+        requests.onCompleted();
+
+        // Then
+        verifyNoInteractions(driverService);
+        ArgumentCaptor<Throwable> error = ArgumentCaptor.forClass(Throwable.class);
+        verify(responseObserver).onError(error.capture());
+        assertThat(Status.fromThrowable(error.getValue()).getCode()).isEqualTo(Status.Code.RESOURCE_EXHAUSTED);
+        verify(responseObserver, never()).onNext(any());
+    }
+
+    // Helper methods
+    private static PostDriver driver(long driverId) {
+        return TestDataBuilder.buildPostDriverRequest(driverId, List.of("Location1", "Location4"), "Location4", 3);
+    }
+}
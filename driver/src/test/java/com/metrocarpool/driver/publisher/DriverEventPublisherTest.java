@@ -0,0 +1,152 @@
+package com.metrocarpool.driver.publisher;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("DriverEventPublisher Unit Tests")
+class DriverEventPublisherTest {
+
+    private static final String TOPIC = "driver-updates-test";
+
+    private static MockProducer<String, byte[]> mockProducer(boolean autoComplete) {
+        Node node = new Node(0, "localhost", 9092);
+        List<PartitionInfo> partitions = IntStream.range(0, 4)
+                .mapToObj(p -> new PartitionInfo(TOPIC, p, node, new Node[]{node}, new Node[]{node}))
+                .toList();
+        Cluster cluster = new Cluster("test", List.of(node), partitions, Set.of(), Set.of());
+        return new MockProducer<>(cluster, autoComplete, null, new StringSerializer(), new ByteArraySerializer());
+    }
+
+    private static List<ProducerRecord<String, byte[]>> records(int count) {
+        List<ProducerRecord<String, byte[]>> out = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            out.add(new ProducerRecord<>(TOPIC, String.valueOf(i % 10), new byte[]{(byte) i}));
+        }
+        return out;
+    }
+
+    @Test
+    @DisplayName("publish - Should send records grouped by partition keeping per-key order")
+    void publish_GroupsByPartition() {
+        MockProducer<String, byte[]> producer = mockProducer(true);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        DriverEventPublisher publisher = new DriverEventPublisher(() -> producer, 1 << 20, 1_000L, registry);
+
+        DriverEventPublisher.PublishReport report = publisher.publish(records(50));
+
+        assertThat(report.records()).isEqualTo(50);
+        assertThat(report.failures()).isZero();
+        assertThat(report.bytes()).isEqualTo(50 + 50);
+        List<ProducerRecord<String, byte[]>> history = producer.history();
+        assertThat(history).hasSize(50);
+        // partitions appear as contiguous runs
+        List<Integer> runs = new ArrayList<>();
+        for (ProducerRecord<String, byte[]> r : history) {
+            if (runs.isEmpty() || !runs.get(runs.size() - 1).equals(r.partition())) runs.add(r.partition());
+        }
+        assertThat(runs).doesNotHaveDuplicates();
+        // each key keeps its original order
+        List<Byte> key3 = history.stream().filter(r -> r.key().equals("3")).map(r -> r.value()[0]).toList();
+        assertThat(key3).containsExactly((byte) 3, (byte) 13, (byte) 23, (byte) 33, (byte) 43);
+        assertThat(registry.get("driver.publish.records").counter().count()).isEqualTo(50.0);
+        assertThat(registry.get("driver.publish.latency").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("publish - Should count failed sends and give back their in-flight bytes")
+    void publish_CountsFailures() {
+        MockProducer<String, byte[]> producer = new MockProducer<>(true, new StringSerializer(), new ByteArraySerializer()) {
+            @Override
+            public synchronized Future<RecordMetadata> send(ProducerRecord<String, byte[]> record, Callback callback) {
+                RuntimeException broken = new RuntimeException("broker down");
+                callback.onCompletion(null, broken);
+                return CompletableFuture.failedFuture(broken);
+            }
+        };
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        DriverEventPublisher publisher = new DriverEventPublisher(() -> producer, 1 << 20, 1_000L, registry);
+
+        DriverEventPublisher.PublishReport report = publisher.publish(records(3));
+
+        assertThat(report.failures()).isEqualTo(3);
+        assertThat(registry.get("driver.publish.failures").counter().count()).isEqualTo(3.0);
+        assertThat(registry.get("driver.publish.in-flight-bytes").gauge().value()).isZero();
+    }
+
+    @Test
+    @DisplayName("publish - Should fail records that find no in-flight room within the send timeout")
+    void publish_BoundsInFlightBytes() {
+        // not auto-completed: the first record holds the only 2 bytes of room until the broker acknowledges it
+        MockProducer<String, byte[]> producer = mockProducer(false);
+        DriverEventPublisher publisher = new DriverEventPublisher(() -> producer, 2, 10L, new SimpleMeterRegistry());
+        // acknowledged well after the other two records have given up waiting for room
+        CompletableFuture<Void> broker = CompletableFuture.runAsync(() -> {
+            while (producer.history().isEmpty()) Thread.onSpinWait();
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(200));
+            producer.completeNext();
+        });
+
+        DriverEventPublisher.PublishReport report = publisher.publish(records(3));
+        broker.join();
+
+        assertThat(report.records()).isEqualTo(1);
+        assertThat(report.failures()).isEqualTo(2);
+        assertThat(producer.history()).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("publish - Should wait for its own records without flushing the shared producer")
+    void publish_DoesNotFlushSharedProducer() {
+        MockProducer<String, byte[]> producer = new MockProducer<>(true, new StringSerializer(), new ByteArraySerializer()) {
+            @Override
+            public synchronized Future<RecordMetadata> send(ProducerRecord<String, byte[]> record, Callback callback) {
+                // another caller's record that the broker never acknowledges
+                if (record.key().equals("other")) return new CompletableFuture<>();
+                return super.send(record, callback);
+            }
+
+            @Override
+            public void flush() {
+                throw new AssertionError("publish must not wait on other callers' records");
+            }
+        };
+        DriverEventPublisher publisher = new DriverEventPublisher(() -> producer, 1 << 20, 1_000L, new SimpleMeterRegistry());
+        producer.send(new ProducerRecord<>(TOPIC, "other", new byte[]{0}), (metadata, ex) -> {});
+
+        DriverEventPublisher.PublishReport report = publisher.publish(records(2));
+
+        assertThat(report.records()).isEqualTo(2);
+        assertThat(report.failures()).isZero();
+    }
+
+    @Test
+    @DisplayName("publish - Should do nothing for an empty batch")
+    void publish_Empty() {
+        MockProducer<String, byte[]> producer = mockProducer(true);
+        DriverEventPublisher publisher = new DriverEventPublisher(() -> producer, 1 << 20, 1_000L, new SimpleMeterRegistry());
+
+        assertThat(publisher.publish(List.of()).records()).isZero();
+        assertThat(producer.history()).isEmpty();
+    }
+}
@@ -0,0 +1,65 @@
+package com.metrocarpool.driver.publisher;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("DriverLocationDeltaFilter Unit Tests")
+class DriverLocationDeltaFilterTest {
+
+    private static final long TICK_MS = 120_000L;
+
+    private DriverLocationDeltaFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new DriverLocationDeltaFilter(true, 60L, 600_000L, new SimpleMeterRegistry());
+    }
+
+    @Test
+    @DisplayName("shouldEmit - Should suppress an event whose ETA stayed within the tolerance of the last one sent")
+    void shouldEmit_SuppressesUnchanged() {
+        assertThat(filter.shouldEmit(1L, "A", "B", 3, 600, 0L)).isTrue();
+        assertThat(filter.shouldEmit(1L, "A", "B", 3, 570, TICK_MS)).isFalse();
+        assertThat(filter.shouldEmit(1L, "A", "B", 3, 640, 2 * TICK_MS)).isFalse();
+        assertThat(filter.suppressionRatio()).isEqualTo(2.0 / 3.0);
+    }
+
+    @Test
+    @DisplayName("shouldEmit - Should emit an ETA that counted down past the tolerance, since consumers do not count down")
+    void shouldEmit_EmitsCountdown() {
+        assertThat(filter.shouldEmit(1L, "A", "B", 3, 600, 0L)).isTrue();
+        assertThat(filter.shouldEmit(1L, "A", "B", 3, 480, TICK_MS)).isTrue();
+        assertThat(filter.shouldEmit(1L, "A", "B", 3, 430, TICK_MS + 50_000L)).isFalse();
+        assertThat(filter.shouldEmit(1L, "A", "B", 3, 360, 2 * TICK_MS)).isTrue();
+    }
+
+    @Test
+    @DisplayName("shouldEmit - Should emit on station or seat changes and on ETA drift")
+    void shouldEmit_EmitsChanges() {
+        assertThat(filter.shouldEmit(1L, "A", "B", 3, 600, 0L)).isTrue();
+        assertThat(filter.shouldEmit(1L, "B", "C", 3, 600, TICK_MS)).isTrue();
+        assertThat(filter.shouldEmit(1L, "B", "C", 2, 480, 2 * TICK_MS)).isTrue();
+        // a delay: the ETA grew by more than 60 s over the one last sent
+        assertThat(filter.shouldEmit(1L, "B", "C", 2, 560, 3 * TICK_MS)).isTrue();
+    }
+
+    @Test
+    @DisplayName("shouldEmit - Should re-send an unchanged location once the keyframe interval has passed")
+    void shouldEmit_Keyframe() {
+        assertThat(filter.shouldEmit(1L, "A", "B", 3, 0, 0L)).isTrue();
+        assertThat(filter.shouldEmit(1L, "A", "B", 3, 0, 300_000L)).isFalse();
+        assertThat(filter.shouldEmit(1L, "A", "B", 3, 0, 600_000L)).isTrue();
+    }
+
+    @Test
+    @DisplayName("forget - Should emit the next event of a forgotten driver")
+    void forget_ResetsDriver() {
+        assertThat(filter.shouldEmit(1L, "A", "B", 3, 600, 0L)).isTrue();
+        filter.forget(1L);
+        assertThat(filter.shouldEmit(1L, "A", "B", 3, 480, TICK_MS)).isTrue();
+    }
+}
@@ -1,10 +1,22 @@
 package com.metrocarpool.driver.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.metrocarpool.contracts.proto.DriverLocationEvent;
 import com.metrocarpool.contracts.proto.DriverRiderMatchEvent;
+import com.metrocarpool.driver.cache.CompiledRoute;
 import com.metrocarpool.driver.cache.DriverCache;
+import com.metrocarpool.driver.cache.DriverStateStore;
+import com.metrocarpool.driver.cache.OffHeapFleetStore;
+import com.metrocarpool.driver.eta.SegmentTravelTimeEstimator;
+import com.metrocarpool.driver.graph.CityGraph;
+import com.metrocarpool.driver.graph.CityGraphCache;
+import com.metrocarpool.driver.graph.RoutePlanner;
+import com.metrocarpool.driver.publisher.DriverEventPublisher;
+import com.metrocarpool.driver.publisher.DriverLocationDeltaFilter;
 import com.metrocarpool.driver.redislock.RedisDistributedLock;
+import com.metrocarpool.driver.simulation.DriverArrivalScheduler;
+import com.metrocarpool.driver.telemetry.DriverTelemetryBuffer;
 import com.metrocarpool.driver.util.TestDataBuilder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -12,16 +24,15 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.ValueOperations;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.Acknowledgment;
-import org.springframework.kafka.support.SendResult;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.time.Clock;
 import java.time.Duration;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -32,10 +43,10 @@ import static org.mockito.Mockito.*;
 class DriverServiceUnitTest {
 
     @Mock
-    private KafkaTemplate<String, byte[]> kafkaTemplate;
+    private DriverEventPublisher driverEventPublisher;
 
     @Mock
-    private RedisTemplate<String, Object> redisTemplate;
+    private DriverStateStore driverStateStore;
 
     @Mock
     private RedisTemplate<String, Object> redisTemplateNearby;
@@ -50,10 +61,7 @@ class DriverServiceUnitTest {
     private RedisTemplate<String, String> redisStringTemplate;
 
     @Mock
-    private ObjectMapper objectMapper;
-
-    @Mock
-    private ValueOperations<String, Object> valueOperations;
+    private CityGraphCache cityGraphCache;
 
     @Mock
     private ValueOperations<String, String> stringValueOperations;
@@ -62,6 +70,8 @@ class DriverServiceUnitTest {
     private Acknowledgment acknowledgment;
 
     private DriverService driverService;
+    private DriverArrivalScheduler arrivalScheduler;
+    private DriverTelemetryBuffer telemetryBuffer;
 
     private static final String LOCK_VALUE = "test-lock-value";
     private static final String DRIVER_TOPIC = "driver-updates-test";
@@ -69,14 +79,24 @@ class DriverServiceUnitTest {
 
     @BeforeEach
     void setUp() {
+        arrivalScheduler = new DriverArrivalScheduler(100L, 64, 3, Clock.systemUTC(), new SimpleMeterRegistry());
+        telemetryBuffer = new DriverTelemetryBuffer(1_000, new SimpleMeterRegistry());
         driverService = new DriverService(
-                kafkaTemplate,
-                redisTemplate,
+                driverEventPublisher,
+                new DriverLocationDeltaFilter(true, 60L, 600_000L, new SimpleMeterRegistry()),
+                telemetryBuffer,
+                driverStateStore,
+                new OffHeapFleetStore(false, 16, "", new SimpleMeterRegistry()),
                 redisTemplateNearby,
                 redisTemplateLocationMap,
                 redisDistributedLock,
                 redisStringTemplate,
-                objectMapper
+                cityGraphCache,
+                new RoutePlanner(cityGraphCache, 1024, 100, new SimpleMeterRegistry()),
+                new SegmentTravelTimeEstimator(redisStringTemplate),
+                new SimpleMeterRegistry(),
+                arrivalScheduler,
+                Clock.systemUTC()
         );
 
         // Set topic values via reflection
@@ -84,7 +104,6 @@ class DriverServiceUnitTest {
         ReflectionTestUtils.setField(driverService, "RIDE_COMPLETION_TOPIC", RIDE_COMPLETION_TOPIC);
 
         // Setup common mocks - using lenient() to avoid unnecessary stubbing errors
-        lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
         lenient().when(redisStringTemplate.opsForValue()).thenReturn(stringValueOperations);
     }
 
@@ -93,15 +112,12 @@ class DriverServiceUnitTest {
     void processDriverInfo_Success() throws Exception {
         // Given
         Long driverId = 1L;
-        List<String> routePlaces = Arrays.asList("LocationA", "LocationB", "LocationC");
-        String finalDestination = "LocationC";
+        List<String> routePlaces = Arrays.asList("Location1", "Location2", "Location3");
+        String finalDestination = "Location3";
         Integer availableSeats = 3;
 
         when(redisDistributedLock.acquireLock(anyString(), anyLong())).thenReturn(LOCK_VALUE);
-        when(valueOperations.get("drivers")).thenReturn(new HashMap<Long, DriverCache>());
-        when(stringValueOperations.get("location-location-map")).thenReturn(buildLocationMapJson());
-        when(objectMapper.readValue(anyString(), any(com.fasterxml.jackson.core.type.TypeReference.class)))
-                .thenReturn(TestDataBuilder.buildLocationLocationMap());
+        when(cityGraphCache.current()).thenReturn(buildCityGraph());
 
         // When
         boolean result = driverService.processDriverInfo(driverId, routePlaces, finalDestination, availableSeats);
@@ -109,10 +125,43 @@ class DriverServiceUnitTest {
         // Then
         assertThat(result).isTrue();
         verify(redisDistributedLock, atLeastOnce()).acquireLock(anyString(), eq(5000L));
-        verify(valueOperations).set(eq("drivers"), any(Map.class));
+        verify(driverStateStore).put(eq(driverId), any(DriverCache.class));
         verify(redisDistributedLock, atLeastOnce()).releaseLock(anyString(), eq(LOCK_VALUE));
     }
 
+    @Test
+    @DisplayName("processDriverInfo - Should plan the route when only the origin is given")
+    void processDriverInfo_PlansRouteFromOrigin() {
+        // Given
+        when(redisDistributedLock.acquireLock(anyString(), anyLong())).thenReturn(LOCK_VALUE);
+        when(cityGraphCache.current()).thenReturn(buildCityGraph());
+
+        // When
+        boolean result = driverService.processDriverInfo(1L, List.of("Location1"), "Location4", 3);
+
+        // Then
+        assertThat(result).isTrue();
+        ArgumentCaptor<DriverCache> stored = ArgumentCaptor.forClass(DriverCache.class);
+        verify(driverStateStore).put(eq(1L), stored.capture());
+        assertThat(stored.getValue().getRoutePlaces()).first().isEqualTo("Location1");
+        assertThat(stored.getValue().getRoutePlaces()).last().isEqualTo("Location4");
+    }
+
+    @Test
+    @DisplayName("processDriverInfo - Should fail when a leg of the route is not on the graph")
+    void processDriverInfo_FailsWithUnknownLeg() {
+        // Given
+        when(redisDistributedLock.acquireLock(anyString(), anyLong())).thenReturn(LOCK_VALUE);
+        when(cityGraphCache.current()).thenReturn(buildCityGraph());
+
+        // When
+        boolean result = driverService.processDriverInfo(1L, List.of("Location1", "Location2", "Nowhere"), "Nowhere", 3);
+
+        // Then
+        assertThat(result).isFalse();
+        verify(driverStateStore, never()).put(anyLong(), any());
+    }
+
     @Test
     @DisplayName("processDriverInfo - Should fail with invalid input (null driverId)")
     void processDriverInfo_FailsWithNullDriverId() {
@@ -124,7 +173,7 @@ class DriverServiceUnitTest {
 
         // Then
         assertThat(result).isFalse();
-        verify(valueOperations, never()).set(anyString(), any());
+        verify(driverStateStore, never()).put(anyLong(), any());
         verify(redisDistributedLock).releaseLock(anyString(), eq(LOCK_VALUE));
     }
 
@@ -139,7 +188,7 @@ class DriverServiceUnitTest {
 
         // Then
         assertThat(result).isFalse();
-        verify(valueOperations, never()).set(anyString(), any());
+        verify(driverStateStore, never()).put(anyLong(), any());
     }
 
     @Test
@@ -153,28 +202,48 @@ class DriverServiceUnitTest {
 
         // Then
         assertThat(result).isFalse();
-        verify(valueOperations, never()).set(anyString(), any());
+        verify(driverStateStore, never()).put(anyLong(), any());
         verify(redisDistributedLock, never()).releaseLock(anyString(), anyString());
     }
 
     @Test
-    @DisplayName("matchFoundUpdateCache - Should decrement available seats when match found")
+    @DisplayName("processDriverInfoBatch - Should store valid drivers in one write and report the rest")
+    @SuppressWarnings("unchecked")
+    void processDriverInfoBatch_MixedResults() {
+        // Given
+        when(redisDistributedLock.acquireLock(anyString(), anyLong())).thenReturn(LOCK_VALUE);
+        when(cityGraphCache.current()).thenReturn(buildCityGraph());
+        List<DriverService.DriverRegistration> batch = List.of(
+                new DriverService.DriverRegistration(1L, List.of("Location1", "Location2", "Location3"), "Location3", 3),
+                new DriverService.DriverRegistration(2L, List.of("Location1", "Nowhere"), "Nowhere", 3),
+                new DriverService.DriverRegistration(3L, List.of("Location2", "Location4"), "Location4", 0),
+                new DriverService.DriverRegistration(1L, List.of("Location2", "Location3"), "Location3", 2));
+
+        // When
+        List<DriverService.RegistrationResult> results = driverService.processDriverInfoBatch(batch);
+
+        // Then
+        assertThat(results).extracting(DriverService.RegistrationResult::status)
+                .containsExactly(true, false, false, false);
+        assertThat(results.get(1).error()).contains("Nowhere");
+        ArgumentCaptor<Map<Long, DriverCache>> written = ArgumentCaptor.forClass(Map.class);
+        verify(driverStateStore, times(1)).putAll(written.capture());
+        assertThat(written.getValue()).containsOnlyKeys(1L);
+        assertThat(written.getValue().get(1L).getNextPlace()).isEqualTo("Location2");
+        verify(redisDistributedLock, times(1)).acquireLock(anyString(), anyLong());
+        verify(redisDistributedLock).releaseLock(anyString(), eq(LOCK_VALUE));
+    }
+
+    @Test
+    @DisplayName("matchFoundUpdateCache - Should take a seat atomically without the driver lock")
     void matchFoundUpdateCache_Success() throws Exception {
         // Given
         Long driverId = 1L;
-        Long riderId = 100L;
-        String pickupStation = "Station1";
-        
-        DriverRiderMatchEvent event = TestDataBuilder.buildDriverRiderMatchEvent(driverId, riderId, pickupStation);
+        DriverRiderMatchEvent event = TestDataBuilder.buildDriverRiderMatchEvent(driverId, 100L, "Station1");
         byte[] message = event.toByteArray();
 
-        Map<Long, DriverCache> driverCacheMap = new HashMap<>();
-        DriverCache driverCache = TestDataBuilder.buildDriverCache(driverId, 3);
-        driverCacheMap.put(driverId, driverCache);
-
-        when(redisDistributedLock.acquireLock(anyString(), anyLong())).thenReturn(LOCK_VALUE);
         when(redisStringTemplate.hasKey(anyString())).thenReturn(false);
-        when(valueOperations.get("drivers")).thenReturn(driverCacheMap);
+        when(driverStateStore.takeSeat(driverId)).thenReturn(2L);
 
         // When
         driverService.matchFoundUpdateCache(message, acknowledgment);
@@ -182,14 +251,10 @@ class DriverServiceUnitTest {
         // Then
         verify(acknowledgment).acknowledge();
         verify(stringValueOperations).set(contains("match_found_processed_kafka_msg"), eq("1"), eq(24L), any());
-        
-        ArgumentCaptor<Map> cacheCaptor = ArgumentCaptor.forClass(Map.class);
-        verify(valueOperations).set(eq("drivers"), cacheCaptor.capture());
-        
-        Map<Long, DriverCache> updatedCache = cacheCaptor.getValue();
-        assertThat(updatedCache.get(driverId).getAvailableSeats()).isEqualTo(2);
-        
-        verify(redisDistributedLock).releaseLock(anyString(), eq(LOCK_VALUE));
+        verify(driverStateStore).takeSeat(driverId);
+        verify(driverStateStore, never()).put(anyLong(), any());
+        verify(driverEventPublisher, never()).publish(anyList());
+        verify(redisDistributedLock, never()).acquireLock(anyString(), anyLong());
     }
 
     @Test
@@ -199,7 +264,6 @@ class DriverServiceUnitTest {
         DriverRiderMatchEvent event = TestDataBuilder.buildDriverRiderMatchEvent(1L, 100L, "Station1");
         byte[] message = event.toByteArray();
 
-        when(redisDistributedLock.acquireLock(anyString(), anyLong())).thenReturn(LOCK_VALUE);
         when(redisStringTemplate.hasKey(anyString())).thenReturn(true); // Already processed
 
         // When
@@ -207,35 +271,52 @@ class DriverServiceUnitTest {
 
         // Then
         verify(acknowledgment).acknowledge();
-        verify(valueOperations, never()).set(anyString(), any());
-        verify(redisDistributedLock).releaseLock(anyString(), eq(LOCK_VALUE));
+        verify(driverStateStore, never()).takeSeat(anyLong());
     }
 
     @Test
-    @DisplayName("matchFoundUpdateCache - Should not go below 0 seats")
-    void matchFoundUpdateCache_ShouldNotGoBelowZero() throws Exception {
+    @DisplayName("matchFoundUpdateCache - Should tell matching at once when the last seat is taken")
+    @SuppressWarnings("unchecked")
+    void matchFoundUpdateCache_AnnouncesFullCar() throws Exception {
         // Given
         Long driverId = 1L;
         DriverRiderMatchEvent event = TestDataBuilder.buildDriverRiderMatchEvent(driverId, 100L, "Station1");
         byte[] message = event.toByteArray();
 
-        Map<Long, DriverCache> driverCacheMap = new HashMap<>();
-        DriverCache driverCache = TestDataBuilder.buildDriverCache(driverId, 1); // Only 1 seat
-        driverCacheMap.put(driverId, driverCache);
+        when(redisStringTemplate.hasKey(anyString())).thenReturn(false);
+        when(driverStateStore.takeSeat(driverId)).thenReturn(0L);
+        when(driverStateStore.get(driverId)).thenReturn(TestDataBuilder.buildDriverCache(driverId, 0));
+        when(cityGraphCache.current()).thenReturn(buildCityGraph());
+        when(driverEventPublisher.publish(anyList())).thenReturn(new DriverEventPublisher.PublishReport(1, 64L, 0, 0L));
+
+        // When
+        driverService.matchFoundUpdateCache(message, acknowledgment);
+
+        // Then
+        ArgumentCaptor<List<ProducerRecord<String, byte[]>>> published = ArgumentCaptor.forClass(List.class);
+        verify(driverEventPublisher).publish(published.capture());
+        DriverLocationEvent full = DriverLocationEvent.parseFrom(published.getValue().get(0).value());
+        assertThat(full.getAvailableSeats()).isZero();
+        assertThat(full.getNextStation()).isEqualTo("Station2");
+        assertThat(full.getMessageId()).isEqualTo(event.getMessageId() + ":full");
+    }
+
+    @Test
+    @DisplayName("matchFoundUpdateCache - Should not go below 0 seats")
+    void matchFoundUpdateCache_ShouldNotGoBelowZero() throws Exception {
+        // Given
+        DriverRiderMatchEvent event = TestDataBuilder.buildDriverRiderMatchEvent(1L, 100L, "Station1");
+        byte[] message = event.toByteArray();
 
-        when(redisDistributedLock.acquireLock(anyString(), anyLong())).thenReturn(LOCK_VALUE);
         when(redisStringTemplate.hasKey(anyString())).thenReturn(false);
-        when(valueOperations.get("drivers")).thenReturn(driverCacheMap);
+        when(driverStateStore.takeSeat(1L)).thenReturn(DriverStateStore.NO_SEAT_LEFT);
 
         // When
         driverService.matchFoundUpdateCache(message, acknowledgment);
 
         // Then
-        ArgumentCaptor<Map> cacheCaptor = ArgumentCaptor.forClass(Map.class);
-        verify(valueOperations).set(eq("drivers"), cacheCaptor.capture());
-        
-        Map<Long, DriverCache> updatedCache = cacheCaptor.getValue();
-        assertThat(updatedCache.get(driverId).getAvailableSeats()).isEqualTo(0);
+        verify(acknowledgment).acknowledge();
+        verify(driverEventPublisher, never()).publish(anyList());
     }
 
     @Test
@@ -245,45 +326,273 @@ class DriverServiceUnitTest {
         DriverRiderMatchEvent event = TestDataBuilder.buildDriverRiderMatchEvent(999L, 100L, "Station1");
         byte[] message = event.toByteArray();
 
-        Map<Long, DriverCache> driverCacheMap = new HashMap<>();
-
-        when(redisDistributedLock.acquireLock(anyString(), anyLong())).thenReturn(LOCK_VALUE);
         when(redisStringTemplate.hasKey(anyString())).thenReturn(false);
-        when(valueOperations.get("drivers")).thenReturn(driverCacheMap);
+        when(driverStateStore.takeSeat(999L)).thenReturn(DriverStateStore.UNKNOWN_DRIVER);
 
         // When
         driverService.matchFoundUpdateCache(message, acknowledgment);
 
         // Then
         verify(acknowledgment).acknowledge();
-        verify(valueOperations, never()).set(eq("drivers"), any());
+        verify(driverStateStore, never()).get(anyLong());
+        verify(driverEventPublisher, never()).publish(anyList());
     }
 
     @Test
-    @DisplayName("matchFoundUpdateCache - Should handle lock acquisition failure")
-    void matchFoundUpdateCache_ShouldHandleLockFailure() throws Exception {
+    @DisplayName("cronJobDriverLocationSimulation - Should merge the parallel tick into one store write and one publish pass")
+    @SuppressWarnings("unchecked")
+    void cronJobDriverLocationSimulation_BatchesResults() throws Exception {
         // Given
-        DriverRiderMatchEvent event = TestDataBuilder.buildDriverRiderMatchEvent(1L, 100L, "Station1");
-        byte[] message = event.toByteArray();
+        when(redisDistributedLock.acquireLock(anyString(), anyLong())).thenReturn(LOCK_VALUE);
+        when(driverStateStore.loadAll()).thenReturn(TestDataBuilder.buildDriverCacheMap());
+        when(cityGraphCache.current()).thenReturn(buildCityGraph());
+        when(driverEventPublisher.publish(anyList())).thenReturn(new DriverEventPublisher.PublishReport(0, 0L, 0, 0L));
 
-        when(redisDistributedLock.acquireLock(anyString(), anyLong())).thenReturn(null);
+        // When
+        driverService.cronJobDriverLocationSimulation();
+
+        // Then
+        ArgumentCaptor<Map<Long, DriverCache>> changed = ArgumentCaptor.forClass(Map.class);
+        verify(driverStateStore, times(1)).writeBatch(changed.capture(), anyCollection());
+        assertThat(changed.getValue()).containsOnlyKeys(1L, 2L);
+        verify(driverEventPublisher, times(1)).publish(anyList());
+        verify(redisDistributedLock, atLeastOnce()).releaseLock(anyString(), eq(LOCK_VALUE));
+    }
+
+    @Test
+    @DisplayName("cronJobDriverLocationSimulation - Should move drivers the same with the soa kernel as one at a time")
+    @SuppressWarnings("unchecked")
+    void cronJobDriverLocationSimulation_SoaKernelMatchesObjectPath() throws Exception {
+        // Given: one driver inside its segment, one crossing a place, one reaching its final destination
+        when(redisDistributedLock.acquireLock(anyString(), anyLong())).thenReturn(LOCK_VALUE);
+        when(cityGraphCache.current()).thenReturn(buildCityGraph());
+        when(driverEventPublisher.publish(anyList())).thenReturn(new DriverEventPublisher.PublishReport(0, 0L, 0, 0L));
+        when(driverStateStore.loadAll()).thenAnswer(invocation -> {
+            Map<Long, DriverCache> fleet = TestDataBuilder.buildDriverCacheMap();
+            fleet.put(2L, fleet.get(2L).toBuilder().distanceToNextPlace(5.0).build());
+            fleet.put(3L, TestDataBuilder.buildDriverCache(3L, 1).toBuilder()
+                    .nextPlace("Location4").routeCursor(3).distanceToNextPlace(5.0).build());
+            return fleet;
+        });
 
         // When
-        driverService.matchFoundUpdateCache(message, acknowledgment);
+        driverService.cronJobDriverLocationSimulation();
+        ReflectionTestUtils.setField(driverService, "tickKernel", "soa");
+        driverService.cronJobDriverLocationSimulation();
 
         // Then
-        verify(acknowledgment).acknowledge();
-        verify(valueOperations, never()).get(anyString());
-        verify(redisDistributedLock, never()).releaseLock(anyString(), anyString());
+        ArgumentCaptor<Map<Long, DriverCache>> changed = ArgumentCaptor.forClass(Map.class);
+        ArgumentCaptor<Collection<Long>> evicted = ArgumentCaptor.forClass(Collection.class);
+        verify(driverStateStore, times(2)).writeBatch(changed.capture(), evicted.capture());
+        Map<Long, DriverCache> byObject = changed.getAllValues().get(0);
+        Map<Long, DriverCache> bySoa = changed.getAllValues().get(1);
+        assertThat(bySoa).containsOnlyKeys(1L, 2L);
+        assertThat(bySoa.get(2L).getNextPlace()).isEqualTo("Location3");
+        assertThat(bySoa.get(2L).getDistanceToNextPlace()).isEqualTo(45.0);
+        for (Long driverId : byObject.keySet()) {
+            assertThat(bySoa.get(driverId)).usingRecursiveComparison()
+                    .ignoringFields("segmentEnteredAt")
+                    .isEqualTo(byObject.get(driverId));
+        }
+        assertThat(evicted.getAllValues()).allSatisfy(ids -> assertThat(ids).containsExactly(3L));
+    }
+
+    @Test
+    @DisplayName("cronJobDriverLocationSimulation - Should publish the same events with the soa kernel as one at a time")
+    @SuppressWarnings("unchecked")
+    void cronJobDriverLocationSimulation_SoaKernelPublishesSameEvents() throws Exception {
+        // Given: Location2 -> Location3 is shorter than a tick, so drivers 2 and 3 cross two places in one tick
+        Map<String, Map<String, Double>> edges = TestDataBuilder.buildLocationLocationMap();
+        edges.get("Location2").put("Location3", 4.0);
+        when(cityGraphCache.current()).thenReturn(CityGraph.of(1L, edges, TestDataBuilder.buildNearbyStationsMap()));
+        when(redisDistributedLock.acquireLock(anyString(), anyLong())).thenReturn(LOCK_VALUE);
+        when(driverEventPublisher.publish(anyList())).thenReturn(new DriverEventPublisher.PublishReport(0, 0L, 0, 0L));
+        when(driverStateStore.loadAll()).thenAnswer(invocation -> {
+            Map<Long, DriverCache> fleet = new HashMap<>();
+            fleet.put(1L, TestDataBuilder.buildDriverCache(1L, 3).toBuilder().routeCursor(1).build());
+            fleet.put(2L, TestDataBuilder.buildDriverCache(2L, 2).toBuilder()
+                    .routeCursor(1).distanceToNextPlace(5.0).build());
+            fleet.put(3L, TestDataBuilder.buildDriverCache(3L, 1).toBuilder()
+                    .routeCursor(1).distanceToNextPlace(5.0).finalDestination("Location3").build());
+            fleet.put(4L, TestDataBuilder.buildDriverCache(4L, 1).toBuilder()
+                    .nextPlace("Location4").routeCursor(3).distanceToNextPlace(5.0).build());
+            return fleet;
+        });
+
+        // When: the same fleet ticks once per kernel, each with a fresh delta filter
+        driverService.cronJobDriverLocationSimulation();
+        ReflectionTestUtils.setField(driverService, "tickKernel", "soa");
+        ReflectionTestUtils.setField(driverService, "locationDeltaFilter",
+                new DriverLocationDeltaFilter(true, 60L, 600_000L, new SimpleMeterRegistry()));
+        driverService.cronJobDriverLocationSimulation();
+
+        // Then
+        ArgumentCaptor<List<ProducerRecord<String, byte[]>>> published = ArgumentCaptor.forClass(List.class);
+        verify(driverEventPublisher, times(2)).publish(published.capture());
+        List<String> byObject = describe(published.getAllValues().get(0));
+        List<String> bySoa = describe(published.getAllValues().get(1));
+        assertThat(byObject).contains(RIDE_COMPLETION_TOPIC + "/3", RIDE_COMPLETION_TOPIC + "/4");
+        assertThat(bySoa).containsExactlyInAnyOrderElementsOf(byObject);
+    }
+
+    @Test
+    @DisplayName("cronJobDriverLocationSimulation - Should recompile a route compiled from an older city graph version")
+    @SuppressWarnings("unchecked")
+    void cronJobDriverLocationSimulation_RecompilesStaleRoute() throws Exception {
+        // Given: the stored route was compiled when Location2 -> Location3 was 500 units long
+        CompiledRoute stale = CompiledRoute.compile(List.of("Location1", "Location2", "Location3", "Location4"),
+                (a, b) -> 500.0, place -> null, 0L);
+        when(redisDistributedLock.acquireLock(anyString(), anyLong())).thenReturn(LOCK_VALUE);
+        when(cityGraphCache.current()).thenReturn(buildCityGraph());
+        when(driverEventPublisher.publish(anyList())).thenReturn(new DriverEventPublisher.PublishReport(0, 0L, 0, 0L));
+        when(driverStateStore.loadAll()).thenReturn(new HashMap<>(Map.of(1L, TestDataBuilder.buildDriverCache(1L, 3)
+                .toBuilder().routeCursor(1).distanceToNextPlace(5.0).compiledRoute(stale).build())));
+
+        // When
+        driverService.cronJobDriverLocationSimulation();
+
+        // Then: the driver crossed Location2 onto the current 50-unit segment
+        ArgumentCaptor<Map<Long, DriverCache>> changed = ArgumentCaptor.forClass(Map.class);
+        verify(driverStateStore).writeBatch(changed.capture(), anyCollection());
+        DriverCache moved = changed.getValue().get(1L);
+        assertThat(moved.getCompiledRoute().getGraphVersion()).isEqualTo(1L);
+        assertThat(moved.getNextPlace()).isEqualTo("Location3");
+        assertThat(moved.getDistanceToNextPlace()).isEqualTo(45.0);
+    }
+
+    @Test
+    @DisplayName("cronJobDriverLocationSimulation - Should load the off-heap fleet once and then only drivers changed outside the tick")
+    @SuppressWarnings("unchecked")
+    void cronJobDriverLocationSimulation_OffHeapFleet() throws Exception {
+        // Given
+        OffHeapFleetStore fleetStore = new OffHeapFleetStore(true, 16, "", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(driverService, "fleetStore", fleetStore);
+        when(redisDistributedLock.acquireLock(anyString(), anyLong())).thenReturn(LOCK_VALUE);
+        when(cityGraphCache.current()).thenReturn(buildCityGraph());
+        when(driverEventPublisher.publish(anyList())).thenReturn(new DriverEventPublisher.PublishReport(0, 0L, 0, 0L));
+        when(driverStateStore.tickGeneration()).thenReturn(0L, 1L);
+        when(driverStateStore.advanceTickGeneration()).thenReturn(1L, 2L);
+        when(driverStateStore.loadAll()).thenReturn(TestDataBuilder.buildDriverCacheMap());
+        when(driverStateStore.drainChanged()).thenReturn(Set.of(), Set.of(2L, 3L));
+        when(driverStateStore.getAll(Set.of(2L, 3L)))
+                .thenReturn(new HashMap<>(Map.of(3L, TestDataBuilder.buildDriverCache(3L, 1))));
+
+        // When
+        driverService.cronJobDriverLocationSimulation();
+        driverService.cronJobDriverLocationSimulation();
+
+        // Then
+        verify(driverStateStore, times(1)).loadAll();
+        assertThat(fleetStore.driverIds()).containsExactly(1L, 3L);
+        assertThat(fleetStore.syncedGeneration()).isEqualTo(2L);
+        ArgumentCaptor<Map<Long, DriverCache>> changed = ArgumentCaptor.forClass(Map.class);
+        verify(driverStateStore, times(2)).writeBatch(changed.capture(), anyCollection(), eq(false));
+        assertThat(changed.getAllValues().get(1)).containsOnlyKeys(1L, 3L);
+        verify(driverStateStore, never()).writeBatch(anyMap(), anyCollection());
+    }
+
+    @Test
+    @DisplayName("advanceEventTimeSimulation - Should move a due driver to its next node and announce the station")
+    @SuppressWarnings("unchecked")
+    void advanceEventTimeSimulation_MovesDueDriver() {
+        // Given
+        ReflectionTestUtils.setField(driverService, "simulationMode", "event");
+        arrivalScheduler.schedule(1L, System.currentTimeMillis() - 1_000L);
+        when(redisDistributedLock.acquireLock(anyString(), anyLong())).thenReturn(LOCK_VALUE);
+        when(cityGraphCache.current()).thenReturn(buildCityGraph());
+        when(driverStateStore.getAll(List.of(1L))).thenReturn(Map.of(1L, TestDataBuilder.buildDriverCache(1L, 3)));
+        when(driverEventPublisher.publish(anyList())).thenReturn(new DriverEventPublisher.PublishReport(1, 64L, 0, 0L));
+
+        // When
+        driverService.advanceEventTimeSimulation();
+
+        // Then
+        ArgumentCaptor<Map<Long, DriverCache>> changed = ArgumentCaptor.forClass(Map.class);
+        verify(driverStateStore).writeBatch(changed.capture(), eq(List.of()));
+        DriverCache moved = changed.getValue().get(1L);
+        assertThat(moved.getNextPlace()).isEqualTo("Location3");
+        assertThat(moved.getRouteCursor()).isEqualTo(2);
+        assertThat(moved.getLastSeenMetroStation()).isEqualTo("Station2");
+        ArgumentCaptor<List<ProducerRecord<String, byte[]>>> published = ArgumentCaptor.forClass(List.class);
+        verify(driverEventPublisher, times(1)).publish(published.capture());
+        assertThat(published.getValue()).hasSize(1);
+        assertThat(published.getValue().get(0).key()).isEqualTo("1");
+        assertThat(arrivalScheduler.scheduled()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("flushTelemetry - Should move a driver to its reported position in one batched write and announce it")
+    @SuppressWarnings("unchecked")
+    void flushTelemetry_AppliesLatestSample() throws Exception {
+        // Given: the driver is heading for Location2 (cursor 1) and reports 20 units into Location2 -> Location3
+        long now = System.currentTimeMillis();
+        telemetryBuffer.offer(new DriverTelemetryBuffer.Sample(1L, 1, 10.0, now - 1_000L));
+        telemetryBuffer.offer(new DriverTelemetryBuffer.Sample(1L, 1, 20.0, now));
+        when(redisDistributedLock.acquireLock(anyString(), anyLong())).thenReturn(LOCK_VALUE);
+        when(cityGraphCache.current()).thenReturn(buildCityGraph());
+        when(driverStateStore.getAll(anyCollection())).thenReturn(Map.of(1L, TestDataBuilder.buildDriverCache(1L, 3)));
+        when(driverEventPublisher.publish(anyList())).thenReturn(new DriverEventPublisher.PublishReport(1, 64L, 0, 0L));
+
+        // When
+        driverService.flushTelemetry();
+
+        // Then
+        ArgumentCaptor<Map<Long, DriverCache>> changed = ArgumentCaptor.forClass(Map.class);
+        verify(driverStateStore, times(1)).writeBatch(changed.capture(), eq(List.of()));
+        DriverCache moved = changed.getValue().get(1L);
+        assertThat(moved.getNextPlace()).isEqualTo("Location3");
+        assertThat(moved.getRouteCursor()).isEqualTo(2);
+        assertThat(moved.getDistanceToNextPlace()).isEqualTo(30.0);
+        assertThat(moved.getLastSeenMetroStation()).isEqualTo("Station2");
+        assertThat(moved.getLastTelemetryAt()).isNotNull();
+        ArgumentCaptor<List<ProducerRecord<String, byte[]>>> published = ArgumentCaptor.forClass(List.class);
+        verify(driverEventPublisher).publish(published.capture());
+        assertThat(published.getValue()).hasSize(1);
+        DriverLocationEvent event = DriverLocationEvent.parseFrom(published.getValue().get(0).value());
+        assertThat(event.getOldStation()).isEqualTo("Station2");
+        assertThat(event.getNextStation()).isEqualTo("Station3");
+        assertThat(telemetryBuffer.pendingDrivers()).isZero();
+        // a late ping cannot move the driver back
+        assertThat(telemetryBuffer.offer(new DriverTelemetryBuffer.Sample(1L, 0, 5.0, now - 500L))).isFalse();
+    }
+
+    @Test
+    @DisplayName("cronJobDriverLocationSimulation - Should leave drivers moved by recent telemetry to their pings")
+    @SuppressWarnings("unchecked")
+    void cronJobDriverLocationSimulation_SkipsTelemetryDrivenDrivers() throws Exception {
+        // Given: driver 1 reported its position a second ago, driver 2 not since long before the stale limit
+        long now = System.currentTimeMillis();
+        when(redisDistributedLock.acquireLock(anyString(), anyLong())).thenReturn(LOCK_VALUE);
+        when(cityGraphCache.current()).thenReturn(buildCityGraph());
+        when(driverEventPublisher.publish(anyList())).thenReturn(new DriverEventPublisher.PublishReport(0, 0L, 0, 0L));
+        when(driverStateStore.loadAll()).thenAnswer(invocation -> new HashMap<>(Map.of(
+                1L, TestDataBuilder.buildDriverCache(1L, 3).toBuilder().lastTelemetryAt(now - 1_000L).build(),
+                2L, TestDataBuilder.buildDriverCache(2L, 2).toBuilder().lastTelemetryAt(now - 600_000L).build())));
+
+        // When
+        driverService.cronJobDriverLocationSimulation();
+        ReflectionTestUtils.setField(driverService, "tickKernel", "soa");
+        driverService.cronJobDriverLocationSimulation();
+
+        // Then
+        ArgumentCaptor<Map<Long, DriverCache>> changed = ArgumentCaptor.forClass(Map.class);
+        verify(driverStateStore, times(2)).writeBatch(changed.capture(), anyCollection());
+        assertThat(changed.getAllValues()).allSatisfy(drivers -> assertThat(drivers).containsOnlyKeys(2L));
     }
 
     // Helper methods
-    private String buildLocationMapJson() {
-        return """
-                {
-                    "LocationA": {"LocationB": 50.0, "LocationC": 100.0},
-                    "LocationB": {"LocationC": 50.0}
-                }
-                """;
+    private List<String> describe(List<ProducerRecord<String, byte[]>> records) throws Exception {
+        List<String> described = new ArrayList<>();
+        for (ProducerRecord<String, byte[]> record : records) {
+            String payload = record.topic().equals(DRIVER_TOPIC)
+                    ? DriverLocationEvent.parseFrom(record.value()).toBuilder().clearMessageId().build().toString()
+                    : "";
+            described.add(record.topic() + "/" + record.key() + payload);
+        }
+        return described;
+    }
+
+    private CityGraph buildCityGraph() {
+        return CityGraph.of(1L, TestDataBuilder.buildLocationLocationMap(), TestDataBuilder.buildNearbyStationsMap());
     }
 }
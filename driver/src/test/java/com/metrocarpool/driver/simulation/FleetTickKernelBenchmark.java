@@ -0,0 +1,104 @@
+package com.metrocarpool.driver.simulation;
+
+import com.metrocarpool.driver.cache.CompiledRoute;
+import com.metrocarpool.driver.cache.DriverCache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+/**
+ * Tick movement at 10k, 100k and 1M drivers: {@link FleetTickKernel} against the per-object loop the tick
+ * runs by default (boxed DriverCache fields, Optional, one driver at a time). Not run by the build; after
+ * {@code mvn test-compile} run it with target/classes, target/test-classes and the test classpath.
+ * Like a JMH average-time benchmark: a fork of warm-up rounds, then measured rounds, reporting ns per driver.
+ * Both sides only move the drivers; station lookup, events and Redis are outside either loop.
+ */
+public final class FleetTickKernelBenchmark {
+
+    private static final int[] FLEET_SIZES = {10_000, 100_000, 1_000_000};
+    private static final int ROUTES = 500;
+    private static final int WARMUP_ROUNDS = 10;
+    private static final int MEASURED_ROUNDS = 20;
+    private static final double DISTANCE_PER_TICK = 10.0;
+
+    public static void main(String[] args) {
+        Random random = new Random(42);
+        List<CompiledRoute> routes = new ArrayList<>(ROUTES);
+        for (int r = 0; r < ROUTES; r++) {
+            double[] cumulative = new double[20 + random.nextInt(30)];
+            for (int i = 1; i < cumulative.length; i++) cumulative[i] = cumulative[i - 1] + 20 + random.nextInt(60);
+            routes.add(new CompiledRoute(cumulative, new int[0], new String[0], 0L));
+        }
+        System.out.printf("%10s %16s %16s%n", "drivers", "object ns/drv", "soa ns/drv");
+        for (int drivers : FLEET_SIZES) {
+            double object = measure(drivers, () -> objectRound(routes, drivers, random));
+            double soa = measure(drivers, () -> soaRound(routes, drivers, random));
+            System.out.printf("%10d %16.2f %16.2f%n", drivers, object, soa);
+        }
+    }
+
+    private interface Round {
+        // runs setup, then returns the nanos spent in the timed part
+        long run();
+    }
+
+    private static double measure(int drivers, Round round) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) round.run();
+        long total = 0;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) total += round.run();
+        return (double) total / MEASURED_ROUNDS / drivers;
+    }
+
+    private static long objectRound(List<CompiledRoute> routes, int drivers, Random random) {
+        List<DriverCache> fleet = new ArrayList<>(drivers);
+        for (int d = 0; d < drivers; d++) {
+            CompiledRoute route = routes.get(random.nextInt(routes.size()));
+            int cursor = 1 + random.nextInt(route.size() - 2);
+            fleet.add(DriverCache.builder()
+                    .routeCursor(cursor)
+                    .distanceToNextPlace(route.segmentDistance(cursor) * random.nextDouble())
+                    .compiledRoute(route)
+                    .build());
+        }
+        long start = System.nanoTime();
+        int finished = 0;
+        for (DriverCache cache : fleet) {
+            CompiledRoute route = cache.getCompiledRoute();
+            double remaining = Optional.ofNullable(cache.getDistanceToNextPlace()).orElse(0.0) - DISTANCE_PER_TICK;
+            int cursor = cache.getRouteCursor();
+            while (remaining <= 0 && cursor + 1 < route.size()) {
+                cursor++;
+                remaining += route.segmentDistance(cursor);
+            }
+            if (remaining <= 0) {
+                finished++;
+                continue;
+            }
+            cache.setRouteCursor(cursor);
+            cache.setDistanceToNextPlace(remaining);
+        }
+        long elapsed = System.nanoTime() - start;
+        if (finished < 0) throw new IllegalStateException();
+        return elapsed;
+    }
+
+    private static long soaRound(List<CompiledRoute> routes, int drivers, Random random) {
+        FleetTickKernel kernel = new FleetTickKernel(drivers);
+        for (int d = 0; d < drivers; d++) {
+            CompiledRoute route = routes.get(random.nextInt(routes.size()));
+            int cursor = 1 + random.nextInt(route.size() - 2);
+            kernel.add(route.getCumulativeDistance(), cursor, route.segmentDistance(cursor) * random.nextDouble(),
+                    route.size() - 1);
+        }
+        long start = System.nanoTime();
+        kernel.advance(DISTANCE_PER_TICK);
+        long elapsed = System.nanoTime() - start;
+        if (kernel.size() != drivers) throw new IllegalStateException();
+        return elapsed;
+    }
+
+    private FleetTickKernelBenchmark() {
+    }
+}
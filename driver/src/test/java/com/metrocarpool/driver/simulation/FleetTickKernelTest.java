@@ -0,0 +1,71 @@
+package com.metrocarpool.driver.simulation;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("FleetTickKernel Unit Tests")
+class FleetTickKernelTest {
+
+    // places at 0, 50, 100, 150
+    private static final double[] ROUTE = {0.0, 50.0, 100.0, 150.0};
+
+    @Test
+    @DisplayName("advance - Should keep a driver within its segment and count down the distance")
+    void advance_WithinSegment() {
+        FleetTickKernel kernel = new FleetTickKernel(1);
+        int i = kernel.add(ROUTE, 1, 50.0, 3);
+
+        kernel.advance(10.0);
+
+        assertThat(kernel.flags(i)).isZero();
+        assertThat(kernel.cursor(i)).isEqualTo(1);
+        assertThat(kernel.distanceToNext(i)).isEqualTo(40.0);
+    }
+
+    @Test
+    @DisplayName("advance - Should cross several places, landing exactly on one moving past it")
+    void advance_CrossesPlaces() {
+        FleetTickKernel kernel = new FleetTickKernel(1);
+        int i = kernel.add(ROUTE, 1, 5.0, 3);
+
+        kernel.advance(55.0);
+
+        assertThat(kernel.flags(i)).isEqualTo(FleetTickKernel.CROSSED);
+        assertThat(kernel.cursor(i)).isEqualTo(3);
+        assertThat(kernel.distanceToNext(i)).isEqualTo(50.0);
+        assertThat(kernel.reachedAfter(i, 1)).isEqualTo(5.0);
+        assertThat(kernel.reachedAfter(i, 2)).isEqualTo(55.0);
+    }
+
+    @Test
+    @DisplayName("advance - Should finish a driver at its finish place even before the route ends")
+    void advance_Finishes() {
+        FleetTickKernel kernel = new FleetTickKernel(1);
+        int early = kernel.add(ROUTE, 2, 5.0, 2);
+        int atEnd = kernel.add(ROUTE, 3, 10.0, 3);
+        int notYet = kernel.add(ROUTE, 3, 10.5, 3);
+
+        kernel.advance(10.0);
+
+        assertThat(kernel.flags(early)).isEqualTo((byte) (FleetTickKernel.CROSSED | FleetTickKernel.FINISHED));
+        assertThat(kernel.flags(atEnd) & FleetTickKernel.FINISHED).isNotZero();
+        assertThat(kernel.flags(notYet)).isZero();
+        assertThat(kernel.size()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("add/advance - Should refuse unknown positions and stop in front of an unknown segment")
+    void advance_UnknownDistances() {
+        double[] broken = {0.0, 50.0, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY};
+        FleetTickKernel kernel = new FleetTickKernel(1);
+
+        assertThat(kernel.add(broken, 2, 10.0, 3)).isEqualTo(-1);
+        int i = kernel.add(broken, 1, 5.0, 3);
+        kernel.advance(10.0);
+
+        assertThat(kernel.cursor(i)).isEqualTo(2);
+        assertThat(kernel.distanceToNext(i)).isInfinite();
+    }
+}
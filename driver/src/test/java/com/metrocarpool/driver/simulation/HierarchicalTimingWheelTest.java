@@ -0,0 +1,70 @@
+package com.metrocarpool.driver.simulation;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("HierarchicalTimingWheel Unit Tests")
+class HierarchicalTimingWheelTest {
+
+    @Test
+    @DisplayName("advance - Should fire timers only once their deadline tick is reached")
+    void advance_FiresAtDeadline() {
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(10L, 8, 2, 0L);
+        List<Long> fired = new ArrayList<>();
+        wheel.schedule(1L, 35L);
+        wheel.schedule(2L, 15L);
+
+        wheel.advance(29L, (id, deadline) -> fired.add(id));
+        assertThat(fired).containsExactly(2L);
+
+        wheel.advance(30L, (id, deadline) -> fired.add(id));
+        assertThat(fired).containsExactly(2L, 1L);
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("advance - Should cascade timers from higher levels and the overflow list in deadline order")
+    void advance_CascadesAcrossLevels() {
+        // 8 slots x 2 levels covers 64 ticks; later timers go to overflow
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(1L, 8, 2, 0L);
+        Random random = new Random(42);
+        List<Long> deadlines = new ArrayList<>();
+        for (long id = 0; id < 500; id++) {
+            long deadline = 1 + random.nextInt(1_000);
+            deadlines.add(deadline);
+            wheel.schedule(id, deadline);
+        }
+        List<long[]> fired = new ArrayList<>();
+
+        for (long now = 0; now <= 1_000; now += 7) {
+            long at = now;
+            wheel.advance(now, (id, deadline) -> fired.add(new long[]{id, deadline, at}));
+        }
+        wheel.advance(1_001L, (id, deadline) -> fired.add(new long[]{id, deadline, 1_001L}));
+
+        assertThat(fired).hasSize(500);
+        for (long[] f : fired) {
+            assertThat(f[1]).isEqualTo(deadlines.get((int) f[0]));
+            // fired on the first advance at or after the deadline
+            assertThat(f[2]).isGreaterThanOrEqualTo(f[1]).isLessThan(f[1] + 7);
+        }
+    }
+
+    @Test
+    @DisplayName("schedule - Should fire past deadlines on the next advance")
+    void schedule_PastDeadlineFiresImmediately() {
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(100L, 16, 2, 10_000L);
+        List<Long> fired = new ArrayList<>();
+        wheel.schedule(7L, 5_000L);
+
+        wheel.advance(10_000L, (id, deadline) -> fired.add(id));
+
+        assertThat(fired).containsExactly(7L);
+    }
+}
@@ -0,0 +1,69 @@
+package com.metrocarpool.driver.simulation;
+
+import com.metrocarpool.contracts.time.VirtualClock;
+import com.metrocarpool.driver.service.DriverService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("VirtualTimeRunner Unit Tests")
+class VirtualTimeRunnerTest {
+
+    private static final Instant START = Instant.parse("2024-01-01T00:00:00Z");
+
+    @Test
+    @DisplayName("run - Should step a day of ticks at the same virtual instants every run")
+    void run_TickModeIsDeterministic() {
+        List<List<Long>> runs = new ArrayList<>();
+        for (int attempt = 0; attempt < 2; attempt++) {
+            VirtualClock clock = new VirtualClock(START);
+            DriverService driverService = mock(DriverService.class);
+            List<Long> tickTimes = new ArrayList<>();
+            doAnswer(invocation -> tickTimes.add(clock.millis())).when(driverService).simulateTick();
+
+            VirtualTimeRunner.RunReport report =
+                    new VirtualTimeRunner(driverService, clock, 100L, Duration.ZERO).run(Duration.ofDays(1));
+
+            assertThat(report.steps()).isEqualTo(720);
+            assertThat(report.simulatedMillis()).isEqualTo(Duration.ofDays(1).toMillis());
+            assertThat(clock.instant()).isEqualTo(START.plus(Duration.ofDays(1)));
+            verify(driverService, never()).advanceEventTime();
+            runs.add(tickTimes);
+        }
+        assertThat(runs.get(0)).hasSize(720).isEqualTo(runs.get(1));
+        assertThat(runs.get(0).get(0)).isEqualTo(START.plus(VirtualTimeRunner.TICK).toEpochMilli());
+    }
+
+    @Test
+    @DisplayName("run - Should step the wheel resolution in event mode")
+    void run_EventModeStepsWheel() {
+        VirtualClock clock = new VirtualClock(START);
+        DriverService driverService = mock(DriverService.class);
+        when(driverService.isEventTimeSimulation()).thenReturn(true);
+
+        VirtualTimeRunner.RunReport report =
+                new VirtualTimeRunner(driverService, clock, 100L, Duration.ZERO).run(Duration.ofMillis(1_050));
+
+        assertThat(report.steps()).isEqualTo(10);
+        assertThat(clock.millis()).isEqualTo(START.toEpochMilli() + 1_000L);
+        verify(driverService, times(10)).advanceEventTime();
+        verify(driverService, never()).simulateTick();
+    }
+
+    @Test
+    @DisplayName("run - Should refuse to run on the system clock")
+    void run_RejectsSystemClock() {
+        VirtualTimeRunner runner =
+                new VirtualTimeRunner(mock(DriverService.class), Clock.systemUTC(), 100L, Duration.ZERO);
+
+        assertThatThrownBy(() -> runner.run(Duration.ofHours(1))).isInstanceOf(IllegalStateException.class);
+    }
+}
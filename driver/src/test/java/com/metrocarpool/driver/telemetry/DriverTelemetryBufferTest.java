@@ -0,0 +1,66 @@
+package com.metrocarpool.driver.telemetry;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("DriverTelemetryBuffer Unit Tests")
+class DriverTelemetryBufferTest {
+
+    private DriverTelemetryBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        buffer = new DriverTelemetryBuffer(2, new SimpleMeterRegistry());
+    }
+
+    @Test
+    @DisplayName("offer - Should keep only the newest sample per driver")
+    void offer_Coalesces() {
+        assertThat(buffer.offer(new DriverTelemetryBuffer.Sample(1L, 0, 5.0, 1_000L))).isTrue();
+        assertThat(buffer.offer(new DriverTelemetryBuffer.Sample(1L, 1, 2.0, 2_000L))).isTrue();
+        assertThat(buffer.offer(new DriverTelemetryBuffer.Sample(1L, 0, 9.0, 1_500L))).isFalse();
+
+        Map<Long, DriverTelemetryBuffer.Sample> drained = buffer.drain();
+
+        assertThat(drained).containsOnlyKeys(1L);
+        assertThat(drained.get(1L).segment()).isEqualTo(1);
+        assertThat(buffer.pendingDrivers()).isZero();
+    }
+
+    @Test
+    @DisplayName("offer - Should reject malformed samples and samples older than the last drained one")
+    void offer_RejectsStaleAndMalformed() {
+        assertThat(buffer.offer(new DriverTelemetryBuffer.Sample(1L, -1, 5.0, 1_000L))).isFalse();
+        assertThat(buffer.offer(new DriverTelemetryBuffer.Sample(1L, 0, Double.NaN, 1_000L))).isFalse();
+        buffer.offer(new DriverTelemetryBuffer.Sample(1L, 2, 5.0, 3_000L));
+        buffer.drain();
+
+        assertThat(buffer.offer(new DriverTelemetryBuffer.Sample(1L, 1, 5.0, 2_000L))).isFalse();
+        buffer.forget(1L);
+        assertThat(buffer.offer(new DriverTelemetryBuffer.Sample(1L, 1, 5.0, 2_000L))).isTrue();
+    }
+
+    @Test
+    @DisplayName("drain - Should report backlog and resume waiting streams once drained")
+    void drain_ResumesWaiters() {
+        buffer.offer(new DriverTelemetryBuffer.Sample(1L, 0, 1.0, 1_000L));
+        buffer.offer(new DriverTelemetryBuffer.Sample(2L, 0, 1.0, 1_000L));
+        assertThat(buffer.isBacklogged()).isTrue();
+        AtomicInteger resumed = new AtomicInteger();
+        buffer.whenDrained(resumed::incrementAndGet);
+
+        buffer.drain();
+
+        assertThat(buffer.isBacklogged()).isFalse();
+        assertThat(resumed.get()).isEqualTo(1);
+        buffer.drain();
+        assertThat(resumed.get()).isEqualTo(1);
+    }
+}
@@ -1,21 +1,32 @@
 package com.metrocarpool.gateway.client;
 
+import com.metrocarpool.driver.proto.DriverBatchStatusResponse;
+import com.metrocarpool.driver.proto.DriverRegistrationResult;
 import com.metrocarpool.driver.proto.DriverServiceGrpc;
 import com.metrocarpool.driver.proto.DriverStatusResponse;
 import com.metrocarpool.driver.proto.PostDriver;
 import com.metrocarpool.gateway.dto.PostDriverDTO;
 import io.grpc.ManagedChannel;
 import io.grpc.ManagedChannelBuilder;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cloud.client.ServiceInstance;
 import org.springframework.cloud.client.discovery.DiscoveryClient;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
 @Component
 @Slf4j
 public class DriverGrpcClient {
 
+    private static final long BATCH_TIMEOUT_SECONDS = 120L;
+
     @Autowired
     private DiscoveryClient discoveryClient;
 
@@ -71,4 +82,122 @@ public class DriverGrpcClient {
         String grpcPort = instance.getMetadata().get("grpc.port");
         return grpcPort != null ? Integer.parseInt(grpcPort) : 9090;
     }
-}
\ No newline at end of file
+
+    /**
+     * Stream the drivers over one PostDriverInfoBatch call and wait for the per-driver results.
+     * Drivers with missing fields are rejected up front, before the stream is opened. The server stores the batch
+     * only once the stream completes, so a failure before that registers nobody and one after it is reported as
+     * an unknown outcome.
+     */
+    public DriverBatchStatusResponse postDriverInfoBatch(List<PostDriverDTO> postDriverDTOs) {
+        log.info("Reached DriverGrpcClient.postDriverInfoBatch with {} drivers.", postDriverDTOs.size());
+
+        List<PostDriver> valid = new ArrayList<>(postDriverDTOs.size());
+        List<DriverRegistrationResult> rejected = new ArrayList<>();
+        for (PostDriverDTO dto : postDriverDTOs) {
+            String error = validate(dto);
+            if (error != null) {
+                rejected.add(DriverRegistrationResult.newBuilder()
+                        .setDriverId(dto == null || dto.getDriverId() == null ? 0L : dto.getDriverId())
+                        .setStatus(false)
+                        .setError(error)
+                        .build());
+                continue;
+            }
+            valid.add(PostDriver.newBuilder()
+                    .setDriverId(dto.getDriverId())
+                    .addAllRouteStations(dto.getRouteStations())
+                    .setFinalDestination(dto.getFinalDestination())
+                    .setAvailableSeats(dto.getAvailableSeats())
+                    .build());
+        }
+        if (valid.isEmpty()) {
+            return DriverBatchStatusResponse.newBuilder().addAllResults(rejected).build();
+        }
+
+        ServiceInstance instance = discoveryClient.getInstances("driver")
+                .stream()
+                .findFirst()
+                .orElseThrow(() -> new RuntimeException("Driver service not found in Eureka"));
+
+        ManagedChannel channel = createChannel(instance);
+        StreamObserver<PostDriver> requests = null;
+        // the server stores the batch only after the stream completes; from then on a failure has an unknown outcome
+        boolean completed = false;
+        try {
+            CompletableFuture<DriverBatchStatusResponse> result = new CompletableFuture<>();
+            requests = DriverServiceGrpc.newStub(channel)
+                    .postDriverInfoBatch(new StreamObserver<>() {
+                        @Override
+                        public void onNext(DriverBatchStatusResponse response) {
+                            result.complete(response);
+                        }
+
+                        @Override
+                        public void onError(Throwable t) {
+                            result.completeExceptionally(t);
+                        }
+
+                        @Override
+                        public void onCompleted() {
+                            result.complete(DriverBatchStatusResponse.getDefaultInstance());
+                        }
+                    });
+            for (PostDriver postDriver : valid) {
+                requests.onNext(postDriver);
+            }
+            requests.onCompleted();
+            completed = true;
+            return result.get(BATCH_TIMEOUT_SECONDS, TimeUnit.SECONDS).toBuilder()
+                    .addAllResults(rejected)
+                    .build();
+        } catch (Exception e) {
+            log.error("DriverGrpcClient.postDriverInfoBatch: Error while posting driver info.", e);
+            Status status = Status.fromThrowable(e);
+            if (requests != null && !completed) {
+                // The server buffers until the stream completes, so cancelling now leaves nobody registered.
+                requests.onError(Status.CANCELLED.withDescription("gateway aborted the batch").withCause(e)
+                        .asRuntimeException());
+            }
+            String error;
+            if (status.getCode() == Status.Code.RESOURCE_EXHAUSTED) {
+                error = "batch rejected: " + status.getDescription();
+            } else if (completed) {
+                // the server may have stored some or all of the batch; check the drivers before retrying them
+                error = "registration outcome unknown";
+            } else {
+                error = "driver service unavailable";
+            }
+            DriverBatchStatusResponse.Builder failed = DriverBatchStatusResponse.newBuilder();
+            for (PostDriver postDriver : valid) {
+                failed.addResults(DriverRegistrationResult.newBuilder()
+                        .setDriverId(postDriver.getDriverId())
+                        .setStatus(false)
+                        .setError(error));
+            }
+            return failed.addAllResults(rejected).build();
+        } finally {
+            channel.shutdown();
+        }
+    }
+
+    private static String validate(PostDriverDTO dto) {
+        if (dto == null) {
+            return "driver entry is null";
+        }
+        if (dto.getDriverId() == null) {
+            return "driverId is required";
+        }
+        if (dto.getRouteStations() == null || dto.getRouteStations().isEmpty()
+                || dto.getRouteStations().contains(null)) {
+            return "routeStations must be a non-empty list of stations";
+        }
+        if (dto.getFinalDestination() == null) {
+            return "finalDestination is required";
+        }
+        if (dto.getAvailableSeats() == null) {
+            return "availableSeats is required";
+        }
+        return null;
+    }
+}
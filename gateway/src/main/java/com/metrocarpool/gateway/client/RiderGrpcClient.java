@@ -12,6 +12,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cloud.client.ServiceInstance;
 import org.springframework.cloud.client.discovery.DiscoveryClient;
 import org.springframework.stereotype.Component;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -70,7 +71,8 @@ public class RiderGrpcClient {
         return this.stub;
     }
 
-    public RiderStatusResponse postRiderInfo(Long riderId, String pickUp, String dest, Timestamp arrivalTime) {
+    public RiderStatusResponse postRiderInfo(Long riderId, String pickUp, String dest, Timestamp arrivalTime,
+                                             List<String> alternatePickUps, Double walkingRadius) {
         log.info("Reached RiderGrpcClient.postRiderInfo.");
 
         ServiceInstance instance = discoveryClient.getInstances("rider")
@@ -92,6 +94,8 @@ public class RiderGrpcClient {
                     .setPickUpStation(pickUp)
                     .setDestinationPlace(dest)
                     .setArrivalTime(arrivalTime)
+                    .addAllAlternatePickUpStations(alternatePickUps == null ? List.of() : alternatePickUps)
+                    .setWalkingRadius(walkingRadius == null ? 0.0 : walkingRadius)
                     .build();
 
             log.info("Sending PostRider GRPC request: {}", postRider);
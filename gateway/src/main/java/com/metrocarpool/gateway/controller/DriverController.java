@@ -1,6 +1,9 @@
 package com.metrocarpool.gateway.controller;
 
+import com.metrocarpool.driver.proto.DriverBatchStatusResponse;
 import com.metrocarpool.gateway.client.DriverGrpcClient;
+import com.metrocarpool.gateway.dto.DriverBatchStatusResponseDTO;
+import com.metrocarpool.gateway.dto.DriverRegistrationResultDTO;
 import com.metrocarpool.gateway.dto.DriverStatusResponseDTO;
 import com.metrocarpool.gateway.dto.PostDriverDTO;
 import lombok.Builder;
@@ -8,6 +11,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @Builder
 @RestController
 @RequestMapping("/api/driver")
@@ -24,4 +29,20 @@ public class DriverController {
                 .STATUSSSSS(driverGrpcClient.postDriverInfo(postDriverDTO).getStatus())
                 .build();
     }
+
+    @PostMapping(value = "/driver-info/batch")
+    public DriverBatchStatusResponseDTO postDriverInformationBatch(@RequestBody List<PostDriverDTO> postDriverDTOs) {
+        log.info("Reached DriverController.postDriverInformationBatch with {} drivers.", postDriverDTOs.size());
+        DriverBatchStatusResponse response = driverGrpcClient.postDriverInfoBatch(postDriverDTOs);
+        return DriverBatchStatusResponseDTO.builder()
+                .registered(response.getRegistered())
+                .results(response.getResultsList().stream()
+                        .map(r -> DriverRegistrationResultDTO.builder()
+                                .driverId(r.getDriverId())
+                                .status(r.getStatus())
+                                .error(r.getError())
+                                .build())
+                        .toList())
+                .build();
+    }
 }
@@ -7,6 +7,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 import com.google.protobuf.Timestamp;
 import java.time.Instant;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/rider")
@@ -24,6 +25,8 @@ public class RiderController {
         private String pickUpStation;
         private String destinationPlace;
         private String arrivalTime; // ISO 8601 string expected
+        private List<String> alternatePickUpStations; // optional, most preferred first
+        private Double walkingRadius; // optional, graph distance units around pickUpStation
     }
 
     @PostMapping(value = "/rider-info")
@@ -39,7 +42,9 @@ public class RiderController {
                 request.getRiderId(),
                 request.getPickUpStation(),
                 request.getDestinationPlace(),
-                protoTimestamp
+                protoTimestamp,
+                request.getAlternatePickUpStations(),
+                request.getWalkingRadius()
         );
 
         // Build and return HTTP response DTO
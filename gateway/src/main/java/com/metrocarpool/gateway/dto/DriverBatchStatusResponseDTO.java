@@ -0,0 +1,15 @@
+package com.metrocarpool.gateway.dto;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Builder
+@Getter
+@Setter
+public class DriverBatchStatusResponseDTO {
+    private Integer registered;
+    private List<DriverRegistrationResultDTO> results;
+}
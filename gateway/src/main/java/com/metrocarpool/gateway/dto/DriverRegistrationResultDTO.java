@@ -0,0 +1,14 @@
+package com.metrocarpool.gateway.dto;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+@Builder
+@Getter
+@Setter
+public class DriverRegistrationResultDTO {
+    private Long driverId;
+    private Boolean status;
+    private String error;
+}
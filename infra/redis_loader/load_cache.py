@@ -40,4 +40,8 @@ with open(NEARBY_FILE, newline="") as f:
 r.set("nearby-stations", json.dumps(nearby_map))
 print(f"✅ Stored 'nearby-stations' with {len(nearby_map)} entries.")
 
+# --- 3. Bump the graph version so running services swap in the new maps ---
+version = r.incr("city-graph:version")
+print(f"✅ Bumped 'city-graph:version' to {version}.")
+
 print("🎯 Redis cache initialization complete.")
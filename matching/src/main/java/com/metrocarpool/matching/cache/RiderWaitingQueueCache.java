@@ -5,6 +5,8 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+
 @Data
 @Builder
 @AllArgsConstructor
@@ -12,6 +14,15 @@ import lombok.NoArgsConstructor;
 public class RiderWaitingQueueCache {
     private Long riderId;
     private String pickUpStation;
+    // Time the rider arrives at the pick up station
     private Long arrivalTime;
     private String destinationPlace;
+    // Further acceptable pickup stations, most preferred first
+    private List<String> alternatePickUpStations;
+    // Walking radius around pickUpStation within which other stations are acceptable
+    private Double walkingRadius;
+    // Time matching first saw the request; orders the waiting queue
+    private Long requestTime;
+    // Time of the last matching attempt for this rider
+    private Long lastEvaluatedAt;
 }
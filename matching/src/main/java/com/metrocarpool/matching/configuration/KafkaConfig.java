@@ -26,4 +26,10 @@ public class KafkaConfig {
         return TopicBuilder.name(topicName).partitions(1).replicas(1).build();
     }
 
+    // Latest demand snapshot per station; compaction keeps one record per station key
+    @Bean
+    public NewTopic stationDemandTopic(@Value("${kafka.topics.station-demand}") String topicName) {
+        return TopicBuilder.name(topicName).partitions(1).replicas(1).compact().build();
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,188 @@
+package com.metrocarpool.matching.demand;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.util.Timestamps;
+import com.metrocarpool.contracts.proto.DriverRiderMatchEvent;
+import com.metrocarpool.contracts.proto.RiderRequestDriverEvent;
+import com.metrocarpool.contracts.proto.StationDemandMinute;
+import com.metrocarpool.contracts.proto.StationDemandSnapshot;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Streaming demand heatmap: consumes rider requests and matches and keeps per-station, per-minute
+ * sliding-window counters (requests, matches, unmatched, average wait). Each instance reads every partition
+ * in consumer groups of its own, named after matching.demand.instance-id, so its snapshots cover all riders
+ * rather than its share of them. The groups are stable across restarts and start at the end of the topics.
+ * A match counts at the station its rider requested, even when the rider was matched at an alternate one.
+ * Snapshots are served by {@link StationDemandEndpoint} and published to a compacted topic keyed by station.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class StationDemandAggregator implements ConsumerSeekAware {
+
+    private static final long MINUTE_MS = 60_000L;
+
+    // Fixed-size table of rider requests (requested station, arrival time), read back when the match arrives.
+    // Direct-mapped on riderId; a colliding rider simply overwrites the slot (the match then counts at its
+    // pick-up station and the wait is unknown).
+    private static final int PENDING_RIDERS_CAPACITY = 1 << 16;
+
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    private final Clock clock;
+
+    @Value("${kafka.topics.station-demand}")
+    private String STATION_DEMAND_TOPIC;
+    @Value("${matching.demand.window-minutes:60}")
+    private int windowMinutes;
+    @Value("${matching.demand.max-stations:1024}")
+    private int maxStations;
+
+    private final Map<String, StationDemandWindow> windows = new ConcurrentHashMap<>();
+    private final long[] pendingRiderIds = new long[PENDING_RIDERS_CAPACITY];
+    private final long[] pendingArrivalMillis = new long[PENDING_RIDERS_CAPACITY];
+    private final String[] pendingStations = new String[PENDING_RIDERS_CAPACITY];
+
+    private record PendingRider(String station, long arrivalMillis) {}
+
+    @KafkaListener(topics = "${kafka.topics.rider-requests}",
+            groupId = "${spring.kafka.consumer.group-id}-demand-requests-${matching.demand.instance-id:local}",
+            properties = "auto.offset.reset=latest")
+    public void onRiderRequest(byte[] message, Acknowledgment acknowledgment) {
+        try {
+            RiderRequestDriverEvent event = RiderRequestDriverEvent.parseFrom(message);
+            StationDemandWindow window = windowFor(event.getPickUpStation());
+            if (window != null) {
+                window.recordRequest(clock.millis() / MINUTE_MS);
+            }
+            rememberRider(event.getRiderId(), event.getPickUpStation(),
+                    event.hasArrivalTime() ? Timestamps.toMillis(event.getArrivalTime()) : 0L);
+        } catch (InvalidProtocolBufferException e) {
+            log.error("StationDemandAggregator: failed to parse RiderRequestDriverEvent", e);
+        } finally {
+            acknowledgment.acknowledge();
+        }
+    }
+
+    @KafkaListener(topics = "${kafka.topics.rider-driver-match}",
+            groupId = "${spring.kafka.consumer.group-id}-demand-matches-${matching.demand.instance-id:local}",
+            properties = "auto.offset.reset=latest")
+    public void onMatch(byte[] message, Acknowledgment acknowledgment) {
+        try {
+            DriverRiderMatchEvent event = DriverRiderMatchEvent.parseFrom(message);
+            PendingRider rider = takeRider(event.getRiderId());
+            // count the match where the request was counted, not at the alternate station it was matched at
+            StationDemandWindow window = windowFor(rider != null ? rider.station() : event.getPickUpStation());
+            if (window != null) {
+                long waitMillis = -1L;
+                if (rider != null && rider.arrivalMillis() != 0L && event.hasDriverArrivalTime()) {
+                    waitMillis = Math.max(0L, Timestamps.toMillis(event.getDriverArrivalTime()) - rider.arrivalMillis());
+                }
+                window.recordMatch(clock.millis() / MINUTE_MS, waitMillis);
+            }
+        } catch (InvalidProtocolBufferException e) {
+            log.error("StationDemandAggregator: failed to parse DriverRiderMatchEvent", e);
+        } finally {
+            acknowledgment.acknowledge();
+        }
+    }
+
+    // windows start empty on every start, so never resume from the offsets of a previous run
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        callback.seekToEnd(assignments.keySet());
+    }
+
+    /**
+     * Current sliding-window snapshot of one station, or null if the station has no events.
+     */
+    public StationDemandSnapshot snapshot(String station) {
+        StationDemandWindow window = windows.get(station);
+        if (window == null) return null;
+        long now = clock.millis();
+        List<StationDemandMinute> minutes = window.minutes(now / MINUTE_MS);
+
+        long requests = 0L, matches = 0L, unmatched = 0L;
+        double waitWeighted = 0.0;
+        for (StationDemandMinute minute : minutes) {
+            requests += minute.getRequests();
+            matches += minute.getMatches();
+            unmatched += minute.getUnmatched();
+            waitWeighted += minute.getAverageWaitMillis() * minute.getMatches();
+        }
+        return StationDemandSnapshot.newBuilder()
+                .setStation(station)
+                .setGeneratedAt(Timestamps.fromMillis(now))
+                .setWindowMinutes(window.getWindowMinutes())
+                .setRequests(requests)
+                .setMatches(matches)
+                .setUnmatched(unmatched)
+                .setAverageWaitMillis(matches == 0 ? 0.0 : waitWeighted / matches)
+                .addAllMinutes(minutes)
+                .build();
+    }
+
+    public Set<String> stations() {
+        return new TreeSet<>(windows.keySet());
+    }
+
+    /**
+     * Publish the latest snapshot of every station to the compacted demand topic.
+     */
+    @Scheduled(fixedDelayString = "${matching.demand.publish-interval-ms:60000}")
+    public void publishSnapshots() {
+        for (String station : windows.keySet()) {
+            StationDemandSnapshot snapshot = snapshot(station);
+            if (snapshot == null) continue;
+            kafkaTemplate.send(STATION_DEMAND_TOPIC, station, snapshot.toByteArray())
+                    .exceptionally(ex -> {
+                        log.error("Station demand snapshot for {} failed. Error message = {}", station, ex.getMessage());
+                        return null;
+                    });
+        }
+    }
+
+    private StationDemandWindow windowFor(String station) {
+        if (station == null || station.isEmpty()) return null;
+        StationDemandWindow window = windows.get(station);
+        if (window != null) return window;
+        if (windows.size() >= maxStations) {
+            log.warn("StationDemandAggregator: station limit {} reached; ignoring station {}", maxStations, station);
+            return null;
+        }
+        return windows.computeIfAbsent(station, s -> new StationDemandWindow(windowMinutes));
+    }
+
+    private synchronized void rememberRider(long riderId, String station, long arrivalMillis) {
+        int slot = pendingSlot(riderId);
+        pendingRiderIds[slot] = riderId;
+        pendingStations[slot] = station;
+        pendingArrivalMillis[slot] = arrivalMillis;
+    }
+
+    private synchronized PendingRider takeRider(long riderId) {
+        int slot = pendingSlot(riderId);
+        if (pendingRiderIds[slot] != riderId || pendingStations[slot] == null) return null;
+        PendingRider rider = new PendingRider(pendingStations[slot], pendingArrivalMillis[slot]);
+        pendingStations[slot] = null;
+        pendingArrivalMillis[slot] = 0L;
+        return rider;
+    }
+
+    private static int pendingSlot(long riderId) {
+        return (int) (Long.hashCode(riderId * 0x9E3779B97F4A7C15L) & (PENDING_RIDERS_CAPACITY - 1));
+    }
+}
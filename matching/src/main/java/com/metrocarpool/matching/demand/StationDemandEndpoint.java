@@ -0,0 +1,47 @@
+package com.metrocarpool.matching.demand;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.util.JsonFormat;
+import com.metrocarpool.contracts.proto.StationDemandSnapshot;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Query API for the demand heatmap ("stationdemand" actuator endpoint).
+ * Returns window totals for every station, or the per-minute breakdown of one station.
+ */
+@Component
+@Endpoint(id = "stationdemand")
+@RequiredArgsConstructor
+public class StationDemandEndpoint {
+
+    private final StationDemandAggregator stationDemandAggregator;
+
+    @ReadOperation
+    public Map<String, Object> allStations() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (String station : stationDemandAggregator.stations()) {
+            StationDemandSnapshot snapshot = stationDemandAggregator.snapshot(station);
+            if (snapshot == null) continue;
+            Map<String, Object> totals = new LinkedHashMap<>();
+            totals.put("requests", snapshot.getRequests());
+            totals.put("matches", snapshot.getMatches());
+            totals.put("unmatched", snapshot.getUnmatched());
+            totals.put("averageWaitMillis", snapshot.getAverageWaitMillis());
+            result.put(station, totals);
+        }
+        return result;
+    }
+
+    @ReadOperation
+    public String station(@Selector String station) throws InvalidProtocolBufferException {
+        StationDemandSnapshot snapshot = stationDemandAggregator.snapshot(station);
+        return snapshot == null ? null : JsonFormat.printer().print(snapshot);
+    }
+}
@@ -0,0 +1,88 @@
+package com.metrocarpool.matching.demand;
+
+import com.metrocarpool.contracts.proto.StationDemandMinute;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Per-minute demand counters for one station over a fixed sliding window.
+ * Backed by ring buffers of windowMinutes slots; a slot is reset when it is reused for a newer minute,
+ * so memory is constant regardless of event volume.
+ */
+public class StationDemandWindow {
+
+    private final int windowMinutes;
+    private final long[] slotMinute;
+    private final long[] requests;
+    private final long[] matches;
+    private final long[] waitSumMillis;
+    private final long[] waitCount;
+
+    public StationDemandWindow(int windowMinutes) {
+        this.windowMinutes = windowMinutes;
+        this.slotMinute = new long[windowMinutes];
+        this.requests = new long[windowMinutes];
+        this.matches = new long[windowMinutes];
+        this.waitSumMillis = new long[windowMinutes];
+        this.waitCount = new long[windowMinutes];
+        Arrays.fill(slotMinute, -1L);
+    }
+
+    public synchronized void recordRequest(long epochMinute) {
+        int slot = slotFor(epochMinute);
+        if (slot >= 0) requests[slot]++;
+    }
+
+    /**
+     * @param waitMillis wait of the rider at the station, or a negative value if unknown
+     */
+    public synchronized void recordMatch(long epochMinute, long waitMillis) {
+        int slot = slotFor(epochMinute);
+        if (slot < 0) return;
+        matches[slot]++;
+        if (waitMillis >= 0) {
+            waitSumMillis[slot] += waitMillis;
+            waitCount[slot]++;
+        }
+    }
+
+    /**
+     * Minutes of the window ending at currentMinute that have any events, oldest first.
+     * Unmatched is requests minus matches of that minute, floored at zero.
+     */
+    public synchronized List<StationDemandMinute> minutes(long currentMinute) {
+        List<StationDemandMinute> result = new ArrayList<>();
+        for (long minute = currentMinute - windowMinutes + 1; minute <= currentMinute; minute++) {
+            int slot = (int) Math.floorMod(minute, (long) windowMinutes);
+            if (slotMinute[slot] != minute) continue;
+            result.add(StationDemandMinute.newBuilder()
+                    .setEpochMinute(minute)
+                    .setRequests(requests[slot])
+                    .setMatches(matches[slot])
+                    .setUnmatched(Math.max(0L, requests[slot] - matches[slot]))
+                    .setAverageWaitMillis(waitCount[slot] == 0 ? 0.0 : (double) waitSumMillis[slot] / waitCount[slot])
+                    .build());
+        }
+        return result;
+    }
+
+    public int getWindowMinutes() {
+        return windowMinutes;
+    }
+
+    // Returns the slot for the minute, resetting it if it still holds an older minute; -1 if the minute is too old
+    private int slotFor(long epochMinute) {
+        int slot = (int) Math.floorMod(epochMinute, (long) windowMinutes);
+        long held = slotMinute[slot];
+        if (held == epochMinute) return slot;
+        if (held > epochMinute) return -1;
+        slotMinute[slot] = epochMinute;
+        requests[slot] = 0L;
+        matches[slot] = 0L;
+        waitSumMillis[slot] = 0L;
+        waitCount[slot] = 0L;
+        return slot;
+    }
+}
@@ -0,0 +1,102 @@
+package com.metrocarpool.matching.graph;
+
+import com.metrocarpool.contracts.proto.SegmentTravelTimeSnapshot;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Read side of the learned per-segment travel times published by the driver service.
+ * Polls the cheap version key and only downloads the snapshot when it changed; lookups read an
+ * immutable flat array that is swapped in as a whole.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class SegmentTravelTimes implements ShortestPathTable.EdgeTimes {
+
+    private static final String SNAPSHOT_KEY = "segment-travel-times";
+    private static final String SNAPSHOT_VERSION_KEY = "segment-travel-times:version";
+
+    // Pace of the driver simulation (10 units per 2-minute tick), used until a snapshot is loaded
+    private static final double DEFAULT_SECONDS_PER_UNIT = 12.0;
+
+    private final RedisTemplate<String, String> redisStringTemplate;
+
+    private volatile Learned learned = Learned.EMPTY;
+
+    @Scheduled(fixedDelayString = "${matching.eta.poll-interval-ms:30000}")
+    public void refresh() {
+        try {
+            String version = redisStringTemplate.opsForValue().get(SNAPSHOT_VERSION_KEY);
+            if (version == null || version.equals(String.valueOf(learned.version))) return;
+
+            String encoded = redisStringTemplate.opsForValue().get(SNAPSHOT_KEY);
+            if (encoded == null || encoded.isEmpty()) return;
+            SegmentTravelTimeSnapshot snapshot = SegmentTravelTimeSnapshot.parseFrom(Base64.getDecoder().decode(encoded));
+            this.learned = Learned.from(snapshot);
+            log.info("SegmentTravelTimes: loaded snapshot version = {}, edges = {}",
+                    snapshot.getVersion(), snapshot.getSecondsCount());
+        } catch (Exception e) {
+            log.error("SegmentTravelTimes: refresh failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Learned seconds for the directed edge from -> to, or distance at the default pace if never observed.
+     */
+    @Override
+    public double seconds(String from, String to, double distance) {
+        return learned.seconds(from, to, distance);
+    }
+
+    public long version() {
+        return learned.version;
+    }
+
+    static final class Learned {
+        static final Learned EMPTY = new Learned(-1L, new HashMap<>(), new float[0], DEFAULT_SECONDS_PER_UNIT);
+
+        private final long version;
+        private final Map<String, Integer> index;
+        private final float[] seconds;
+        private final double secondsPerUnit;
+
+        Learned(long version, Map<String, Integer> index, float[] seconds, double secondsPerUnit) {
+            this.version = version;
+            this.index = index;
+            this.seconds = seconds;
+            this.secondsPerUnit = secondsPerUnit;
+        }
+
+        static Learned from(SegmentTravelTimeSnapshot snapshot) {
+            int n = snapshot.getNodesCount();
+            Map<String, Integer> index = new HashMap<>(n * 2);
+            for (int i = 0; i < n; i++) index.put(snapshot.getNodes(i), i);
+            float[] seconds = new float[n * n];
+            Arrays.fill(seconds, Float.NaN);
+            for (int k = 0; k < snapshot.getSecondsCount(); k++) {
+                seconds[snapshot.getFrom(k) * n + snapshot.getTo(k)] = snapshot.getSeconds(k);
+            }
+            double pace = snapshot.getDefaultSecondsPerUnit() > 0 ? snapshot.getDefaultSecondsPerUnit() : DEFAULT_SECONDS_PER_UNIT;
+            return new Learned(snapshot.getVersion(), index, seconds, pace);
+        }
+
+        double seconds(String from, String to, double distance) {
+            Integer a = index.get(from);
+            Integer b = index.get(to);
+            if (a != null && b != null) {
+                float v = seconds[a * index.size() + b];
+                if (!Float.isNaN(v)) return v;
+            }
+            return distance * secondsPerUnit;
+        }
+    }
+}
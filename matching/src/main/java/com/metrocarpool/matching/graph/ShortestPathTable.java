@@ -0,0 +1,387 @@
+package com.metrocarpool.matching.graph;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.metrocarpool.contracts.graph.CityGraphSnapshot;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * All-pairs shortest-path table over the city graph stored in Redis under "location-location-map".
+ * The table is built once (Floyd–Warshall over a flat double[] matrix, with a next-hop matrix for path
+ * reconstruction) and swapped in atomically, so detour lookups during matching are O(1) array reads.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class ShortestPathTable {
+
+    private static final String LOCATION_LOCATION_MAP_CACHE_KEY = "location-location-map";
+    private static final String NEARBY_STATIONS_CACHE_KEY = "nearby-stations";
+    // Bumped by the loader whenever the two maps above are rewritten
+    private static final String CITY_GRAPH_VERSION_KEY = "city-graph:version";
+
+    // Do not hammer Redis when the graph has not been loaded yet
+    private static final long RETRY_INTERVAL_MS = 30_000L;
+
+    private final RedisTemplate<String, String> redisStringTemplate;
+    private final ObjectMapper objectMapper;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    private volatile long lastAttemptMillis = 0L;
+    private volatile String builtVersion = null;
+
+    // Binary snapshot to map instead of the Redis JSON; empty = use Redis
+    @Value("${matching.graph.snapshot-path:}")
+    private String snapshotPath = "";
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        rebuild();
+    }
+
+    /**
+     * Rebuild when the loader has published a new graph version since the last build.
+     */
+    @Scheduled(fixedDelayString = "${matching.graph.poll-interval-ms:30000}")
+    public void rebuildIfChanged() {
+        try {
+            String version = currentVersion();
+            if (version != null && !version.equals(builtVersion)) {
+                rebuild();
+            }
+        } catch (Exception e) {
+            log.error("ShortestPathTable version check failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Rebuild the table from Redis. Keeps the previous table if the graph is missing or unreadable.
+     */
+    public synchronized void rebuild() {
+        lastAttemptMillis = System.currentTimeMillis();
+        try {
+            String version = currentVersion();
+            if (usesSnapshot()) {
+                long start = System.nanoTime();
+                CityGraphSnapshot graph = CityGraphSnapshot.map(Path.of(snapshotPath));
+                Snapshot built = build(graph.toEdgeMap(), graph.toNearbyMap());
+                swapIn(built, version, (System.nanoTime() - start) / 1_000_000L);
+                return;
+            }
+            String locationJson = redisStringTemplate.opsForValue().get(LOCATION_LOCATION_MAP_CACHE_KEY);
+            if (locationJson == null || locationJson.isEmpty()) {
+                log.warn("ShortestPathTable: '{}' missing in Redis; detour scoring disabled until it is loaded.",
+                        LOCATION_LOCATION_MAP_CACHE_KEY);
+                return;
+            }
+            String nearbyJson = redisStringTemplate.opsForValue().get(NEARBY_STATIONS_CACHE_KEY);
+
+            Map<String, Object> rawLocations = objectMapper.readValue(locationJson, new TypeReference<Map<String, Object>>() {});
+            Map<String, Object> rawNearby = (nearbyJson == null || nearbyJson.isEmpty())
+                    ? Map.of()
+                    : objectMapper.readValue(nearbyJson, new TypeReference<Map<String, Object>>() {});
+
+            long start = System.nanoTime();
+            Snapshot built = build(toEdgeMap(rawLocations), toNearbyMap(rawNearby));
+            swapIn(built, version, (System.nanoTime() - start) / 1_000_000L);
+        } catch (Exception e) {
+            log.error("ShortestPathTable rebuild failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void swapIn(Snapshot built, String version, long buildMs) {
+        this.snapshot = built;
+        this.builtVersion = version;
+        log.info("ShortestPathTable rebuilt: version = {}, nodes = {}, stations = {}, buildMs = {}, matrixBytes = {}",
+                version, built.size(), built.stationCount(), buildMs, built.footprintBytes());
+    }
+
+    private boolean usesSnapshot() {
+        return snapshotPath != null && !snapshotPath.isBlank();
+    }
+
+    /**
+     * Version of the graph source: the snapshot file's modification time, or the loader's Redis version key.
+     */
+    private String currentVersion() throws IOException {
+        if (usesSnapshot()) {
+            Path path = Path.of(snapshotPath);
+            return Files.exists(path) ? Files.getLastModifiedTime(path).toString() : null;
+        }
+        return redisStringTemplate.opsForValue().get(CITY_GRAPH_VERSION_KEY);
+    }
+
+    /**
+     * @return true once a table has been built; retries the build (throttled) while it is still empty.
+     */
+    public boolean isLoaded() {
+        if (snapshot.size() == 0 && System.currentTimeMillis() - lastAttemptMillis >= RETRY_INTERVAL_MS) {
+            rebuild();
+        }
+        return snapshot.size() > 0;
+    }
+
+    /**
+     * Shortest-path distance between two places, or +Infinity if either is unknown.
+     */
+    public double distance(String from, String to) {
+        return snapshot.distance(from, to);
+    }
+
+    /**
+     * Extra distance a driver heading from the pickup station to driverDestination covers by dropping the
+     * rider at riderDestination first: d(S, r) + d(r, D) - d(S, D).
+     * Falls back to d(r, D) when the pickup station has no node on the graph. Returns +Infinity if unknown.
+     */
+    public double detour(String pickUpStation, String riderDestination, String driverDestination) {
+        return snapshot.detour(pickUpStation, riderDestination, driverDestination);
+    }
+
+    /**
+     * Like {@link #detour}, but in seconds: each leg follows the shortest-distance path and is timed
+     * hop by hop with the given edge times.
+     */
+    public double detourTime(String pickUpStation, String riderDestination, String driverDestination, EdgeTimes times) {
+        return snapshot.detourTime(pickUpStation, riderDestination, driverDestination, times);
+    }
+
+    /**
+     * Travel time of one graph edge.
+     */
+    @FunctionalInterface
+    public interface EdgeTimes {
+        double seconds(String from, String to, double distance);
+    }
+
+    /**
+     * Other stations whose anchor node lies within radius of the given station's anchor, nearest first.
+     * Returns an empty list if the station is unknown or radius is not positive.
+     */
+    public List<String> stationsWithin(String station, double radius) {
+        return snapshot.stationsWithin(station, radius);
+    }
+
+    // ---------- Building ----------
+
+    static Snapshot build(Map<String, Map<String, Double>> edges, Map<String, String> nearby) {
+        TreeSet<String> names = new TreeSet<>(edges.keySet());
+        for (Map<String, Double> inner : edges.values()) {
+            names.addAll(inner.keySet());
+        }
+        String[] nodes = names.toArray(new String[0]);
+        int n = nodes.length;
+        Map<String, Integer> index = new HashMap<>(n * 2);
+        for (int i = 0; i < n; i++) {
+            index.put(nodes[i], i);
+        }
+
+        double[] dist = new double[n * n];
+        int[] next = new int[n * n];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        Arrays.fill(next, -1);
+        for (int i = 0; i < n; i++) {
+            dist[i * n + i] = 0.0;
+            next[i * n + i] = i;
+        }
+        for (Map.Entry<String, Map<String, Double>> e : edges.entrySet()) {
+            int a = index.get(e.getKey());
+            for (Map.Entry<String, Double> ie : e.getValue().entrySet()) {
+                Double d = ie.getValue();
+                if (d == null || d < 0) continue;
+                int b = index.get(ie.getKey());
+                // undirected graph: keep the cheaper of both directions
+                if (d < dist[a * n + b]) {
+                    dist[a * n + b] = d;
+                    dist[b * n + a] = d;
+                    next[a * n + b] = b;
+                    next[b * n + a] = a;
+                }
+            }
+        }
+
+        // Floyd–Warshall
+        for (int k = 0; k < n; k++) {
+            int kRow = k * n;
+            for (int i = 0; i < n; i++) {
+                double dik = dist[i * n + k];
+                if (dik == Double.POSITIVE_INFINITY) continue;
+                int iRow = i * n;
+                for (int j = 0; j < n; j++) {
+                    double candidate = dik + dist[kRow + j];
+                    if (candidate < dist[iRow + j]) {
+                        dist[iRow + j] = candidate;
+                        next[iRow + j] = next[iRow + k];
+                    }
+                }
+            }
+        }
+
+        // Each station is anchored at the medoid of the nodes mapped to it
+        Map<String, List<Integer>> stationNodes = new HashMap<>();
+        for (Map.Entry<String, String> e : nearby.entrySet()) {
+            Integer node = index.get(e.getKey());
+            if (node == null || e.getValue() == null || e.getValue().isEmpty()) continue;
+            stationNodes.computeIfAbsent(e.getValue(), s -> new ArrayList<>()).add(node);
+        }
+        Map<String, Integer> stationAnchor = new HashMap<>();
+        for (Map.Entry<String, List<Integer>> e : stationNodes.entrySet()) {
+            int best = -1;
+            double bestSum = Double.POSITIVE_INFINITY;
+            for (int candidate : e.getValue()) {
+                double sum = 0.0;
+                for (int other : e.getValue()) {
+                    sum += dist[candidate * n + other];
+                }
+                if (sum < bestSum) {
+                    bestSum = sum;
+                    best = candidate;
+                }
+            }
+            if (best >= 0) stationAnchor.put(e.getKey(), best);
+        }
+
+        return new Snapshot(n, nodes, index, dist, next, stationAnchor);
+    }
+
+    private static Map<String, Map<String, Double>> toEdgeMap(Map<String, Object> raw) {
+        Map<String, Map<String, Double>> result = new HashMap<>();
+        for (Map.Entry<String, Object> e : raw.entrySet()) {
+            if ("@class".equals(e.getKey())) continue;
+            if (!(e.getValue() instanceof Map<?, ?> innerMap)) continue;
+            Map<String, Double> typedInner = new HashMap<>();
+            for (Map.Entry<?, ?> ie : innerMap.entrySet()) {
+                String k = String.valueOf(ie.getKey());
+                if ("@class".equals(k)) continue;
+                Object val = ie.getValue();
+                if (val instanceof Number num) {
+                    typedInner.put(k, num.doubleValue());
+                } else {
+                    try {
+                        typedInner.put(k, Double.parseDouble(String.valueOf(val)));
+                    } catch (NumberFormatException nfe) {
+                        // skip non-numeric
+                    }
+                }
+            }
+            result.put(e.getKey(), typedInner);
+        }
+        return result;
+    }
+
+    private static Map<String, String> toNearbyMap(Map<String, Object> raw) {
+        Map<String, String> result = new HashMap<>();
+        for (Map.Entry<String, Object> e : raw.entrySet()) {
+            if ("@class".equals(e.getKey()) || e.getValue() == null) continue;
+            result.put(e.getKey(), String.valueOf(e.getValue()));
+        }
+        return result;
+    }
+
+    /**
+     * Immutable, flat representation of the table. Replaced as a whole on rebuild.
+     */
+    static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(0, new String[0], Map.of(), new double[0], new int[0], Map.of());
+
+        private final int n;
+        private final String[] nodes;
+        private final Map<String, Integer> index;
+        private final double[] dist;
+        // next[i * n + j] = first hop on the shortest path i -> j, -1 if unreachable
+        private final int[] next;
+        private final Map<String, Integer> stationAnchor;
+
+        Snapshot(int n, String[] nodes, Map<String, Integer> index, double[] dist, int[] next,
+                 Map<String, Integer> stationAnchor) {
+            this.n = n;
+            this.nodes = nodes;
+            this.index = index;
+            this.dist = dist;
+            this.next = next;
+            this.stationAnchor = stationAnchor;
+        }
+
+        int size() {
+            return n;
+        }
+
+        int stationCount() {
+            return stationAnchor.size();
+        }
+
+        long footprintBytes() {
+            return (long) dist.length * Double.BYTES + (long) next.length * Integer.BYTES;
+        }
+
+        double distance(String from, String to) {
+            Integer a = from == null ? null : index.get(from);
+            Integer b = to == null ? null : index.get(to);
+            if (a == null || b == null) return Double.POSITIVE_INFINITY;
+            return dist[a * n + b];
+        }
+
+        double detour(String pickUpStation, String riderDestination, String driverDestination) {
+            Integer r = riderDestination == null ? null : index.get(riderDestination);
+            Integer d = driverDestination == null ? null : index.get(driverDestination);
+            if (r == null || d == null) return Double.POSITIVE_INFINITY;
+            double rd = dist[r * n + d];
+            Integer s = pickUpStation == null ? null : stationAnchor.get(pickUpStation);
+            if (s == null) return rd;
+            double detour = dist[s * n + r] + rd - dist[s * n + d];
+            return Math.max(0.0, detour);
+        }
+
+        double detourTime(String pickUpStation, String riderDestination, String driverDestination, EdgeTimes times) {
+            Integer r = riderDestination == null ? null : index.get(riderDestination);
+            Integer d = driverDestination == null ? null : index.get(driverDestination);
+            if (r == null || d == null) return Double.POSITIVE_INFINITY;
+            double rd = pathTime(r, d, times);
+            Integer s = pickUpStation == null ? null : stationAnchor.get(pickUpStation);
+            if (s == null) return rd;
+            return Math.max(0.0, pathTime(s, r, times) + rd - pathTime(s, d, times));
+        }
+
+        // Sum of edge times along the shortest-distance path a -> b
+        double pathTime(int a, int b, EdgeTimes times) {
+            if (next[a * n + b] < 0) return Double.POSITIVE_INFINITY;
+            double total = 0.0;
+            int at = a;
+            while (at != b) {
+                int hop = next[at * n + b];
+                total += times.seconds(nodes[at], nodes[hop], dist[at * n + hop]);
+                at = hop;
+            }
+            return total;
+        }
+
+        List<String> stationsWithin(String station, double radius) {
+            Integer s = station == null ? null : stationAnchor.get(station);
+            if (s == null || radius <= 0) return List.of();
+            List<String> result = new ArrayList<>();
+            for (Map.Entry<String, Integer> e : stationAnchor.entrySet()) {
+                if (e.getKey().equals(station)) continue;
+                if (dist[s * n + e.getValue()] <= radius) result.add(e.getKey());
+            }
+            result.sort(Comparator.comparingDouble(other -> dist[s * n + stationAnchor.get(other)]));
+            return result;
+        }
+    }
+}
@@ -6,9 +6,13 @@ import com.metrocarpool.contracts.proto.DriverLocationEvent;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.metrocarpool.contracts.proto.DriverRiderMatchEvent;
 import com.metrocarpool.contracts.proto.RiderRequestDriverEvent;
+import com.metrocarpool.contracts.time.VirtualClock;
 import com.metrocarpool.matching.cache.MatchingDriverCache;
 import com.metrocarpool.matching.cache.RiderWaitingQueueCache;
+import com.metrocarpool.matching.graph.SegmentTravelTimes;
+import com.metrocarpool.matching.graph.ShortestPathTable;
 import com.metrocarpool.matching.redislock.RedisDistributedLock;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -19,6 +23,7 @@ import org.springframework.kafka.support.SendResult;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.kafka.support.Acknowledgment;
+import java.time.Clock;
 import java.time.Duration;
 import java.util.*;
 
@@ -57,8 +62,23 @@ public class MatchingService {
     private final RedisTemplate<String, String> redisStringTemplate;
     private final ObjectMapper objectMapper;
 
+    // All-pairs shortest paths over the city graph, used for detour scoring
+    private final ShortestPathTable shortestPathTable;
+
+    // Learned per-segment travel times published by the driver service, used to rank detours by time
+    private final SegmentTravelTimes segmentTravelTimes;
+
+    // Per-station search cost instrumentation
+    private final MeterRegistry meterRegistry;
+
+    // Waiting queue ordering and re-evaluation batches
+    private final RiderWaitingQueuePolicy riderWaitingQueuePolicy;
+
+    // Matching time: the wall clock, or a VirtualClock stepped by a simulation harness (matching.clock)
+    private final Clock clock;
+
     // Thresholds (tune as required)
-    private static final int DISTANCE_THRESHOLD_UNITS = 5;            // X units (distance)
+    private static final int DISTANCE_THRESHOLD_UNITS = 5;            // X units (detour distance)
     private static final long TIME_THRESHOLD_MS = 10 * 60 * 1000L;   // Y units (10 minutes)
 
     private String tryAcquireLockWithRetry(String lockKey) {
@@ -162,7 +182,7 @@ public class MatchingService {
      */
     private Queue<RiderWaitingQueueCache> ensureWaitingQueue() {
         Object rawQueue = redisWaitingQueueTemplate.opsForValue().get(MATCHING_WAITING_QUEUE_KEY);
-        Queue<RiderWaitingQueueCache> riderWaitingQueueCache = new LinkedList<>();
+        Queue<RiderWaitingQueueCache> riderWaitingQueueCache = new PriorityQueue<>(RiderWaitingQueuePolicy.BY_REQUEST_TIME);
 
         if (rawQueue instanceof List) {
             List<?> list = (List<?>) rawQueue;
@@ -183,6 +203,143 @@ public class MatchingService {
         return riderWaitingQueueCache;
     }
 
+    private void saveWaitingQueue(Queue<RiderWaitingQueueCache> riderWaitingQueueCache) {
+        // persisted as a plain list; ensureWaitingQueue restores the ordering
+        redisWaitingQueueTemplate.opsForValue().set(MATCHING_WAITING_QUEUE_KEY, new ArrayList<>(riderWaitingQueueCache));
+    }
+
+    // -----------------------
+    // Candidate selection
+    // -----------------------
+
+    /**
+     * A driver that passed both filters, with the station and destination bucket it was found in,
+     * the rank of that station in the rider's preference list and its detour (distance and expected seconds).
+     */
+    private record Candidate(MatchingDriverCache driver, String station, String driverDestination,
+                             int stationRank, double detour, double detourSeconds) {}
+
+    /**
+     * Ranked pickup stations for a rider: the requested station first, then the explicit alternates,
+     * then any further stations inside the walking radius (nearest first). Duplicates are dropped.
+     */
+    private List<String> resolvePickUpStations(String pickUpStation, List<String> alternates, Double walkingRadius) {
+        LinkedHashSet<String> stations = new LinkedHashSet<>();
+        if (pickUpStation != null && !pickUpStation.isEmpty()) {
+            stations.add(pickUpStation);
+        }
+        if (alternates != null) {
+            for (String alternate : alternates) {
+                if (alternate != null && !alternate.isEmpty()) stations.add(alternate);
+            }
+        }
+        if (walkingRadius != null && walkingRadius > 0 && !stations.isEmpty() && shortestPathTable.isLoaded()) {
+            stations.addAll(shortestPathTable.stationsWithin(stations.iterator().next(), walkingRadius));
+        }
+        return new ArrayList<>(stations);
+    }
+
+    /**
+     * Scan the drivers heading to any of the rider's pickup stations in a single pass over their buckets
+     * and return the best one, or null.
+     * Candidates must be within DISTANCE_THRESHOLD_UNITS of detour and TIME_THRESHOLD_MS of the rider's arrival;
+     * among those the rider's station ranking wins first, then the smallest detour time (learned segment
+     * travel times along the shortest paths), then the smallest detour distance, then the earliest arrival
+     * at the station. Until the shortest-path table is available the raw "distance" map is
+     * used as before.
+     */
+    private Candidate findBestCandidate(HashMap<String, HashMap<String, List<MatchingDriverCache>>> allMatchingCache,
+                                        List<String> pickUpStations,
+                                        String destinationPlace,
+                                        long riderMillis,
+                                        HashMap<String, HashMap<String, Integer>> distances) {
+        boolean useShortestPaths = shortestPathTable.isLoaded();
+
+        PriorityQueue<Candidate> pq = new PriorityQueue<>(Comparator
+                .comparingInt(Candidate::stationRank)
+                .thenComparingDouble(Candidate::detourSeconds)
+                .thenComparingDouble(Candidate::detour)
+                .thenComparingLong(c -> c.driver().getTimeToReachStation() == null
+                        ? Long.MAX_VALUE : c.driver().getTimeToReachStation().toMillis()));
+
+        long now = clock.millis();
+        for (int rank = 0; rank < pickUpStations.size(); rank++) {
+            String station = pickUpStations.get(rank);
+            HashMap<String, List<MatchingDriverCache>> stationMap = allMatchingCache.get(station);
+            if (stationMap == null || stationMap.isEmpty()) continue;
+
+            long searchStart = System.nanoTime();
+            int scanned = 0;
+            for (Map.Entry<String, List<MatchingDriverCache>> entry : stationMap.entrySet()) {
+                String driverDestination = entry.getKey();
+
+                // distance check: detour(rider destination, driver destination) <= X
+                double detour;
+                if (destinationPlace != null && destinationPlace.equals(driverDestination)) {
+                    detour = 0.0;
+                } else if (useShortestPaths) {
+                    detour = shortestPathTable.detour(station, destinationPlace, driverDestination);
+                } else {
+                    detour = legacyDistance(distances, destinationPlace, driverDestination);
+                }
+                if (detour > DISTANCE_THRESHOLD_UNITS) {
+                    continue;
+                }
+                // the legacy map is not a detour, so keep ordering purely by arrival time there
+                double score = useShortestPaths ? detour : 0.0;
+                double scoreSeconds = (useShortestPaths && detour > 0.0)
+                        ? shortestPathTable.detourTime(station, destinationPlace, driverDestination, segmentTravelTimes)
+                        : 0.0;
+
+                List<MatchingDriverCache> driversAtDest = entry.getValue();
+                if (driversAtDest == null) continue;
+                for (MatchingDriverCache driverCache : driversAtDest) {
+                    scanned++;
+                    // Condition a (Time Filter): |Rider arrival time - Driver arrival time| <= Y
+                    long driverArrivalMillis = now;
+                    if (driverCache.getTimeToReachStation() != null) {
+                        driverArrivalMillis += driverCache.getTimeToReachStation().toMillis();
+                    }
+                    long diff = Math.abs(riderMillis - driverArrivalMillis);
+                    if (diff <= TIME_THRESHOLD_MS) {
+                        pq.add(new Candidate(driverCache, station, driverDestination, rank, score, scoreSeconds));
+                    }
+                }
+            }
+            meterRegistry.timer("matching.station.search", "station", station)
+                    .record(System.nanoTime() - searchStart, TimeUnit.NANOSECONDS);
+            meterRegistry.summary("matching.station.candidates", "station", station).record(scanned);
+        }
+        return pq.poll();
+    }
+
+    private int legacyDistance(HashMap<String, HashMap<String, Integer>> distances,
+                               String destinationPlace, String driverDestination) {
+        if (distances == null || destinationPlace == null) return Integer.MAX_VALUE;
+        HashMap<String, Integer> inner = distances.get(destinationPlace);
+        if (inner == null) return Integer.MAX_VALUE;
+        Integer dv = inner.get(driverDestination);
+        return dv == null ? Integer.MAX_VALUE : dv;
+    }
+
+    /**
+     * Remove the matched driver from its station/destination bucket and persist the cache.
+     */
+    private void removeMatchedDriver(HashMap<String, HashMap<String, List<MatchingDriverCache>>> allMatchingCache,
+                                     Candidate candidate) {
+        String station = candidate.station();
+        HashMap<String, List<MatchingDriverCache>> stationMap = allMatchingCache.get(station);
+        if (stationMap == null) return;
+        List<MatchingDriverCache> driverList = stationMap.get(candidate.driverDestination());
+        if (driverList == null) return;
+        driverList.removeIf(mdc -> Objects.equals(mdc.getDriverId(), candidate.driver().getDriverId()));
+        if (driverList.isEmpty()) {
+            stationMap.remove(candidate.driverDestination());
+        }
+        allMatchingCache.put(station, stationMap);
+        redisDriverTemplate.opsForValue().set(MATCHING_DRIVER_CACHE_KEY, allMatchingCache);
+    }
+
     // -----------------------
     // Kafka listeners and scheduled job
     // -----------------------
@@ -245,6 +402,20 @@ public class MatchingService {
                 }
             }
 
+            // A full car is no longer a candidate: drop it from the station it was waiting for instead of adding it
+            if (availableSeats <= 0) {
+                if (nextStation != null && !nextStation.isEmpty() && finalDestination != null && !finalDestination.isEmpty()) {
+                    HashMap<String, List<MatchingDriverCache>> matchingCache = allMatchingCache.get(nextStation);
+                    List<MatchingDriverCache> candidates = matchingCache == null ? null : matchingCache.get(finalDestination);
+                    if (candidates != null && candidates.removeIf(c -> Objects.equals(c.getDriverId(), driverId))) {
+                        if (candidates.isEmpty()) matchingCache.remove(finalDestination);
+                        redisDriverTemplate.opsForValue().set(MATCHING_DRIVER_CACHE_KEY, allMatchingCache);
+                    }
+                }
+                log.info("Driver {} has no seats left; not offered at station {}.", driverId, nextStation);
+                return;
+            }
+
             // Add in new station
             if (nextStation != null && !nextStation.isEmpty() && finalDestination != null && !finalDestination.isEmpty()) {
                 // ensure station map and list exist
@@ -313,6 +484,8 @@ public class MatchingService {
             String pickUpStation = tempEvent.getPickUpStation();
             com.google.protobuf.Timestamp arrivalTime = tempEvent.getArrivalTime();
             String destinationPlace = tempEvent.getDestinationPlace();
+            List<String> alternatePickUpStations = tempEvent.getAlternatePickUpStationsList();
+            double walkingRadius = tempEvent.getWalkingRadius();
 
             // Acknowledge the message
             markProcessed(RIDER_REQUEST_KAFKA_DEDUP_KEY_PREFIX, messageId);
@@ -323,133 +496,54 @@ public class MatchingService {
 
             HashMap<String, HashMap<String, Integer>> distances = ensureDistancesMap();
 
-            // Candidate pool priority queue ordered by driver's timeToReachStation (smaller first)
-            PriorityQueue<MatchingDriverCache> pq = new PriorityQueue<>(Comparator.comparingLong(d ->
-                    d.getTimeToReachStation() == null ? Long.MAX_VALUE : d.getTimeToReachStation().toMillis()));
-
             long riderMillis = 0L;
             try {
                 riderMillis = Timestamps.toMillis(arrivalTime);
             } catch (Exception ex) {
-                riderMillis = System.currentTimeMillis();
+                riderMillis = clock.millis();
             }
 
             boolean matched = false;
-            MatchingDriverCache chosenDriver;
-            String chosenDriverStation = null;
-            String chosenDriverDestination = null;
-
-            if (pickUpStation != null && !pickUpStation.isEmpty()) {
-                HashMap<String, List<MatchingDriverCache>> stationMap = allMatchingCache.get(pickUpStation);
-                if (stationMap != null && !stationMap.isEmpty()) {
-                    // iterate only over driver destination keys in M
-                    for (String driverDestination : stationMap.keySet()) {
-                        // distance check: D[rider destination, driver destination] <= X
-                        int distVal = Integer.MAX_VALUE;
-                        if (destinationPlace != null && destinationPlace.equals(driverDestination)) {
-                            distVal = 0;
-                        } else if (distances != null && destinationPlace != null) {
-                            HashMap<String, Integer> inner = distances.get(destinationPlace);
-                            if (inner != null && inner.containsKey(driverDestination)) {
-                                Integer dv = inner.get(driverDestination);
-                                if (dv != null) distVal = dv;
-                            }
-                        }
-                        if (distVal <= DISTANCE_THRESHOLD_UNITS) {
-                            // add all drivers for this driverDestination to candidate pool
-                            List<MatchingDriverCache> driversAtDest = stationMap.get(driverDestination);
-                            if (driversAtDest != null) {
-                                for (MatchingDriverCache driverCache : driversAtDest) {
-                                    // Condition a (Time Filter): |Rider arrival time - Driver arrival time| <= Y
-                                    long driverArrivalMillis = System.currentTimeMillis();
-                                    try {
-                                        if (driverCache.getTimeToReachStation() != null) {
-                                            driverArrivalMillis = System.currentTimeMillis() + driverCache.getTimeToReachStation().toMillis();
-                                        }
-                                    } catch (Exception ex) {
-                                        driverArrivalMillis = System.currentTimeMillis();
-                                    }
-                                    long diff = Math.abs(riderMillis - driverArrivalMillis);
-                                    if (diff <= TIME_THRESHOLD_MS) {
-                                        pq.add(driverCache);
-                                    }
-                                }
-                            }
-                        }
-                    }
-
-                    // pop top driver from PQ
-                    if (!pq.isEmpty()) {
-                        chosenDriver = pq.poll();
-                        // Need to find chosen driver's destination key and station list to remove later
-                        outer_loop:
-                        for (String destKey : stationMap.keySet()) {
-                            List<MatchingDriverCache> list = stationMap.get(destKey);
-                            if (list != null) {
-                                for (MatchingDriverCache mdc : list) {
-                                    if (Objects.equals(mdc.getDriverId(), chosenDriver.getDriverId())) {
-                                        chosenDriverDestination = destKey;
-                                        chosenDriverStation = pickUpStation;
-                                        break outer_loop;
-                                    }
-                                }
-                            }
-                        }
-                        // If matched, build and send Kafka event and remove the driver from cache
-                        if (chosenDriver != null) {
-                            long driverArrivalMillis = System.currentTimeMillis();
-                            if (chosenDriver.getTimeToReachStation() != null) {
-                                driverArrivalMillis = System.currentTimeMillis() + chosenDriver.getTimeToReachStation().toMillis();
-                            }
-                            Timestamp driverArrivalTs = Timestamps.fromMillis(driverArrivalMillis);
-
-                            DriverRiderMatchEvent event = DriverRiderMatchEvent.newBuilder()
-                                    .setMessageId(UUID.randomUUID().toString())
-                                    .setDriverId(chosenDriver.getDriverId())
-                                    .setRiderId(riderId)
-                                    .setPickUpStation(pickUpStation)
-                                    .setDriverArrivalTime(driverArrivalTs)
-                                    .build();
-
-                            log.info("Matching: Rider = {} and driver = {} matched.", riderId, chosenDriver.getDriverId());
-
-                            CompletableFuture<SendResult<String, byte[]>> future = kafkaTemplate.send(MATCHING_TOPIC,
-                                    String.valueOf(riderId) , event.toByteArray());
-                            future.thenAccept(result -> {
-                                log.debug("Event = {} delivered to {}", event, result.getRecordMetadata().topic());
-                            }).exceptionally(ex -> {
-                                log.error("Event failed. Error message = {}", ex.getMessage());
-                                // Optional: retry, put into Redis dead-letter queue
-                                return null;
-                            });
-                            matched = true;
-
-                            // remove matched driver from allMatchingCache
-                            if (chosenDriverStation != null && chosenDriverDestination != null) {
-                                HashMap<String, List<MatchingDriverCache>> stationMap2 = allMatchingCache.get(chosenDriverStation);
-                                if (stationMap2 != null) {
-                                    List<MatchingDriverCache> driverList = stationMap2.get(chosenDriverDestination);
-                                    if (driverList != null) {
-                                        driverList.removeIf(mdc -> Objects.equals(mdc.getDriverId(), chosenDriver.getDriverId()));
-                                        if (driverList.isEmpty()) {
-                                            stationMap2.remove(chosenDriverDestination);
-                                        } else {
-                                            stationMap2.put(chosenDriverDestination, driverList);
-                                        }
-                                        allMatchingCache.put(chosenDriverStation, stationMap2);
-                                        redisDriverTemplate.opsForValue().set(MATCHING_DRIVER_CACHE_KEY, allMatchingCache);
-                                    }
-                                }
-                            }
-                        }
-                    } else {
-                        chosenDriver = null;
+            long requestMillis = clock.millis();
+
+            List<String> pickUpStations = resolvePickUpStations(pickUpStation, alternatePickUpStations, walkingRadius);
+            if (!pickUpStations.isEmpty()) {
+                Candidate candidate = findBestCandidate(allMatchingCache, pickUpStations, destinationPlace, riderMillis, distances);
+
+                // If matched, build and send Kafka event and remove the driver from cache
+                if (candidate != null) {
+                    MatchingDriverCache chosenDriver = candidate.driver();
+                    long driverArrivalMillis = clock.millis();
+                    if (chosenDriver.getTimeToReachStation() != null) {
+                        driverArrivalMillis = clock.millis() + chosenDriver.getTimeToReachStation().toMillis();
                     }
-                } else {
-                    chosenDriver = null;
+                    Timestamp driverArrivalTs = Timestamps.fromMillis(driverArrivalMillis);
+
+                    DriverRiderMatchEvent event = DriverRiderMatchEvent.newBuilder()
+                            .setMessageId(UUID.randomUUID().toString())
+                            .setDriverId(chosenDriver.getDriverId())
+                            .setRiderId(riderId)
+                            .setPickUpStation(candidate.station())
+                            .setDriverArrivalTime(driverArrivalTs)
+                            .build();
+
+                    log.info("Matching: Rider = {} and driver = {} matched with detour = {} ({} s).",
+                            riderId, chosenDriver.getDriverId(), candidate.detour(), candidate.detourSeconds());
+
+                    CompletableFuture<SendResult<String, byte[]>> future = kafkaTemplate.send(MATCHING_TOPIC,
+                            String.valueOf(riderId) , event.toByteArray());
+                    future.thenAccept(result -> {
+                        log.debug("Event = {} delivered to {}", event, result.getRecordMetadata().topic());
+                    }).exceptionally(ex -> {
+                        log.error("Event failed. Error message = {}", ex.getMessage());
+                        // Optional: retry, put into Redis dead-letter queue
+                        return null;
+                    });
+                    matched = true;
+
+                    // remove matched driver from allMatchingCache
+                    removeMatchedDriver(allMatchingCache, candidate);
                 }
-            } else {
-                chosenDriver = null;
             }
 
             // If no match found, push the rider into the waiting queue (as earlier)
@@ -461,11 +555,15 @@ public class MatchingService {
                         .pickUpStation(pickUpStation)
                         .arrivalTime(Timestamps.toMillis(arrivalTime))
                         .destinationPlace(destinationPlace)
+                        .alternatePickUpStations(new ArrayList<>(alternatePickUpStations))
+                        .walkingRadius(walkingRadius)
+                        .requestTime(requestMillis)
+                        .lastEvaluatedAt(requestMillis)
                         .build()
                 );
 
                 log.info("Rider waiting queue: Rider added to waiting queue.");
-                redisWaitingQueueTemplate.opsForValue().set(MATCHING_WAITING_QUEUE_KEY, riderWaitingQueueCache);
+                saveWaitingQueue(riderWaitingQueueCache);
             }
         } catch (InvalidProtocolBufferException e){
             log.error("Failed to parse RiderRequestDriverEvent protobuf message", e);
@@ -475,8 +573,75 @@ public class MatchingService {
         }
     }
 
+    /**
+     * Try to match one rider from the waiting queue against the current driver cache.
+     *
+     * @return true if a match event was published
+     */
+    private boolean matchWaitingRider(RiderWaitingQueueCache rider,
+                                      HashMap<String, HashMap<String, List<MatchingDriverCache>>> allMatchingCache,
+                                      HashMap<String, HashMap<String, Integer>> distances,
+                                      long now) {
+        String pickUpStation = rider.getPickUpStation();
+        String destinationPlace = rider.getDestinationPlace();
+
+        // A rider whose arrival time has passed is already waiting at the station
+        long riderMillis = rider.getArrivalTime() != null ? Math.max(rider.getArrivalTime(), now) : now;
+
+        List<String> pickUpStations = resolvePickUpStations(pickUpStation,
+                rider.getAlternatePickUpStations(), rider.getWalkingRadius());
+        if (!pickUpStations.isEmpty()) {
+            // Build candidate pool same as in rider handler
+            Candidate candidate = findBestCandidate(allMatchingCache, pickUpStations, destinationPlace, riderMillis, distances);
+
+            if (candidate != null) {
+                MatchingDriverCache chosenDriver = candidate.driver();
+                long driverArrivalMillis = clock.millis();
+                if (chosenDriver.getTimeToReachStation() != null) {
+                    driverArrivalMillis = clock.millis() + chosenDriver.getTimeToReachStation().toMillis();
+                }
+                Timestamp driverArrivalTs = Timestamps.fromMillis(driverArrivalMillis);
+
+                DriverRiderMatchEvent event = DriverRiderMatchEvent.newBuilder()
+                        .setMessageId(UUID.randomUUID().toString())
+                        .setDriverId(chosenDriver.getDriverId())
+                        .setRiderId(rider.getRiderId())
+                        .setPickUpStation(candidate.station())
+                        .setDriverArrivalTime(driverArrivalTs)
+                        .build();
+
+                log.info("Matching: Rider = {} and driver = {} matched with detour = {} ({} s).",
+                        rider.getRiderId(), chosenDriver.getDriverId(), candidate.detour(), candidate.detourSeconds());
+
+                CompletableFuture<SendResult<String, byte[]>> future = kafkaTemplate.send(MATCHING_TOPIC,
+                        String.valueOf(event.getDriverId() + event.getRiderId()), event.toByteArray());
+                future.thenAccept(result -> {
+                    log.debug("Event = {} delivered to {}", event, result.getRecordMetadata().topic());
+                }).exceptionally(ex -> {
+                    log.error("Event failed. Error message = {}", ex.getMessage());
+                    // Optional: retry, put into Redis dead-letter queue
+                    return null;
+                });
+
+                // remove matched driver from allMatchingCache
+                removeMatchedDriver(allMatchingCache, candidate);
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Scheduled(cron = "* * * * * *")
     public void cronJobMatchingAlgorithm() {
+        // in virtual time the harness steps the clock and calls evaluateWaitingQueue itself
+        if (clock instanceof VirtualClock) return;
+        evaluateWaitingQueue();
+    }
+
+    /**
+     * Re-evaluate one batch of the waiting queue at the clock's current time.
+     */
+    public void evaluateWaitingQueue() {
         // log.info("Reached MatchingService.cronJobMatchingAlgorithm.");
 
         // Try to acquire lock
@@ -504,7 +669,7 @@ public class MatchingService {
 
         try {
 
-            // Run this CRON job every second to check whether there is a driver for the riders in the waiting queue => pop the first element from the queue
+            // Run this CRON job every second to re-evaluate a batch of riders from the waiting queue
             // Load caches from Redis (ensure initialization)
             HashMap<String, HashMap<String, List<MatchingDriverCache>>> allMatchingCache = ensureAllMatchingCache();
 
@@ -512,164 +677,26 @@ public class MatchingService {
 
             Queue<RiderWaitingQueueCache> riderWaitingQueueCache = ensureWaitingQueue();
 
+            long now = clock.millis();
             if (riderWaitingQueueCache == null || riderWaitingQueueCache.isEmpty()) {
                 // nothing to do in this cron tick
+                riderWaitingQueuePolicy.recordQueueAges(List.of(), now);
                 return;
             }
 
-            RiderWaitingQueueCache rider = riderWaitingQueueCache.poll(); // pop first element
-            if (rider == null) {
-                return;
-            }
-
-            boolean matched = false;
-            MatchingDriverCache chosenDriver;
-            String chosenDriverStation = null;
-            String chosenDriverDestination = null;
-
-            long riderMillis = 0L;
-            try {
-                if (rider.getArrivalTime() != null) {
-                    riderMillis = rider.getArrivalTime();
+            for (RiderWaitingQueueCache rider : riderWaitingQueuePolicy.selectBatch(riderWaitingQueueCache, now)) {
+                if (matchWaitingRider(rider, allMatchingCache, distances, now)) {
+                    riderWaitingQueueCache.remove(rider);
+                    log.info("Rider waiting queue: Rider popped from waiting queue.");
                 } else {
-                    riderMillis = System.currentTimeMillis();
+                    // keep the original request and arrival times; only note the attempt
+                    rider.setLastEvaluatedAt(now);
                 }
-            } catch (Exception ex) {
-                riderMillis = System.currentTimeMillis();
-            }
-
-            String pickUpStation = rider.getPickUpStation();
-            String destinationPlace = rider.getDestinationPlace();
-
-            if (pickUpStation != null && !pickUpStation.isEmpty()) {
-                HashMap<String, List<MatchingDriverCache>> stationMap = allMatchingCache.get(pickUpStation);
-                if (stationMap != null && !stationMap.isEmpty()) {
-                    PriorityQueue<MatchingDriverCache> pq = new PriorityQueue<>(Comparator.comparingLong(d ->
-                            d.getTimeToReachStation() == null ? Long.MAX_VALUE : d.getTimeToReachStation().toMillis()));
-
-                    // Build candidate pool same as in rider handler
-                    for (String driverDestination : stationMap.keySet()) {
-                        int distVal = Integer.MAX_VALUE;
-                        if (destinationPlace != null && destinationPlace.equals(driverDestination)) {
-                            distVal = 0;
-                        } else if (distances != null && destinationPlace != null) {
-                            HashMap<String, Integer> inner = distances.get(destinationPlace);
-                            if (inner != null && inner.containsKey(driverDestination)) {
-                                Integer dv = inner.get(driverDestination);
-                                if (dv != null) distVal = dv;
-                            }
-                        }
-                        
-                        // log.info("Checking driverDest: {}, riderDest: {}, distance: {}", driverDestination, destinationPlace, distVal);
-
-                        if (distVal <= DISTANCE_THRESHOLD_UNITS) {
-                            List<MatchingDriverCache> driversAtDest = stationMap.get(driverDestination);
-                            if (driversAtDest != null) {
-                                for (MatchingDriverCache driverCache : driversAtDest) {
-                                    long driverArrivalMillis = System.currentTimeMillis();
-                                    try {
-                                        if (driverCache.getTimeToReachStation() != null) {
-                                            driverArrivalMillis = System.currentTimeMillis() + driverCache.getTimeToReachStation().toMillis();
-                                        }
-                                    } catch (Exception ex) {
-                                        driverArrivalMillis = System.currentTimeMillis();
-                                    }
-                                    long diff = Math.abs(riderMillis - driverArrivalMillis);
-                                    
-                                    // log.info("Driver {}: arrival={}, rider={}, diff={}, threshold={}", 
-                                    //        driverCache.getDriverId(), driverArrivalMillis, riderMillis, diff, TIME_THRESHOLD_MS);
-
-                                    if (diff <= TIME_THRESHOLD_MS) {
-                                        pq.add(driverCache);
-                                    }
-                                }
-                            }
-                        }
-                    }
-
-                    if (!pq.isEmpty()) {
-                        chosenDriver = pq.poll();
-                        outer_loop:
-                        for (String destKey : stationMap.keySet()) {
-                            List<MatchingDriverCache> list = stationMap.get(destKey);
-                            if (list != null) {
-                                for (MatchingDriverCache mdc : list) {
-                                    if (Objects.equals(mdc.getDriverId(), chosenDriver.getDriverId())) {
-                                        chosenDriverDestination = destKey;
-                                        chosenDriverStation = pickUpStation;
-                                        break outer_loop;
-                                    }
-                                }
-                            }
-                        }
-
-                        if (chosenDriver != null) {
-                            long driverArrivalMillis = System.currentTimeMillis();
-                            if (chosenDriver.getTimeToReachStation() != null) {
-                                driverArrivalMillis = System.currentTimeMillis() + chosenDriver.getTimeToReachStation().toMillis();
-                            }
-                            Timestamp driverArrivalTs = Timestamps.fromMillis(driverArrivalMillis);
-
-                            log.info("Rider waiting queue: Rider popped from waiting queue.");
-
-                            DriverRiderMatchEvent event = DriverRiderMatchEvent.newBuilder()
-                                    .setMessageId(UUID.randomUUID().toString())
-                                    .setDriverId(chosenDriver.getDriverId())
-                                    .setRiderId(rider.getRiderId())
-                                    .setPickUpStation(pickUpStation)
-                                    .setDriverArrivalTime(driverArrivalTs)
-                                    .build();
-
-                            log.info("Matching: Rider = {} and driver = {} matched.", rider.getRiderId(), chosenDriver.getDriverId());
-
-                            CompletableFuture<SendResult<String, byte[]>> future = kafkaTemplate.send(MATCHING_TOPIC,
-                                    String.valueOf(event.getDriverId() + event.getRiderId()), event.toByteArray());
-                            future.thenAccept(result -> {
-                                log.debug("Event = {} delivered to {}", event, result.getRecordMetadata().topic());
-                            }).exceptionally(ex -> {
-                                log.error("Event failed. Error message = {}", ex.getMessage());
-                                // Optional: retry, put into Redis dead-letter queue
-                                return null;
-                            });
-                            matched = true;
-
-                            // remove matched driver from allMatchingCache
-                            if (chosenDriverStation != null && chosenDriverDestination != null) {
-                                HashMap<String, List<MatchingDriverCache>> stationMap2 = allMatchingCache.get(chosenDriverStation);
-                                if (stationMap2 != null) {
-                                    List<MatchingDriverCache> driverList = stationMap2.get(chosenDriverDestination);
-                                    if (driverList != null) {
-                                        driverList.removeIf(mdc -> Objects.equals(mdc.getDriverId(), chosenDriver.getDriverId()));
-                                        if (driverList.isEmpty()) {
-                                            stationMap2.remove(chosenDriverDestination);
-                                        } else {
-                                            stationMap2.put(chosenDriverDestination, driverList);
-                                        }
-                                        allMatchingCache.put(chosenDriverStation, stationMap2);
-                                        redisDriverTemplate.opsForValue().set(MATCHING_DRIVER_CACHE_KEY, allMatchingCache);
-                                    }
-                                }
-                            }
-                        }
-                    } else {
-                        chosenDriver = null;
-                    }
-                } else {
-                    chosenDriver = null;
-                }
-            } else {
-                chosenDriver = null;
-            }
-
-            // If not matched, push rider back to waiting queue (end of queue)
-            if (!matched) {
-                rider.setArrivalTime(System.currentTimeMillis());
-                riderWaitingQueueCache.add(rider);
-                log.info("Rider waiting queue: Rider added to waiting queue.");
             }
+            riderWaitingQueuePolicy.recordQueueAges(riderWaitingQueueCache, now);
 
             // update waiting queue in redis
-            redisWaitingQueueTemplate.opsForValue().set(MATCHING_WAITING_QUEUE_KEY, riderWaitingQueueCache);
+            saveWaitingQueue(riderWaitingQueueCache);
         } catch (Exception e) {
             log.error("Error = {}.", e.getMessage());
         } finally {
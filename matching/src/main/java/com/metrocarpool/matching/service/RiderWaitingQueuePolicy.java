@@ -0,0 +1,130 @@
+package com.metrocarpool.matching.service;
+
+import com.metrocarpool.matching.cache.RiderWaitingQueueCache;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Decides which waiting riders the matching cron re-evaluates on each tick.
+ * The queue itself is ordered by original request time. A rider's priority grows with its age and with the
+ * time since it was last evaluated; riders that have not been evaluated for maxReevaluationIntervalMs are
+ * always taken, even past the batch size, so no rider waits longer than that between attempts.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class RiderWaitingQueuePolicy {
+
+    public static final Comparator<RiderWaitingQueueCache> BY_REQUEST_TIME = Comparator
+            .comparingLong(RiderWaitingQueuePolicy::requestTime)
+            .thenComparing(RiderWaitingQueueCache::getRiderId, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private static final double[] AGE_QUANTILES = {0.5, 0.95, 0.99, 1.0};
+    private static final String[] AGE_QUANTILE_TAGS = {"p50", "p95", "p99", "max"};
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${matching.waiting-queue.age-weight:1.0}")
+    private double ageWeight;
+    @Value("${matching.waiting-queue.staleness-weight:2.0}")
+    private double stalenessWeight;
+    @Value("${matching.waiting-queue.max-reevaluation-interval-ms:10000}")
+    private long maxReevaluationIntervalMs;
+    @Value("${matching.waiting-queue.batch-size:16}")
+    private int batchSize;
+
+    // Ages (ms) observed at the end of the last cron tick, exported as gauges
+    private volatile double[] lastAges = new double[AGE_QUANTILES.length];
+    private volatile int lastSize = 0;
+
+    @PostConstruct
+    void registerGauges() {
+        for (int i = 0; i < AGE_QUANTILES.length; i++) {
+            final int q = i;
+            Gauge.builder("matching.waiting.age", this, p -> p.lastAges[q])
+                    .tag("quantile", AGE_QUANTILE_TAGS[i])
+                    .baseUnit("milliseconds")
+                    .description("Age of riders in the waiting queue since their original request")
+                    .register(meterRegistry);
+        }
+        Gauge.builder("matching.waiting.size", this, p -> p.lastSize)
+                .description("Riders in the waiting queue")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Time the rider was first seen by matching. Entries written before this field existed fall back to arrivalTime.
+     */
+    public static long requestTime(RiderWaitingQueueCache rider) {
+        if (rider.getRequestTime() != null) return rider.getRequestTime();
+        if (rider.getArrivalTime() != null) return rider.getArrivalTime();
+        return 0L;
+    }
+
+    private static long lastEvaluatedAt(RiderWaitingQueueCache rider) {
+        return rider.getLastEvaluatedAt() != null ? rider.getLastEvaluatedAt() : requestTime(rider);
+    }
+
+    double priority(RiderWaitingQueueCache rider, long now) {
+        return ageWeight * (now - requestTime(rider)) + stalenessWeight * (now - lastEvaluatedAt(rider));
+    }
+
+    /**
+     * Riders to evaluate this tick: every overdue rider (oldest request first), then the highest priority
+     * remaining riders up to the batch size.
+     */
+    public List<RiderWaitingQueueCache> selectBatch(Collection<RiderWaitingQueueCache> waiting, long now) {
+        List<RiderWaitingQueueCache> overdue = new ArrayList<>();
+        List<RiderWaitingQueueCache> rest = new ArrayList<>();
+        for (RiderWaitingQueueCache rider : waiting) {
+            if (now - lastEvaluatedAt(rider) >= maxReevaluationIntervalMs) {
+                overdue.add(rider);
+            } else {
+                rest.add(rider);
+            }
+        }
+        overdue.sort(BY_REQUEST_TIME);
+
+        List<RiderWaitingQueueCache> batch = new ArrayList<>(overdue);
+        if (batch.size() < batchSize && !rest.isEmpty()) {
+            rest.sort(Comparator.comparingDouble((RiderWaitingQueueCache r) -> priority(r, now)).reversed()
+                    .thenComparing(BY_REQUEST_TIME));
+            batch.addAll(rest.subList(0, Math.min(rest.size(), batchSize - batch.size())));
+        }
+        if (overdue.size() > batchSize) {
+            log.warn("Rider waiting queue: {} riders overdue for re-evaluation exceed batch size {}.",
+                    overdue.size(), batchSize);
+        }
+        return batch;
+    }
+
+    /**
+     * Snapshot the queue ages for the age gauges.
+     */
+    public void recordQueueAges(Collection<RiderWaitingQueueCache> waiting, long now) {
+        long[] ages = new long[waiting.size()];
+        int i = 0;
+        for (RiderWaitingQueueCache rider : waiting) {
+            ages[i++] = Math.max(0L, now - requestTime(rider));
+        }
+        Arrays.sort(ages);
+
+        double[] quantiles = new double[AGE_QUANTILES.length];
+        if (ages.length > 0) {
+            for (int q = 0; q < AGE_QUANTILES.length; q++) {
+                // nearest-rank
+                int rank = (int) Math.ceil(AGE_QUANTILES[q] * ages.length);
+                quantiles[q] = ages[Math.max(0, rank - 1)];
+            }
+        }
+        this.lastAges = quantiles;
+        this.lastSize = ages.length;
+    }
+}
@@ -0,0 +1,95 @@
+package com.metrocarpool.matching.demand;
+
+import com.google.protobuf.util.Timestamps;
+import com.metrocarpool.contracts.proto.DriverRiderMatchEvent;
+import com.metrocarpool.contracts.proto.RiderRequestDriverEvent;
+import com.metrocarpool.contracts.proto.StationDemandSnapshot;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("StationDemandAggregator Unit Tests")
+class StationDemandAggregatorTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    @Mock
+    private KafkaTemplate<String, byte[]> kafkaTemplate;
+
+    @Mock
+    private Acknowledgment acknowledgment;
+
+    private StationDemandAggregator aggregator;
+
+    @BeforeEach
+    void setUp() {
+        aggregator = new StationDemandAggregator(kafkaTemplate, Clock.fixed(Instant.ofEpochMilli(NOW), ZoneOffset.UTC));
+        ReflectionTestUtils.setField(aggregator, "windowMinutes", 60);
+        ReflectionTestUtils.setField(aggregator, "maxStations", 16);
+    }
+
+    @Test
+    @DisplayName("onMatch - Should count a match at the requested station when the rider was matched at an alternate")
+    void onMatch_CountsAtRequestedStation() {
+        aggregator.onRiderRequest(RiderRequestDriverEvent.newBuilder()
+                .setRiderId(7L)
+                .setPickUpStation("ME1")
+                .addAlternatePickUpStations("ME2")
+                .setArrivalTime(Timestamps.fromMillis(NOW))
+                .build().toByteArray(), acknowledgment);
+        aggregator.onMatch(DriverRiderMatchEvent.newBuilder()
+                .setRiderId(7L)
+                .setDriverId(1L)
+                .setPickUpStation("ME2")
+                .setDriverArrivalTime(Timestamps.fromMillis(NOW + 90_000L))
+                .build().toByteArray(), acknowledgment);
+
+        StationDemandSnapshot requested = aggregator.snapshot("ME1");
+        assertThat(requested.getRequests()).isEqualTo(1L);
+        assertThat(requested.getMatches()).isEqualTo(1L);
+        assertThat(requested.getUnmatched()).isZero();
+        assertThat(requested.getAverageWaitMillis()).isEqualTo(90_000.0);
+        assertThat(aggregator.snapshot("ME2")).isNull();
+    }
+
+    @Test
+    @DisplayName("onMatch - Should fall back to the pick-up station of a match whose request was not seen")
+    void onMatch_UnknownRiderCountsAtPickUpStation() {
+        aggregator.onMatch(DriverRiderMatchEvent.newBuilder()
+                .setRiderId(8L)
+                .setDriverId(1L)
+                .setPickUpStation("ME2")
+                .build().toByteArray(), acknowledgment);
+
+        assertThat(aggregator.snapshot("ME2").getMatches()).isEqualTo(1L);
+        assertThat(aggregator.stations()).containsExactly("ME2");
+    }
+
+    @Test
+    @DisplayName("onPartitionsAssigned - Should start the stable demand groups at the end of their topics")
+    void onPartitionsAssigned_SeeksToEnd() {
+        ConsumerSeekAware.ConsumerSeekCallback callback = mock(ConsumerSeekAware.ConsumerSeekCallback.class);
+        Map<TopicPartition, Long> assignments = Map.of(new TopicPartition("rider-requests", 0), 42L);
+
+        aggregator.onPartitionsAssigned(assignments, callback);
+
+        verify(callback).seekToEnd(assignments.keySet());
+    }
+}
@@ -0,0 +1,59 @@
+package com.metrocarpool.matching.demand;
+
+import com.metrocarpool.contracts.proto.StationDemandMinute;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("StationDemandWindow Unit Tests")
+class StationDemandWindowTest {
+
+    @Test
+    @DisplayName("minutes - Should aggregate requests, matches, unmatched and average wait per minute")
+    void minutes_AggregatesPerMinute() {
+        StationDemandWindow window = new StationDemandWindow(5);
+        window.recordRequest(100L);
+        window.recordRequest(100L);
+        window.recordRequest(100L);
+        window.recordMatch(100L, 1_000L);
+        window.recordMatch(100L, 3_000L);
+        window.recordRequest(102L);
+
+        List<StationDemandMinute> minutes = window.minutes(102L);
+
+        assertThat(minutes).extracting(StationDemandMinute::getEpochMinute).containsExactly(100L, 102L);
+        assertThat(minutes.get(0).getRequests()).isEqualTo(3L);
+        assertThat(minutes.get(0).getMatches()).isEqualTo(2L);
+        assertThat(minutes.get(0).getUnmatched()).isEqualTo(1L);
+        assertThat(minutes.get(0).getAverageWaitMillis()).isEqualTo(2_000.0);
+        assertThat(minutes.get(1).getUnmatched()).isEqualTo(1L);
+    }
+
+    @Test
+    @DisplayName("minutes - Should drop minutes that slid out of the window and reuse their slots")
+    void minutes_SlidesWindow() {
+        StationDemandWindow window = new StationDemandWindow(5);
+        window.recordRequest(100L);
+        window.recordRequest(105L);
+
+        assertThat(window.minutes(105L)).extracting(StationDemandMinute::getEpochMinute).containsExactly(105L);
+        assertThat(window.minutes(105L).get(0).getRequests()).isEqualTo(1L);
+    }
+
+    @Test
+    @DisplayName("recordMatch - Should ignore events older than the window and unknown waits")
+    void recordMatch_IgnoresStaleEvents() {
+        StationDemandWindow window = new StationDemandWindow(5);
+        window.recordRequest(110L);
+        window.recordMatch(105L, 1_000L);
+        window.recordMatch(110L, -1L);
+
+        List<StationDemandMinute> minutes = window.minutes(110L);
+        assertThat(minutes).hasSize(1);
+        assertThat(minutes.get(0).getMatches()).isEqualTo(1L);
+        assertThat(minutes.get(0).getAverageWaitMillis()).isEqualTo(0.0);
+    }
+}
@@ -0,0 +1,71 @@
+package com.metrocarpool.matching.graph;
+
+import com.metrocarpool.contracts.proto.SegmentTravelTimeSnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("SegmentTravelTimes Unit Tests")
+class SegmentTravelTimesTest {
+
+    @Mock
+    private RedisTemplate<String, String> redisStringTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    private SegmentTravelTimes segmentTravelTimes;
+
+    @BeforeEach
+    void setUp() {
+        segmentTravelTimes = new SegmentTravelTimes(redisStringTemplate);
+        when(redisStringTemplate.opsForValue()).thenReturn(valueOperations);
+    }
+
+    private static String encode(long version) {
+        SegmentTravelTimeSnapshot snapshot = SegmentTravelTimeSnapshot.newBuilder()
+                .setVersion(version)
+                .addNodes("A").addNodes("B")
+                .addFrom(0).addTo(1).addSeconds(300f)
+                .setDefaultSecondsPerUnit(10.0)
+                .build();
+        return Base64.getEncoder().encodeToString(snapshot.toByteArray());
+    }
+
+    @Test
+    @DisplayName("seconds - Should use the default pace until a snapshot is loaded")
+    void seconds_DefaultBeforeLoad() {
+        when(valueOperations.get("segment-travel-times:version")).thenReturn(null);
+
+        segmentTravelTimes.refresh();
+
+        assertThat(segmentTravelTimes.seconds("A", "B", 5.0)).isEqualTo(60.0);
+    }
+
+    @Test
+    @DisplayName("refresh - Should load learned edges and only download again when the version changes")
+    void refresh_LoadsOnVersionChange() {
+        when(valueOperations.get("segment-travel-times:version")).thenReturn("3");
+        when(valueOperations.get("segment-travel-times")).thenReturn(encode(3L));
+
+        segmentTravelTimes.refresh();
+        segmentTravelTimes.refresh();
+
+        assertThat(segmentTravelTimes.version()).isEqualTo(3L);
+        assertThat(segmentTravelTimes.seconds("A", "B", 5.0)).isEqualTo(300.0);
+        // unobserved reverse edge uses the snapshot's pace
+        assertThat(segmentTravelTimes.seconds("B", "A", 5.0)).isEqualTo(50.0);
+        verify(valueOperations, times(1)).get("segment-travel-times");
+    }
+}
@@ -0,0 +1,88 @@
+package com.metrocarpool.matching.graph;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("ShortestPathTable Unit Tests")
+class ShortestPathTableTest {
+
+    /**
+     * A - B - C - D chain with a long direct A - D edge; station ME1 sits next to A.
+     */
+    private static Map<String, Map<String, Double>> buildEdges() {
+        Map<String, Map<String, Double>> edges = new HashMap<>();
+        edges.put("A", new HashMap<>(Map.of("B", 1.0, "D", 20.0)));
+        edges.put("B", new HashMap<>(Map.of("C", 1.0)));
+        edges.put("C", new HashMap<>(Map.of("D", 1.0)));
+        return edges;
+    }
+
+    @Test
+    @DisplayName("build - Should replace direct edges with shorter multi-hop paths")
+    void build_ComputesShortestPaths() {
+        ShortestPathTable.Snapshot snapshot = ShortestPathTable.build(buildEdges(), Map.of("A", "ME1"));
+
+        assertThat(snapshot.size()).isEqualTo(4);
+        assertThat(snapshot.distance("A", "D")).isEqualTo(3.0);
+        assertThat(snapshot.distance("D", "A")).isEqualTo(3.0);
+        assertThat(snapshot.distance("B", "B")).isEqualTo(0.0);
+        assertThat(snapshot.footprintBytes()).isEqualTo(16L * Double.BYTES + 16L * Integer.BYTES);
+    }
+
+    @Test
+    @DisplayName("detour - Should be zero when the rider destination lies on the driver's path")
+    void detour_ZeroWhenOnPath() {
+        ShortestPathTable.Snapshot snapshot = ShortestPathTable.build(buildEdges(), Map.of("A", "ME1"));
+
+        // ME1(A) -> C -> D is the same length as ME1(A) -> D
+        assertThat(snapshot.detour("ME1", "C", "D")).isEqualTo(0.0);
+    }
+
+    @Test
+    @DisplayName("detour - Should count the extra distance of going out of the way")
+    void detour_CountsBacktracking() {
+        ShortestPathTable.Snapshot snapshot = ShortestPathTable.build(buildEdges(), Map.of("A", "ME1"));
+
+        // ME1(A) -> D -> B = 3 + 2, against ME1(A) -> B = 1
+        assertThat(snapshot.detour("ME1", "D", "B")).isEqualTo(4.0);
+    }
+
+    @Test
+    @DisplayName("detour - Should fall back to destination distance for unknown stations and infinity for unknown places")
+    void detour_Fallbacks() {
+        ShortestPathTable.Snapshot snapshot = ShortestPathTable.build(buildEdges(), Map.of());
+
+        assertThat(snapshot.detour("ME9", "B", "D")).isEqualTo(2.0);
+        assertThat(snapshot.detour("ME9", "Z", "D")).isEqualTo(Double.POSITIVE_INFINITY);
+    }
+
+    @Test
+    @DisplayName("detourTime - Should time each leg hop by hop along the shortest-distance path")
+    void detourTime_UsesEdgeTimesAlongPath() {
+        ShortestPathTable.Snapshot snapshot = ShortestPathTable.build(buildEdges(), Map.of("A", "ME1"));
+        // B -> C is congested: 100s instead of 12s per unit
+        ShortestPathTable.EdgeTimes times = (from, to, distance) ->
+                ("B".equals(from) && "C".equals(to)) ? 100.0 : distance * 12.0;
+
+        // ME1(A) -> B -> C -> D takes 12 + 100 + 12
+        assertThat(snapshot.pathTime(0, 3, times)).isEqualTo(124.0);
+        // ME1(A) -> D -> B = 124 + (D -> C -> B = 24), against ME1(A) -> B = 12
+        assertThat(snapshot.detourTime("ME1", "D", "B", times)).isEqualTo(136.0);
+    }
+
+    @Test
+    @DisplayName("stationsWithin - Should list other stations inside the radius, nearest first")
+    void stationsWithin_NearestFirst() {
+        ShortestPathTable.Snapshot snapshot = ShortestPathTable.build(buildEdges(),
+                Map.of("A", "ME1", "B", "ME2", "C", "ME3", "D", "ME4"));
+
+        assertThat(snapshot.stationsWithin("ME1", 2.0)).containsExactly("ME2", "ME3");
+        assertThat(snapshot.stationsWithin("ME1", 0.0)).isEmpty();
+        assertThat(snapshot.stationsWithin("ME9", 5.0)).isEmpty();
+    }
+}
@@ -0,0 +1,207 @@
+package com.metrocarpool.matching.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.util.Timestamps;
+import com.metrocarpool.contracts.proto.DriverRiderMatchEvent;
+import com.metrocarpool.contracts.proto.RiderRequestDriverEvent;
+import com.metrocarpool.matching.cache.MatchingDriverCache;
+import com.metrocarpool.matching.graph.SegmentTravelTimes;
+import com.metrocarpool.matching.graph.ShortestPathTable;
+import com.metrocarpool.matching.redislock.RedisDistributedLock;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("MatchingService Pick-Up Station Unit Tests")
+class MatchingServicePickUpStationUnitTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+    private static final String MATCHING_TOPIC = "rider-driver-match-test";
+
+    @Mock
+    private KafkaTemplate<String, byte[]> kafkaTemplate;
+
+    @Mock
+    private RedisTemplate<String, Object> redisDriverTemplate;
+
+    @Mock
+    private RedisTemplate<String, Object> redisWaitingQueueTemplate;
+
+    @Mock
+    private RedisTemplate<String, Object> redisDistancesHashMap;
+
+    @Mock
+    private ValueOperations<String, Object> driverCacheOperations;
+
+    @Mock
+    private ValueOperations<String, Object> distanceOperations;
+
+    @Mock
+    private RedisDistributedLock redisDistributedLock;
+
+    @Mock
+    private RedisTemplate<String, String> redisStringTemplate;
+
+    @Mock
+    private ValueOperations<String, String> stringValueOperations;
+
+    @Mock
+    private ShortestPathTable shortestPathTable;
+
+    @Mock
+    private SegmentTravelTimes segmentTravelTimes;
+
+    @Mock
+    private RiderWaitingQueuePolicy riderWaitingQueuePolicy;
+
+    @Mock
+    private Acknowledgment acknowledgment;
+
+    private MatchingService matchingService;
+
+    @BeforeEach
+    void setUp() {
+        matchingService = new MatchingService(
+                kafkaTemplate,
+                redisDriverTemplate,
+                redisWaitingQueueTemplate,
+                redisDistancesHashMap,
+                redisDistributedLock,
+                redisStringTemplate,
+                new ObjectMapper(),
+                shortestPathTable,
+                segmentTravelTimes,
+                new SimpleMeterRegistry(),
+                riderWaitingQueuePolicy,
+                Clock.fixed(Instant.ofEpochMilli(NOW), ZoneOffset.UTC)
+        );
+        ReflectionTestUtils.setField(matchingService, "MATCHING_TOPIC", MATCHING_TOPIC);
+
+        when(redisDistributedLock.acquireLock(anyString(), anyLong())).thenReturn("lock-value");
+        when(redisStringTemplate.opsForValue()).thenReturn(stringValueOperations);
+        when(redisDriverTemplate.opsForValue()).thenReturn(driverCacheOperations);
+        when(redisDistancesHashMap.opsForValue()).thenReturn(distanceOperations);
+        when(shortestPathTable.isLoaded()).thenReturn(true);
+        when(kafkaTemplate.send(eq(MATCHING_TOPIC), anyString(), any(byte[].class)))
+                .thenReturn(new CompletableFuture<>());
+    }
+
+    @Test
+    @DisplayName("riderInfoDriverMatchingAlgorithm - Should prefer the requested station over a closer alternate")
+    void riderInfoDriverMatchingAlgorithm_PreferredStationWins() throws Exception {
+        // Given: driver 1 at the requested station detours 3 units and arrives in 8 minutes;
+        // driver 2 at the alternate heads straight to the rider's destination and arrives in 1 minute
+        when(shortestPathTable.detour("ME1", "DEST", "OTHER")).thenReturn(3.0);
+        when(shortestPathTable.detourTime(eq("ME1"), eq("DEST"), eq("OTHER"), any())).thenReturn(180.0);
+        HashMap<String, HashMap<String, List<MatchingDriverCache>>> cache = new HashMap<>();
+        addDriver(cache, "ME1", "OTHER", 1L, Duration.ofMinutes(8));
+        addDriver(cache, "ME2", "DEST", 2L, Duration.ofMinutes(1));
+        when(driverCacheOperations.get(anyString())).thenReturn(cache);
+
+        // When
+        matchingService.riderInfoDriverMatchingAlgorithm(request(List.of("ME2"), 0.0), acknowledgment);
+
+        // Then
+        DriverRiderMatchEvent match = publishedMatch();
+        assertThat(match.getDriverId()).isEqualTo(1L);
+        assertThat(match.getPickUpStation()).isEqualTo("ME1");
+    }
+
+    @Test
+    @DisplayName("riderInfoDriverMatchingAlgorithm - Should match at a station inside the walking radius")
+    void riderInfoDriverMatchingAlgorithm_MatchesInsideWalkingRadius() throws Exception {
+        // Given: nobody stops at the requested station, but ME3 is within walking distance of it
+        when(shortestPathTable.stationsWithin("ME1", 2.0)).thenReturn(List.of("ME3"));
+        HashMap<String, HashMap<String, List<MatchingDriverCache>>> cache = new HashMap<>();
+        addDriver(cache, "ME3", "DEST", 3L, Duration.ofMinutes(2));
+        addDriver(cache, "ME4", "DEST", 4L, Duration.ofMinutes(1));
+        when(driverCacheOperations.get(anyString())).thenReturn(cache);
+
+        // When
+        matchingService.riderInfoDriverMatchingAlgorithm(request(List.of(), 2.0), acknowledgment);
+
+        // Then
+        DriverRiderMatchEvent match = publishedMatch();
+        assertThat(match.getDriverId()).isEqualTo(3L);
+        assertThat(match.getPickUpStation()).isEqualTo("ME3");
+        assertThat(match.getDriverArrivalTime()).isEqualTo(Timestamps.fromMillis(NOW + 120_000L));
+    }
+
+    @Test
+    @DisplayName("riderInfoDriverMatchingAlgorithm - Should remove a driver matched at an alternate from that station only")
+    @SuppressWarnings("unchecked")
+    void riderInfoDriverMatchingAlgorithm_RemovesDriverAtAlternate() throws Exception {
+        // Given
+        HashMap<String, HashMap<String, List<MatchingDriverCache>>> cache = new HashMap<>();
+        addDriver(cache, "ME1", "ELSEWHERE", 1L, Duration.ofMinutes(2));
+        addDriver(cache, "ME2", "DEST", 2L, Duration.ofMinutes(2));
+        addDriver(cache, "ME2", "DEST", 5L, Duration.ofMinutes(30));
+        when(shortestPathTable.detour("ME1", "DEST", "ELSEWHERE")).thenReturn(50.0);
+        when(driverCacheOperations.get(anyString())).thenReturn(cache);
+
+        // When
+        matchingService.riderInfoDriverMatchingAlgorithm(request(List.of("ME2"), 0.0), acknowledgment);
+
+        // Then
+        assertThat(publishedMatch().getPickUpStation()).isEqualTo("ME2");
+        ArgumentCaptor<Object> saved = ArgumentCaptor.forClass(Object.class);
+        verify(driverCacheOperations).set(eq("driver-cache"), saved.capture());
+        HashMap<String, HashMap<String, List<MatchingDriverCache>>> after =
+                (HashMap<String, HashMap<String, List<MatchingDriverCache>>>) saved.getValue();
+        assertThat(after.get("ME2").get("DEST")).extracting(MatchingDriverCache::getDriverId).containsExactly(5L);
+        assertThat(after.get("ME1").get("ELSEWHERE")).extracting(MatchingDriverCache::getDriverId).containsExactly(1L);
+    }
+
+    // Helper methods
+    private static void addDriver(HashMap<String, HashMap<String, List<MatchingDriverCache>>> cache,
+                                  String station, String destination, long driverId, Duration timeToReachStation) {
+        cache.computeIfAbsent(station, s -> new HashMap<>())
+                .computeIfAbsent(destination, d -> new ArrayList<>())
+                .add(MatchingDriverCache.builder()
+                        .driverId(driverId)
+                        .timeToReachStation(timeToReachStation)
+                        .availableSeats(2)
+                        .build());
+    }
+
+    private static byte[] request(List<String> alternates, double walkingRadius) {
+        return RiderRequestDriverEvent.newBuilder()
+                .setMessageId("request-1")
+                .setRiderId(7L)
+                .setPickUpStation("ME1")
+                .addAllAlternatePickUpStations(alternates)
+                .setWalkingRadius(walkingRadius)
+                .setDestinationPlace("DEST")
+                .setArrivalTime(Timestamps.fromMillis(NOW))
+                .build()
+                .toByteArray();
+    }
+
+    private DriverRiderMatchEvent publishedMatch() throws Exception {
+        ArgumentCaptor<byte[]> payload = ArgumentCaptor.forClass(byte[].class);
+        verify(kafkaTemplate).send(eq(MATCHING_TOPIC), eq("7"), payload.capture());
+        return DriverRiderMatchEvent.parseFrom(payload.getValue());
+    }
+}
@@ -0,0 +1,92 @@
+package com.metrocarpool.matching.service;
+
+import com.metrocarpool.matching.cache.RiderWaitingQueueCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.PriorityQueue;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("RiderWaitingQueuePolicy Unit Tests")
+class RiderWaitingQueuePolicyTest {
+
+    private static final long NOW = 1_000_000L;
+
+    private SimpleMeterRegistry meterRegistry;
+    private RiderWaitingQueuePolicy policy;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        policy = new RiderWaitingQueuePolicy(meterRegistry);
+        ReflectionTestUtils.setField(policy, "ageWeight", 1.0);
+        ReflectionTestUtils.setField(policy, "stalenessWeight", 2.0);
+        ReflectionTestUtils.setField(policy, "maxReevaluationIntervalMs", 10_000L);
+        ReflectionTestUtils.setField(policy, "batchSize", 2);
+        policy.registerGauges();
+    }
+
+    private static RiderWaitingQueueCache rider(long riderId, long requestTime, long lastEvaluatedAt) {
+        return RiderWaitingQueueCache.builder()
+                .riderId(riderId)
+                .requestTime(requestTime)
+                .lastEvaluatedAt(lastEvaluatedAt)
+                .build();
+    }
+
+    @Test
+    @DisplayName("BY_REQUEST_TIME - Should order the queue by original request time")
+    void byRequestTime_OrdersOldestFirst() {
+        PriorityQueue<RiderWaitingQueueCache> queue = new PriorityQueue<>(RiderWaitingQueuePolicy.BY_REQUEST_TIME);
+        queue.add(rider(1L, NOW - 100, NOW));
+        queue.add(rider(2L, NOW - 300, NOW));
+        queue.add(rider(3L, NOW - 200, NOW));
+
+        assertThat(queue.poll().getRiderId()).isEqualTo(2L);
+        assertThat(queue.poll().getRiderId()).isEqualTo(3L);
+        assertThat(queue.poll().getRiderId()).isEqualTo(1L);
+    }
+
+    @Test
+    @DisplayName("selectBatch - Should cap the batch and prefer the highest priority riders")
+    void selectBatch_PrefersHighestPriority() {
+        List<RiderWaitingQueueCache> batch = policy.selectBatch(List.of(
+                rider(1L, NOW - 1_000, NOW - 500),
+                rider(2L, NOW - 5_000, NOW - 500),
+                rider(3L, NOW - 1_000, NOW - 4_000)), NOW);
+
+        // priorities: 1 -> 2000, 2 -> 6000, 3 -> 9000
+        assertThat(batch).extracting(RiderWaitingQueueCache::getRiderId).containsExactly(3L, 2L);
+    }
+
+    @Test
+    @DisplayName("selectBatch - Should always include riders overdue for re-evaluation, even past the batch size")
+    void selectBatch_IncludesAllOverdueRiders() {
+        List<RiderWaitingQueueCache> batch = policy.selectBatch(List.of(
+                rider(1L, NOW - 60_000, NOW - 1_000),
+                rider(2L, NOW - 20_000, NOW - 10_000),
+                rider(3L, NOW - 30_000, NOW - 15_000),
+                rider(4L, NOW - 12_000, NOW - 11_000)), NOW);
+
+        assertThat(batch).extracting(RiderWaitingQueueCache::getRiderId).containsExactly(3L, 2L, 4L);
+    }
+
+    @Test
+    @DisplayName("recordQueueAges - Should export age percentiles and queue size as gauges")
+    void recordQueueAges_ExportsGauges() {
+        policy.recordQueueAges(List.of(
+                rider(1L, NOW - 1_000, NOW),
+                rider(2L, NOW - 2_000, NOW),
+                rider(3L, NOW - 3_000, NOW),
+                rider(4L, NOW - 4_000, NOW)), NOW);
+
+        assertThat(meterRegistry.get("matching.waiting.size").gauge().value()).isEqualTo(4.0);
+        assertThat(meterRegistry.get("matching.waiting.age").tag("quantile", "p50").gauge().value()).isEqualTo(2_000.0);
+        assertThat(meterRegistry.get("matching.waiting.age").tag("quantile", "max").gauge().value()).isEqualTo(4_000.0);
+    }
+}
@@ -28,7 +28,9 @@ public class RiderGrpcServer extends RiderServiceGrpc.RiderServiceImplBase {
                     request.getRiderId(),
                     request.getPickUpStation(),
                     request.getDestinationPlace(),
-                    request.getArrivalTime()
+                    request.getArrivalTime(),
+                    request.getAlternatePickUpStationsList(),
+                    request.getWalkingRadius()
             );
 
             // ✅ Build the response
@@ -32,6 +32,23 @@ public class RiderService {
      */
     public boolean processRiderInfo(Long riderId, String pickUpStation,
                                     String destinationPlace, com.google.protobuf.Timestamp arrivalTime) {
+        return processRiderInfo(riderId, pickUpStation, destinationPlace, arrivalTime, List.of(), 0.0);
+    }
+
+    /**
+     * Process the rider info with a ranked set of acceptable pickup stations and publish it as an event to Kafka
+     *
+     * @param riderId                 Unique ID of the rider
+     * @param pickUpStation           preferred pick up metro station of the rider
+     * @param destinationPlace        destination of the rider
+     * @param arrivalTime             arrival time of the rider at the pick up metro station
+     * @param alternatePickUpStations further acceptable pick up stations, most preferred first
+     * @param walkingRadius           walking radius around pickUpStation (0 to disable)
+     * @return true if published successfully, false otherwise
+     */
+    public boolean processRiderInfo(Long riderId, String pickUpStation,
+                                    String destinationPlace, com.google.protobuf.Timestamp arrivalTime,
+                                    List<String> alternatePickUpStations, double walkingRadius) {
         try {
             log.info("Reached RiderService.processRiderInfo.");
 
@@ -42,6 +59,8 @@ public class RiderService {
                     .setPickUpStation(pickUpStation)
                     .setArrivalTime(arrivalTime)
                     .setDestinationPlace(destinationPlace)
+                    .addAllAlternatePickUpStations(alternatePickUpStations == null ? List.of() : alternatePickUpStations)
+                    .setWalkingRadius(Math.max(0.0, walkingRadius))
                     .build();
 
             CompletableFuture<SendResult<String, byte[]>> future = kafkaTemplate.send(RIDER_TOPIC, riderId.toString(),
@@ -14,6 +14,8 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.List;
+
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -46,14 +48,14 @@ class RiderGrpcServerUnitTest {
         
         PostRider request = TestDataBuilder.buildPostRiderRequest(riderId, pickUpStation, destinationPlace, arrivalTime);
         
-        when(riderService.processRiderInfo(riderId, pickUpStation, destinationPlace, arrivalTime))
+        when(riderService.processRiderInfo(riderId, pickUpStation, destinationPlace, arrivalTime, List.of(), 0.0))
                 .thenReturn(true);
 
         // When
         riderGrpcServer.postRiderInfo(request, responseObserver);
 
         // Then
-        verify(riderService).processRiderInfo(riderId, pickUpStation, destinationPlace, arrivalTime);
+        verify(riderService).processRiderInfo(riderId, pickUpStation, destinationPlace, arrivalTime, List.of(), 0.0);
         verify(responseObserver).onNext(any(RiderStatusResponse.class));
         verify(responseObserver).onCompleted();
         verify(responseObserver, never()).onError(any());
@@ -64,7 +66,7 @@ class RiderGrpcServerUnitTest {
     void postRiderInfo_ReturnsSuccessStatus() {
         // Given
         PostRider request = TestDataBuilder.buildPostRiderRequest(1L, "StationA", "LocationC", TestDataBuilder.buildTimestamp());
-        when(riderService.processRiderInfo(anyLong(), anyString(), anyString(), any(Timestamp.class)))
+        when(riderService.processRiderInfo(anyLong(), anyString(), anyString(), any(Timestamp.class), anyList(), anyDouble()))
                 .thenReturn(true);
 
         ArgumentCaptor<RiderStatusResponse> responseCaptor = ArgumentCaptor.forClass(RiderStatusResponse.class);
@@ -83,7 +85,7 @@ class RiderGrpcServerUnitTest {
     void postRiderInfo_ReturnsFailureStatus() {
         // Given
         PostRider request = TestDataBuilder.buildPostRiderRequest(1L, "StationA", "LocationC", TestDataBuilder.buildTimestamp());
-        when(riderService.processRiderInfo(anyLong(), anyString(), anyString(), any(Timestamp.class)))
+        when(riderService.processRiderInfo(anyLong(), anyString(), anyString(), any(Timestamp.class), anyList(), anyDouble()))
                 .thenReturn(false);
 
         ArgumentCaptor<RiderStatusResponse> responseCaptor = ArgumentCaptor.forClass(RiderStatusResponse.class);
@@ -103,7 +105,7 @@ class RiderGrpcServerUnitTest {
         // Given
         PostRider request = TestDataBuilder.buildPostRiderRequest(1L, "StationA", "LocationC", TestDataBuilder.buildTimestamp());
         RuntimeException exception = new RuntimeException("Service error");
-        when(riderService.processRiderInfo(anyLong(), anyString(), anyString(), any(Timestamp.class)))
+        when(riderService.processRiderInfo(anyLong(), anyString(), anyString(), any(Timestamp.class), anyList(), anyDouble()))
                 .thenThrow(exception);
 
         // When
@@ -125,7 +127,7 @@ class RiderGrpcServerUnitTest {
         Timestamp arrivalTime = TestDataBuilder.buildTimestamp();
         
         PostRider request = TestDataBuilder.buildPostRiderRequest(riderId, pickUpStation, destinationPlace, arrivalTime);
-        when(riderService.processRiderInfo(anyLong(), anyString(), anyString(), any(Timestamp.class)))
+        when(riderService.processRiderInfo(anyLong(), anyString(), anyString(), any(Timestamp.class), anyList(), anyDouble()))
                 .thenReturn(true);
 
         // When
@@ -136,7 +138,9 @@ class RiderGrpcServerUnitTest {
                 eq(riderId),
                 eq(pickUpStation),
                 eq(destinationPlace),
-                eq(arrivalTime)
+                eq(arrivalTime),
+                eq(List.of()),
+                eq(0.0)
         );
     }
 
@@ -145,7 +149,7 @@ class RiderGrpcServerUnitTest {
     void postRiderInfo_CompletesResponseObserver() {
         // Given
         PostRider request = TestDataBuilder.buildPostRiderRequest(1L, "StationA", "LocationC", TestDataBuilder.buildTimestamp());
-        when(riderService.processRiderInfo(anyLong(), anyString(), anyString(), any(Timestamp.class)))
+        when(riderService.processRiderInfo(anyLong(), anyString(), anyString(), any(Timestamp.class), anyList(), anyDouble()))
                 .thenReturn(true);
 
         // When
@@ -162,7 +166,7 @@ class RiderGrpcServerUnitTest {
         PostRider request1 = TestDataBuilder.buildPostRiderRequest(1L, "StationA", "LocationC", TestDataBuilder.buildTimestamp());
         PostRider request2 = TestDataBuilder.buildPostRiderRequest(2L, "StationB", "LocationD", TestDataBuilder.buildTimestamp());
         
-        when(riderService.processRiderInfo(anyLong(), anyString(), anyString(), any(Timestamp.class)))
+        when(riderService.processRiderInfo(anyLong(), anyString(), anyString(), any(Timestamp.class), anyList(), anyDouble()))
                 .thenReturn(true);
 
         // When
@@ -170,7 +174,7 @@ class RiderGrpcServerUnitTest {
         riderGrpcServer.postRiderInfo(request2, responseObserver);
 
         // Then
-        verify(riderService, times(2)).processRiderInfo(anyLong(), anyString(), anyString(), any(Timestamp.class));
+        verify(riderService, times(2)).processRiderInfo(anyLong(), anyString(), anyString(), any(Timestamp.class), anyList(), anyDouble());
         verify(responseObserver, times(2)).onNext(any(RiderStatusResponse.class));
         verify(responseObserver, times(2)).onCompleted();
     }
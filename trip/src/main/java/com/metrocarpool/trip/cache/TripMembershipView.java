@@ -0,0 +1,171 @@
+package com.metrocarpool.trip.cache;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.metrocarpool.contracts.proto.DriverRideCompletionEvent;
+import com.metrocarpool.contracts.proto.DriverRiderMatchEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process driver to riders view for the location fan-out, read without Redis or locks.
+ * <p>
+ * Every instance follows the match and completion topics in consumer groups of its own, named after
+ * trip.view.instance-id, so the view covers all drivers whichever partitions the instance handles. The groups
+ * are stable across restarts but always start at the end of the topics: an empty view must not replay old
+ * matches and completions. A driver first asked
+ * about is loaded once from {@link TripStateStore} (cold start); from then on the events keep it current.
+ * A match for a driver not loaded yet is kept as a partial entry and merged with Redis on its first read,
+ * so it does not matter whether the view or TripService sees the match first.
+ * A loaded entry is trusted for trip.state.ttl-hours, as long as its Redis list lives, and then read from
+ * Redis again, so a lost completion event cannot keep finished riders in the view.
+ * <p>
+ * Entries are immutable and replaced whole with compute, so readers never see a half-applied event.
+ */
+@Component
+@Slf4j
+public class TripMembershipView implements ConsumerSeekAware {
+
+    // riders: immutable; complete: false while the entry only holds matches seen before its Redis load;
+    // loadedAt: when the entry was last known to agree with Redis (load or completion)
+    private record Entry(List<TripCache> riders, boolean complete, long loadedAt) {}
+
+    private final TripStateStore tripStateStore;
+    private final boolean enabled;
+    private final int maxDrivers;
+    private final long ttlMillis;
+    private final Clock clock;
+    private final Map<Long, Entry> drivers = new ConcurrentHashMap<>();
+    private final Counter hitCounter;
+    private final Counter loadCounter;
+
+    @Autowired
+    public TripMembershipView(TripStateStore tripStateStore,
+                              @Value("${trip.view.enabled:true}") boolean enabled,
+                              @Value("${trip.view.max-drivers:1000000}") int maxDrivers,
+                              @Value("${trip.state.ttl-hours:24}") long ttlHours,
+                              MeterRegistry meterRegistry) {
+        this(tripStateStore, enabled, maxDrivers, Duration.ofHours(ttlHours), Clock.systemUTC(), meterRegistry);
+    }
+
+    TripMembershipView(TripStateStore tripStateStore, boolean enabled, int maxDrivers, Duration ttl, Clock clock,
+                       MeterRegistry meterRegistry) {
+        this.tripStateStore = tripStateStore;
+        this.enabled = enabled;
+        this.maxDrivers = maxDrivers;
+        this.ttlMillis = ttl.toMillis();
+        this.clock = clock;
+        this.hitCounter = Counter.builder("trip.view.lookups")
+                .tag("outcome", "hit")
+                .description("Rider lookups answered from the in-process view")
+                .register(meterRegistry);
+        this.loadCounter = Counter.builder("trip.view.lookups")
+                .tag("outcome", "redis")
+                .description("Rider lookups that loaded the driver from Redis")
+                .register(meterRegistry);
+        meterRegistry.gaugeMapSize("trip.view.drivers", List.of(), drivers);
+    }
+
+    /**
+     * Riders travelling with the driver, in match order; empty if none.
+     */
+    public List<TripCache> riders(Long driverId) {
+        if (!enabled) return tripStateStore.riders(driverId);
+        long now = clock.millis();
+        Entry entry = drivers.get(driverId);
+        if (isFresh(entry, now)) {
+            hitCounter.increment();
+            return entry.riders();
+        }
+        loadCounter.increment();
+        List<TripCache> stored = tripStateStore.riders(driverId);
+        // an expired entry is replaced by Redis alone; a partial one is merged with it
+        Entry loaded = drivers.compute(driverId, (id, current) -> isFresh(current, now) ? current
+                : new Entry(merge(stored, current != null && current.complete() ? null : current), true, now));
+        trim();
+        return loaded.riders();
+    }
+
+    @KafkaListener(topics = "${kafka.topics.rider-driver-match}",
+            groupId = "${spring.kafka.consumer.group-id}-view-match-${trip.view.instance-id:local}",
+            properties = "auto.offset.reset=latest",
+            autoStartup = "#{!${trip.streams.enabled:false}}")
+    public void onMatch(byte[] message, Acknowledgment acknowledgment) {
+        try {
+            if (!enabled) return;
+            DriverRiderMatchEvent event = DriverRiderMatchEvent.parseFrom(message);
+            TripCache rider = TripCache.builder()
+                    .riderId(event.getRiderId())
+                    .pickUpStation(event.getPickUpStation())
+                    .build();
+            drivers.compute(event.getDriverId(), (id, current) -> current == null
+                    ? new Entry(List.of(rider), false, 0L)
+                    : new Entry(merge(List.of(rider), current), current.complete(), current.loadedAt()));
+        } catch (InvalidProtocolBufferException e) {
+            log.error("TripMembershipView: failed to parse DriverRiderMatchEvent", e);
+        } finally {
+            acknowledgment.acknowledge();
+        }
+    }
+
+    @KafkaListener(topics = "${kafka.topics.ride-completion-topic}",
+            groupId = "${spring.kafka.consumer.group-id}-view-completion-${trip.view.instance-id:local}",
+            properties = "auto.offset.reset=latest",
+            autoStartup = "#{!${trip.streams.enabled:false}}")
+    public void onTripCompleted(byte[] message, Acknowledgment acknowledgment) {
+        try {
+            if (!enabled) return;
+            drivers.put(DriverRideCompletionEvent.parseFrom(message).getDriverId(),
+                    new Entry(List.of(), true, clock.millis()));
+        } catch (InvalidProtocolBufferException e) {
+            log.error("TripMembershipView: failed to parse DriverRideCompletionEvent", e);
+        } finally {
+            acknowledgment.acknowledge();
+        }
+    }
+
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        callback.seekToEnd(assignments.keySet());
+    }
+
+    public int size() {
+        return drivers.size();
+    }
+
+    private boolean isFresh(Entry entry, long now) {
+        return entry != null && entry.complete() && now - entry.loadedAt() < ttlMillis;
+    }
+
+    // riders of current first, then those of extra not already in it
+    private static List<TripCache> merge(List<TripCache> extra, Entry current) {
+        if (current == null || current.riders().isEmpty()) return List.copyOf(extra);
+        List<TripCache> merged = new ArrayList<>(current.riders());
+        for (TripCache rider : extra) {
+            if (merged.stream().noneMatch(r -> r.getRiderId().equals(rider.getRiderId()))) merged.add(rider);
+        }
+        return List.copyOf(merged);
+    }
+
+    // past max-drivers start over; drivers reload from Redis as they are asked about
+    private void trim() {
+        if (drivers.size() > maxDrivers) {
+            log.warn("TripMembershipView: {} drivers over the limit of {}; clearing the view.", drivers.size(), maxDrivers);
+            drivers.clear();
+        }
+    }
+}
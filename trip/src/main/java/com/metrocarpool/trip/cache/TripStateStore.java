@@ -0,0 +1,139 @@
+package com.metrocarpool.trip.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Trip membership per driver in the Redis list "trip:driver:&lt;driverId&gt;" (one TripCache JSON per rider).
+ * A match appends with RPUSH, a location update reads with LRANGE and a completed trip takes and deletes the
+ * list in one script, so no handler needs a lock or touches another driver's riders.
+ * Lists expire after trip.state.ttl-hours in case a completion event never arrives.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class TripStateStore {
+
+    public static final String DRIVER_TRIP_KEY_PREFIX = "trip:driver:";
+
+    // Read and delete a driver's riders atomically, so a completion sees every rider added before it
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> TAKE_RIDERS_SCRIPT = new DefaultRedisScript<>("""
+            local riders = redis.call('LRANGE', KEYS[1], 0, -1)
+            redis.call('DEL', KEYS[1])
+            return riders
+            """, List.class);
+    // Single-blob layout used before per-driver lists
+    static final String LEGACY_TRIP_CACHE_KEY = "trip-cache";
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final RedisTemplate<String, String> redisStringTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${trip.state.ttl-hours:24}")
+    private long ttlHours;
+
+    static String key(Long driverId) {
+        return DRIVER_TRIP_KEY_PREFIX + driverId;
+    }
+
+    public void addRider(Long driverId, TripCache tripCache) {
+        String key = key(driverId);
+        redisStringTemplate.opsForList().rightPush(key, encode(tripCache));
+        redisStringTemplate.expire(key, ttlHours, TimeUnit.HOURS);
+    }
+
+    /**
+     * Riders currently travelling with the driver, in match order; empty if none.
+     */
+    public List<TripCache> riders(Long driverId) {
+        return decodeAll(driverId, redisStringTemplate.opsForList().range(key(driverId), 0, -1));
+    }
+
+    /**
+     * Remove the driver's trip and return its riders; empty if the driver had none.
+     */
+    @SuppressWarnings("unchecked")
+    public List<TripCache> takeRiders(Long driverId) {
+        List<String> raw = redisStringTemplate.execute(TAKE_RIDERS_SCRIPT, List.of(key(driverId)));
+        return decodeAll(driverId, raw);
+    }
+
+    /**
+     * One-time move from the "trip-cache" blob to per-driver lists. GETDEL hands the blob to a single instance.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateLegacyBlob() {
+        try {
+            Object raw = redisTemplate.opsForValue().getAndDelete(LEGACY_TRIP_CACHE_KEY);
+            if (!(raw instanceof Map<?, ?> rawMap)) return;
+
+            int riders = 0;
+            for (Map.Entry<?, ?> entry : rawMap.entrySet()) {
+                Long driverId = parseLongKey(entry.getKey());
+                if (driverId == null || !(entry.getValue() instanceof List<?> list)) continue;
+                for (Object val : list) {
+                    TripCache tripCache = null;
+                    if (val instanceof TripCache tc) {
+                        tripCache = tc;
+                    } else if (val instanceof Map) {
+                        try {
+                            tripCache = objectMapper.convertValue(val, TripCache.class);
+                        } catch (IllegalArgumentException ex) {
+                            log.warn("Failed to convert legacy trip cache for driver {}: {}", driverId, ex.getMessage());
+                        }
+                    }
+                    if (tripCache != null) {
+                        addRider(driverId, tripCache);
+                        riders++;
+                    }
+                }
+            }
+            log.info("TripStateStore: migrated {} riders of {} drivers from '{}' to '{}*'.",
+                    riders, rawMap.size(), LEGACY_TRIP_CACHE_KEY, DRIVER_TRIP_KEY_PREFIX);
+        } catch (Exception e) {
+            log.error("TripStateStore: legacy migration failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private String encode(TripCache tripCache) {
+        try {
+            return objectMapper.writeValueAsString(tripCache);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to serialize trip state", e);
+        }
+    }
+
+    private List<TripCache> decodeAll(Long driverId, List<String> raw) {
+        if (raw == null || raw.isEmpty()) return List.of();
+        List<TripCache> riders = new ArrayList<>(raw.size());
+        for (String json : raw) {
+            try {
+                riders.add(objectMapper.readValue(json, TripCache.class));
+            } catch (Exception e) {
+                log.warn("Failed to read trip state for driver {}: {}", driverId, e.getMessage());
+            }
+        }
+        return riders;
+    }
+
+    private static Long parseLongKey(Object key) {
+        if (key instanceof Long l) return l;
+        try {
+            return Long.parseLong(String.valueOf(key));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
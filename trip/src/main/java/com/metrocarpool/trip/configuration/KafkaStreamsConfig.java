@@ -0,0 +1,19 @@
+package com.metrocarpool.trip.configuration;
+
+import com.metrocarpool.trip.streams.TripTopology;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.kstream.KStream;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.annotation.EnableKafkaStreams;
+
+@Configuration
+@EnableKafkaStreams
+public class KafkaStreamsConfig {
+
+    // Started only with trip.streams.enabled (spring.kafka.streams.auto-startup)
+    @Bean
+    public KStream<String, byte[]> tripLocationStream(StreamsBuilder streamsBuilder, TripTopology tripTopology) {
+        return tripTopology.build(streamsBuilder);
+    }
+}
@@ -0,0 +1,213 @@
+package com.metrocarpool.trip.ledger;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append-only history of trips: matches, station milestones of drivers with riders, and completions.
+ * <p>
+ * Callers only enqueue into a bounded buffer (trip.ledger.buffer-capacity) and never wait; when the buffer is
+ * full the entry is dropped and counted (trip.ledger.dropped). One flusher thread writes batches of up to
+ * trip.ledger.batch-size entries, or whatever arrived within trip.ledger.flush-interval-ms of a batch's first
+ * entry, to segment files in trip.ledger.dir and forces each batch to disk. A segment is closed once it
+ * reaches trip.ledger.segment-bytes; every start opens a new one.
+ * <p>
+ * One line per entry, tab-separated: atMillis, kind, driverId, riderIds (comma-separated), station, next
+ * station.
+ */
+@Component
+@Slf4j
+public class TripLedger {
+
+    public enum Kind { MATCH, MILESTONE, COMPLETION }
+
+    record Entry(long atMillis, Kind kind, long driverId, List<Long> riderIds, String station, String nextStation) {}
+
+    private final boolean enabled;
+    private final Path dir;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long segmentBytes;
+    private final BlockingQueue<Entry> buffer;
+    // last milestone per driver, so only station changes are recorded
+    private final Map<Long, String> lastMilestone = new ConcurrentHashMap<>();
+
+    private final Counter droppedCounter;
+    private final Counter writeFailureCounter;
+    private final DistributionSummary flushEntries;
+    private final Timer flushLatency;
+    private final Timer flushLag;
+
+    private volatile boolean running;
+    private Thread flusher;
+    private FileChannel segment;
+    private long segmentSize;
+    private int segmentSeq;
+
+    public TripLedger(@Value("${trip.ledger.enabled:true}") boolean enabled,
+                      @Value("${trip.ledger.dir:/tmp/trip-ledger}") String dir,
+                      @Value("${trip.ledger.buffer-capacity:65536}") int bufferCapacity,
+                      @Value("${trip.ledger.batch-size:1000}") int batchSize,
+                      @Value("${trip.ledger.flush-interval-ms:1000}") long flushIntervalMs,
+                      @Value("${trip.ledger.segment-bytes:67108864}") long segmentBytes,
+                      MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.dir = Path.of(dir);
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalMs = flushIntervalMs;
+        this.segmentBytes = segmentBytes;
+        this.buffer = new ArrayBlockingQueue<>(Math.max(1, bufferCapacity));
+        this.droppedCounter = Counter.builder("trip.ledger.dropped")
+                .description("Ledger entries dropped because the buffer was full")
+                .register(meterRegistry);
+        this.writeFailureCounter = Counter.builder("trip.ledger.write.failures")
+                .description("Ledger entries lost to a failed segment write")
+                .register(meterRegistry);
+        this.flushEntries = DistributionSummary.builder("trip.ledger.flush.entries")
+                .description("Entries written per flush")
+                .register(meterRegistry);
+        this.flushLatency = Timer.builder("trip.ledger.flush.latency")
+                .description("Time to write and force one batch")
+                .register(meterRegistry);
+        this.flushLag = Timer.builder("trip.ledger.flush.lag")
+                .description("Age of a batch's oldest entry when the batch is on disk")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        meterRegistry.gauge("trip.ledger.buffered", buffer, BlockingQueue::size);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) return;
+        running = true;
+        flusher = Thread.ofPlatform().name("trip-ledger-flusher").daemon().start(this::runFlusher);
+    }
+
+    /**
+     * Stop taking entries, write what is buffered and close the segment.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (flusher != null) flusher.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    public void match(long driverId, long riderId, String pickUpStation) {
+        append(new Entry(System.currentTimeMillis(), Kind.MATCH, driverId, List.of(riderId), pickUpStation, ""));
+    }
+
+    /**
+     * A location update of a driver with riders; recorded only when its stations changed since the last one.
+     */
+    public void milestone(long driverId, List<Long> riderIds, String oldStation, String nextStation) {
+        String stations = oldStation + "\t" + nextStation;
+        if (stations.equals(lastMilestone.put(driverId, stations))) return;
+        append(new Entry(System.currentTimeMillis(), Kind.MILESTONE, driverId, riderIds, oldStation, nextStation));
+    }
+
+    public void completion(long driverId, List<Long> riderIds) {
+        lastMilestone.remove(driverId);
+        append(new Entry(System.currentTimeMillis(), Kind.COMPLETION, driverId, riderIds, "", ""));
+    }
+
+    private void append(Entry entry) {
+        if (!enabled) return;
+        if (!buffer.offer(entry)) droppedCounter.increment();
+    }
+
+    private void runFlusher() {
+        List<Entry> batch = new ArrayList<>(batchSize);
+        try {
+            while (running || !buffer.isEmpty()) {
+                Entry first = buffer.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < batchSize) {
+                    buffer.drainTo(batch, batchSize - batch.size());
+                    if (batch.size() >= batchSize || !running) break;
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) break;
+                    Entry next = buffer.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                write(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closeSegment();
+        }
+    }
+
+    private void write(List<Entry> batch) {
+        long start = System.nanoTime();
+        StringBuilder lines = new StringBuilder(batch.size() * 64);
+        for (Entry entry : batch) {
+            lines.append(entry.atMillis()).append('\t')
+                    .append(entry.kind()).append('\t')
+                    .append(entry.driverId()).append('\t');
+            for (int i = 0; i < entry.riderIds().size(); i++) {
+                if (i > 0) lines.append(',');
+                lines.append(entry.riderIds().get(i));
+            }
+            lines.append('\t').append(entry.station()).append('\t').append(entry.nextStation()).append('\n');
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        try {
+            if (segment == null || (segmentSize > 0 && segmentSize + bytes.remaining() > segmentBytes)) rollSegment();
+            while (bytes.hasRemaining()) segmentSize += segment.write(bytes);
+            segment.force(false);
+        } catch (IOException e) {
+            writeFailureCounter.increment(batch.size());
+            log.error("TripLedger: failed to write {} entries: {}", batch.size(), e.getMessage());
+            closeSegment();
+            return;
+        }
+        flushEntries.record(batch.size());
+        flushLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        flushLag.record(Math.max(0L, System.currentTimeMillis() - batch.get(0).atMillis()), TimeUnit.MILLISECONDS);
+    }
+
+    private void rollSegment() throws IOException {
+        closeSegment();
+        Files.createDirectories(dir);
+        Path file = dir.resolve(String.format("trip-ledger-%d-%04d.log", System.currentTimeMillis(), segmentSeq++));
+        segment = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        segmentSize = 0;
+    }
+
+    private void closeSegment() {
+        if (segment == null) return;
+        try {
+            segment.close();
+        } catch (IOException e) {
+            log.warn("TripLedger: failed to close segment: {}", e.getMessage());
+        }
+        segment = null;
+    }
+}
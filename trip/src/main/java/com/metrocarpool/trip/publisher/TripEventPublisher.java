@@ -0,0 +1,93 @@
+package com.metrocarpool.trip.publisher;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The one send path for trip fan-out: all records of one driver event go out back to back and are tracked as
+ * a batch, with one completion instead of a callback per record. Per kind of fan-out ("location",
+ * "completion") it records the records per batch (trip.fanout.records), the time until the whole batch is
+ * acknowledged (trip.fanout.latency) and failed records (trip.fanout.failures).
+ */
+@Component
+@Slf4j
+public class TripEventPublisher {
+
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentHashMap<String, Meters> meters = new ConcurrentHashMap<>();
+
+    private record Meters(DistributionSummary records, Timer latency, Counter failures) {}
+
+    public TripEventPublisher(KafkaTemplate<String, byte[]> kafkaTemplate, MeterRegistry meterRegistry) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Fan-out message id derived from the source event's, so a redelivered source yields the same ids and
+     * consumers drop the repeats.
+     */
+    public static String fanOutMessageId(String sourceMessageId, String target) {
+        if (sourceMessageId == null || sourceMessageId.isEmpty()) return UUID.randomUUID().toString();
+        return sourceMessageId + ":" + target;
+    }
+
+    /**
+     * Send the batch; the returned future completes with the number of failed records once all are settled.
+     */
+    public CompletableFuture<Integer> publish(String kind, List<ProducerRecord<String, byte[]>> records) {
+        if (records.isEmpty()) return CompletableFuture.completedFuture(0);
+        Meters m = meters.computeIfAbsent(kind, this::register);
+        m.records().record(records.size());
+        long start = System.nanoTime();
+        AtomicInteger failed = new AtomicInteger();
+        CompletableFuture<?>[] sends = new CompletableFuture<?>[records.size()];
+        for (int i = 0; i < sends.length; i++) {
+            sends[i] = kafkaTemplate.send(records.get(i)).handle((result, ex) -> {
+                if (ex != null) failed.incrementAndGet();
+                return null;
+            });
+        }
+        return CompletableFuture.allOf(sends).thenApply(ignored -> {
+            m.latency().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            int failures = failed.get();
+            if (failures > 0) {
+                m.failures().increment(failures);
+                log.error("TripEventPublisher: {} of {} {} records failed, first topic {}.",
+                        failures, records.size(), kind, records.get(0).topic());
+            }
+            return failures;
+        });
+    }
+
+    private Meters register(String kind) {
+        return new Meters(
+                DistributionSummary.builder("trip.fanout.records")
+                        .tag("kind", kind)
+                        .description("Records sent per driver event")
+                        .register(meterRegistry),
+                Timer.builder("trip.fanout.latency")
+                        .tag("kind", kind)
+                        .description("Time from the first send of a fan-out until every record is acknowledged")
+                        .publishPercentileHistogram()
+                        .register(meterRegistry),
+                Counter.builder("trip.fanout.failures")
+                        .tag("kind", kind)
+                        .description("Fan-out records the broker did not acknowledge")
+                        .register(meterRegistry));
+    }
+}
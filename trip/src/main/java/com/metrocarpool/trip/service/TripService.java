@@ -2,33 +2,39 @@ package com.metrocarpool.trip.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.metrocarpool.contracts.proto.*;
-import com.metrocarpool.trip.redislock.RedisDistributedLock;
 import lombok.extern.slf4j.Slf4j;
 import com.metrocarpool.trip.cache.TripCache;
+import com.metrocarpool.trip.cache.TripMembershipView;
+import com.metrocarpool.trip.cache.TripStateStore;
+import com.metrocarpool.trip.ledger.TripLedger;
+import com.metrocarpool.trip.publisher.TripEventPublisher;
 import com.google.protobuf.InvalidProtocolBufferException;
 import lombok.RequiredArgsConstructor;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.kafka.annotation.KafkaListener;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 import org.springframework.kafka.support.Acknowledgment;
 
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 /**
- * TripService with safe initialization of caches read from Redis.
- * Only null-checks and initializations were added. Logic unchanged.
+ * Joins matches, driver locations and completions into trips: keeps each driver's riders in
+ * {@link TripStateStore}, fans location and completion events out to the riders through
+ * {@link TripEventPublisher} and records the history in {@link TripLedger}. No locks; duplicate
+ * deliveries are dropped by claiming their message id.
  */
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class TripService {
 
-    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    // Fan-out records of one driver event go out as one batch
+    private final TripEventPublisher tripEventPublisher;
+    // Trip history, written off the listener threads
+    private final TripLedger tripLedger;
     @Value("${kafka.topics.driver-ride-completion}")
     private String DRIVER_RIDE_COMPLETION_TOPIC;
     @Value("${kafka.topics.rider-ride-completion}")
@@ -36,12 +42,10 @@ public class TripService {
     @Value("${kafka.topics.driver-location-rider}")
     private String DRIVER_LOCATION_RIDER;
 
-    private final RedisTemplate<String, Object> redisTemplate;
-    private static final String TRIP_CACHE_KEY = "trip-cache";
-
-    // Redis Distributed Lock
-    private final RedisDistributedLock redisDistributedLock;
-    private static final String redisTripLockKey = "lock:trip";
+    // Riders per driver ("trip:driver:<driverId>"); no lock, each handler touches one driver's list
+    private final TripStateStore tripStateStore;
+    // Read-only copy of the same membership for the location fan-out, kept current from match/completion events
+    private final TripMembershipView tripMembershipView;
 
     // String template + mapper for tolerant reads of plain JSON (no @class)
     private final RedisTemplate<String, String> redisStringTemplate;
@@ -53,83 +57,28 @@ public class TripService {
     private static final String DRIVER_UPDATES_KAFKA_DEDUP_KEY_PREFIX = "driver_updates_processed_kafka_msg:";
 //    private static final String DRIVER_LOCATION_RIDER_KAFKA_DEDUP_KEY_PREFIX = "driver_location_rider_processed_kafka_msg:";
 
-    private boolean alreadyProcessed(String topicDedupKey, String messageId) {
-        if (messageId == null) return false;
-
-        String redisKey = topicDedupKey + messageId;
-
-        return redisStringTemplate.hasKey(redisKey);
-    }
-
-    private void markProcessed(String topicDedupKey, String messageId) {
-        if (messageId == null) return;
-
-        String redisKey = topicDedupKey + messageId;
-
-        // store marker with 24-hour TTL
-        redisStringTemplate.opsForValue().set(redisKey, "1", 24, TimeUnit.HOURS);
-    }
-
-    private String tryAcquireLockWithRetry(String lockKey) {
-        for (int attempt = 1; attempt <= 10; attempt++) {
-            String lockValue = redisDistributedLock.acquireLock(lockKey, 5000);
-            if (lockValue != null) {
-                return lockValue;  // success
-            }
-
-            log.warn("Lock not acquired for key {}. Attempt {}/{}. Retrying in {} ms...",
-                    lockKey, attempt, 10, (long) 200);
-
-            try {
-                Thread.sleep((long) 200);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                return null;
-            }
-        }
-        return null; // all retries failed
-    }
-
     /**
-     * Helper: load trip-cache from Redis, initialize if missing, and persist back.
-     * Ensures top-level map exists.
+     * Claim the message with SET NX (24-hour TTL); false if another delivery already claimed it.
+     * Atomic, so concurrent duplicates are dropped without a lock.
      */
-    @SuppressWarnings("unchecked")
-    private Map<String, List<TripCache>> loadOrInitTripCache() {
-        Map<String, List<TripCache>> allTripCacheData =
-                (Map<String, List<TripCache>>) redisTemplate.opsForValue().get(TRIP_CACHE_KEY);
-
-        if (allTripCacheData == null) {
-            allTripCacheData = new HashMap<>();
-            // persist empty map so key exists in Redis
-            redisTemplate.opsForValue().set(TRIP_CACHE_KEY, allTripCacheData);
-            log.debug("Initialized empty trip-cache in Redis (key={})", TRIP_CACHE_KEY);
-        }
+    private boolean claimMessage(String topicDedupKey, String messageId) {
+        if (messageId == null) return true;
+
+        String redisKey = topicDedupKey + messageId;
 
-        return allTripCacheData;
+        return Boolean.TRUE.equals(redisStringTemplate.opsForValue().setIfAbsent(redisKey, "1", 24, TimeUnit.HOURS));
     }
 
-    @KafkaListener(topics = "${kafka.topics.rider-driver-match}", groupId = "${spring.kafka.consumer.group-id}")
+    @KafkaListener(topics = "${kafka.topics.rider-driver-match}", groupId = "${spring.kafka.consumer.group-id}",
+            autoStartup = "#{!${trip.streams.enabled:false}}")
     public void matchFound(byte[] message, Acknowledgment acknowledgment) {
-        // Try to acquire lock
-        String lockValue = tryAcquireLockWithRetry(redisTripLockKey);
-        if (lockValue == null) {
-            log.error("Unable to acquire lock with retry policy: {} lock key {} timeout milliseconds {} maximum retries {} back off milliseconds. " +
-                    "Returning void.", redisTripLockKey, 5000, 10, 200);
-            return;
-        } else {
-            log.info("Acquired lock with retry policy: {} lock key {} timeout milliseconds {} maximum retries {} back off milliseconds. " +
-                    "Returning void.", redisTripLockKey, 5000, 10, 200);
-        }
-
-        // Acknowledge that the message has been received
         try{
             log.info("Reached TripService.matchFound.");
 
             DriverRiderMatchEvent tempEvent = DriverRiderMatchEvent.parseFrom(message);
             String messageId = tempEvent.getMessageId();
 
-            if (alreadyProcessed(RIDER_DRIVER_MATCH_KAFKA_DEDUP_KEY_PREFIX,  messageId)) {
+            if (!claimMessage(RIDER_DRIVER_MATCH_KAFKA_DEDUP_KEY_PREFIX,  messageId)) {
                 log.info("TripService.matchFound: Duplicate Kafka message detected. Skipping. messageId={}",
                         messageId);
                 acknowledgment.acknowledge();
@@ -141,55 +90,32 @@ public class TripService {
             String pickUpStation = tempEvent.getPickUpStation();
 
             // Acknowledge manually
-            markProcessed(RIDER_DRIVER_MATCH_KAFKA_DEDUP_KEY_PREFIX, messageId);
             acknowledgment.acknowledge();
 
-            // Update the cache => push this pair {riderId, pickUpStation} in the list associated with key == driverId
-            Map<String, List<TripCache>> allTripCacheData = loadOrInitTripCache();
-
-            // Ensure list exists for driverId
-            List<TripCache> driverList = allTripCacheData.get(String.valueOf(driverId));
-            if (driverList == null) {
-                driverList = new ArrayList<>();
-                allTripCacheData.put(String.valueOf(driverId), driverList);
-            }
-
-            driverList.add(TripCache.builder()
+            // Append this pair {riderId, pickUpStation} to the driver's trip list
+            tripStateStore.addRider(driverId, TripCache.builder()
                     .riderId(riderId)
                     .pickUpStation(pickUpStation)
                     .build()
             );
 
-            log.info("Trip: Rider = {} is now travelling with Driver = {}", riderId, driverId);
+            tripLedger.match(driverId, riderId, pickUpStation);
 
-            // persist updated map
-            redisTemplate.opsForValue().set(TRIP_CACHE_KEY, allTripCacheData);
+            log.info("Trip: Rider = {} is now travelling with Driver = {}", riderId, driverId);
         } catch (InvalidProtocolBufferException e){
             log.error("Failed to parse DriverRiderMatchEvent message: {}", e.getMessage());
-        } finally {
-            redisDistributedLock.releaseLock(redisTripLockKey, lockValue);
         }
     }
 
-    @KafkaListener(topics = "${kafka.topics.ride-completion-topic}", groupId = "${spring.kafka.consumer.group-id}")
+    @KafkaListener(topics = "${kafka.topics.ride-completion-topic}", groupId = "${spring.kafka.consumer.group-id}",
+            autoStartup = "#{!${trip.streams.enabled:false}}")
     public void tripCompleted(byte[] message, Acknowledgment acknowledgment) {
-        // Try to acquire lock
-        String lockValue = tryAcquireLockWithRetry(redisTripLockKey);
-        if (lockValue == null) {
-            log.error("Unable to acquire lock with retry policy: {} lock key {} timeout milliseconds {} maximum retries {} back off milliseconds. " +
-                    "Returning void.", redisTripLockKey, 5000, 10, 200);
-            return;
-        } else {
-            log.info("Acquired lock with retry policy: {} lock key {} timeout milliseconds {} maximum retries {} back off milliseconds. " +
-                    "Returning void.", redisTripLockKey, 5000, 10, 200);
-        }
-
         try {
             log.info("Reached TripService.tripCompleted.");
 
             DriverRideCompletionEvent tempEvent = DriverRideCompletionEvent.parseFrom(message);
             String messageId = tempEvent.getMessageId();
-            if (alreadyProcessed(TRIP_COMPLETED_KAFKA_DEDUP_KEY_PREFIX, messageId)) {
+            if (!claimMessage(TRIP_COMPLETED_KAFKA_DEDUP_KEY_PREFIX, messageId)) {
                 log.info("NotificationService.tripCompleted: Duplicate Kafka message detected. Skipping. messageId={}",
                         messageId);
                 acknowledgment.acknowledge();
@@ -199,99 +125,57 @@ public class TripService {
             Long driverId = tempEvent.getDriverId();
 
             // Acknowledge that the message has been received
-            markProcessed(TRIP_COMPLETED_KAFKA_DEDUP_KEY_PREFIX, messageId);
             acknowledgment.acknowledge();
 
-            // Retrieve the trip cache from Redis (initialization not forced here because completion implies data may or may not exist)
-            @SuppressWarnings("unchecked")
-            Map<String, List<TripCache>> allTripCacheData =
-                    (Map<String, List<TripCache>>) redisTemplate.opsForValue().get(TRIP_CACHE_KEY);
-
-            if (allTripCacheData == null || !allTripCacheData.containsKey(String.valueOf(driverId))) {
+            // Take the riders associated with this driver; the driver's trip list is removed in the same step
+            List<TripCache> riderList = tripStateStore.takeRiders(driverId);
+            if (riderList.isEmpty()) {
                 // No record found for this driver; nothing to process
                 log.warn("TripService.tripCompleted: No trip cache found for driverId={}", driverId);
                 return;
             }
 
-            // Get the list of riders associated with this driver
-            List<TripCache> riderList = allTripCacheData.get(String.valueOf(driverId));
-            if (riderList == null || riderList.isEmpty()) {
-                // No riders associated, just remove the driver entry and return
-                allTripCacheData.remove(String.valueOf(driverId));
-                redisTemplate.opsForValue().set(TRIP_CACHE_KEY, allTripCacheData);
-                return;
-            }
+            List<ProducerRecord<String, byte[]>> events = new ArrayList<>(riderList.size() + 1);
 
             // 1️⃣ Produce a Kafka event for the driver’s ride completion
             DriverRideCompletionKafka driverRideCompletion = DriverRideCompletionKafka.newBuilder()
-                    .setMessageId(UUID.randomUUID().toString())
+                    .setMessageId(TripEventPublisher.fanOutMessageId(messageId, "driver"))
                     .setDriverId(driverId)
                     .setEventMessage("Driver Ride Completed")
                     .build();
+            events.add(new ProducerRecord<>(DRIVER_RIDE_COMPLETION_TOPIC, String.valueOf(driverId),
+                    driverRideCompletion.toByteArray()));
 
-            log.info("Trip completion: Driver = {}", driverId);
-
-            CompletableFuture<SendResult<String, byte[]>> future = kafkaTemplate.send(DRIVER_RIDE_COMPLETION_TOPIC,
-                    String.valueOf(driverId) ,driverRideCompletion.toByteArray());
-            future.thenAccept(result -> {
-                log.debug("Event = {} delivered to {}", driverRideCompletion, result.getRecordMetadata().topic());
-            }).exceptionally(ex -> {
-                log.error("Event failed. Error message = {}", ex.getMessage());
-                // Optional: retry, put into Redis dead-letter queue
-                return null;
-            });
-
-            // 2️⃣ Produce Kafka events for all associated riders
+            // 2️⃣ Produce Kafka events for all associated riders, keyed by rider
             for (TripCache riderTrip : riderList) {
                 RiderRideCompletionKafka riderRideCompletion = RiderRideCompletionKafka.newBuilder()
-                        .setMessageId(UUID.randomUUID().toString())
+                        .setMessageId(TripEventPublisher.fanOutMessageId(messageId, String.valueOf(riderTrip.getRiderId())))
                         .setRiderId(riderTrip.getRiderId())
                         .setEventMessage("Rider Ride Completed")
                         .build();
-
-                log.info("Trip completion: Rider = {}", riderTrip.getRiderId());
-
-                CompletableFuture<SendResult<String, byte[]>> future1 = kafkaTemplate.send(RIDER_RIDE_COMPLETION_TOPIC,
-                        String.valueOf(riderRideCompletion.getRiderId()), riderRideCompletion.toByteArray());
-                future1.thenAccept(result -> {
-                    log.debug("Event = {} delivered to {}", riderRideCompletion, result.getRecordMetadata().topic());
-                }).exceptionally(ex -> {
-                    log.error("Event failed. Error message = {}", ex.getMessage());
-                    // Optional: retry, put into Redis dead-letter queue
-                    return null;
-                });
+                events.add(new ProducerRecord<>(RIDER_RIDE_COMPLETION_TOPIC,
+                        String.valueOf(riderRideCompletion.getRiderId()), riderRideCompletion.toByteArray()));
             }
 
-            // 3️⃣ Remove the driver’s record from Redis after completion
-            allTripCacheData.remove(String.valueOf(driverId));
-            redisTemplate.opsForValue().set(TRIP_CACHE_KEY, allTripCacheData);
+            tripLedger.completion(driverId, riderList.stream().map(TripCache::getRiderId).toList());
+
+            log.info("Trip completion: Driver = {}, riders = {}", driverId, riderList.size());
+            tripEventPublisher.publish("completion", events);
         } catch (InvalidProtocolBufferException e) {
             log.error("Failed to parse DriverRideCompletionEvent message: {}", e.getMessage());
-        } finally {
-            redisDistributedLock.releaseLock(redisTripLockKey, lockValue);
         }
     }
 
-    @KafkaListener(topics = "${kafka.topics.driver-location-topic}", groupId = "${spring.kafka.consumer.group-id}")
+    @KafkaListener(topics = "${kafka.topics.driver-location-topic}", groupId = "${spring.kafka.consumer.group-id}",
+            autoStartup = "#{!${trip.streams.enabled:false}}")
     public void driverLocationUpdates(byte[] message, Acknowledgment acknowledgment) {
-        // Try to acquire lock
-        String lockValue = tryAcquireLockWithRetry(redisTripLockKey);
-        if (lockValue == null) {
-            log.error("Unable to acquire lock with retry policy: {} lock key {} timeout milliseconds {} maximum retries {} back off milliseconds. " +
-                    "Returning void.", redisTripLockKey, 5000, 10, 200);
-            return;
-        } else {
-            log.info("Acquired lock with retry policy: {} lock key {} timeout milliseconds {} maximum retries {} back off milliseconds. " +
-                    "Returning void.", redisTripLockKey, 5000, 10, 200);
-        }
-
         try {
             log.info("Reached TripService.driverLocationUpdates.");
 
             DriverLocationEvent driverLocationEvent = DriverLocationEvent.parseFrom(message);
             String messageId = driverLocationEvent.getMessageId();
 
-            if (alreadyProcessed(DRIVER_UPDATES_KAFKA_DEDUP_KEY_PREFIX, messageId)) {
+            if (!claimMessage(DRIVER_UPDATES_KAFKA_DEDUP_KEY_PREFIX, messageId)) {
                 log.info("TripService.driverLocationUpdates: Duplicate Kafka message detected. Skipping. messageId={}",
                         messageId);
                 acknowledgment.acknowledge();
@@ -303,50 +187,33 @@ public class TripService {
             String nextStation = driverLocationEvent.getNextStation();
             int timeToNextStation =  driverLocationEvent.getTimeToNextStation();
             // Manually acknowledge
-            markProcessed(DRIVER_UPDATES_KAFKA_DEDUP_KEY_PREFIX, messageId);
             acknowledgment.acknowledge();
 
             // Send driver location to all associated riders
-            @SuppressWarnings("unchecked")
-            Map<String, List<TripCache>> allTripCacheData =
-                    (Map<String, List<TripCache>>) redisTemplate.opsForValue().get(TRIP_CACHE_KEY);
-            if (allTripCacheData == null || !allTripCacheData.containsKey(String.valueOf(driverId))) {
-                return;
-            }
+            List<TripCache> riderList = tripMembershipView.riders(driverId);
 
-            List<TripCache> riderList = allTripCacheData.get(String.valueOf(driverId));
-            if (riderList == null || riderList.isEmpty()) {
-                allTripCacheData.remove(String.valueOf(driverId));
-                redisTemplate.opsForValue().set(TRIP_CACHE_KEY, allTripCacheData);
-                return;
-            }
+            if (riderList.isEmpty()) return;
+            tripLedger.milestone(driverId, riderList.stream().map(TripCache::getRiderId).toList(), oldStation, nextStation);
 
+            // one record per rider, keyed by rider so riders spread over partitions and stay on theirs
+            List<ProducerRecord<String, byte[]>> events = new ArrayList<>(riderList.size());
             for (TripCache riderTrip : riderList) {
                 DriverLocationForRiderEvent event = DriverLocationForRiderEvent.newBuilder()
-                        .setMessageId(UUID.randomUUID().toString())
+                        .setMessageId(TripEventPublisher.fanOutMessageId(messageId, String.valueOf(riderTrip.getRiderId())))
                         .setDriverId(driverId)
                         .setRiderId(riderTrip.getRiderId())
                         .setTimeToNextStation(timeToNextStation)
                         .setOldStation(oldStation)
                         .setNextStation(nextStation)
                         .build();
-
-                log.info("Driver location: Location = {}", event);
-
-                CompletableFuture<SendResult<String, byte[]>> future = kafkaTemplate.send(DRIVER_LOCATION_RIDER,
-                        String.valueOf(event.getDriverId()), event.toByteArray());
-                future.thenAccept(result -> {
-                    log.debug("Event = {} delivered to {}", event, result.getRecordMetadata().topic());
-                }).exceptionally(ex -> {
-                    log.error("Event failed. Error message = {}", ex.getMessage());
-                    // Optional: retry, put into Redis dead-letter queue
-                    return null;
-                });
+                events.add(new ProducerRecord<>(DRIVER_LOCATION_RIDER, String.valueOf(event.getRiderId()),
+                        event.toByteArray()));
             }
+
+            log.debug("Driver location: Driver = {} to {} riders", driverId, events.size());
+            tripEventPublisher.publish("location", events);
         } catch (InvalidProtocolBufferException e) {
             log.error("Failed to parse DriverLocationEvent message: {}", e.getMessage());
-        } finally {
-            redisDistributedLock.releaseLock(redisTripLockKey, lockValue);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,61 @@
+package com.metrocarpool.trip.streams;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.metrocarpool.trip.cache.TripCache;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serdes;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One driver's row in the "trip-riders" store: the riders on board and, right after a completion, the riders
+ * whose trip just ended and the completion's message id (read once by the completion fan-out, cleared by the
+ * driver's next change).
+ */
+public record TripRiders(List<TripCache> riders, List<TripCache> completed, String completionMessageId) {
+
+    public static TripRiders none() {
+        return new TripRiders(List.of(), List.of(), null);
+    }
+
+    /**
+     * The row after a match; a rider already on board is not added twice.
+     */
+    public TripRiders withRider(TripCache rider) {
+        List<TripCache> next = new ArrayList<>(riders);
+        if (next.stream().noneMatch(r -> r.getRiderId().equals(rider.getRiderId()))) next.add(rider);
+        return new TripRiders(List.copyOf(next), List.of(), null);
+    }
+
+    /**
+     * The row after the driver's trip completed: nobody on board, everyone who was listed as completed.
+     */
+    public TripRiders complete(String messageId) {
+        return new TripRiders(List.of(), riders, messageId);
+    }
+
+    /**
+     * JSON, like TripCache in Redis.
+     */
+    public static Serde<TripRiders> serde(ObjectMapper objectMapper) {
+        return Serdes.serdeFrom(
+                (topic, value) -> {
+                    if (value == null) return null;
+                    try {
+                        return objectMapper.writeValueAsBytes(value);
+                    } catch (Exception e) {
+                        throw new SerializationException("Failed to serialize trip riders", e);
+                    }
+                },
+                (topic, bytes) -> {
+                    if (bytes == null) return null;
+                    try {
+                        return objectMapper.readValue(bytes, TripRiders.class);
+                    } catch (Exception e) {
+                        throw new SerializationException("Failed to read trip riders", e);
+                    }
+                });
+    }
+}
@@ -0,0 +1,179 @@
+package com.metrocarpool.trip.streams;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.metrocarpool.contracts.proto.*;
+import com.metrocarpool.trip.cache.TripCache;
+import com.metrocarpool.trip.publisher.TripEventPublisher;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.utils.Bytes;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.kstream.*;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Trip state as a Kafka Streams topology, partitioned by driverId (trip.streams.enabled).
+ * <ul>
+ *   <li>Matches (keyed by riderId upstream) are re-keyed by driverId through the "match-by-driver" repartition
+ *   topic, merged with completions (already keyed by driverId) and aggregated into the "trip-riders" table,
+ *   a RocksDB store backed by its changelog topic.</li>
+ *   <li>Location fan-out: driver-updates joined with the table, one event per rider on board.</li>
+ *   <li>Completion fan-out: a completion turns the driver's row into "completed" in the same update that
+ *   clears it, and that table update emits the driver and rider completion events. Reading and clearing
+ *   the row in one step leaves no window for a match to slip in between.</li>
+ * </ul>
+ * driver-updates, trip-completed and the table must be co-partitioned; Streams sizes the repartition topic
+ * to match. With exactly-once processing no dedup keys are needed.
+ */
+@Component
+@Slf4j
+public class TripTopology {
+
+    public static final String TRIP_RIDERS_STORE = "trip-riders";
+
+    // a match adds rider; a completion (rider == null) ends the trip, messageId being the completion's
+    private record TripChange(TripCache rider, String messageId) {}
+
+    private final String matchTopic;
+    private final String completionTopic;
+    private final String locationTopic;
+    private final String driverCompletionTopic;
+    private final String riderCompletionTopic;
+    private final String locationForRiderTopic;
+    private final Serde<TripRiders> tripRidersSerde;
+
+    public TripTopology(@Value("${kafka.topics.rider-driver-match}") String matchTopic,
+                        @Value("${kafka.topics.ride-completion-topic}") String completionTopic,
+                        @Value("${kafka.topics.driver-location-topic}") String locationTopic,
+                        @Value("${kafka.topics.driver-ride-completion}") String driverCompletionTopic,
+                        @Value("${kafka.topics.rider-ride-completion}") String riderCompletionTopic,
+                        @Value("${kafka.topics.driver-location-rider}") String locationForRiderTopic,
+                        ObjectMapper objectMapper) {
+        this.matchTopic = matchTopic;
+        this.completionTopic = completionTopic;
+        this.locationTopic = locationTopic;
+        this.driverCompletionTopic = driverCompletionTopic;
+        this.riderCompletionTopic = riderCompletionTopic;
+        this.locationForRiderTopic = locationForRiderTopic;
+        this.tripRidersSerde = TripRiders.serde(objectMapper);
+    }
+
+    /**
+     * Add the topology to builder; returns the per-rider location stream.
+     */
+    public KStream<String, byte[]> build(StreamsBuilder builder) {
+        Consumed<String, byte[]> consumed = Consumed.with(Serdes.String(), Serdes.ByteArray());
+        Produced<String, byte[]> produced = Produced.with(Serdes.String(), Serdes.ByteArray());
+
+        KStream<String, TripChange> matches = builder.stream(matchTopic, consumed)
+                .flatMap((key, value) -> {
+                    DriverRiderMatchEvent event = parseMatch(value);
+                    return event == null ? List.<KeyValue<String, byte[]>>of()
+                            : List.of(KeyValue.pair(String.valueOf(event.getDriverId()), value));
+                })
+                .repartition(Repartitioned.with(Serdes.String(), Serdes.ByteArray()).withName("match-by-driver"))
+                .flatMapValues(value -> {
+                    DriverRiderMatchEvent event = parseMatch(value);
+                    return event == null ? List.<TripChange>of() : List.of(new TripChange(TripCache.builder()
+                            .riderId(event.getRiderId())
+                            .pickUpStation(event.getPickUpStation())
+                            .build(), null));
+                });
+
+        KStream<String, TripChange> completions = builder.stream(completionTopic, consumed)
+                .flatMapValues(value -> {
+                    DriverRideCompletionEvent event = parseCompletion(value);
+                    return event == null ? List.<TripChange>of() : List.of(new TripChange(null, event.getMessageId()));
+                });
+
+        KTable<String, TripRiders> trips = matches.merge(completions)
+                .groupByKey()
+                .aggregate(TripRiders::none,
+                        (driverId, change, trip) -> change.rider() == null ? trip.complete(change.messageId()) : trip.withRider(change.rider()),
+                        Materialized.<String, TripRiders, KeyValueStore<Bytes, byte[]>>as(TRIP_RIDERS_STORE)
+                                .withKeySerde(Serdes.String())
+                                .withValueSerde(tripRidersSerde)
+                                // every update must reach the completion fan-out, not just the last per commit
+                                .withCachingDisabled());
+
+        KStream<String, TripRiders> completed = trips.toStream()
+                .filter((driverId, trip) -> trip != null && !trip.completed().isEmpty());
+        completed.mapValues((driverId, trip) -> DriverRideCompletionKafka.newBuilder()
+                        .setMessageId(TripEventPublisher.fanOutMessageId(trip.completionMessageId(), "driver"))
+                        .setDriverId(Long.parseLong(driverId))
+                        .setEventMessage("Driver Ride Completed")
+                        .build().toByteArray())
+                .to(driverCompletionTopic, produced);
+        completed.flatMap((driverId, trip) -> {
+                    List<KeyValue<String, byte[]>> events = new ArrayList<>(trip.completed().size());
+                    for (TripCache rider : trip.completed()) {
+                        events.add(KeyValue.pair(String.valueOf(rider.getRiderId()), RiderRideCompletionKafka.newBuilder()
+                                .setMessageId(TripEventPublisher.fanOutMessageId(trip.completionMessageId(),
+                                        String.valueOf(rider.getRiderId())))
+                                .setRiderId(rider.getRiderId())
+                                .setEventMessage("Rider Ride Completed")
+                                .build().toByteArray()));
+                    }
+                    return events;
+                })
+                .to(riderCompletionTopic, produced);
+
+        KStream<String, byte[]> locationsForRiders = builder.stream(locationTopic, consumed)
+                .join(trips, (value, trip) -> forRiders(value, trip.riders()),
+                        Joined.with(Serdes.String(), Serdes.ByteArray(), tripRidersSerde))
+                .flatMap((driverId, events) -> events);
+        locationsForRiders.to(locationForRiderTopic, produced);
+        return locationsForRiders;
+    }
+
+    // keyed by riderId like TripService's fan-out; ids derived from the location event's
+    private static List<KeyValue<String, byte[]>> forRiders(byte[] value, List<TripCache> riders) {
+        if (riders.isEmpty()) return List.of();
+        DriverLocationEvent location;
+        try {
+            location = DriverLocationEvent.parseFrom(value);
+        } catch (InvalidProtocolBufferException e) {
+            log.error("TripTopology: failed to parse DriverLocationEvent: {}", e.getMessage());
+            return List.of();
+        }
+        List<KeyValue<String, byte[]>> events = new ArrayList<>(riders.size());
+        for (TripCache rider : riders) {
+            events.add(KeyValue.pair(String.valueOf(rider.getRiderId()), DriverLocationForRiderEvent.newBuilder()
+                    .setMessageId(TripEventPublisher.fanOutMessageId(location.getMessageId(),
+                            String.valueOf(rider.getRiderId())))
+                    .setDriverId(location.getDriverId())
+                    .setRiderId(rider.getRiderId())
+                    .setTimeToNextStation(location.getTimeToNextStation())
+                    .setOldStation(location.getOldStation())
+                    .setNextStation(location.getNextStation())
+                    .build().toByteArray()));
+        }
+        return events;
+    }
+
+    private static DriverRiderMatchEvent parseMatch(byte[] value) {
+        try {
+            return DriverRiderMatchEvent.parseFrom(value);
+        } catch (InvalidProtocolBufferException e) {
+            log.error("TripTopology: failed to parse DriverRiderMatchEvent: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static DriverRideCompletionEvent parseCompletion(byte[] value) {
+        try {
+            return DriverRideCompletionEvent.parseFrom(value);
+        } catch (InvalidProtocolBufferException e) {
+            log.error("TripTopology: failed to parse DriverRideCompletionEvent: {}", e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.metrocarpool.trip.cache;
+
+import com.metrocarpool.contracts.proto.DriverRideCompletionEvent;
+import com.metrocarpool.contracts.proto.DriverRiderMatchEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("TripMembershipView Unit Tests")
+class TripMembershipViewTest {
+
+    @Mock
+    private TripStateStore tripStateStore;
+
+    @Mock
+    private Acknowledgment acknowledgment;
+
+    @Mock
+    private Clock clock;
+
+    private TripMembershipView view;
+
+    @BeforeEach
+    void setUp() {
+        view = new TripMembershipView(tripStateStore, true, 1_000, Duration.ofHours(24), clock, new SimpleMeterRegistry());
+    }
+
+    private static TripCache rider(long riderId) {
+        return TripCache.builder().riderId(riderId).pickUpStation("Station" + riderId).build();
+    }
+
+    private static byte[] match(long driverId, long riderId) {
+        return DriverRiderMatchEvent.newBuilder()
+                .setDriverId(driverId).setRiderId(riderId).setPickUpStation("Station" + riderId)
+                .build().toByteArray();
+    }
+
+    @Test
+    @DisplayName("riders - Should load a driver from Redis once, then answer from memory")
+    void riders_LoadsOnceFromRedis() {
+        when(tripStateStore.riders(1L)).thenReturn(List.of(rider(7L)));
+        when(tripStateStore.riders(2L)).thenReturn(List.of());
+
+        assertThat(view.riders(1L)).containsExactly(rider(7L));
+        assertThat(view.riders(1L)).containsExactly(rider(7L));
+        assertThat(view.riders(2L)).isEmpty();
+        assertThat(view.riders(2L)).isEmpty();
+
+        verify(tripStateStore, times(1)).riders(1L);
+        verify(tripStateStore, times(1)).riders(2L);
+    }
+
+    @Test
+    @DisplayName("onMatch/onTripCompleted - Should keep a loaded driver current without Redis")
+    void events_UpdateLoadedDriver() {
+        when(tripStateStore.riders(1L)).thenReturn(List.of(rider(7L)));
+        view.riders(1L);
+
+        view.onMatch(match(1L, 8L), acknowledgment);
+        view.onMatch(match(1L, 8L), acknowledgment);
+        assertThat(view.riders(1L)).containsExactly(rider(7L), rider(8L));
+
+        view.onTripCompleted(DriverRideCompletionEvent.newBuilder().setDriverId(1L).build().toByteArray(), acknowledgment);
+        assertThat(view.riders(1L)).isEmpty();
+
+        verify(tripStateStore, times(1)).riders(1L);
+        verify(acknowledgment, times(3)).acknowledge();
+    }
+
+    @Test
+    @DisplayName("onMatch - Should merge a match seen before the driver's Redis load")
+    void onMatch_MergesWithColdLoad() {
+        when(tripStateStore.riders(1L)).thenReturn(List.of(rider(7L)));
+
+        view.onMatch(match(1L, 8L), acknowledgment);
+
+        assertThat(view.riders(1L)).containsExactly(rider(8L), rider(7L));
+        verify(tripStateStore, times(1)).riders(1L);
+    }
+
+    @Test
+    @DisplayName("riders - Should read a driver from Redis again once its entry is older than the trip TTL")
+    void riders_ReloadsAfterTtl() {
+        when(clock.millis()).thenReturn(0L);
+        when(tripStateStore.riders(1L)).thenReturn(List.of(rider(7L)));
+        view.riders(1L);
+        view.onMatch(match(1L, 8L), acknowledgment);
+
+        // the completion event was lost; Redis expired the list
+        when(clock.millis()).thenReturn(Duration.ofHours(24).toMillis());
+        when(tripStateStore.riders(1L)).thenReturn(List.of());
+
+        assertThat(view.riders(1L)).isEmpty();
+        assertThat(view.riders(1L)).isEmpty();
+        verify(tripStateStore, times(2)).riders(1L);
+    }
+
+    @Test
+    @DisplayName("onPartitionsAssigned - Should start the stable view groups at the end of their topics")
+    void onPartitionsAssigned_SeeksToEnd() {
+        ConsumerSeekAware.ConsumerSeekCallback callback = mock(ConsumerSeekAware.ConsumerSeekCallback.class);
+        Map<TopicPartition, Long> assignments = Map.of(new TopicPartition("rider-driver-match", 0), 42L);
+
+        view.onPartitionsAssigned(assignments, callback);
+
+        verify(callback).seekToEnd(assignments.keySet());
+    }
+
+    @Test
+    @DisplayName("riders - Should go straight to Redis when the view is disabled")
+    void riders_DisabledReadsRedis() {
+        TripMembershipView disabled = new TripMembershipView(tripStateStore, false, 1_000, Duration.ofHours(24), clock,
+                new SimpleMeterRegistry());
+        when(tripStateStore.riders(1L)).thenReturn(List.of(rider(7L)));
+
+        disabled.riders(1L);
+        disabled.riders(1L);
+
+        verify(tripStateStore, times(2)).riders(1L);
+        assertThat(disabled.size()).isZero();
+    }
+}
@@ -0,0 +1,99 @@
+package com.metrocarpool.trip.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.ListOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("TripStateStore Unit Tests")
+class TripStateStoreTest {
+
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Mock
+    private RedisTemplate<String, String> redisStringTemplate;
+
+    @Mock
+    private ValueOperations<String, Object> valueOperations;
+
+    @Mock
+    private ListOperations<String, String> listOperations;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private TripStateStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new TripStateStore(redisTemplate, redisStringTemplate, objectMapper);
+        ReflectionTestUtils.setField(store, "ttlHours", 24L);
+        lenient().when(redisStringTemplate.opsForList()).thenReturn(listOperations);
+        lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+    }
+
+    @Test
+    @DisplayName("addRider - Should append to the driver's own list and refresh its TTL")
+    void addRider_AppendsToDriverList() throws Exception {
+        TripCache trip = TripCache.builder().riderId(7L).pickUpStation("Station1").build();
+
+        store.addRider(3L, trip);
+
+        verify(listOperations).rightPush("trip:driver:3", objectMapper.writeValueAsString(trip));
+        verify(redisStringTemplate).expire("trip:driver:3", 24L, TimeUnit.HOURS);
+    }
+
+    @Test
+    @DisplayName("riders - Should read one driver's list, skipping unreadable entries")
+    void riders_ReadsDriverList() {
+        when(listOperations.range("trip:driver:3", 0, -1)).thenReturn(List.of(
+                "{\"riderId\":7,\"pickUpStation\":\"Station1\"}", "not json",
+                "{\"riderId\":8,\"pickUpStation\":\"Station2\"}"));
+
+        assertThat(store.riders(3L)).extracting(TripCache::getRiderId).containsExactly(7L, 8L);
+        assertThat(store.riders(4L)).isEmpty();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    @DisplayName("takeRiders - Should read and delete the list in one script")
+    void takeRiders_UsesScript() {
+        when(redisStringTemplate.execute(any(RedisScript.class), eq(List.of("trip:driver:3"))))
+                .thenReturn(List.of("{\"riderId\":7,\"pickUpStation\":\"Station1\"}"));
+
+        assertThat(store.takeRiders(3L)).containsExactly(
+                TripCache.builder().riderId(7L).pickUpStation("Station1").build());
+        verifyNoInteractions(listOperations);
+    }
+
+    @Test
+    @DisplayName("migrateLegacyBlob - Should move every rider of the trip-cache blob to per-driver lists")
+    void migrateLegacyBlob_MovesRiders() throws Exception {
+        TripCache first = TripCache.builder().riderId(7L).pickUpStation("Station1").build();
+        when(valueOperations.getAndDelete("trip-cache")).thenReturn(Map.of(
+                "3", List.of(first, Map.of("riderId", 8, "pickUpStation", "Station2")),
+                "bad", List.of(first)));
+
+        store.migrateLegacyBlob();
+
+        verify(listOperations).rightPush("trip:driver:3", objectMapper.writeValueAsString(first));
+        verify(listOperations).rightPush("trip:driver:3", "{\"riderId\":8,\"pickUpStation\":\"Station2\"}");
+        verify(listOperations, times(2)).rightPush(anyString(), anyString());
+    }
+}
@@ -0,0 +1,89 @@
+package com.metrocarpool.trip.ledger;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("TripLedger Unit Tests")
+class TripLedgerTest {
+
+    @TempDir
+    Path dir;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private TripLedger ledger(int bufferCapacity, long segmentBytes) {
+        return new TripLedger(true, dir.toString(), bufferCapacity, 100, 50L, segmentBytes, registry);
+    }
+
+    private List<String> lines() throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.sorted().flatMap(file -> {
+                try {
+                    return Files.readAllLines(file).stream();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }).toList();
+        }
+    }
+
+    @Test
+    @DisplayName("stop - Should write every buffered entry, milestones only on station changes")
+    void stop_FlushesTrip() throws Exception {
+        TripLedger ledger = ledger(1_000, 1L << 20);
+        ledger.start();
+
+        ledger.match(1L, 7L, "Station1");
+        ledger.milestone(1L, List.of(7L), "Station1", "Station2");
+        ledger.milestone(1L, List.of(7L), "Station1", "Station2");
+        ledger.milestone(1L, List.of(7L), "Station2", "Station3");
+        ledger.completion(1L, List.of(7L));
+        ledger.stop();
+
+        List<String> lines = lines();
+        assertThat(lines).hasSize(4);
+        assertThat(lines.get(0)).endsWith("\tMATCH\t1\t7\tStation1\t");
+        assertThat(lines.get(2)).endsWith("\tMILESTONE\t1\t7\tStation2\tStation3");
+        assertThat(lines.get(3)).endsWith("\tCOMPLETION\t1\t7\t\t");
+        assertThat(registry.get("trip.ledger.flush.lag").timer().count()).isPositive();
+    }
+
+    @Test
+    @DisplayName("append - Should drop and count entries once the buffer is full")
+    void append_DropsWhenFull() {
+        TripLedger ledger = ledger(2, 1L << 20);
+
+        ledger.completion(1L, List.of(7L));
+        ledger.completion(2L, List.of(8L));
+        ledger.completion(3L, List.of(9L));
+
+        assertThat(registry.get("trip.ledger.dropped").counter().count()).isEqualTo(1.0);
+        assertThat(registry.get("trip.ledger.buffered").gauge().value()).isEqualTo(2.0);
+    }
+
+    @Test
+    @DisplayName("write - Should roll to a new segment past segment-bytes")
+    void write_RollsSegments() throws Exception {
+        TripLedger ledger = ledger(1_000, 64L);
+        ledger.start();
+        for (long driverId = 0; driverId < 20; driverId++) {
+            ledger.completion(driverId, List.of(100L + driverId));
+            Thread.sleep(5);
+        }
+        ledger.stop();
+
+        try (Stream<Path> files = Files.list(dir)) {
+            assertThat(files.count()).isGreaterThan(1L);
+        }
+        assertThat(lines()).hasSize(20);
+    }
+}
@@ -0,0 +1,73 @@
+package com.metrocarpool.trip.publisher;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("TripEventPublisher Unit Tests")
+class TripEventPublisherTest {
+
+    @Mock
+    private KafkaTemplate<String, byte[]> kafkaTemplate;
+
+    private SimpleMeterRegistry registry;
+    private TripEventPublisher publisher;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        publisher = new TripEventPublisher(kafkaTemplate, registry);
+    }
+
+    private static ProducerRecord<String, byte[]> record(String key) {
+        return new ProducerRecord<>("driver-location-rider", key, new byte[]{1});
+    }
+
+    @Test
+    @DisplayName("publish - Should send every record and measure the batch")
+    void publish_SendsBatch() {
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.completedFuture(mock(SendResult.class)));
+
+        assertThat(publisher.publish("location", List.of(record("7"), record("8"), record("9"))).join()).isZero();
+
+        verify(kafkaTemplate, times(3)).send(any(ProducerRecord.class));
+        assertThat(registry.get("trip.fanout.records").tag("kind", "location").summary().totalAmount()).isEqualTo(3.0);
+        assertThat(registry.get("trip.fanout.latency").tag("kind", "location").timer().count()).isEqualTo(1L);
+    }
+
+    @Test
+    @DisplayName("publish - Should count failed records without failing the batch")
+    void publish_CountsFailures() {
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.completedFuture(mock(SendResult.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+        assertThat(publisher.publish("completion", List.of(record("1"), record("7"))).join()).isEqualTo(1);
+
+        assertThat(registry.get("trip.fanout.failures").tag("kind", "completion").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("publish - Should not touch Kafka for an empty fan-out")
+    void publish_EmptyBatch() {
+        assertThat(publisher.publish("location", List.of()).join()).isZero();
+
+        verifyNoInteractions(kafkaTemplate);
+    }
+}
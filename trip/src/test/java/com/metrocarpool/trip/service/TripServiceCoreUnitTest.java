@@ -1,6 +1,5 @@
 package com.metrocarpool.trip.service;
 
-import com.metrocarpool.trip.redislock.RedisDistributedLock;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -19,9 +18,6 @@ class TripServiceCoreUnitTest {
     @Mock
     private RedisTemplate<String, String> redisStringTemplate;
 
-    @Mock
-    private RedisDistributedLock redisDistributedLock;
-
     @Test
     @DisplayName("alreadyProcessed - Should return true when message processed")
     void alreadyProcessed_ReturnsTrue() {
@@ -47,27 +43,4 @@ class TripServiceCoreUnitTest {
 
         assertThat(result).isFalse();
     }
-
-    @Test
-    @DisplayName("Lock retry - Should return lock value on success")
-    void lockRetry_Success() {
-        String lockKey = "trip-lock";
-        String lockValue = "lock-value-123";
-        when(redisDistributedLock.acquireLock(eq(lockKey), anyLong())).thenReturn(lockValue);
-
-        String result = redisDistributedLock.acquireLock(lockKey, 5000L);
-
-        assertThat(result).isEqualTo(lockValue);
-    }
-
-    @Test
-    @DisplayName("Lock retry - Should return null on failure")
-    void lockRetry_Failure() {
-        String lockKey = "trip-lock";
-        when(redisDistributedLock.acquireLock(eq(lockKey), anyLong())).thenReturn(null);
-
-        String result = redisDistributedLock.acquireLock(lockKey, 5000L);
-
-        assertThat(result).isNull();
-    }
 }
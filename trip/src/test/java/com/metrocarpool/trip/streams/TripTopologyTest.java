@@ -0,0 +1,137 @@
+package com.metrocarpool.trip.streams;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.metrocarpool.contracts.proto.*;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.streams.*;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("TripTopology Unit Tests")
+class TripTopologyTest {
+
+    @TempDir
+    Path stateDir;
+
+    private TopologyTestDriver driver;
+    private TestInputTopic<String, byte[]> matches;
+    private TestInputTopic<String, byte[]> completions;
+    private TestInputTopic<String, byte[]> locations;
+    private TestOutputTopic<String, byte[]> locationsForRiders;
+    private TestOutputTopic<String, byte[]> driverCompletions;
+    private TestOutputTopic<String, byte[]> riderCompletions;
+
+    @BeforeEach
+    void setUp() {
+        StreamsBuilder builder = new StreamsBuilder();
+        new TripTopology("rider-driver-match", "trip-completed", "driver-updates", "driver-ride-completion",
+                "rider-ride-completion", "driver-location-rider", new ObjectMapper()).build(builder);
+        Properties props = new Properties();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, "trip-streams-test");
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:9092");
+        props.put(StreamsConfig.STATE_DIR_CONFIG, stateDir.toString());
+        driver = new TopologyTestDriver(builder.build(), props);
+
+        StringSerializer keys = new StringSerializer();
+        ByteArraySerializer values = new ByteArraySerializer();
+        matches = driver.createInputTopic("rider-driver-match", keys, values);
+        completions = driver.createInputTopic("trip-completed", keys, values);
+        locations = driver.createInputTopic("driver-updates", keys, values);
+        locationsForRiders = driver.createOutputTopic("driver-location-rider", new StringDeserializer(), new ByteArrayDeserializer());
+        driverCompletions = driver.createOutputTopic("driver-ride-completion", new StringDeserializer(), new ByteArrayDeserializer());
+        riderCompletions = driver.createOutputTopic("rider-ride-completion", new StringDeserializer(), new ByteArrayDeserializer());
+    }
+
+    @AfterEach
+    void tearDown() {
+        driver.close();
+    }
+
+    private void match(long driverId, long riderId) {
+        // keyed by riderId, as matching publishes it
+        matches.pipeInput(String.valueOf(riderId), DriverRiderMatchEvent.newBuilder()
+                .setDriverId(driverId).setRiderId(riderId).setPickUpStation("Station" + riderId)
+                .build().toByteArray());
+    }
+
+    private void location(long driverId) {
+        locations.pipeInput(String.valueOf(driverId), DriverLocationEvent.newBuilder()
+                .setDriverId(driverId).setMessageId("loc-" + driverId).setOldStation("Station1").setNextStation("Station2").setTimeToNextStation(90)
+                .build().toByteArray());
+    }
+
+    private void complete(long driverId) {
+        completions.pipeInput(String.valueOf(driverId), DriverRideCompletionEvent.newBuilder()
+                .setDriverId(driverId).setMessageId("done-" + driverId).build().toByteArray());
+    }
+
+    private static long riderOf(byte[] locationForRider) throws Exception {
+        return DriverLocationForRiderEvent.parseFrom(locationForRider).getRiderId();
+    }
+
+    @Test
+    @DisplayName("location - Should fan out one event per rider on board, none for drivers without riders")
+    void location_FansOutToRiders() throws Exception {
+        match(1L, 7L);
+        match(1L, 8L);
+        match(1L, 8L);
+
+        location(1L);
+        location(2L);
+
+        List<KeyValue<String, byte[]>> out = locationsForRiders.readKeyValuesToList();
+        assertThat(out).extracting(kv -> kv.key).containsExactly("7", "8");
+        assertThat(List.of(riderOf(out.get(0).value), riderOf(out.get(1).value))).containsExactly(7L, 8L);
+        DriverLocationForRiderEvent first = DriverLocationForRiderEvent.parseFrom(out.get(0).value);
+        assertThat(first.getNextStation()).isEqualTo("Station2");
+        assertThat(first.getTimeToNextStation()).isEqualTo(90);
+        assertThat(first.getMessageId()).isEqualTo("loc-1:7");
+    }
+
+    @Test
+    @DisplayName("completion - Should notify the driver and every rider once, then stop the location fan-out")
+    void completion_FansOutAndClears() throws Exception {
+        match(1L, 7L);
+        match(1L, 8L);
+
+        complete(1L);
+        complete(1L);
+        location(1L);
+
+        List<KeyValue<String, byte[]>> drivers = driverCompletions.readKeyValuesToList();
+        assertThat(drivers).extracting(kv -> kv.key).containsExactly("1");
+        assertThat(DriverRideCompletionKafka.parseFrom(drivers.get(0).value).getMessageId()).isEqualTo("done-1:driver");
+        List<KeyValue<String, byte[]>> riders = riderCompletions.readKeyValuesToList();
+        assertThat(riders).extracting(kv -> kv.key).containsExactly("7", "8");
+        assertThat(RiderRideCompletionKafka.parseFrom(riders.get(0).value).getRiderId()).isEqualTo(7L);
+        assertThat(RiderRideCompletionKafka.parseFrom(riders.get(1).value).getMessageId()).isEqualTo("done-1:8");
+        assertThat(locationsForRiders.isEmpty()).isTrue();
+    }
+
+    @Test
+    @DisplayName("store - Should keep the driver's riders keyed by driverId, a new trip starting clean")
+    void store_KeyedByDriver() {
+        match(1L, 7L);
+        complete(1L);
+        match(1L, 9L);
+
+        KeyValueStore<String, TripRiders> store = driver.getKeyValueStore(TripTopology.TRIP_RIDERS_STORE);
+        TripRiders trip = store.get("1");
+        assertThat(trip.riders()).extracting(r -> r.getRiderId()).containsExactly(9L);
+        assertThat(trip.completed()).isEmpty();
+        assertThat(store.get("7")).isNull();
+    }
+}